@@ -0,0 +1,97 @@
+package de.ckollmeier.burgerexpress.backend.benchmark;
+
+import de.ckollmeier.burgerexpress.backend.interfaces.ImageEngine;
+import de.ckollmeier.burgerexpress.backend.service.Java2DImageEngine;
+import de.ckollmeier.burgerexpress.backend.service.OpenCvImageEngine;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javax.imageio.ImageIO;
+import java.awt.Color;
+import java.awt.GradientPaint;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Vergleicht die Bild-Engines (Java2D/TwelveMonkeys gegen reines OpenCV) für verschiedene Quellgrößen.
+ * Gemessen wird der komplette Weg von den kodierten Originaldaten bis zur kodierten Variante.
+ * Allokationen pro Aufruf liefert der GC-Profiler:
+ * {@code mvn -Pbenchmark test-compile exec:exec -Djmh.args="ImageEngineBenchmark -prof gc"}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ImageEngineBenchmark {
+
+    @Param({"512", "1024", "2048", "4096"})
+    private int sourceSize;
+
+    @Param({"png", "jpeg"})
+    private String sourceFormat;
+
+    @Param({"webp", "png"})
+    private String targetFormat;
+
+    @Param({"200"})
+    private int targetSize;
+
+    private byte[] source;
+    private final ImageEngine java2d = new Java2DImageEngine();
+    private final ImageEngine openCv = new OpenCvImageEngine();
+
+    @Setup(Level.Trial)
+    public void createSource() throws IOException {
+        source = syntheticImage(sourceSize, sourceSize * 3 / 4, sourceFormat);
+    }
+
+    @Benchmark
+    public byte[] java2d() throws IOException {
+        return java2d.resize(new ByteArrayInputStream(source), targetSize, targetFormat);
+    }
+
+    @Benchmark
+    public byte[] openCv() throws IOException {
+        return openCv.resize(new ByteArrayInputStream(source), targetSize, targetFormat);
+    }
+
+    /**
+     * Erzeugt ein Foto-ähnliches Testbild (Verlauf mit Rauschen), damit die Kodierer realistische Arbeit haben.
+     */
+    static byte[] syntheticImage(final int width, final int height, final String format) throws IOException {
+        int type = "png".equals(format) ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB;
+        BufferedImage image = new BufferedImage(width, height, type);
+        Graphics2D graphics = image.createGraphics();
+        graphics.setPaint(new GradientPaint(0, 0, new Color(200, 120, 40), width, height, new Color(40, 90, 160)));
+        graphics.fillRect(0, 0, width, height);
+        graphics.dispose();
+
+        Random random = new Random(42);
+        for (int i = 0; i < width * height / 8; i++) {
+            int x = random.nextInt(width);
+            int y = random.nextInt(height);
+            image.setRGB(x, y, image.getRGB(x, y) ^ (random.nextInt() & 0x000F0F0F));
+        }
+
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        ImageIO.write(image, format, outputStream);
+        return outputStream.toByteArray();
+    }
+}
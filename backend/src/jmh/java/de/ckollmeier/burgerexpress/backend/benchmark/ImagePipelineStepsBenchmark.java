@@ -0,0 +1,147 @@
+package de.ckollmeier.burgerexpress.backend.benchmark;
+
+import de.ckollmeier.burgerexpress.backend.interfaces.ImageEngine;
+import de.ckollmeier.burgerexpress.backend.service.Java2DImageEngine;
+import com.twelvemonkeys.image.ResampleOp;
+import org.opencv.core.Mat;
+import org.opencv.core.MatOfByte;
+import org.opencv.imgcodecs.Imgcodecs;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javax.imageio.ImageIO;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Misst die einzelnen Schritte, die {@code ImagesService.getCroppedImage} für eine neue Variante durchläuft:
+ * Dekodieren (voll und unterabgetastet), Skalieren mit {@link ResampleOp}, Kopieren in eine OpenCV-Matrix und
+ * Kodieren als WebP, PNG oder JPEG. So lässt sich zuordnen, welcher Schritt bei einer Änderung an Engine oder
+ * Tuning schneller oder langsamer geworden ist.
+ * Jeder Schritt wird im Durchsatz (ops/ms) und als Latenzverteilung (p50/p99) gemessen; die Allokationsrate
+ * ({@code gc.alloc.rate.norm}) liefert der GC-Profiler, den das Profil {@code benchmark} standardmäßig aktiviert.
+ * Die Bilder werden synthetisch erzeugt, der Benchmark braucht weder MongoDB noch Netzwerk:
+ * {@code mvn -Pbenchmark test-compile exec:exec -Djmh.args="ImagePipelineStepsBenchmark -prof gc"}
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ImagePipelineStepsBenchmark {
+
+    @Param({"512", "2048", "4096"})
+    private int sourceSize;
+
+    @Param({"jpeg", "png"})
+    private String sourceFormat;
+
+    @Param({"256"})
+    private int targetSize;
+
+    private byte[] source;
+    /** Unterabgetastet dekodiertes Original, Eingabe des Skalierens. */
+    private BufferedImage decoded;
+    /** Skalierte Variante, Eingabe der Kodierer. */
+    private BufferedImage resized;
+    /** Skalierte Variante ohne Alphakanal, da JPEG keine Transparenz kodiert. */
+    private BufferedImage resizedRgb;
+    /** Skalierte Variante als OpenCV-Matrix, Eingabe des WebP-Kodierers. */
+    private Mat resizedMat;
+    private int[] dimensions;
+    private final Java2DImageEngine java2d = new Java2DImageEngine();
+
+    @Setup(Level.Trial)
+    public void createSource() throws IOException {
+        source = ImageEngineBenchmark.syntheticImage(sourceSize, sourceSize * 3 / 4, sourceFormat);
+        decoded = Java2DImageEngine.decode(new ByteArrayInputStream(source), targetSize);
+        dimensions = ImageEngine.scaledDimensions(decoded.getWidth(), decoded.getHeight(), targetSize);
+        resized = new ResampleOp(dimensions[0], dimensions[1]).filter(decoded, null);
+        resizedRgb = new BufferedImage(resized.getWidth(), resized.getHeight(), BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = resizedRgb.createGraphics();
+        graphics.drawImage(resized, 0, 0, Color.WHITE, null);
+        graphics.dispose();
+        resizedMat = java2d.bufferedImageToMat4Channels(resized);
+    }
+
+    @TearDown(Level.Trial)
+    public void releaseMat() {
+        resizedMat.release();
+    }
+
+    /**
+     * Volles Raster des Originals, wie es {@link ImageIO#read} liefert.
+     */
+    @Benchmark
+    public BufferedImage decodeFull() throws IOException {
+        return ImageIO.read(new ByteArrayInputStream(source));
+    }
+
+    /**
+     * Dekodieren mit Unterabtastung auf die Zielgröße, wie es die {@link Java2DImageEngine} macht.
+     */
+    @Benchmark
+    public BufferedImage decodeSubsampled() throws IOException {
+        return Java2DImageEngine.decode(new ByteArrayInputStream(source), targetSize);
+    }
+
+    @Benchmark
+    public BufferedImage resample() {
+        return new ResampleOp(dimensions[0], dimensions[1]).filter(decoded, null);
+    }
+
+    /**
+     * Kopie der Pixel in eine BGRA-Matrix; der native Speicher wird sofort wieder freigegeben.
+     */
+    @Benchmark
+    public long bufferedImageToMat4Channels() {
+        Mat mat = java2d.bufferedImageToMat4Channels(resized);
+        try {
+            return mat.total();
+        } finally {
+            mat.release();
+        }
+    }
+
+    @Benchmark
+    public byte[] encodeWebp() {
+        MatOfByte buffer = new MatOfByte();
+        try {
+            Imgcodecs.imencode(".webp", resizedMat, buffer);
+            return buffer.toArray();
+        } finally {
+            buffer.release();
+        }
+    }
+
+    @Benchmark
+    public byte[] encodePng() throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        ImageIO.write(resized, "png", outputStream);
+        return outputStream.toByteArray();
+    }
+
+    @Benchmark
+    public byte[] encodeJpeg() throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        ImageIO.write(resizedRgb, "jpeg", outputStream);
+        return outputStream.toByteArray();
+    }
+}
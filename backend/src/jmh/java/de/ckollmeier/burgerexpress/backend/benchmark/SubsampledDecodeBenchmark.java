@@ -0,0 +1,76 @@
+package de.ckollmeier.burgerexpress.backend.benchmark;
+
+import de.ckollmeier.burgerexpress.backend.interfaces.ImageEngine;
+import de.ckollmeier.burgerexpress.backend.service.Java2DImageEngine;
+import com.twelvemonkeys.image.ResampleOp;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Vergleicht das vollständige Dekodieren großer Originale mit dem unterabgetasteten Dekodieren der
+ * {@link Java2DImageEngine} für kleine Zielgrößen.
+ * Die Latenzverteilung liefert der Modus {@link Mode#SampleTime} (p50/p99), den Speicherbedarf pro Aufruf
+ * der GC-Profiler ({@code gc.alloc.rate.norm}); der Unterschied entspricht dem eingesparten Raster:
+ * {@code mvn -Pbenchmark test-compile exec:exec -Djmh.args="SubsampledDecodeBenchmark -prof gc"}
+ * Mit kleinem Heap ({@code -jvmArgsAppend -Xmx256m}) scheitert der volle Weg bei 6000×4000 bereits am Raster.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SubsampledDecodeBenchmark {
+
+    @Param({"2048", "4096", "6000"})
+    private int sourceSize;
+
+    @Param({"jpeg", "png"})
+    private String sourceFormat;
+
+    @Param({"128", "256"})
+    private int targetSize;
+
+    private byte[] source;
+    private final ImageEngine java2d = new Java2DImageEngine();
+
+    @Setup(Level.Trial)
+    public void createSource() throws IOException {
+        source = ImageEngineBenchmark.syntheticImage(sourceSize, sourceSize * 2 / 3, sourceFormat);
+    }
+
+    /**
+     * Bisheriger Weg: volles Raster dekodieren, dann mit {@link ResampleOp} verkleinern.
+     */
+    @Benchmark
+    public byte[] fullDecode() throws IOException {
+        BufferedImage original = ImageIO.read(new ByteArrayInputStream(source));
+        int[] dimensions = ImageEngine.scaledDimensions(original.getWidth(), original.getHeight(), targetSize);
+        BufferedImage resized = new ResampleOp(dimensions[0], dimensions[1]).filter(original, null);
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        ImageIO.write(resized, "png", outputStream);
+        return outputStream.toByteArray();
+    }
+
+    @Benchmark
+    public byte[] subsampledDecode() throws IOException {
+        return java2d.resize(new ByteArrayInputStream(source), targetSize, "png");
+    }
+}
@@ -1,16 +1,138 @@
 package de.ckollmeier.burgerexpress.backend.configuration;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import de.ckollmeier.burgerexpress.backend.dto.FilesDTO;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.cache.CacheManager;
 import org.springframework.cache.annotation.EnableCaching;
-import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.cache.support.SimpleCacheManager;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.util.unit.DataSize;
 
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Konfiguration der Caches.
+ * Der Cache "images" enthält fertig gerenderte Bildvarianten und ist über die Summe der gespeicherten Bytes
+ * begrenzt (nicht über die Anzahl der Einträge), da die Größe einer Variante stark von der angefragten Größe abhängt.
+ * Standardmäßig liegen die Bilddaten außerhalb des Heaps ({@link OffHeapImageCache}), damit große Caches die
+ * GC-Pausen der API nicht verlängern.
+ */
 @EnableCaching
 @Configuration
 public class CacheConfig {
+    public static final String IMAGES_CACHE = "images";
+    static final String STORE_OFF_HEAP = "off-heap";
+
+    /**
+     * Geschätzter Speicherbedarf eines Cache-Eintrags ohne die eigentlichen Bilddaten (Key, DTO, Strings).
+     */
+    static final int ENTRY_OVERHEAD_BYTES = 256;
+
+    @Value("${burgerexpress.images.cache.max-size:128MB}")
+    private DataSize imagesCacheMaxSize;
+
+    @Value("${burgerexpress.images.cache.ttl:24h}")
+    private Duration imagesCacheTtl;
+
+    /**
+     * Ablage der Bilddaten: "off-heap" (Blöcke in direkten ByteBuffern) oder "heap".
+     */
+    @Value("${burgerexpress.images.cache.store:off-heap}")
+    private String imagesCacheStore;
+
+    @Value("${burgerexpress.images.cache.off-heap.slab-size:4MB}")
+    private DataSize offHeapSlabSize;
+
+    @Value("${burgerexpress.images.cache.off-heap.block-size:8KB}")
+    private DataSize offHeapBlockSize;
+
     @Bean
-    public CacheManager cacheManager() {
-        return new ConcurrentMapCacheManager("images");
+    public CacheManager cacheManager(final MeterRegistry meterRegistry) {
+        if (STORE_OFF_HEAP.equalsIgnoreCase(imagesCacheStore)) {
+            OffHeapImageCache imagesCache = offHeapImagesCache(meterRegistry);
+            SimpleCacheManager cacheManager = new SimpleCacheManager();
+            cacheManager.setCaches(List.of(imagesCache));
+            cacheManager.initializeCaches();
+            return cacheManager;
+        }
+
+        Cache<Object, Object> imagesCache = imagesCache(imagesCacheMaxSize, imagesCacheTtl);
+        Gauge.builder("cache.weighted.size", imagesCache, CacheConfig::weightedSize)
+                .description("Belegte Bytes der gecachten Bildvarianten")
+                .baseUnit("bytes")
+                .tag("cache", IMAGES_CACHE)
+                .register(meterRegistry);
+
+        CaffeineCacheManager cacheManager = new CaffeineCacheManager();
+        cacheManager.registerCustomCache(IMAGES_CACHE, imagesCache);
+        return cacheManager;
+    }
+
+    /**
+     * Erzeugt den Cache für Bildvarianten, dessen Bilddaten außerhalb des Heaps liegen, und registriert dessen
+     * Metriken: die {@code cache.*} Zähler von Caffeine sowie belegte, reservierte Bytes und Verschnitt des
+     * Speicherbereichs ({@code images.offheap.*}).
+     */
+    private OffHeapImageCache offHeapImagesCache(final MeterRegistry meterRegistry) {
+        OffHeapImageArena arena = new OffHeapImageArena(imagesCacheMaxSize, offHeapSlabSize, offHeapBlockSize);
+        OffHeapImageCache imagesCache = new OffHeapImageCache(IMAGES_CACHE, arena, imagesCacheMaxSize, imagesCacheTtl);
+        CaffeineCacheMetrics.monitor(meterRegistry, imagesCache.getNativeCache(), IMAGES_CACHE);
+        Gauge.builder("cache.weighted.size", arena, OffHeapImageArena::getAllocatedBytes)
+                .description("Belegte Bytes der gecachten Bildvarianten")
+                .baseUnit("bytes")
+                .tag("cache", IMAGES_CACHE)
+                .register(meterRegistry);
+        Gauge.builder("images.offheap.used", arena, OffHeapImageArena::getUsedBytes)
+                .description("Bilddaten außerhalb des Heaps")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        Gauge.builder("images.offheap.reserved", arena, OffHeapImageArena::getReservedBytes)
+                .description("Reservierter Speicher außerhalb des Heaps")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        Gauge.builder("images.offheap.fragmentation", arena, OffHeapImageArena::getFragmentation)
+                .description("Anteil der belegten Blöcke, der nicht von Bilddaten genutzt wird")
+                .register(meterRegistry);
+        return imagesCache;
+    }
+
+    /**
+     * Erzeugt den Cache für Bildvarianten. Einträge werden nach ihrer Größe in Bytes gewichtet und per
+     * W-TinyLFU verdrängt, sobald die Summe {@code maxSize} überschreitet; nach {@code ttl} verfallen sie.
+     * Hit-, Miss- und Eviction-Zähler werden aufgezeichnet und von Actuator als {@code cache.*} Metriken exportiert.
+     *
+     * @param maxSize Maximale Summe der Bilddaten im Cache.
+     * @param ttl     Lebensdauer eines Eintrags ab dem Schreiben.
+     * @return Der konfigurierte Caffeine-Cache.
+     */
+    static Cache<Object, Object> imagesCache(final DataSize maxSize, final Duration ttl) {
+        return Caffeine.newBuilder()
+                .maximumWeight(maxSize.toBytes())
+                .weigher(CacheConfig::weigh)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+    }
+
+    static int weigh(final Object key, final Object value) {
+        long bytes = ENTRY_OVERHEAD_BYTES;
+        if (value instanceof FilesDTO filesDTO && filesDTO.getData() != null) {
+            bytes += filesDTO.getData().length;
+        }
+        return (int) Math.min(bytes, Integer.MAX_VALUE);
+    }
+
+    static double weightedSize(final Cache<Object, Object> cache) {
+        return cache.policy().eviction()
+                .map(eviction -> eviction.weightedSize().orElse(0L))
+                .orElse(0L);
     }
 }
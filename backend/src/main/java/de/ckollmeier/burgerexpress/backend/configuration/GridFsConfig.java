@@ -0,0 +1,30 @@
+package de.ckollmeier.burgerexpress.backend.configuration;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.data.mongodb.MongoDatabaseFactory;
+import org.springframework.data.mongodb.core.convert.MongoConverter;
+import org.springframework.data.mongodb.gridfs.GridFsTemplate;
+
+/**
+ * Konfiguration der GridFS-Buckets.
+ * Neben dem Standard-Bucket "fs" für hochgeladene Dateien gibt es den Bucket "renditions",
+ * in dem erzeugte Bildvarianten (Größe/Format) dauerhaft und knotenübergreifend abgelegt werden.
+ */
+@Configuration
+public class GridFsConfig {
+    public static final String RENDITIONS_BUCKET = "renditions";
+    public static final String RENDITIONS_GRID_FS_TEMPLATE = "renditionsGridFsTemplate";
+
+    @Bean
+    @Primary
+    public GridFsTemplate gridFsTemplate(final MongoDatabaseFactory mongoDatabaseFactory, final MongoConverter mongoConverter) {
+        return new GridFsTemplate(mongoDatabaseFactory, mongoConverter);
+    }
+
+    @Bean(RENDITIONS_GRID_FS_TEMPLATE)
+    public GridFsTemplate renditionsGridFsTemplate(final MongoDatabaseFactory mongoDatabaseFactory, final MongoConverter mongoConverter) {
+        return new GridFsTemplate(mongoDatabaseFactory, mongoConverter, RENDITIONS_BUCKET);
+    }
+}
@@ -0,0 +1,59 @@
+package de.ckollmeier.burgerexpress.backend.configuration;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+/**
+ * Konfiguration der Thread-Pools für die Bildverarbeitung.
+ */
+@Configuration
+public class ImageProcessingConfig {
+    public static final String RENDITION_PIPELINE_EXECUTOR = "renditionPipelineExecutor";
+    public static final String IMAGE_WORKER_EXECUTOR = "imageWorkerExecutor";
+
+    /**
+     * Begrenzter Pool für das Vorberechnen von Bildvarianten im Hintergrund (nach dem Upload und beim Backfill).
+     * Ist die Warteschlange voll, werden weitere Aufgaben abgelehnt; die Varianten entstehen dann beim ersten Abruf.
+     *
+     * @param threads       Anzahl der Worker-Threads.
+     * @param queueCapacity Maximale Anzahl wartender Aufgaben.
+     * @return Der Executor für die Varianten-Pipeline.
+     */
+    @Bean(RENDITION_PIPELINE_EXECUTOR)
+    public ThreadPoolTaskExecutor renditionPipelineExecutor(
+            final @Value("${burgerexpress.images.renditions.threads:2}") int threads,
+            final @Value("${burgerexpress.images.renditions.queue-capacity:200}") int queueCapacity
+    ) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(threads);
+        executor.setMaxPoolSize(threads);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("rendition-");
+        executor.setWaitForTasksToCompleteOnShutdown(false);
+        return executor;
+    }
+
+    /**
+     * Begrenzter Pool, auf dem Bildvarianten für Anfragen berechnet werden, damit die Request-Threads von Tomcat
+     * frei bleiben. Ist die Warteschlange voll, werden weitere Aufgaben sofort abgelehnt (429 Too Many Requests).
+     *
+     * @param threads       Anzahl der Worker-Threads.
+     * @param queueCapacity Maximale Anzahl wartender Aufgaben.
+     * @return Der Executor für die Bildverarbeitung.
+     */
+    @Bean(IMAGE_WORKER_EXECUTOR)
+    public ThreadPoolTaskExecutor imageWorkerExecutor(
+            final @Value("${burgerexpress.images.workers.threads:4}") int threads,
+            final @Value("${burgerexpress.images.workers.queue-capacity:64}") int queueCapacity
+    ) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(threads);
+        executor.setMaxPoolSize(threads);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("image-worker-");
+        executor.setWaitForTasksToCompleteOnShutdown(false);
+        return executor;
+    }
+}
@@ -0,0 +1,269 @@
+package de.ckollmeier.burgerexpress.backend.configuration;
+
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Speicherbereich außerhalb des Heaps für gecachte Bilddaten.
+ * Der Speicher wird in Slabs aus direkten {@link ByteBuffer}n reserviert, die bei Bedarf bis zur Kapazität
+ * nachgelegt werden. Jeder Slab ist in gleich große Blöcke geteilt; ein Eintrag belegt so viele Blöcke, wie er
+ * benötigt, auch wenn diese nicht zusammenhängen. Dadurch entsteht keine externe Fragmentierung: Verschnitt ist
+ * nur der ungenutzte Rest im jeweils letzten Block eines Eintrags.
+ * Belegte Blöcke werden über einen Referenzzähler verwaltet und erst wieder freigegeben, wenn weder der Cache
+ * noch eine laufende Antwort den Eintrag mehr liest.
+ */
+public class OffHeapImageArena {
+    /** Größe eines Blocks in Bytes. */
+    private final int blockSize;
+    /** Anzahl der Blöcke je Slab. */
+    private final int blocksPerSlab;
+    /** Bisher reservierte Slabs; nicht reservierte Einträge sind {@code null}. */
+    private final AtomicReferenceArray<ByteBuffer> slabs;
+    /** Freie Blöcke; zuletzt freigegebene Blöcke werden zuerst wiederverwendet. */
+    private final Deque<Integer> freeBlocks = new ArrayDeque<>();
+    /** Anzahl der bereits reservierten Slabs. */
+    private int reservedSlabs;
+
+    /** Summe der gespeicherten Bilddaten in Bytes. */
+    private final AtomicLong usedBytes = new AtomicLong();
+    /** Anzahl der belegten Blöcke. */
+    private final AtomicLong allocatedBlocks = new AtomicLong();
+
+    /**
+     * @param capacity  Maximale Größe des Speicherbereichs, wird auf ganze Slabs aufgerundet.
+     * @param slabSize  Größe eines Slabs, der am Stück reserviert wird.
+     * @param blockSize Größe eines Blocks, der kleinsten belegbaren Einheit.
+     */
+    public OffHeapImageArena(final DataSize capacity, final DataSize slabSize, final DataSize blockSize) {
+        if (blockSize.toBytes() <= 0 || slabSize.toBytes() < blockSize.toBytes() || slabSize.toBytes() > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException(String.format(
+                    "Ungültige Aufteilung des Off-Heap-Speichers: Slab %s, Block %s", slabSize, blockSize));
+        }
+        this.blockSize = (int) blockSize.toBytes();
+        this.blocksPerSlab = (int) (slabSize.toBytes() / blockSize.toBytes());
+        long slabBytes = (long) blocksPerSlab * this.blockSize;
+        this.slabs = new AtomicReferenceArray<>((int) Math.max(1, (capacity.toBytes() + slabBytes - 1) / slabBytes));
+    }
+
+    /**
+     * Kopiert Bilddaten in freie Blöcke.
+     *
+     * @param data Die zu speichernden Bilddaten.
+     * @return Die Belegung mit einer Referenz für den Aufrufer, oder {@code null}, wenn der Speicher voll ist.
+     */
+    public Allocation allocate(final byte[] data) {
+        int needed = Math.max(1, (data.length + blockSize - 1) / blockSize);
+        int[] blocks = new int[needed];
+        synchronized (this) {
+            while (freeBlocks.size() < needed && reservedSlabs < slabs.length()) {
+                reserveSlab();
+            }
+            if (freeBlocks.size() < needed) {
+                return null;
+            }
+            for (int i = 0; i < needed; i++) {
+                blocks[i] = freeBlocks.pop();
+            }
+        }
+        int offset = 0;
+        for (int block : blocks) {
+            int length = Math.min(blockSize, data.length - offset);
+            block(block).put(data, offset, length);
+            offset += length;
+        }
+        usedBytes.addAndGet(data.length);
+        allocatedBlocks.addAndGet(needed);
+        return new Allocation(blocks, data.length);
+    }
+
+    private void reserveSlab() {
+        int slab = reservedSlabs++;
+        slabs.set(slab, ByteBuffer.allocateDirect(blocksPerSlab * blockSize));
+        for (int i = blocksPerSlab - 1; i >= 0; i--) {
+            freeBlocks.push(slab * blocksPerSlab + i);
+        }
+    }
+
+    private void free(final int[] blocks, final int length) {
+        synchronized (this) {
+            for (int block : blocks) {
+                freeBlocks.push(block);
+            }
+        }
+        usedBytes.addAndGet(-length);
+        allocatedBlocks.addAndGet(-blocks.length);
+    }
+
+    /**
+     * Liefert eine eigene Sicht auf einen Block, sodass gleichzeitige Leser sich nicht gegenseitig stören.
+     */
+    private ByteBuffer block(final int block) {
+        int offset = (block % blocksPerSlab) * blockSize;
+        return slabs.get(block / blocksPerSlab).duplicate().position(offset).limit(offset + blockSize);
+    }
+
+    /**
+     * @return Summe der gespeicherten Bilddaten in Bytes.
+     */
+    public long getUsedBytes() {
+        return usedBytes.get();
+    }
+
+    /**
+     * @return Bytes der belegten Blöcke, inklusive des Verschnitts im letzten Block jedes Eintrags.
+     */
+    public long getAllocatedBytes() {
+        return allocatedBlocks.get() * blockSize;
+    }
+
+    /**
+     * @return Bytes der bisher reservierten Slabs.
+     */
+    public synchronized long getReservedBytes() {
+        return (long) reservedSlabs * blocksPerSlab * blockSize;
+    }
+
+    /**
+     * @return Anteil der belegten Blöcke, der nicht von Bilddaten genutzt wird (0 bis 1).
+     */
+    public double getFragmentation() {
+        long allocated = getAllocatedBytes();
+        return allocated == 0 ? 0 : 1 - (double) getUsedBytes() / allocated;
+    }
+
+    /**
+     * @return Größe eines Blocks in Bytes.
+     */
+    public int getBlockSize() {
+        return blockSize;
+    }
+
+    /**
+     * Die Blöcke eines gespeicherten Eintrags. Die Blöcke werden freigegeben, sobald alle Referenzen
+     * über {@link #release()} zurückgegeben sind.
+     */
+    public final class Allocation {
+        private final int[] blocks;
+        private final int length;
+        private final AtomicInteger references = new AtomicInteger(1);
+
+        private Allocation(final int[] blocks, final int length) {
+            this.blocks = blocks;
+            this.length = length;
+        }
+
+        /**
+         * @return Länge der gespeicherten Bilddaten in Bytes.
+         */
+        public int length() {
+            return length;
+        }
+
+        /**
+         * @return Bytes der belegten Blöcke.
+         */
+        public int allocatedBytes() {
+            return blocks.length * blockSize;
+        }
+
+        /**
+         * Fordert eine weitere Referenz an.
+         *
+         * @return false, wenn die Blöcke bereits freigegeben sind.
+         */
+        public boolean retain() {
+            int current;
+            do {
+                current = references.get();
+                if (current <= 0) {
+                    return false;
+                }
+            } while (!references.compareAndSet(current, current + 1));
+            return true;
+        }
+
+        /**
+         * Gibt eine Referenz zurück; die letzte gibt die Blöcke frei.
+         */
+        public void release() {
+            if (references.decrementAndGet() == 0) {
+                free(blocks, length);
+            }
+        }
+
+        /**
+         * Kopiert die Bilddaten in ein neues Array im Heap. Der Aufrufer muss eine Referenz halten.
+         *
+         * @return Die Bilddaten.
+         */
+        public byte[] toByteArray() {
+            byte[] data = new byte[length];
+            int offset = 0;
+            for (int block : blocks) {
+                int chunk = Math.min(blockSize, length - offset);
+                block(block).get(data, offset, chunk);
+                offset += chunk;
+            }
+            return data;
+        }
+
+        /**
+         * Öffnet einen Stream, der die Blöcke direkt liest. Der Aufrufer muss eine Referenz halten, die beim
+         * Schließen des Streams zurückgegeben wird.
+         *
+         * @return Der Stream über die Bilddaten.
+         */
+        public InputStream openStream() {
+            return new InputStream() {
+                private int position;
+                private boolean closed;
+
+                @Override
+                public int read() throws IOException {
+                    byte[] single = new byte[1];
+                    return read(single, 0, 1) < 0 ? -1 : single[0] & 0xFF;
+                }
+
+                @Override
+                public int read(final byte[] target, final int offset, final int count) throws IOException {
+                    if (closed) {
+                        throw new IOException("Stream ist bereits geschlossen");
+                    }
+                    if (count == 0) {
+                        return 0;
+                    }
+                    if (position >= length) {
+                        return -1;
+                    }
+                    int blockOffset = position % blockSize;
+                    int chunk = Math.min(count, Math.min(blockSize - blockOffset, length - position));
+                    ByteBuffer buffer = block(blocks[position / blockSize]);
+                    buffer.position(buffer.position() + blockOffset).get(target, offset, chunk);
+                    position += chunk;
+                    return chunk;
+                }
+
+                @Override
+                public int available() {
+                    return closed ? 0 : length - position;
+                }
+
+                @Override
+                public void close() {
+                    if (!closed) {
+                        closed = true;
+                        release();
+                    }
+                }
+            };
+        }
+    }
+}
@@ -0,0 +1,233 @@
+package de.ckollmeier.burgerexpress.backend.configuration;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import de.ckollmeier.burgerexpress.backend.dto.FilesDTO;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cache.support.AbstractValueAdaptingCache;
+import org.springframework.core.io.AbstractResource;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.ref.Cleaner;
+import java.time.Duration;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Cache für Bildvarianten, dessen Bilddaten außerhalb des Heaps in einer {@link OffHeapImageArena} liegen.
+ * Caffeine verwaltet nur die Schlüssel und Verweise auf die belegten Blöcke und übernimmt Verdrängung (W-TinyLFU,
+ * gewichtet nach belegten Bytes), Ablauf und Statistik; die Bilddaten selbst belasten den Garbage Collector nicht.
+ * Über {@link #get(Object)} gelieferte Einträge sind Kopien im Heap; {@link #acquire(Object)} liefert dagegen
+ * einen Eintrag, der beim Ausliefern direkt aus den Blöcken in die Antwort gestreamt wird.
+ */
+@Slf4j
+public class OffHeapImageCache extends AbstractValueAdaptingCache {
+    /** Gibt Blöcke frei, deren gestreamte Einträge verworfen wurden, ohne je ausgeliefert worden zu sein. */
+    private static final Cleaner CLEANER = Cleaner.create();
+
+    private final String name;
+    private final OffHeapImageArena arena;
+    private final Cache<Object, Entry> cache;
+
+    /**
+     * Ein Eintrag im Cache.
+     *
+     * @param allocation  Die belegten Blöcke mit den Bilddaten.
+     * @param contentType Der Content-Type der Bilddaten.
+     * @param fileName    Der Dateiname.
+     */
+    private record Entry(OffHeapImageArena.Allocation allocation, String contentType, String fileName) {
+    }
+
+    /**
+     * @param name    Name des Caches.
+     * @param arena   Speicherbereich für die Bilddaten.
+     * @param maxSize Maximale Summe der belegten Blöcke.
+     * @param ttl     Lebensdauer eines Eintrags ab dem Schreiben.
+     */
+    public OffHeapImageCache(final String name, final OffHeapImageArena arena, final DataSize maxSize, final Duration ttl) {
+        super(false);
+        this.name = name;
+        this.arena = arena;
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(maxSize.toBytes())
+                .weigher((Object key, Entry entry) -> entry.allocation().allocatedBytes())
+                .expireAfterWrite(ttl)
+                // Verdrängte Blöcke sofort freigeben, damit ein folgendes Belegen sie wiederverwenden kann
+                .executor(Runnable::run)
+                .removalListener((Object key, Entry entry, RemovalCause cause) -> {
+                    if (entry != null) {
+                        entry.allocation().release();
+                    }
+                })
+                .recordStats()
+                .build();
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return Der Caffeine-Cache mit den Verweisen auf die belegten Blöcke.
+     */
+    @Override
+    public Cache<Object, ?> getNativeCache() {
+        return cache;
+    }
+
+    /**
+     * @return Der Speicherbereich mit den Bilddaten.
+     */
+    public OffHeapImageArena getArena() {
+        return arena;
+    }
+
+    @Override
+    protected Object lookup(final Object key) {
+        Entry entry = cache.getIfPresent(key);
+        if (entry == null || !entry.allocation().retain()) {
+            return null;
+        }
+        try {
+            return new FilesDTO(entry.allocation().toByteArray(), entry.contentType(), entry.fileName());
+        } finally {
+            entry.allocation().release();
+        }
+    }
+
+    /**
+     * Liefert einen Eintrag, dessen Bilddaten beim Ausliefern direkt aus dem Speicher außerhalb des Heaps
+     * gestreamt werden. Die Blöcke bleiben belegt, bis der Stream geschlossen wird, auch wenn der Eintrag
+     * inzwischen verdrängt wurde.
+     *
+     * @param key Der Schlüssel.
+     * @return Der gestreamte Eintrag, oder {@code null}, wenn er nicht im Cache liegt.
+     */
+    public FilesDTO acquire(final Object key) {
+        Entry entry = cache.getIfPresent(key);
+        if (entry == null || !entry.allocation().retain()) {
+            return null;
+        }
+        return FilesDTO.streamed(new AllocationResource(entry.allocation()), entry.contentType(), entry.fileName());
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(final Object key, final Callable<T> valueLoader) {
+        Object cached = lookup(key);
+        if (cached != null) {
+            return (T) cached;
+        }
+        try {
+            T value = valueLoader.call();
+            put(key, value);
+            return value;
+        } catch (Exception e) {
+            throw new ValueRetrievalException(key, valueLoader, e);
+        }
+    }
+
+    @Override
+    public void put(final Object key, final Object value) {
+        if (!(value instanceof FilesDTO filesDTO) || filesDTO.getData() == null) {
+            return;
+        }
+        byte[] data = filesDTO.getData();
+        OffHeapImageArena.Allocation allocation = arena.allocate(data);
+        while (allocation == null && evictColdest()) {
+            allocation = arena.allocate(data);
+        }
+        if (allocation == null) {
+            log.debug("Kein Platz außerhalb des Heaps für {} ({} Bytes), Eintrag wird nicht gecached", key, data.length);
+            return;
+        }
+        cache.put(key, new Entry(allocation, filesDTO.getContentType(), filesDTO.getFileName()));
+    }
+
+    /**
+     * Schafft Platz im Speicherbereich, wenn dieser vor der Gewichtsgrenze von Caffeine voll ist (z. B. durch
+     * Verschnitt oder Einträge, die noch gestreamt werden): Ausstehende Verdrängungen werden abgearbeitet und
+     * anschließend der am wenigsten wertvolle Eintrag entfernt.
+     *
+     * @return false, wenn der Cache leer ist und kein Platz mehr geschaffen werden kann.
+     */
+    private boolean evictColdest() {
+        cache.cleanUp();
+        return cache.policy().eviction()
+                .flatMap(eviction -> eviction.coldest(1).keySet().stream().findFirst())
+                .map(key -> {
+                    cache.invalidate(key);
+                    return true;
+                })
+                .orElse(false);
+    }
+
+    @Override
+    public void evict(final Object key) {
+        cache.invalidate(key);
+    }
+
+    @Override
+    public void clear() {
+        cache.invalidateAll();
+    }
+
+    /**
+     * Ressource über die Blöcke eines Eintrags. Sie hält eine Referenz auf die Blöcke, die der erste geöffnete
+     * Stream übernimmt und beim Schließen zurückgibt; jeder weitere Stream fordert eine eigene Referenz an.
+     * Wird die Ressource nie gelesen, gibt der {@link Cleaner} die Referenz zurück.
+     */
+    private static final class AllocationResource extends AbstractResource {
+        private final OffHeapImageArena.Allocation allocation;
+        private final AtomicBoolean referenceTaken;
+
+        private AllocationResource(final OffHeapImageArena.Allocation allocation) {
+            this.allocation = allocation;
+            AtomicBoolean taken = new AtomicBoolean();
+            this.referenceTaken = taken;
+            CLEANER.register(this, () -> {
+                if (taken.compareAndSet(false, true)) {
+                    allocation.release();
+                }
+            });
+        }
+
+        @Override
+        public InputStream getInputStream() throws IOException {
+            if (!referenceTaken.compareAndSet(false, true) && !allocation.retain()) {
+                throw new IOException("Bilddaten wurden bereits aus dem Cache verdrängt");
+            }
+            return allocation.openStream();
+        }
+
+        @Override
+        public boolean exists() {
+            return true;
+        }
+
+        @Override
+        public long contentLength() {
+            return allocation.length();
+        }
+
+        @Override
+        public String getDescription() {
+            return "Bildvariante außerhalb des Heaps (" + allocation.length() + " Bytes)";
+        }
+
+        @Override
+        public boolean equals(final Object other) {
+            return this == other;
+        }
+
+        @Override
+        public int hashCode() {
+            return System.identityHashCode(this);
+        }
+    }
+}
@@ -77,7 +77,9 @@ public class SecurityConfig {
                         .requestMatchers("/api/dishes/**").authenticated()
                         .requestMatchers("/api/menus/**").authenticated()
                         .requestMatchers("/api/files/upload").authenticated()
+                        .requestMatchers("/api/files/renditions/**").authenticated()
                         .requestMatchers("/api/orders/kitchen").authenticated()
+                        .requestMatchers("/actuator/metrics/**").hasRole(ROLE_MANAGER)
                         // Any other request is permitted for SPA application
                         .anyRequest().permitAll()
                 )
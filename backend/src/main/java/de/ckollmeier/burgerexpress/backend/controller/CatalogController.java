@@ -0,0 +1,95 @@
+package de.ckollmeier.burgerexpress.backend.controller;
+
+import de.ckollmeier.burgerexpress.backend.dto.CatalogAtlasDTO;
+import de.ckollmeier.burgerexpress.backend.dto.CatalogChangesDTO;
+import de.ckollmeier.burgerexpress.backend.exceptions.NotFoundException;
+import de.ckollmeier.burgerexpress.backend.service.CatalogAtlasService;
+import de.ckollmeier.burgerexpress.backend.service.CatalogChangesService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.CacheControl;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * REST-Controller für aus dem Katalog abgeleitete Daten der Bestell-SPA.
+ */
+@RestController
+@RequestMapping("/api/catalog")
+@RequiredArgsConstructor
+public class CatalogController {
+
+    /**
+     * Service für den Sprite-Atlas der Vorschaubilder.
+     */
+    private final CatalogAtlasService catalogAtlasService;
+
+    /**
+     * Service für den inkrementellen Abgleich der Kioske.
+     */
+    private final CatalogChangesService catalogChangesService;
+
+    /**
+     * Gibt die Koordinaten der Vorschaubilder im Sprite-Atlas der aktuellen Katalogversion zurück.
+     * Die Antwort enthält die versionierte URL des Atlas-Bildes.
+     *
+     * @param format Bildformat des Atlas, "webp" (Standard) oder "png".
+     * @return Version, Maße und Kacheln des Atlas, geschlüsselt nach Artikel-ID.
+     */
+    @GetMapping("/atlas")
+    @PreAuthorize("permitAll()")
+    public ResponseEntity<CatalogAtlasDTO> getAtlas(final @RequestParam(defaultValue = "webp") String format) {
+        return ResponseEntity.ok()
+                .cacheControl(CacheControl.noCache())
+                .body(catalogAtlasService.getAtlas(format).info());
+    }
+
+    /**
+     * Gibt das Atlas-Bild einer Version des Änderungsprotokolls zurück. Da sich der Inhalt einer Version nie ändert,
+     * darf das Bild unbegrenzt gecached werden. Die Version ist auf allen Instanzen gleich.
+     *
+     * @param version Die Version aus {@link #getAtlas(String)}.
+     * @param format  Bildformat des Atlas, "webp" (Standard) oder "png".
+     * @return Das Atlas-Bild.
+     * @throws NotFoundException Wenn die Version nicht mehr aktuell ist.
+     */
+    @GetMapping("/atlas/{version}")
+    @PreAuthorize("permitAll()")
+    public ResponseEntity<byte[]> getAtlasImage(
+            final @PathVariable long version,
+            final @RequestParam(defaultValue = "webp") String format
+    ) {
+        CatalogAtlasService.Atlas atlas = catalogAtlasService.getAtlas(format);
+        if (atlas.info().version() != version) {
+            throw new NotFoundException(String.format(
+                    "Atlas-Version %d ist nicht mehr aktuell (aktuell: %d)", version, atlas.info().version()));
+        }
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(atlas.image().getContentType()))
+                .cacheControl(CacheControl.maxAge(365, TimeUnit.DAYS).cachePublic().immutable())
+                .body(atlas.image().getData());
+    }
+
+    /**
+     * Gibt die Änderungen am Katalog seit einer Version zurück, damit Kioske nur geänderte und gelöschte Elemente
+     * laden. Ist die Version nicht mehr im Änderungsprotokoll enthalten, wird der vollständige Katalog mit
+     * {@code fullResync} geliefert.
+     *
+     * @param since Die zuletzt erhaltene Version, 0 für den ersten Abruf.
+     * @return Neue Version, geänderte Elemente und IDs der gelöschten Elemente.
+     */
+    @GetMapping("/changes")
+    @PreAuthorize("permitAll()")
+    public ResponseEntity<CatalogChangesDTO> getChanges(final @RequestParam(defaultValue = "0") long since) {
+        return ResponseEntity.ok()
+                .cacheControl(CacheControl.noCache())
+                .body(catalogChangesService.getChangesSince(since));
+    }
+}
@@ -0,0 +1,71 @@
+package de.ckollmeier.burgerexpress.backend.controller;
+
+import de.ckollmeier.burgerexpress.backend.service.CatalogSnapshotService;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+
+import java.util.List;
+
+/**
+ * Schreibt die vorab serialisierten Antworten des Katalog-Schnappschusses. Pro Anfrage werden nur noch die
+ * Validatoren geprüft und die passenden Bytes (JSON oder gzip) gewählt; es entsteht kein Objektgraph.
+ */
+final class CatalogResponses {
+    private static final String GZIP = "gzip";
+
+    private CatalogResponses() {
+        // Utility class
+        throw new UnsupportedOperationException("This is a utility class and cannot be instantiated");
+    }
+
+    /**
+     * Baut die Antwort auf eine lesende Anfrage an den Katalog.
+     *
+     * @param body           Die serialisierte Antwort der aktuellen Katalogversion.
+     * @param requestHeaders Die Header der Anfrage ({@code If-None-Match}, {@code Accept-Encoding}).
+     * @return 304, wenn der Client den Stand bereits hat, sonst 200 mit den fertigen Bytes.
+     */
+    static ResponseEntity<byte[]> of(final CatalogSnapshotService.RenderedBody body, final HttpHeaders requestHeaders) {
+        boolean gzip = acceptsGzip(requestHeaders);
+        HttpHeaders headers = new HttpHeaders();
+        headers.setCacheControl(CacheControl.noCache());
+        headers.setVary(List.of(HttpHeaders.ACCEPT_ENCODING));
+        headers.setETag(gzip ? body.gzipEtag() : body.etag());
+        if (isNotModified(requestHeaders, body)) {
+            return new ResponseEntity<>(headers, HttpStatus.NOT_MODIFIED);
+        }
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        byte[] bytes = gzip ? body.gzip() : body.json();
+        if (gzip) {
+            headers.set(HttpHeaders.CONTENT_ENCODING, GZIP);
+        }
+        headers.setContentLength(bytes.length);
+        return new ResponseEntity<>(bytes, headers, HttpStatus.OK);
+    }
+
+    /**
+     * Ein ETag der JSON- oder der gzip-Variante genügt: Beide beschreiben denselben Stand des Katalogs.
+     */
+    private static boolean isNotModified(final HttpHeaders requestHeaders, final CatalogSnapshotService.RenderedBody body) {
+        return requestHeaders.getIfNoneMatch().stream()
+                .map(candidate -> candidate.startsWith("W/") ? candidate.substring(2) : candidate)
+                .anyMatch(candidate -> "*".equals(candidate)
+                        || candidate.equals(body.etag())
+                        || candidate.equals(body.gzipEtag()));
+    }
+
+    private static boolean acceptsGzip(final HttpHeaders requestHeaders) {
+        for (String encodings : requestHeaders.getValuesAsList(HttpHeaders.ACCEPT_ENCODING)) {
+            String[] parts = encodings.split(";");
+            String coding = parts[0].trim();
+            boolean disabled = parts.length > 1 && parts[1].trim().matches("q=0(\\.0*)?");
+            if ((GZIP.equalsIgnoreCase(coding) || "*".equals(coding)) && !disabled) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
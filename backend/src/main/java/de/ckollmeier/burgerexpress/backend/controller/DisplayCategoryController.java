@@ -5,9 +5,12 @@ import de.ckollmeier.burgerexpress.backend.dto.DisplayCategoryInputDTO;
 import de.ckollmeier.burgerexpress.backend.dto.DisplayCategoryOutputDTO;
 import de.ckollmeier.burgerexpress.backend.dto.SortedInputDTO;
 import de.ckollmeier.burgerexpress.backend.model.DisplayCategory;
+import de.ckollmeier.burgerexpress.backend.service.CatalogSnapshotService;
 import de.ckollmeier.burgerexpress.backend.service.DisplayCategoryService;
 import de.ckollmeier.burgerexpress.backend.service.SortableService;
+import de.ckollmeier.burgerexpress.backend.types.CatalogResource;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
@@ -33,13 +36,19 @@ public class DisplayCategoryController {
     private final SortableService<DisplayCategory> sortableService;
 
     /**
-     * Gibt alle DisplayCategories zurück.
+     * Der Schnappschuss des Katalogs, aus dem gelesen wird.
+     */
+    private final CatalogSnapshotService catalogSnapshotService;
+
+    /**
+     * Gibt alle DisplayCategories zurück, fertig serialisiert aus dem Katalog-Schnappschuss.
+     * @param requestHeaders die Header der Anfrage (If-None-Match, Accept-Encoding)
      * @return Liste aller DisplayCategories
      */
     @GetMapping
     @PreAuthorize("permitAll()")
-    public List<DisplayCategoryOutputDTO> getAllDisplayCategories() {
-        return displayCategoryService.getAllDisplayCategories();
+    public ResponseEntity<byte[]> getAllDisplayCategories(final @RequestHeader HttpHeaders requestHeaders) {
+        return CatalogResponses.of(catalogSnapshotService.getBody(CatalogResource.DISPLAY_CATEGORIES), requestHeaders);
     }
 
     /**
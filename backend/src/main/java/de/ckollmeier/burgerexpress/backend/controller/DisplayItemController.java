@@ -4,9 +4,12 @@ import de.ckollmeier.burgerexpress.backend.dto.DisplayItemInputDTO;
 import de.ckollmeier.burgerexpress.backend.dto.DisplayItemOutputDTO;
 import de.ckollmeier.burgerexpress.backend.dto.SortedInputDTO;
 import de.ckollmeier.burgerexpress.backend.model.DisplayItem;
+import de.ckollmeier.burgerexpress.backend.service.CatalogSnapshotService;
 import de.ckollmeier.burgerexpress.backend.service.DisplayItemService;
 import de.ckollmeier.burgerexpress.backend.service.SortableService;
+import de.ckollmeier.burgerexpress.backend.types.CatalogResource;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
@@ -31,12 +34,18 @@ public class DisplayItemController {
     private final SortableService<DisplayItem> sortableService;
 
     /**
-     * Gibt alle DisplayItems zurück.
+     * Der Schnappschuss des Katalogs, aus dem gelesen wird.
+     */
+    private final CatalogSnapshotService catalogSnapshotService;
+
+    /**
+     * Gibt alle DisplayItems zurück, fertig serialisiert aus dem Katalog-Schnappschuss.
+     * @param requestHeaders die Header der Anfrage (If-None-Match, Accept-Encoding)
      * @return Liste aller DisplayItems
      */
     @GetMapping
-    public List<DisplayItemOutputDTO> getAllDisplayItems() {
-        return displayItemService.getAllDisplayItems();
+    public ResponseEntity<byte[]> getAllDisplayItems(final @RequestHeader HttpHeaders requestHeaders) {
+        return CatalogResponses.of(catalogSnapshotService.getBody(CatalogResource.DISPLAY_ITEMS), requestHeaders);
     }
 
     /**
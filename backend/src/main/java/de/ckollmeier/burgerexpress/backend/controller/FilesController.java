@@ -1,12 +1,23 @@
 package de.ckollmeier.burgerexpress.backend.controller;
 
+import de.ckollmeier.burgerexpress.backend.dto.FileGarbageCollectionStatusDTO;
 import de.ckollmeier.burgerexpress.backend.dto.FileInfoDTO;
-import de.ckollmeier.burgerexpress.backend.dto.FilesDTO;
+import de.ckollmeier.burgerexpress.backend.dto.FileInfoPageDTO;
+import de.ckollmeier.burgerexpress.backend.dto.RenditionBackfillStatusDTO;
+import de.ckollmeier.burgerexpress.backend.service.FilesGarbageCollectorService;
 import de.ckollmeier.burgerexpress.backend.service.FilesService;
 import de.ckollmeier.burgerexpress.backend.service.ImagesService;
+import de.ckollmeier.burgerexpress.backend.service.RenditionPipelineService;
+import de.ckollmeier.burgerexpress.backend.dto.FilesDTO;
+import de.ckollmeier.burgerexpress.backend.exceptions.NotFoundException;
+import com.mongodb.client.gridfs.model.GridFSFile;
+import jakarta.servlet.http.HttpServletRequest;
 import lombok.RequiredArgsConstructor;
+import org.bson.types.ObjectId;
+import org.springframework.core.io.Resource;
 import org.springframework.http.CacheControl;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
@@ -19,9 +30,17 @@ import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.TimeUnit;
 
 /**
@@ -32,6 +51,20 @@ import java.util.concurrent.TimeUnit;
 @RequestMapping("/api/files")
 @RequiredArgsConstructor
 public class FilesController {
+    /**
+     * Response-Header mit dem Cursor der nächsten Seite der Dateiliste.
+     */
+    public static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+    /**
+     * Request-Attribut, mit dem Tomcat anzeigt, dass Dateien per sendfile ausgeliefert werden können.
+     */
+    static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+    /**
+     * Request-Attribute, über die Datei und Byte-Bereich für sendfile an Tomcat übergeben werden.
+     */
+    static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
 
     /**
      * Service für die Verwaltung von Dateien.
@@ -41,6 +74,14 @@ public class FilesController {
      * Service für Bildverarbeitung.
      */
     private final ImagesService imagesService;
+    /**
+     * Service zum Vorberechnen von Bildvarianten.
+     */
+    private final RenditionPipelineService renditionPipelineService;
+    /**
+     * Service zum Aufräumen nicht referenzierter Dateien.
+     */
+    private final FilesGarbageCollectorService filesGarbageCollectorService;
 
     /**
      * Lädt eine Datei hoch und gibt die Zugriffs-URL als String zurück.
@@ -69,20 +110,33 @@ public class FilesController {
 
     /**
      * Gibt ein dynamisch zugeschnittenes Bild in angeforderter Größe und Format zurück.
+     * Passt {@code If-None-Match} bzw. {@code If-Modified-Since} zur Variante, wird ohne Bildverarbeitung mit
+     * 304 Not Modified geantwortet. Die Validatoren werden allein aus der Id abgeleitet, sodass Cache-Treffer
+     * ohne Abfrage des Datei-Deskriptors beantwortet werden; erst bei einem Cache-Miss wird die Datei geladen.
+     * Da passende Validatoren auch für gelöschte oder nie vorhandene Ids (oder per {@code If-None-Match: *})
+     * gesendet werden können, gilt 304 erst, wenn die Variante lokal vorliegt oder die Datei existiert; sonst
+     * folgt wie ohne Validatoren 404. Die Berechnung läuft auf dem begrenzten Worker-Pool,
+     * der Request-Thread wird währenddessen freigegeben; ist die Warteschlange voll, folgt 429 mit Retry-After.
+     * Cache-Treffer werden direkt aus dem Speicher außerhalb des Heaps in die Antwort gestreamt; Varianten von der
+     * lokalen Platte liefert der Container, sofern unterstützt, per sendfile ohne Kopie durch den Heap aus.
      *
-     * @param id     Die ID der Bilddatei.
-     * @param size   Die gewünschte Größe (Breite und Höhe) in Pixeln.
-     * @param format Optionales gewünschtes Bildformat.
-     * @param accept Optionaler Accept-Header zur Formatbestimmung.
-     * @return ResponseEntity mit den Bilddaten im gewünschten/zugelassenen Format.
+     * @param id             Die ID der Bilddatei.
+     * @param size           Die gewünschte Größe (Breite und Höhe) in Pixeln.
+     * @param format         Optionales gewünschtes Bildformat.
+     * @param accept         Optionaler Accept-Header zur Formatbestimmung.
+     * @param requestHeaders Die Header der Anfrage für die Auswertung der Validatoren.
+     * @param request        Die Anfrage, über deren Attribute die Auslieferung per sendfile angefordert wird.
+     * @return Future mit der ResponseEntity mit den Bilddaten im gewünschten/zugelassenen Format.
      */
     @GetMapping("/{id}/{size}")
     @PreAuthorize("permitAll()")
-    public ResponseEntity<byte[]> getCroppedImageDynamic(
+    public CompletableFuture<ResponseEntity<Resource>> getCroppedImageDynamic(
             final @PathVariable String id,
             final @PathVariable int size,
             final @RequestParam(required = false) String format,
-            final @RequestHeader(value = "Accept", required = false) String accept
+            final @RequestHeader(value = "Accept", required = false) String accept,
+            final @RequestHeader HttpHeaders requestHeaders,
+            final HttpServletRequest request
     ) {
         // 🎯 Format bestimmen
         String chosenFormat = "png"; // default
@@ -92,59 +146,292 @@ public class FilesController {
             chosenFormat = "webp";
         }
 
-        FilesDTO image = imagesService.getCroppedImage(id, size, chosenFormat);
+        if (!ObjectId.isValid(id)) {
+            throw new NotFoundException(String.format("Bild %s nicht gefunden", id));
+        }
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.setCacheControl(CacheControl.maxAge(30, TimeUnit.DAYS).cachePublic());
+        if (format == null) {
+            // Format wurde über den Accept-Header ausgehandelt
+            headers.setVary(List.of(HttpHeaders.ACCEPT));
+        }
+        setRenditionValidators(headers, new ObjectId(id), imagesService.quantizeSize(size) + "-" + chosenFormat);
+        if (isNotModified(requestHeaders, headers) && imagesService.isImageAvailable(id, size, chosenFormat)) {
+            return CompletableFuture.completedFuture(new ResponseEntity<>(headers, HttpStatus.NOT_MODIFIED));
+        }
 
         MediaType mediaType = switch (chosenFormat) {
             case "webp" -> MediaType.valueOf("image/webp");
             case "jpg", "jpeg" -> MediaType.IMAGE_JPEG;
             default -> MediaType.IMAGE_PNG;
         };
-
-        HttpHeaders headers = new HttpHeaders();
         headers.setContentType(mediaType);
-        headers.setCacheControl(CacheControl.maxAge(30, TimeUnit.DAYS).cachePublic());
 
-        return new ResponseEntity<>(image.getData(), headers, HttpStatus.OK);
+        return imagesService.getCroppedImageAsync(id, size, chosenFormat)
+                .thenApply(image -> imageResponse(image, headers, request));
     }
 
     /**
-     * Gibt die ungeänderte Datei anhand der ID zurück.
-     * Optional kann die Übergabe eines Parameters erfolgen, um die Bildgröße zu ändern.
+     * Baut die Antwort mit den Bilddaten. Liegt die Variante als Datei vor und unterstützt der Container sendfile,
+     * wird die Datei über die Request-Attribute übergeben und vom Kernel direkt in den Socket geschrieben.
+     */
+    private static ResponseEntity<Resource> imageResponse(
+            final FilesDTO image, final HttpHeaders headers, final HttpServletRequest request) {
+        Resource body = image.asResource();
+        if (body.isFile() && Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT))) {
+            try {
+                File file = body.getFile();
+                long length = file.length();
+                request.setAttribute(SENDFILE_FILENAME, file.getAbsolutePath());
+                request.setAttribute(SENDFILE_START, 0L);
+                request.setAttribute(SENDFILE_END, length);
+                headers.setContentLength(length);
+                return new ResponseEntity<>(headers, HttpStatus.OK);
+            } catch (IOException e) {
+                // Ohne Datei wird die Ressource gestreamt
+            }
+        }
+        return new ResponseEntity<>(body, headers, HttpStatus.OK);
+    }
+
+    /**
+     * Gibt ein zugeschnittenes Bild zurück, wenn die Größe als Parameter übergeben wird ({@code ?size=N}, N &gt; 0).
      *
-     * @param id     Die ID der Datei.
-     * @param size   Optionale gewünschte Größe des Bildausschnitts (Standard 0 = original).
-     * @param format Optionales gewünschtes Bildformat wie "jpg", "png", "webp".
-     * @param accept Optionaler HTTP-Header zur Auswahl des gewünschten Rückgabeformats.
-     * @return ResponseEntity mit den Binärdaten und Content-Type des Bildes.
+     * @param id             Die ID der Bilddatei.
+     * @param size           Die gewünschte Größe (Breite und Höhe) in Pixeln.
+     * @param format         Optionales gewünschtes Bildformat wie "jpg", "png", "webp".
+     * @param accept         Optionaler HTTP-Header zur Auswahl des gewünschten Rückgabeformats.
+     * @param requestHeaders Die Header der Anfrage für die Auswertung der Validatoren.
+     * @param request        Die Anfrage, über deren Attribute die Auslieferung per sendfile angefordert wird.
+     * @return Future mit der ResponseEntity mit den Bilddaten im gewünschten/zugelassenen Format.
      */
-    @GetMapping("/{id}")
+    @GetMapping(value = "/{id}", params = {"size", "size!=0"})
     @PreAuthorize("permitAll()")
-    public ResponseEntity<byte[]> getFileById(
+    public CompletableFuture<ResponseEntity<Resource>> getCroppedImageByParam(
             final @PathVariable String id,
-            final @RequestParam(defaultValue = "0") int size,
+            final @RequestParam int size,
             final @RequestParam(required = false) String format,
-            final @RequestHeader(value = "Accept", required = false) String accept
+            final @RequestHeader(value = "Accept", required = false) String accept,
+            final @RequestHeader HttpHeaders requestHeaders,
+            final HttpServletRequest request
+    ) {
+        return getCroppedImageDynamic(id, size, format, accept, requestHeaders, request);
+    }
 
+    /**
+     * Gibt die ungeänderte Datei anhand der ID zurück.
+     * Die Datei wird chunkweise aus GridFS gestreamt. Ein einzelner Byte-Bereich im Header {@code Range} wird
+     * mit 206 Partial Content beantwortet, sofern ein {@code If-Range} fehlt oder zum Stand der Datei passt.
+     * Passen die Validatoren der Anfrage, wird mit 304 Not Modified geantwortet, ohne Chunks zu lesen.
+     * Der Body ist bewusst keine {@link Resource}: Spring MVC würde einen mitgesendeten {@code Range}-Header sonst
+     * selbst auf eine 200-Antwort anwenden, auch wenn er hier wegen {@code If-Range} oder mehrerer Bereiche
+     * ignoriert wird.
+     *
+     * @param id             Die ID der Datei.
+     * @param range          Optionaler Range-Header, z.B. "bytes=0-1023".
+     * @param ifRange        Optionaler If-Range-Header; passt er nicht, wird die vollständige Datei geliefert.
+     * @param requestHeaders Die Header der Anfrage für die Auswertung der Validatoren.
+     * @return ResponseEntity mit dem Datenstrom und Content-Type der Datei.
+     */
+    @GetMapping("/{id}")
+    @PreAuthorize("permitAll()")
+    public ResponseEntity<StreamingResponseBody> getFileById(
+            final @PathVariable String id,
+            final @RequestHeader(value = HttpHeaders.RANGE, required = false) String range,
+            final @RequestHeader(value = HttpHeaders.IF_RANGE, required = false) String ifRange,
+            final @RequestHeader HttpHeaders requestHeaders
     ) {
-        if (size > 0) {
-            return getCroppedImageDynamic(id, size, format, accept);
+        GridFSFile file = filesService.getFileById(id);
+        long length = file.getLength();
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.setCacheControl(CacheControl.maxAge(30, TimeUnit.DAYS).cachePublic());
+        setValidators(headers, file);
+        if (isNotModified(requestHeaders, headers)) {
+            return new ResponseEntity<>(headers, HttpStatus.NOT_MODIFIED);
+        }
+        headers.setContentType(MediaType.parseMediaType(filesService.getContentType(file)));
+        headers.set(HttpHeaders.ACCEPT_RANGES, "bytes");
+
+        HttpRange httpRange = range != null && isIfRangeSatisfied(ifRange, headers) ? parseSingleRange(range) : null;
+        if (httpRange == null) {
+            headers.setContentLength(length);
+            return new ResponseEntity<>(streamFile(file, 0, length - 1), headers, HttpStatus.OK);
+        }
+
+        long start;
+        long end;
+        try {
+            start = httpRange.getRangeStart(length);
+            end = httpRange.getRangeEnd(length);
+        } catch (IllegalArgumentException e) {
+            start = length;
+            end = length - 1;
+        }
+        if (start > end) {
+            headers.set(HttpHeaders.CONTENT_RANGE, "bytes */" + length);
+            return new ResponseEntity<>(headers, HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE);
+        }
+
+        headers.set(HttpHeaders.CONTENT_RANGE, String.format("bytes %d-%d/%d", start, end, length));
+        headers.setContentLength(end - start + 1);
+        return new ResponseEntity<>(streamFile(file, start, end), headers, HttpStatus.PARTIAL_CONTENT);
+    }
+
+    /**
+     * Kopiert den Byte-Bereich einer Datei in die Antwort. Die Chunks werden erst beim Schreiben gelesen.
+     */
+    private StreamingResponseBody streamFile(final GridFSFile file, final long start, final long end) {
+        return outputStream -> {
+            try (InputStream data = filesService.openFileStream(file, start, end)) {
+                data.transferTo(outputStream);
+            }
+        };
+    }
+
+    /**
+     * Setzt ETag und Last-Modified einer Datei. GridFS-Dateien sind unveränderlich, daher ergeben Id und
+     * Upload-Datum ein starkes ETag.
+     */
+    private static void setValidators(final HttpHeaders headers, final GridFSFile file) {
+        long uploadMillis = file.getUploadDate() != null ? file.getUploadDate().getTime() : 0L;
+        headers.setETag("\"" + file.getObjectId().toHexString() + "-" + Long.toHexString(uploadMillis) + "\"");
+        if (file.getUploadDate() != null) {
+            headers.setLastModified(file.getUploadDate().toInstant());
+        }
+    }
+
+    /**
+     * Setzt ETag und Last-Modified einer Variante, ohne den Deskriptor der Datei zu lesen. Da GridFS-Dateien
+     * unveränderlich sind und ihre Id nie wiederverwendet wird, ergeben Id, Größe und Format ein starkes ETag;
+     * als Last-Modified dient der Zeitpunkt, zu dem die Id beim Hochladen erzeugt wurde.
+     */
+    private static void setRenditionValidators(final HttpHeaders headers, final ObjectId id, final String variant) {
+        headers.setETag("\"" + id.toHexString() + "-" + variant + "\"");
+        headers.setLastModified(id.getDate().toInstant());
+    }
+
+    /**
+     * Wertet die Validatoren der Anfrage aus. {@code If-None-Match} hat Vorrang vor {@code If-Modified-Since}.
+     */
+    private static boolean isNotModified(final HttpHeaders requestHeaders, final HttpHeaders responseHeaders) {
+        List<String> ifNoneMatch = requestHeaders.getIfNoneMatch();
+        if (!ifNoneMatch.isEmpty()) {
+            String etag = responseHeaders.getETag();
+            return ifNoneMatch.stream().anyMatch(candidate -> "*".equals(candidate)
+                    || stripWeakPrefix(candidate).equals(etag));
+        }
+        long ifModifiedSince = requestHeaders.getIfModifiedSince();
+        long lastModified = responseHeaders.getLastModified();
+        return ifModifiedSince >= 0 && lastModified >= 0 && lastModified / 1000 <= ifModifiedSince / 1000;
+    }
+
+    private static String stripWeakPrefix(final String etag) {
+        return etag.startsWith("W/") ? etag.substring(2) : etag;
+    }
+
+    /**
+     * Prüft, ob ein Range-Header berücksichtigt werden darf. Ohne If-Range immer; mit If-Range nur, wenn das
+     * starke ETag bzw. das Datum exakt dem Stand der Datei entspricht.
+     */
+    private static boolean isIfRangeSatisfied(final String ifRange, final HttpHeaders responseHeaders) {
+        if (ifRange == null) {
+            return true;
+        }
+        if (ifRange.startsWith("\"")) {
+            return ifRange.equals(responseHeaders.getETag());
+        }
+        if (ifRange.startsWith("W/") || responseHeaders.getLastModified() < 0) {
+            return false;
+        }
+        try {
+            long ifRangeSeconds = ZonedDateTime.parse(ifRange, DateTimeFormatter.RFC_1123_DATE_TIME).toEpochSecond();
+            return ifRangeSeconds == responseHeaders.getLastModified() / 1000;
+        } catch (DateTimeParseException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Liest genau einen Byte-Bereich aus dem Range-Header. Mehrere Bereiche oder ein ungültiger Header werden
+     * ignoriert, dann wird die vollständige Datei geliefert.
+     */
+    private static HttpRange parseSingleRange(final String range) {
+        try {
+            List<HttpRange> ranges = HttpRange.parseRanges(range);
+            return ranges.size() == 1 ? ranges.get(0) : null;
+        } catch (IllegalArgumentException e) {
+            return null;
         }
-        FilesDTO filesDTO = filesService.getFilesDTOById(id);
-        return ResponseEntity.ok()
-                .contentType(MediaType.parseMediaType(filesDTO.getContentType())).body(filesDTO.getData());
     }
 
     /**
-     * Gibt eine Liste aller gespeicherten Bilddateien zurück.
+     * Startet das Vorberechnen der Standardvarianten für alle vorhandenen Bilder.
+     * Läuft bereits ein Backfill, wird nur dessen Status zurückgegeben.
      *
-     * @return ResponseEntity mit einer Liste aller Bild-DTOs im JSON-Format.
+     * @return ResponseEntity (202 Accepted) mit dem Status des Backfills.
+     */
+    @PostMapping("/renditions/backfill")
+    @PreAuthorize("hasRole('MANAGER')")
+    public ResponseEntity<RenditionBackfillStatusDTO> startRenditionBackfill() {
+        return ResponseEntity.accepted().body(renditionPipelineService.startBackfill());
+    }
+
+    /**
+     * Gibt den Fortschritt des aktuellen bzw. letzten Backfills der Bildvarianten zurück.
+     *
+     * @return ResponseEntity mit dem Status des Backfills.
+     */
+    @GetMapping("/renditions/backfill")
+    @PreAuthorize("hasRole('MANAGER')")
+    public ResponseEntity<RenditionBackfillStatusDTO> getRenditionBackfillStatus() {
+        return ResponseEntity.ok(renditionPipelineService.getBackfillStatus());
+    }
+
+    /**
+     * Startet das Aufräumen der Bilddateien, auf die kein Gericht und keine Kategorie mehr verweist.
+     * Läuft bereits ein Aufräumen, wird nur dessen Status zurückgegeben.
+     *
+     * @return ResponseEntity (202 Accepted) mit dem Status des Laufs.
+     */
+    @PostMapping("/gc")
+    @PreAuthorize("hasRole('MANAGER')")
+    public ResponseEntity<FileGarbageCollectionStatusDTO> startGarbageCollection() {
+        return ResponseEntity.accepted().body(filesGarbageCollectorService.startCollection());
+    }
+
+    /**
+     * Gibt das Ergebnis des aktuellen bzw. letzten Aufräumens zurück.
+     *
+     * @return ResponseEntity mit dem Status des Laufs.
+     */
+    @GetMapping("/gc")
+    @PreAuthorize("hasRole('MANAGER')")
+    public ResponseEntity<FileGarbageCollectionStatusDTO> getGarbageCollectionStatus() {
+        return ResponseEntity.ok(filesGarbageCollectorService.getStatus());
+    }
+
+    /**
+     * Gibt eine Seite der gespeicherten Bilddateien zurück, sortiert nach Upload-Datum.
+     * Gibt es weitere Seiten, enthält der Header {@value #NEXT_CURSOR_HEADER} den Cursor für die nächste Anfrage.
+     *
+     * @param cursor Cursor aus der vorherigen Antwort; ohne Cursor wird die erste Seite geliefert.
+     * @param limit  Maximale Anzahl der Dateien pro Seite.
+     * @return ResponseEntity mit einer Liste der Bild-DTOs der Seite im JSON-Format.
      */
     @GetMapping()
     @PreAuthorize("permitAll()")
-    public ResponseEntity<List<FileInfoDTO>> getAllImages() {
-        List<FileInfoDTO> filesDTO = filesService.getAllImages();
-        return ResponseEntity.ok()
-                .contentType(MediaType.APPLICATION_JSON)
-                .body(filesDTO);
+    public ResponseEntity<List<FileInfoDTO>> getAllImages(
+            final @RequestParam(required = false) String cursor,
+            final @RequestParam(defaultValue = "100") int limit
+    ) {
+        FileInfoPageDTO page = filesService.getImagesPage(cursor, limit);
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON);
+        if (page.nextCursor() != null) {
+            response.header(NEXT_CURSOR_HEADER, page.nextCursor());
+        }
+        return response.body(page.files());
     }
 }
@@ -1,54 +1,57 @@
 package de.ckollmeier.burgerexpress.backend.controller;
 
-import de.ckollmeier.burgerexpress.backend.dto.OrderableItemOutputDTO;
-import de.ckollmeier.burgerexpress.backend.service.OrderableItemService;
+import de.ckollmeier.burgerexpress.backend.service.CatalogSnapshotService;
+import de.ckollmeier.burgerexpress.backend.types.CatalogResource;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
-import java.util.List;
-
 @RestController
 @RequestMapping("/api/orderable-items")
 public class OrderableItemController {
-    private final OrderableItemService orderableItemService;
+    private final CatalogSnapshotService catalogSnapshotService;
 
-    public OrderableItemController(OrderableItemService orderableItemService) {
-        this.orderableItemService = orderableItemService;
+    public OrderableItemController(CatalogSnapshotService catalogSnapshotService) {
+        this.catalogSnapshotService = catalogSnapshotService;
     }
 
     /**
      * Returns all Menus and Dishes as a list of OrderableItemOutputDTOs.
      *
-     * @return ResponseEntity with a list of OrderableItemOutputDTOs
+     * @param requestHeaders Request headers, used for If-None-Match and Accept-Encoding
+     * @return ResponseEntity with the pre-serialized list of OrderableItemOutputDTOs
      */
     @GetMapping
     @PreAuthorize("permitAll()")
-    public ResponseEntity<List<OrderableItemOutputDTO>> getAllOrderableItems() {
-        return ResponseEntity.ok(orderableItemService.getAllOrderableItems());
+    public ResponseEntity<byte[]> getAllOrderableItems(final @RequestHeader HttpHeaders requestHeaders) {
+        return CatalogResponses.of(catalogSnapshotService.getBody(CatalogResource.ORDERABLE_ITEMS), requestHeaders);
     }
 
     /**
      * Returns all Menus as a list of OrderableItemOutputDTOs.
      *
-     * @return ResponseEntity with a list of OrderableItemOutputDTOs
+     * @param requestHeaders Request headers, used for If-None-Match and Accept-Encoding
+     * @return ResponseEntity with the pre-serialized list of OrderableItemOutputDTOs
      */
     @GetMapping("/menus")
     @PreAuthorize("permitAll()")
-    public ResponseEntity<List<OrderableItemOutputDTO>> getAllMenus() {
-        return ResponseEntity.ok(orderableItemService.getAllMenus());
+    public ResponseEntity<byte[]> getAllMenus(final @RequestHeader HttpHeaders requestHeaders) {
+        return CatalogResponses.of(catalogSnapshotService.getBody(CatalogResource.MENUS), requestHeaders);
     }
 
     /**
      * Returns all Dishes as a list of OrderableItemOutputDTOs.
      *
-     * @return ResponseEntity with a list of OrderableItemOutputDTOs
+     * @param requestHeaders Request headers, used for If-None-Match and Accept-Encoding
+     * @return ResponseEntity with the pre-serialized list of OrderableItemOutputDTOs
      */
     @GetMapping("/dishes")
     @PreAuthorize("permitAll()")
-    public ResponseEntity<List<OrderableItemOutputDTO>> getAllDishes() {
-        return ResponseEntity.ok(orderableItemService.getAllDishes());
+    public ResponseEntity<byte[]> getAllDishes(final @RequestHeader HttpHeaders requestHeaders) {
+        return CatalogResponses.of(catalogSnapshotService.getBody(CatalogResource.DISHES), requestHeaders);
     }
 }
@@ -2,10 +2,9 @@ package de.ckollmeier.burgerexpress.backend.converter;
 
 import de.ckollmeier.burgerexpress.backend.dto.DisplayCategoryOutputDTO;
 import de.ckollmeier.burgerexpress.backend.model.DisplayCategory;
-import de.ckollmeier.burgerexpress.backend.model.DisplayItem;
 
-import java.util.Comparator;
 import java.util.List;
+import java.util.Map;
 
 public class DisplayCategoryOutputDTOConverter {
     private DisplayCategoryOutputDTOConverter() {
@@ -14,21 +13,39 @@ public class DisplayCategoryOutputDTOConverter {
     }
 
     public static DisplayCategoryOutputDTO convert(final DisplayCategory displayCategory) {
+        return convert(displayCategory, Map.of());
+    }
+
+    /**
+     * Converts a display category and embeds the placeholders (LQIP) of its image and of the images of its items.
+     *
+     * @param displayCategory        the category to convert
+     * @param placeholdersByImageUrl the placeholders as data URIs, keyed by image URL
+     * @return the converted category
+     */
+    public static DisplayCategoryOutputDTO convert(
+            final DisplayCategory displayCategory,
+            final Map<String, String> placeholdersByImageUrl
+    ) {
         return new DisplayCategoryOutputDTO(
                 displayCategory.getId(),
                 displayCategory.getName(),
                 displayCategory.getDescription(),
-                DisplayItemOutputDTOConverter.convert(displayCategory.getDisplayItems().stream()
-                        .sorted(Comparator.comparingInt(DisplayItem::getPosition)
-                                .thenComparing(DisplayItem::getCreatedAt, Comparator.nullsLast(Comparator.reverseOrder())))
-                        .toList()
-                ),
+                DisplayItemOutputDTOConverter.convert(displayCategory.getDisplayItems(), placeholdersByImageUrl),
                 displayCategory.getImageUrl(),
+                displayCategory.getImageUrl() != null ? placeholdersByImageUrl.get(displayCategory.getImageUrl()) : null,
                 displayCategory.isPublished()
         );
     }
 
     public static List<DisplayCategoryOutputDTO> convert(final List<DisplayCategory> displayCategories) {
-        return displayCategories.stream().map(DisplayCategoryOutputDTOConverter::convert).toList();
+        return convert(displayCategories, Map.of());
+    }
+
+    public static List<DisplayCategoryOutputDTO> convert(
+            final List<DisplayCategory> displayCategories,
+            final Map<String, String> placeholdersByImageUrl
+    ) {
+        return displayCategories.stream().map(category -> convert(category, placeholdersByImageUrl)).toList();
     }
 }
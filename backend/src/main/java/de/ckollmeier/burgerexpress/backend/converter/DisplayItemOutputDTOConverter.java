@@ -4,6 +4,7 @@ import de.ckollmeier.burgerexpress.backend.dto.DisplayItemOutputDTO;
 import de.ckollmeier.burgerexpress.backend.model.DisplayItem;
 
 import java.util.List;
+import java.util.Map;
 
 public class DisplayItemOutputDTOConverter {
     /**
@@ -17,12 +18,19 @@ public class DisplayItemOutputDTOConverter {
     }
 
     public static DisplayItemOutputDTO convert(final DisplayItem displayItem) {
+        return convert(displayItem, Map.of());
+    }
+
+    public static DisplayItemOutputDTO convert(
+            final DisplayItem displayItem,
+            final Map<String, String> placeholdersByImageUrl
+    ) {
         return new DisplayItemOutputDTO(
                 displayItem.getId(),
                 displayItem.getCategoryId().toString(),
                 displayItem.getName(),
                 displayItem.getDescription(),
-                OrderableItemOutputDTOConverter.convert(displayItem.getOrderableItems()),
+                OrderableItemOutputDTOConverter.convert(displayItem.getOrderableItems(), placeholdersByImageUrl),
                 displayItem.getPrice().toPlainString(),
                 displayItem.getOldPrice() != null ? displayItem.getOldPrice().toPlainString() : null,
                 displayItem.isPublished()
@@ -30,8 +38,15 @@ public class DisplayItemOutputDTOConverter {
     }
 
     public static List<DisplayItemOutputDTO> convert(final List<DisplayItem> displayItems) {
+        return convert(displayItems, Map.of());
+    }
+
+    public static List<DisplayItemOutputDTO> convert(
+            final List<DisplayItem> displayItems,
+            final Map<String, String> placeholdersByImageUrl
+    ) {
         return displayItems.stream()
-                .map(DisplayItemOutputDTOConverter::convert)
+                .map(displayItem -> convert(displayItem, placeholdersByImageUrl))
                 .toList();
     }
 
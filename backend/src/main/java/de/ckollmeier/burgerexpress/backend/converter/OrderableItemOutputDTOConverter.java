@@ -4,7 +4,9 @@ import de.ckollmeier.burgerexpress.backend.dto.OrderableItemOutputDTO;
 import de.ckollmeier.burgerexpress.backend.interfaces.OrderableItem;
 
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 public class OrderableItemOutputDTOConverter {
     private static final String DESCRIPTION="description";
@@ -44,7 +46,36 @@ public class OrderableItemOutputDTOConverter {
         return description;
     }
 
+    private static Map<String, String> getImagePlaceholders(
+            final OrderableItem orderableItem,
+            final Map<String, String> placeholdersByImageUrl
+    ) {
+        if (placeholdersByImageUrl.isEmpty()) {
+            return Map.of();
+        }
+        Map<String, String> imagePlaceholders = new LinkedHashMap<>();
+        orderableItem.getImageUrls().values().stream()
+                .flatMap(List::stream)
+                .filter(placeholdersByImageUrl::containsKey)
+                .forEach(imageUrl -> imagePlaceholders.put(imageUrl, placeholdersByImageUrl.get(imageUrl)));
+        return imagePlaceholders;
+    }
+
     public static OrderableItemOutputDTO convert(final OrderableItem orderableItem) {
+        return convert(orderableItem, Map.of());
+    }
+
+    /**
+     * Converts an orderable item and embeds the placeholders (LQIP) of its images next to the image URLs.
+     *
+     * @param orderableItem          the item to convert
+     * @param placeholdersByImageUrl the placeholders as data URIs, keyed by image URL
+     * @return the converted item
+     */
+    public static OrderableItemOutputDTO convert(
+            final OrderableItem orderableItem,
+            final Map<String, String> placeholdersByImageUrl
+    ) {
         return new OrderableItemOutputDTO(
                 orderableItem.getId(),
                 orderableItem.getName(),
@@ -52,12 +83,20 @@ public class OrderableItemOutputDTOConverter {
                 orderableItem.getPrice().toPlainString(),
                 orderableItem.getOrderableItemType().name().toLowerCase() ,
                 orderableItem.getImageUrls(),
+                getImagePlaceholders(orderableItem, placeholdersByImageUrl),
                 getDescriptionForDisplay(orderableItem),
                 getDescriptionForCart(orderableItem)
         );
     }
 
     public static List<OrderableItemOutputDTO> convert(final List<OrderableItem> orderableItems) {
-        return orderableItems.stream().map(OrderableItemOutputDTOConverter::convert).toList();
+        return convert(orderableItems, Map.of());
+    }
+
+    public static List<OrderableItemOutputDTO> convert(
+            final List<OrderableItem> orderableItems,
+            final Map<String, String> placeholdersByImageUrl
+    ) {
+        return orderableItems.stream().map(item -> convert(item, placeholdersByImageUrl)).toList();
     }
 }
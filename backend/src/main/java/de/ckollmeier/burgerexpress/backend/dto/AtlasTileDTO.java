@@ -0,0 +1,9 @@
+package de.ckollmeier.burgerexpress.backend.dto;
+
+public record AtlasTileDTO(
+        int x,
+        int y,
+        int width,
+        int height
+) {
+}
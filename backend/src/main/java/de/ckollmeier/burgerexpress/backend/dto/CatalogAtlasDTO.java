@@ -0,0 +1,14 @@
+package de.ckollmeier.burgerexpress.backend.dto;
+
+import java.util.Map;
+
+public record CatalogAtlasDTO(
+        long version,
+        String format,
+        String imageUrl,
+        int tileSize,
+        int width,
+        int height,
+        Map<String, AtlasTileDTO> tiles
+) {
+}
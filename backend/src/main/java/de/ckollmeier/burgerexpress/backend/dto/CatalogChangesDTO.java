@@ -0,0 +1,15 @@
+package de.ckollmeier.burgerexpress.backend.dto;
+
+import java.util.List;
+
+public record CatalogChangesDTO(
+        long version,
+        boolean fullResync,
+        List<OrderableItemOutputDTO> orderableItems,
+        List<DisplayItemOutputDTO> displayItems,
+        List<DisplayCategoryOutputDTO> displayCategories,
+        List<String> deletedOrderableItems,
+        List<String> deletedDisplayItems,
+        List<String> deletedDisplayCategories
+) {
+}
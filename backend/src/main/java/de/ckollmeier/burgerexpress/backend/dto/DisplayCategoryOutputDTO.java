@@ -8,6 +8,7 @@ public record DisplayCategoryOutputDTO(
         String description,
         List<DisplayItemOutputDTO> displayItems,
         String imageUrl,
+        String imagePlaceholder,
         boolean published
 ) {
 }
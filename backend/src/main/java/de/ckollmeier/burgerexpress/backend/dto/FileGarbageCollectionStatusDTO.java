@@ -0,0 +1,14 @@
+package de.ckollmeier.burgerexpress.backend.dto;
+
+import de.ckollmeier.burgerexpress.backend.types.FileGarbageCollectionState;
+
+public record FileGarbageCollectionStatusDTO(
+        FileGarbageCollectionState state,
+        int referencedFiles,
+        int scannedFiles,
+        int deletedFiles,
+        long freedBytes,
+        String startedAt,
+        String finishedAt
+) {
+}
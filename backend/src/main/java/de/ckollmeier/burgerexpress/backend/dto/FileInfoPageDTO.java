@@ -0,0 +1,9 @@
+package de.ckollmeier.burgerexpress.backend.dto;
+
+import java.util.List;
+
+public record FileInfoPageDTO(
+        List<FileInfoDTO> files,
+        String nextCursor
+) {
+}
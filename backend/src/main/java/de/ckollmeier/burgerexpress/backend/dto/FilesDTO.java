@@ -1,15 +1,91 @@
 package de.ckollmeier.burgerexpress.backend.dto;
 
-import lombok.AllArgsConstructor;
+import lombok.AccessLevel;
 import lombok.EqualsAndHashCode;
 import lombok.Getter;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.Resource;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
 
 @EqualsAndHashCode
 @Getter
-@AllArgsConstructor
 public final class FilesDTO {
     @EqualsAndHashCode.Exclude
+    @Getter(AccessLevel.NONE)
     private final byte[] data;
     private final String contentType;
     private final String fileName;
+    /**
+     * Inhalt, der nicht im Heap liegt (z.B. im Off-Heap-Cache der Bildvarianten); in diesem Fall ist {@code data} null.
+     */
+    @EqualsAndHashCode.Exclude
+    @Getter(AccessLevel.NONE)
+    private final Resource body;
+
+    public FilesDTO(final byte[] data, final String contentType, final String fileName) {
+        this(data, contentType, fileName, null);
+    }
+
+    private FilesDTO(final byte[] data, final String contentType, final String fileName, final Resource body) {
+        this.data = data;
+        this.contentType = contentType;
+        this.fileName = fileName;
+        this.body = body;
+    }
+
+    /**
+     * Erzeugt ein FilesDTO, dessen Inhalt beim Ausliefern direkt aus der Ressource gestreamt wird.
+     *
+     * @param body        Der Inhalt.
+     * @param contentType Der Content-Type.
+     * @param fileName    Der Dateiname.
+     * @return Das FilesDTO.
+     */
+    public static FilesDTO streamed(final Resource body, final String contentType, final String fileName) {
+        return new FilesDTO(null, contentType, fileName, body);
+    }
+
+    /**
+     * Liefert den Inhalt als Byte-Array. Bei gestreamten Inhalten wird dafür eine Kopie im Heap angelegt.
+     *
+     * @return Der Inhalt.
+     */
+    public byte[] getData() {
+        if (data != null || body == null) {
+            return data;
+        }
+        try (InputStream inputStream = body.getInputStream()) {
+            return inputStream.readAllBytes();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Liefert einen Eintrag, dessen Inhalt im Heap liegt. Gestreamte Inhalte werden dafür kopiert, etwa bevor sie
+     * in einem Cache abgelegt werden, der länger lebt als die Ressource (z.B. eine Datei auf der Platte).
+     *
+     * @return Dieser Eintrag, wenn er seinen Inhalt schon im Heap hält, sonst eine Kopie.
+     */
+    public FilesDTO inHeap() {
+        if (data != null || body == null) {
+            return this;
+        }
+        return new FilesDTO(getData(), contentType, fileName);
+    }
+
+    /**
+     * Liefert den Inhalt als Ressource, die ohne weitere Kopie in die Antwort geschrieben werden kann.
+     *
+     * @return Der Inhalt als Ressource.
+     */
+    public Resource asResource() {
+        if (body != null) {
+            return body;
+        }
+        return new ByteArrayResource(data != null ? data : new byte[0]);
+    }
 }
@@ -10,6 +10,7 @@ public record OrderableItemOutputDTO(
         String price,
         String type,
         Map<String, List<String>> imageUrls,
+        Map<String, String> imagePlaceholders,
         List<String> descriptionForDisplay,
         List<String> descriptionForCart
 ) {
@@ -0,0 +1,14 @@
+package de.ckollmeier.burgerexpress.backend.dto;
+
+import de.ckollmeier.burgerexpress.backend.types.RenditionBackfillState;
+
+public record RenditionBackfillStatusDTO(
+        RenditionBackfillState state,
+        int totalFiles,
+        int processedFiles,
+        int failedFiles,
+        int renderedVariants,
+        String startedAt,
+        String finishedAt
+) {
+}
@@ -1,8 +1,11 @@
 package de.ckollmeier.burgerexpress.backend.exceptionhandler;
 
 import de.ckollmeier.burgerexpress.backend.dto.ErrorDTO;
+import de.ckollmeier.burgerexpress.backend.exceptions.ImageWorkersBusyException;
 import de.ckollmeier.burgerexpress.backend.exceptions.NotFoundException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
@@ -54,6 +57,19 @@ public class GlobalExceptionHandler {
         return ErrorDTO.fromException(exception);
     }
 
+    /**
+     * Behandelt eine volle Warteschlange der Bildverarbeitung mit 429 Too Many Requests und Retry-After.
+     *
+     * @param exception Die geworfene ImageWorkersBusyException.
+     * @return Ein ErrorDTO mit den Details der Ausnahme und dem Header Retry-After.
+     */
+    @ExceptionHandler(ImageWorkersBusyException.class)
+    public ResponseEntity<ErrorDTO> catchImageWorkersBusyException(final ImageWorkersBusyException exception) {
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(exception.getRetryAfterSeconds()))
+                .body(ErrorDTO.fromException(exception).withStatus(HttpStatus.TOO_MANY_REQUESTS.name()));
+    }
+
     /**
      * Catches all unhandled exceptions and returns an ErrorDTO with the exception details.
      *
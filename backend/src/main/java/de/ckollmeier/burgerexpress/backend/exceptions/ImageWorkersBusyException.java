@@ -0,0 +1,20 @@
+package de.ckollmeier.burgerexpress.backend.exceptions;
+
+import lombok.Getter;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * Wird geworfen, wenn die Warteschlange der Bildverarbeitung voll ist.
+ * Der Client soll es nach {@link #getRetryAfterSeconds()} Sekunden erneut versuchen.
+ */
+@Getter
+@ResponseStatus(HttpStatus.TOO_MANY_REQUESTS)
+public class ImageWorkersBusyException extends RuntimeException {
+    private final long retryAfterSeconds;
+
+    public ImageWorkersBusyException(final String message, final long retryAfterSeconds, final Throwable cause) {
+        super(message, cause);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+}
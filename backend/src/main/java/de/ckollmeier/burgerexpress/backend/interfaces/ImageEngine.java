@@ -0,0 +1,53 @@
+package de.ckollmeier.burgerexpress.backend.interfaces;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Engine zum Skalieren und Kodieren von Bildern.
+ * Die aktive Implementierung wird über {@code burgerexpress.images.engine} gewählt.
+ */
+public interface ImageEngine {
+    /**
+     * Liest ein Bild, skaliert es so, dass die längere Kante {@code size} Pixel lang ist, und kodiert es im
+     * gewünschten Format. Kleinere Bilder werden nicht vergrößert.
+     *
+     * @param source Die kodierten Bilddaten des Originals.
+     * @param size   Zielgröße der längeren Kante in Pixel.
+     * @param format Ausgabeformat, z.B. "png", "jpeg" oder "webp".
+     * @return Die kodierten Bilddaten der Variante.
+     * @throws IOException Wenn die Quelldaten nicht gelesen werden können.
+     */
+    byte[] resize(InputStream source, int size, String format) throws IOException;
+
+    /**
+     * Kodiert ein bereits im Speicher liegendes Bild unverändert im gewünschten Format.
+     *
+     * @param image  Das zu kodierende Bild.
+     * @param format Ausgabeformat, z.B. "png", "jpeg" oder "webp".
+     * @return Die kodierten Bilddaten.
+     * @throws IOException Wenn das Bild nicht geschrieben werden kann.
+     */
+    byte[] encode(BufferedImage image, String format) throws IOException;
+
+    /**
+     * Berechnet die Zielmaße unter Beibehaltung des Seitenverhältnisses. Ist das Original bereits kleiner als
+     * {@code size}, bleiben seine Maße erhalten.
+     *
+     * @param width  Breite des Originals.
+     * @param height Höhe des Originals.
+     * @param size   Zielgröße der längeren Kante.
+     * @return Breite und Höhe der Variante.
+     */
+    static int[] scaledDimensions(final int width, final int height, final int size) {
+        if (size >= Math.max(width, height)) {
+            return new int[]{width, height};
+        }
+        double aspectRatio = (double) width / height;
+        if (width > height) {
+            return new int[]{size, Math.max(1, (int) (size / aspectRatio))};
+        }
+        return new int[]{Math.max(1, (int) (size * aspectRatio)), size};
+    }
+}
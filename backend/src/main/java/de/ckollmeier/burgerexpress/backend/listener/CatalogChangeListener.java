@@ -0,0 +1,49 @@
+package de.ckollmeier.burgerexpress.backend.listener;
+
+import de.ckollmeier.burgerexpress.backend.model.Dish;
+import de.ckollmeier.burgerexpress.backend.model.DisplayCategory;
+import de.ckollmeier.burgerexpress.backend.model.DisplayItem;
+import de.ckollmeier.burgerexpress.backend.model.Menu;
+import lombok.NonNull;
+import lombok.RequiredArgsConstructor;
+import org.bson.Document;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.mongodb.core.mapping.event.AbstractMongoEventListener;
+import org.springframework.data.mongodb.core.mapping.event.AfterDeleteEvent;
+import org.springframework.data.mongodb.core.mapping.event.AfterSaveEvent;
+import org.springframework.stereotype.Component;
+
+import java.util.Set;
+
+/**
+ * Beobachtet Schreibzugriffe auf die Katalog-Collections und veröffentlicht danach ein {@link CatalogChangedEvent}.
+ * Alle Services speichern und löschen über die Repositories bzw. {@code MongoTemplate}, sodass jede Änderung
+ * hier ankommt, ohne dass die einzelnen Services davon wissen müssen.
+ */
+@Component
+@RequiredArgsConstructor
+public class CatalogChangeListener extends AbstractMongoEventListener<Object> {
+    private static final Set<Class<?>> CATALOG_TYPES = Set.of(
+            Dish.class, Menu.class, DisplayItem.class, DisplayCategory.class);
+
+    private final ApplicationEventPublisher eventPublisher;
+
+    @Override
+    public void onAfterSave(@NonNull final AfterSaveEvent<Object> event) {
+        if (CATALOG_TYPES.contains(event.getSource().getClass())) {
+            eventPublisher.publishEvent(new CatalogChangedEvent(event.getCollectionName(), idOf(event.getDocument())));
+        }
+    }
+
+    @Override
+    public void onAfterDelete(@NonNull final AfterDeleteEvent<Object> event) {
+        if (event.getType() != null && CATALOG_TYPES.contains(event.getType())) {
+            eventPublisher.publishEvent(new CatalogChangedEvent(event.getCollectionName(), idOf(event.getSource())));
+        }
+    }
+
+    private static String idOf(final Document document) {
+        Object id = document != null ? document.get("_id") : null;
+        return id == null || id instanceof Document ? null : id.toString();
+    }
+}
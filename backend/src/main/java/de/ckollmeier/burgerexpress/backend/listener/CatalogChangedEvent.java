@@ -0,0 +1,26 @@
+package de.ckollmeier.burgerexpress.backend.listener;
+
+/**
+ * Wird veröffentlicht, nachdem sich der Katalog (Gerichte, Menüs, Anzeigeelemente oder Kategorien) geändert hat.
+ * Gelöschte Bilddateien werden stattdessen mit einem {@link FilesDeletedEvent} gemeldet.
+ *
+ * @param collection Die Collection, in der sich etwas geändert hat.
+ * @param documentId Die ID des geänderten Dokuments, {@code null} bei Änderungen an mehreren Dokumenten.
+ * @param remote     {@code true}, wenn die Änderung auf einer anderen Instanz geschah und über den
+ *                   {@link de.ckollmeier.burgerexpress.backend.service.CatalogInvalidationBus} gemeldet wurde.
+ */
+public record CatalogChangedEvent(
+        String collection,
+        String documentId,
+        boolean remote
+) {
+    /**
+     * Eine Änderung auf dieser Instanz.
+     *
+     * @param collection Die Collection, in der sich etwas geändert hat.
+     * @param documentId Die ID des geänderten Dokuments, {@code null} bei Änderungen an mehreren Dokumenten.
+     */
+    public CatalogChangedEvent(final String collection, final String documentId) {
+        this(collection, documentId, false);
+    }
+}
@@ -0,0 +1,16 @@
+package de.ckollmeier.burgerexpress.backend.listener;
+
+import java.util.List;
+
+/**
+ * Wird veröffentlicht, nachdem Originaldateien gelöscht wurden, damit zwischengespeicherte Varianten verworfen
+ * werden. Gelöscht werden nur Dateien, auf die kein Eintrag des Katalogs verweist; der Katalog selbst ändert sich
+ * dadurch nicht.
+ *
+ * @param fileIds Die IDs der gelöschten Dateien.
+ */
+public record FilesDeletedEvent(List<String> fileIds) {
+    public FilesDeletedEvent {
+        fileIds = List.copyOf(fileIds);
+    }
+}
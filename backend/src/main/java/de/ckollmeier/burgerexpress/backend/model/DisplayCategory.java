@@ -28,7 +28,7 @@ public final class DisplayCategory implements Sortable, FindableItem, NamedItem
     private final String name;
     private final String description;
     @ReadOnlyProperty
-    @DocumentReference(lookup = "{'categoryId': ?#{#self._id}}")
+    @DocumentReference(lookup = "{'categoryId': ?#{#self._id}}", sort = "{'position': 1, 'createdAt': -1}")
     @Builder.Default
     List<DisplayItem> displayItems = new ArrayList<>();
     private final String imageUrl;
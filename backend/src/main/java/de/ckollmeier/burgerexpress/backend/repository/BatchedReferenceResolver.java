@@ -0,0 +1,172 @@
+package de.ckollmeier.burgerexpress.backend.repository;
+
+import com.mongodb.DBRef;
+import lombok.RequiredArgsConstructor;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.convert.MongoConverter;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Repository;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+
+/**
+ * Lädt Listen von Entities samt ihrer {@code @DBRef}-Verweise mit einer festen Anzahl von Abfragen.
+ * Spring Data löst Verweise pro Entity auf, sodass N Menüs mit ihren Gerichten N weitere Abfragen kosten.
+ * Hier werden stattdessen zuerst die Dokumente roh gelesen, dann alle Verweise je Collection gesammelt und mit
+ * einer {@code $in}-Abfrage geladen, und zwar Ebene für Ebene (z.B. Anzeigeelement → Menü → Gericht).
+ * Die geladenen Dokumente ersetzen die Verweise, sodass der Converter sie wie eingebettete Dokumente liest und
+ * keine eigene Abfrage mehr stellt. Verweise auf gelöschte Dokumente entfallen, wie beim Bulk-Fetch von Spring Data.
+ * Der Katalog enthält keine zyklischen Verweise; für solche ist der Resolver nicht gedacht.
+ */
+@Repository
+@RequiredArgsConstructor
+public class BatchedReferenceResolver {
+    private static final String ID = "_id";
+
+    /**
+     * The MongoTemplate instance used for database operations.
+     */
+    private final MongoTemplate mongoTemplate;
+
+    /**
+     * Findet alle Entities einer Klasse, die der Abfrage entsprechen, und löst ihre Verweise gebündelt auf.
+     *
+     * @param query    Die Abfrage inklusive Sortierung.
+     * @param theClass Die Klasse der Entities.
+     * @param <T>      Der Typ der Entities.
+     * @return Die gefundenen Entities mit aufgelösten Verweisen.
+     */
+    public <T> List<T> find(final Query query, final Class<T> theClass) {
+        List<Document> documents = mongoTemplate.find(query, Document.class, mongoTemplate.getCollectionName(theClass));
+        resolveReferences(documents);
+        MongoConverter converter = mongoTemplate.getConverter();
+        return documents.stream()
+                .map(document -> converter.read(theClass, document))
+                .toList();
+    }
+
+    /**
+     * Findet alle Entities einer Klasse, sortiert nach Position und absteigend nach Erstellungszeitpunkt, und löst
+     * ihre Verweise gebündelt auf.
+     *
+     * @param theClass Die Klasse der Entities.
+     * @param <T>      Der Typ der Entities.
+     * @return Die sortierten Entities mit aufgelösten Verweisen.
+     */
+    public <T> List<T> findAllOrderedByPosition(final Class<T> theClass) {
+        return find(new Query()
+                        .with(Sort
+                                .by("position")
+                                .ascending()
+                                .and(Sort
+                                        .by("createdAt")
+                                        .descending())),
+                theClass);
+    }
+
+    /**
+     * Findet die IDs der Entities, die in einem {@code @DBRef}-Feld auf eines der angegebenen Dokumente verweisen.
+     * Es werden nur die IDs gelesen, Verweise werden nicht aufgelöst.
+     *
+     * @param theClass    Die Klasse der verweisenden Entities.
+     * @param field       Das Feld mit den Verweisen.
+     * @param referredIds Die IDs der Dokumente, auf die verwiesen wird.
+     * @return Die IDs der verweisenden Entities.
+     */
+    public List<String> findIdsReferencing(final Class<?> theClass, final String field, final Collection<String> referredIds) {
+        // IDs im ObjectId-Format speichert Spring Data als ObjectId, so stehen sie auch in den Verweisen
+        List<Object> storedIds = referredIds.stream()
+                .map(id -> ObjectId.isValid(id) ? (Object) new ObjectId(id) : id)
+                .toList();
+        Query query = Query.query(where(field + ".$id").in(storedIds));
+        query.fields().include(ID);
+        return mongoTemplate.find(query, Document.class, mongoTemplate.getCollectionName(theClass)).stream()
+                .map(document -> document.get(ID).toString())
+                .toList();
+    }
+
+    /**
+     * Lädt alle Verweise der Dokumente (und der dabei geladenen Dokumente) und setzt sie an Stelle der Verweise ein.
+     * Pro Ebene wird jede Collection höchstens einmal abgefragt; bereits geladene Dokumente werden wiederverwendet.
+     */
+    private void resolveReferences(final List<Document> documents) {
+        Map<String, Map<Object, Document>> resolved = new HashMap<>();
+        List<Document> loaded = new ArrayList<>(documents);
+        List<Document> pending = documents;
+        while (!pending.isEmpty()) {
+            Map<String, Set<Object>> missing = new LinkedHashMap<>();
+            for (Document document : pending) {
+                collectReferences(document, resolved, missing);
+            }
+            List<Document> fetched = new ArrayList<>();
+            missing.forEach((collection, ids) -> {
+                Map<Object, Document> byId = resolved.computeIfAbsent(collection, key -> new HashMap<>());
+                for (Document document : mongoTemplate.find(
+                        Query.query(where(ID).in(ids)), Document.class, collection)) {
+                    byId.put(document.get(ID), document);
+                    fetched.add(document);
+                }
+                ids.forEach(id -> byId.putIfAbsent(id, null));
+            });
+            loaded.addAll(fetched);
+            pending = fetched;
+        }
+        for (Document document : loaded) {
+            replaceReferences(document, resolved);
+        }
+    }
+
+    private static void collectReferences(
+            final Object value,
+            final Map<String, Map<Object, Document>> resolved,
+            final Map<String, Set<Object>> missing
+    ) {
+        if (value instanceof DBRef reference) {
+            Map<Object, Document> byId = resolved.get(reference.getCollectionName());
+            if (byId == null || !byId.containsKey(reference.getId())) {
+                missing.computeIfAbsent(reference.getCollectionName(), key -> new LinkedHashSet<>()).add(reference.getId());
+            }
+        } else if (value instanceof Document document) {
+            document.values().forEach(nested -> collectReferences(nested, resolved, missing));
+        } else if (value instanceof Collection<?> collection) {
+            collection.forEach(nested -> collectReferences(nested, resolved, missing));
+        }
+    }
+
+    /**
+     * Ersetzt die Verweise eines Dokuments durch die geladenen Dokumente. Geladene Dokumente werden dabei nicht
+     * erneut durchlaufen, sie werden in {@link #resolveReferences(List)} selbst bearbeitet.
+     */
+    private static Object replaceReferences(final Object value, final Map<String, Map<Object, Document>> resolved) {
+        if (value instanceof DBRef reference) {
+            return resolved.getOrDefault(reference.getCollectionName(), Map.of()).get(reference.getId());
+        }
+        if (value instanceof Document document) {
+            document.replaceAll((key, nested) -> replaceReferences(nested, resolved));
+            return document;
+        }
+        if (value instanceof Collection<?> collection) {
+            List<Object> replaced = new ArrayList<>(collection.size());
+            for (Object nested : collection) {
+                Object replacement = replaceReferences(nested, resolved);
+                if (replacement != null || !(nested instanceof DBRef)) {
+                    replaced.add(replacement);
+                }
+            }
+            return replaced;
+        }
+        return value;
+    }
+}
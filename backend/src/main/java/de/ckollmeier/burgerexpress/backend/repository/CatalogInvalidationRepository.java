@@ -0,0 +1,244 @@
+package de.ckollmeier.burgerexpress.backend.repository;
+
+import com.mongodb.client.ChangeStreamIterable;
+import com.mongodb.client.MongoChangeStreamCursor;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.Aggregates;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.Projections;
+import com.mongodb.client.model.PushOptions;
+import com.mongodb.client.model.UpdateOptions;
+import com.mongodb.client.model.Updates;
+import com.mongodb.client.model.changestream.ChangeStreamDocument;
+import lombok.RequiredArgsConstructor;
+import org.bson.BsonDocument;
+import org.bson.Document;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.index.IndexOperations;
+import org.springframework.data.mongodb.core.index.PartialIndexFilter;
+import org.springframework.stereotype.Repository;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.OptionalLong;
+import java.util.concurrent.TimeUnit;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+
+/**
+ * Zustand der knotenübergreifenden Invalidierung des Katalogs.
+ * Je Instanz wird festgehalten, bis wohin sie Änderungen verarbeitet hat (Resume-Token des Change Streams bzw.
+ * Version des Änderungsprotokolls), damit sie nach einem Neustart dort fortsetzt. Daneben führt das Repository ein
+ * kurzes, instanzübergreifend versioniertes Änderungsprotokoll in einem einzigen Dokument: Version und letzte
+ * Änderungen werden mit einem Update geschrieben und mit einem Lesen abgefragt, sodass nie eine Version ohne die
+ * zugehörige Änderung sichtbar ist. Es dient MongoDB ohne Replica Set, das keine Change Streams kennt, als Ersatz
+ * und den Kiosken als Grundlage für inkrementelle Abgleiche.
+ */
+@Repository
+@RequiredArgsConstructor
+public class CatalogInvalidationRepository {
+    public static final String COLLECTION = "burger-express-catalog-invalidation";
+    private static final String ID = "_id";
+    private static final String CHANGES_ID = "changes";
+    private static final String NODE_PREFIX = "node:";
+    private static final String VERSION = "version";
+    private static final String CHANGES = "changes";
+    private static final String RESUME_TOKEN = "resumeToken";
+    private static final String UPDATED_AT = "updatedAt";
+    /** Kennzeichnet die Zustände der Instanzen; nur sie verfallen, das Änderungsprotokoll nie. */
+    private static final String NODE = "node";
+    /** Zustände von Instanzen, die nicht mehr laufen, verfallen nach dieser Zeit. */
+    private static final Duration STATE_TTL = Duration.ofDays(30);
+    private static final String STATE_EXPIRY_INDEX = "node_state_expiry";
+    /** Früherer Verfallsindex über die ganze Collection, der auch das Änderungsprotokoll löschte. */
+    private static final String LEGACY_STATE_EXPIRY_INDEX = "state_expiry";
+
+    /**
+     * Ein Eintrag des Änderungsprotokolls.
+     *
+     * @param collection Die Collection, in der sich etwas geändert hat.
+     * @param documentId Die ID des geänderten Dokuments, {@code null} bei Änderungen an mehreren Dokumenten.
+     * @param node       Die Instanz, auf der die Änderung geschah.
+     */
+    public record Change(String collection, String documentId, String node) {
+    }
+
+    /**
+     * Das Änderungsprotokoll: Jede Änderung erhöht die Version um eins, der letzte Eintrag gehört zur aktuellen
+     * Version.
+     *
+     * @param version Die Version nach der letzten Änderung.
+     * @param changes Die letzten Änderungen in ihrer Reihenfolge.
+     */
+    public record ChangeFeed(long version, List<Change> changes) {
+        public ChangeFeed {
+            changes = List.copyOf(changes);
+        }
+    }
+
+    /**
+     * The MongoTemplate instance used for database operations.
+     */
+    private final MongoTemplate mongoTemplate;
+
+    /**
+     * Legt beim Start den Index an, über den die Zustände nicht mehr laufender Instanzen verfallen. Er ist auf die
+     * Zustände der Instanzen beschränkt: Verfiele das Änderungsprotokoll, finge seine Version neu an und Kioske
+     * mit einer alten Version bekämen unvollständige Abgleiche.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void ensureIndexes() {
+        IndexOperations indexOps = mongoTemplate.indexOps(COLLECTION);
+        if (indexOps.getIndexInfo().stream().anyMatch(index -> LEGACY_STATE_EXPIRY_INDEX.equals(index.getName()))) {
+            indexOps.dropIndex(LEGACY_STATE_EXPIRY_INDEX);
+        }
+        indexOps.ensureIndex(new Index()
+                .on(UPDATED_AT, Sort.Direction.ASC)
+                .expire(STATE_TTL)
+                .partial(PartialIndexFilter.of(where(NODE).exists(true)))
+                .named(STATE_EXPIRY_INDEX));
+    }
+
+    /**
+     * Prüft, ob die Datenbank Change Streams unterstützt, also Teil eines Replica Sets oder eines Sharded Clusters ist.
+     *
+     * @return {@code true}, wenn Change Streams verfügbar sind.
+     */
+    public boolean supportsChangeStreams() {
+        Document hello = mongoTemplate.getDb().runCommand(new Document("hello", 1));
+        return hello.containsKey("setName") || "isdbgrid".equals(hello.getString("msg"));
+    }
+
+    /**
+     * Öffnet einen Change Stream auf die angegebenen Collections der Datenbank.
+     *
+     * @param collections Die zu beobachtenden Collections.
+     * @param resumeToken Das Token, nach dem fortgesetzt wird, oder {@code null} für Änderungen ab jetzt.
+     * @param maxAwait    Wie lange ein {@code tryNext()} höchstens auf eine Änderung wartet.
+     * @return Der Cursor über die Änderungen.
+     */
+    public MongoChangeStreamCursor<ChangeStreamDocument<Document>> watch(
+            final Collection<String> collections,
+            final BsonDocument resumeToken,
+            final Duration maxAwait
+    ) {
+        ChangeStreamIterable<Document> stream = mongoTemplate.getDb()
+                .watch(List.of(Aggregates.match(Filters.in("ns.coll", collections))))
+                .maxAwaitTime(maxAwait.toMillis(), TimeUnit.MILLISECONDS);
+        if (resumeToken != null) {
+            stream = stream.resumeAfter(resumeToken);
+        }
+        return stream.cursor();
+    }
+
+    /**
+     * Liefert das Resume-Token, bis zu dem eine Instanz den Change Stream verarbeitet hat.
+     *
+     * @param node Die Instanz.
+     * @return Das Token, falls eines gespeichert ist.
+     */
+    public Optional<BsonDocument> findResumeToken(final String node) {
+        return Optional.ofNullable(states(BsonDocument.class).find(Filters.eq(ID, NODE_PREFIX + node)).first())
+                .filter(state -> state.isDocument(RESUME_TOKEN))
+                .map(state -> state.getDocument(RESUME_TOKEN));
+    }
+
+    /**
+     * Speichert das Resume-Token einer Instanz; {@code null} verwirft es.
+     *
+     * @param node        Die Instanz.
+     * @param resumeToken Das Token der zuletzt verarbeiteten Änderung.
+     */
+    public void saveResumeToken(final String node, final BsonDocument resumeToken) {
+        saveNodeState(node, RESUME_TOKEN, resumeToken);
+    }
+
+    /**
+     * Liefert die Version des Änderungsprotokolls, bis zu der eine Instanz Änderungen verarbeitet hat.
+     *
+     * @param node Die Instanz.
+     * @return Die Version, falls eine gespeichert ist.
+     */
+    public OptionalLong findPolledVersion(final String node) {
+        Document state = states(Document.class).find(Filters.eq(ID, NODE_PREFIX + node)).first();
+        return state != null && state.get(VERSION) instanceof Number version
+                ? OptionalLong.of(version.longValue())
+                : OptionalLong.empty();
+    }
+
+    /**
+     * Speichert die Version des Änderungsprotokolls, bis zu der eine Instanz Änderungen verarbeitet hat.
+     *
+     * @param node    Die Instanz.
+     * @param version Die verarbeitete Version.
+     */
+    public void savePolledVersion(final String node, final long version) {
+        saveNodeState(node, VERSION, version);
+    }
+
+    /**
+     * Hängt eine Änderung an das Änderungsprotokoll an und erhöht dessen Version. Es werden nur die letzten
+     * {@code retained} Einträge aufbewahrt.
+     *
+     * @param change   Die Änderung.
+     * @param retained Anzahl der aufbewahrten Einträge.
+     */
+    public void appendChange(final Change change, final int retained) {
+        Document entry = new Document("collection", change.collection())
+                .append("documentId", change.documentId())
+                .append("node", change.node());
+        states(Document.class).updateOne(
+                Filters.eq(ID, CHANGES_ID),
+                Updates.combine(
+                        Updates.inc(VERSION, 1L),
+                        Updates.pushEach(CHANGES, List.of(entry), new PushOptions().slice(-retained)),
+                        Updates.currentDate(UPDATED_AT)),
+                new UpdateOptions().upsert(true));
+    }
+
+    /**
+     * Liest das Änderungsprotokoll.
+     *
+     * @return Das Protokoll, oder ein leeres mit Version 0, solange noch keine Änderung geschrieben wurde.
+     */
+    public ChangeFeed findChanges() {
+        Document feed = states(Document.class).find(Filters.eq(ID, CHANGES_ID)).first();
+        if (feed == null) {
+            return new ChangeFeed(0, List.of());
+        }
+        List<Change> changes = feed.getList(CHANGES, Document.class, List.of()).stream()
+                .map(entry -> new Change(
+                        entry.getString("collection"), entry.getString("documentId"), entry.getString("node")))
+                .toList();
+        return new ChangeFeed(((Number) feed.get(VERSION)).longValue(), changes);
+    }
+
+    /**
+     * Liest nur die Version des Änderungsprotokolls.
+     *
+     * @return Die Version nach der letzten Änderung, 0 solange noch keine Änderung geschrieben wurde.
+     */
+    public long findChangesVersion() {
+        Document feed = states(Document.class).find(Filters.eq(ID, CHANGES_ID))
+                .projection(Projections.include(VERSION))
+                .first();
+        return feed != null ? ((Number) feed.get(VERSION)).longValue() : 0;
+    }
+
+    private void saveNodeState(final String node, final String field, final Object value) {
+        states(Document.class).updateOne(
+                Filters.eq(ID, NODE_PREFIX + node),
+                Updates.combine(Updates.set(NODE, node), Updates.set(field, value), Updates.currentDate(UPDATED_AT)),
+                new UpdateOptions().upsert(true));
+    }
+
+    private <T> MongoCollection<T> states(final Class<T> documentClass) {
+        return mongoTemplate.getCollection(COLLECTION).withDocumentClass(documentClass);
+    }
+}
@@ -7,6 +7,6 @@ import org.springframework.stereotype.Repository;
 import java.util.List;
 
 @Repository
-public interface DisplayCategoryRepository extends MongoRepository<DisplayCategory, String> {
+public interface DisplayCategoryRepository extends MongoRepository<DisplayCategory, String>, DisplayCategoryRepositoryCustom {
     List<DisplayCategory> findAllByOrderByPositionAscCreatedAtDesc();
 }
@@ -0,0 +1,19 @@
+package de.ckollmeier.burgerexpress.backend.repository;
+
+import de.ckollmeier.burgerexpress.backend.model.DisplayCategory;
+
+import java.util.List;
+
+/**
+ * Lädt den vollständigen Kategorienbaum (Kategorie → Anzeigeelement → Gericht/Menü → Gericht) mit einer einzigen
+ * Abfrage statt einer Abfrage pro Kategorie und pro Verweis.
+ */
+public interface DisplayCategoryRepositoryCustom {
+    /**
+     * Findet alle Kategorien samt ihrer Anzeigeelemente und deren Gerichte und Menüs. Kategorien und Anzeigeelemente
+     * sind nach Position und absteigend nach Erstellungszeitpunkt sortiert.
+     *
+     * @return Die sortierten Kategorien mit vollständig aufgelösten Anzeigeelementen.
+     */
+    List<DisplayCategory> findCategoryTree();
+}
@@ -0,0 +1,146 @@
+package de.ckollmeier.burgerexpress.backend.repository;
+
+import de.ckollmeier.burgerexpress.backend.model.DisplayCategory;
+import de.ckollmeier.burgerexpress.backend.model.DisplayItem;
+import de.ckollmeier.burgerexpress.backend.model.Dish;
+import de.ckollmeier.burgerexpress.backend.model.Menu;
+import lombok.RequiredArgsConstructor;
+import org.bson.Document;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.convert.MongoConverter;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Baut den Kategorienbaum in einer Aggregation: Die Anzeigeelemente werden per {@code $lookup} über ihre
+ * {@code categoryId} angehängt und in der Datenbank sortiert, ihre {@code @DBRef}-Verweise auf Gerichte und Menüs
+ * (und die der Menüs auf Gerichte) per {@code $lookup} auf die {@code $id} der Verweise aufgelöst und in der
+ * ursprünglichen Reihenfolge an Stelle der Verweise eingesetzt. Verweise auf gelöschte Dokumente entfallen.
+ * Die Anzeigeelemente liest der Converter wie eingebettete Dokumente, ohne weitere Abfragen. Die Kategorien werden
+ * von Hand gebaut, da der Converter für {@code @DocumentReference} sonst selbst nachladen würde.
+ */
+@RequiredArgsConstructor
+public class DisplayCategoryRepositoryCustomImpl implements DisplayCategoryRepositoryCustom {
+    private static final String ID = "_id";
+    private static final String DISPLAY_ITEMS = "displayItems";
+    private static final String REFERENCED_IDS = "_referencedIds";
+    private static final String REFERENCED_PREFIX = "_referenced";
+    private static final Document BY_POSITION = new Document("position", 1).append("createdAt", -1);
+
+    /**
+     * The MongoTemplate instance used for database operations.
+     */
+    private final MongoTemplate mongoTemplate;
+
+    @Override
+    public List<DisplayCategory> findCategoryTree() {
+        String dishes = mongoTemplate.getCollectionName(Dish.class);
+        Map<String, List<Document>> menuReferences = new LinkedHashMap<>();
+        menuReferences.put(dishes, List.of());
+        Map<String, List<Document>> orderableItemReferences = new LinkedHashMap<>();
+        orderableItemReferences.put(dishes, List.of());
+        orderableItemReferences.put(mongoTemplate.getCollectionName(Menu.class), embedReferences("dishes", menuReferences));
+
+        List<Document> displayItemPipeline = new ArrayList<>();
+        displayItemPipeline.add(new Document("$match", new Document("$expr",
+                new Document("$eq", List.of("$categoryId", "$$categoryId")))));
+        displayItemPipeline.add(new Document("$sort", BY_POSITION));
+        displayItemPipeline.addAll(embedReferences("orderableItems", orderableItemReferences));
+
+        List<Document> pipeline = List.of(
+                new Document("$sort", BY_POSITION),
+                new Document("$lookup", new Document("from", mongoTemplate.getCollectionName(DisplayItem.class))
+                        .append("let", new Document("categoryId", "$" + ID))
+                        .append("pipeline", displayItemPipeline)
+                        .append("as", DISPLAY_ITEMS)));
+
+        List<DisplayCategory> categories = new ArrayList<>();
+        mongoTemplate.getCollection(mongoTemplate.getCollectionName(DisplayCategory.class))
+                .aggregate(pipeline)
+                .forEach(document -> categories.add(toDisplayCategory(document)));
+        return categories;
+    }
+
+    /**
+     * Stufen, die die Verweise eines Listenfeldes durch die referenzierten Dokumente ersetzen. Pro Collection gibt es
+     * ein {@code $lookup} auf alle referenzierten IDs; anschließend wird jeder Verweis anhand von {@code $ref} und
+     * {@code $id} durch sein Dokument ersetzt, sodass die Reihenfolge der Liste erhalten bleibt.
+     *
+     * @param field                  Das Feld mit der Liste von Verweisen.
+     * @param pipelinesByCollection  Die möglichen Collections der Verweise mit der Pipeline, die die geladenen
+     *                               Dokumente ihrerseits auflöst.
+     */
+    private static List<Document> embedReferences(final String field, final Map<String, List<Document>> pipelinesByCollection) {
+        List<Document> stages = new ArrayList<>();
+        stages.add(new Document("$addFields", new Document(REFERENCED_IDS, new Document("$map", new Document("input",
+                new Document("$ifNull", List.of("$" + field, List.of())))
+                .append("as", "reference")
+                .append("in", referencePart("$id"))))));
+
+        List<Document> branches = new ArrayList<>();
+        List<String> helperFields = new ArrayList<>(List.of(REFERENCED_IDS));
+        pipelinesByCollection.forEach((collection, pipeline) -> {
+            String as = REFERENCED_PREFIX + helperFields.size();
+            helperFields.add(as);
+            Document lookup = new Document("from", collection)
+                    .append("localField", REFERENCED_IDS)
+                    .append("foreignField", ID);
+            if (!pipeline.isEmpty()) {
+                lookup.append("pipeline", pipeline);
+            }
+            stages.add(new Document("$lookup", lookup.append("as", as)));
+            branches.add(new Document("case", new Document("$eq", List.of(referencePart("$ref"), collection)))
+                    .append("then", "$" + as));
+        });
+
+        Document candidates = new Document("$switch", new Document("branches", branches).append("default", List.of()));
+        Document resolved = new Document("$first", new Document("$filter", new Document("input", candidates)
+                .append("as", "candidate")
+                .append("cond", new Document("$eq", List.of("$$candidate." + ID, referencePart("$id"))))));
+        stages.add(new Document("$addFields", new Document(field, new Document("$filter", new Document("input",
+                new Document("$map", new Document("input", new Document("$ifNull", List.of("$" + field, List.of())))
+                        .append("as", "reference")
+                        .append("in", resolved)))
+                .append("as", "item")
+                .append("cond", new Document("$eq", List.of(new Document("$type", "$$item"), "object")))))));
+        stages.add(new Document("$unset", helperFields));
+        return stages;
+    }
+
+    /**
+     * Liest {@code $ref} oder {@code $id} des Verweises {@code $$reference}; beide Felder sind über einen Feldpfad
+     * nicht erreichbar.
+     */
+    private static Document referencePart(final String part) {
+        return new Document("$getField", new Document("field", new Document("$literal", part))
+                .append("input", "$$reference"));
+    }
+
+    private DisplayCategory toDisplayCategory(final Document document) {
+        MongoConverter converter = mongoTemplate.getConverter();
+        List<DisplayItem> displayItems = new ArrayList<>();
+        for (Document displayItem : document.getList(DISPLAY_ITEMS, Document.class, List.of())) {
+            displayItems.add(converter.read(DisplayItem.class, displayItem));
+        }
+        return DisplayCategory.builder()
+                .id(document.get(ID).toString())
+                .name(document.getString("name"))
+                .description(document.getString("description"))
+                .displayItems(displayItems)
+                .imageUrl(document.getString("imageUrl"))
+                .published(document.getBoolean("published", false))
+                .createdAt(toInstant(document.getDate("createdAt")))
+                .updatedAt(toInstant(document.getDate("updatedAt")))
+                .position(document.getInteger("position", 0))
+                .build();
+    }
+
+    private static Instant toInstant(final Date date) {
+        return date != null ? date.toInstant() : null;
+    }
+}
@@ -0,0 +1,24 @@
+package de.ckollmeier.burgerexpress.backend.repository;
+
+import de.ckollmeier.burgerexpress.backend.model.DisplayItem;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Listenabfragen für Anzeigeelemente, die die Gerichte und Menüs aller Elemente gebündelt laden statt einzeln
+ * pro Element.
+ */
+public interface DisplayItemRepositoryCustom {
+    List<DisplayItem> findAll();
+
+    List<DisplayItem> findAllByOrderByPositionAscCreatedAtDesc();
+
+    /**
+     * Findet die IDs der Anzeigeelemente, die eines der Gerichte oder Menüs enthalten, ohne sie zu laden.
+     *
+     * @param orderableItemIds Die IDs der Gerichte und Menüs.
+     * @return Die IDs der Anzeigeelemente.
+     */
+    List<String> findIdsByOrderableItemIds(Collection<String> orderableItemIds);
+}
@@ -0,0 +1,28 @@
+package de.ckollmeier.burgerexpress.backend.repository;
+
+import de.ckollmeier.burgerexpress.backend.model.DisplayItem;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.mongodb.core.query.Query;
+
+import java.util.Collection;
+import java.util.List;
+
+@RequiredArgsConstructor
+public class DisplayItemRepositoryCustomImpl implements DisplayItemRepositoryCustom {
+    private final BatchedReferenceResolver batchedReferenceResolver;
+
+    @Override
+    public List<DisplayItem> findAll() {
+        return batchedReferenceResolver.find(new Query(), DisplayItem.class);
+    }
+
+    @Override
+    public List<DisplayItem> findAllByOrderByPositionAscCreatedAtDesc() {
+        return batchedReferenceResolver.findAllOrderedByPosition(DisplayItem.class);
+    }
+
+    @Override
+    public List<String> findIdsByOrderableItemIds(final Collection<String> orderableItemIds) {
+        return batchedReferenceResolver.findIdsReferencing(DisplayItem.class, "orderableItems", orderableItemIds);
+    }
+}
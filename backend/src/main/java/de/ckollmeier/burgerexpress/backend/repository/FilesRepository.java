@@ -2,14 +2,57 @@ package de.ckollmeier.burgerexpress.backend.repository;
 
 import com.mongodb.BasicDBObject;
 import com.mongodb.DBObject;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoCursor;
 import com.mongodb.client.gridfs.model.GridFSFile;
+import com.mongodb.client.model.Accumulators;
+import com.mongodb.client.model.Aggregates;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.Projections;
+import com.mongodb.client.model.Sorts;
+import com.mongodb.client.model.UpdateOneModel;
+import com.mongodb.client.model.Updates;
+import com.mongodb.client.model.WriteModel;
+import org.bson.Document;
+import org.bson.conversions.Bson;
+import de.ckollmeier.burgerexpress.backend.configuration.GridFsConfig;
+import de.ckollmeier.burgerexpress.backend.dto.FilesDTO;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
 import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.index.IndexInfo;
+import org.springframework.data.mongodb.core.index.IndexOperations;
+import org.springframework.data.mongodb.core.index.PartialIndexFilter;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.data.mongodb.gridfs.GridFsResource;
 import org.springframework.data.mongodb.gridfs.GridFsTemplate;
 import org.springframework.stereotype.Repository;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 import java.util.Optional;
 
 import static org.springframework.data.mongodb.core.query.Criteria.where;
@@ -19,9 +62,27 @@ import static org.springframework.data.mongodb.core.query.Query.query;
  * Repository zum Verwalten von Dateien im MongoDB GridFS.
  * Bietet Methoden zum Speichern, Abrufen und Löschen von Dateien.
  */
+@Slf4j
 @Repository
 @RequiredArgsConstructor
 public class FilesRepository {
+    private static final String CONTENT_TYPE = "contentType";
+    private static final String MASTER = "master";
+    private static final String MEDIA_FAMILY = "mediaFamily";
+    private static final String PLACEHOLDER = "placeholder";
+    private static final String SHA256 = "sha256";
+    private static final String SOURCE_ID = "sourceId";
+    private static final String UPLOAD_DATE = "uploadDate";
+    private static final String LAST_UPLOADED_AT = "lastUploadedAt";
+    private static final String SIZE = "size";
+    private static final String FORMAT = "format";
+    private static final String RENDITION_LOOKUP_INDEX = "rendition_lookup";
+    private static final String RENDITIONS_FILES_COLLECTION = GridFsConfig.RENDITIONS_BUCKET + ".files";
+    private static final String FILES_COLLECTION = "fs.files";
+    private static final String FILES_CHUNKS_COLLECTION = "fs.chunks";
+    private static final String RENDITIONS_CHUNKS_COLLECTION = GridFsConfig.RENDITIONS_BUCKET + ".chunks";
+    private static final int MIGRATION_BATCH_SIZE = 500;
+
     /**
      * Instanz von {@link GridFsTemplate}, die für Operationen mit MongoDB GridFS verwendet wird.
      * Bietet Methoden zum Speichern, Abrufen und Löschen von Dateien in GridFS.
@@ -29,42 +90,319 @@ public class FilesRepository {
      */
     private final GridFsTemplate gridFsTemplate;
 
+    /**
+     * Instanz von {@link GridFsTemplate} für den Bucket der erzeugten Bildvarianten.
+     */
+    @Qualifier(GridFsConfig.RENDITIONS_GRID_FS_TEMPLATE)
+    private final GridFsTemplate renditionsGridFsTemplate;
+
+    /**
+     * Template für direkte Zugriffe auf die GridFS-Collections (z.B. Indizes).
+     */
+    private final MongoTemplate mongoTemplate;
+
+    /**
+     * Anzahl der Chunks, die beim Streamen einer Datei pro Round Trip geladen werden.
+     */
+    @Value("${burgerexpress.files.download.chunk-batch-size:4}")
+    private int chunkBatchSize;
+
+    /**
+     * Legt beim Start die Indizes an, die für das Nachschlagen von Bildvarianten benötigt werden.
+     * Je Originaldatei, Größe und Format gibt es höchstens eine Variante; war der Index noch nicht eindeutig, werden
+     * vorher die doppelt gespeicherten Varianten entfernt. Master-Kopien haben keine Größe und zählen nicht mit.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void ensureIndexes() {
+        IndexOperations renditionIndexes = mongoTemplate.indexOps(RENDITIONS_FILES_COLLECTION);
+        List<IndexInfo> renditionIndexInfo = renditionIndexes.getIndexInfo();
+        if (renditionIndexInfo.stream()
+                .noneMatch(index -> RENDITION_LOOKUP_INDEX.equals(index.getName()) && index.isUnique())) {
+            if (renditionIndexInfo.stream().anyMatch(index -> RENDITION_LOOKUP_INDEX.equals(index.getName()))) {
+                renditionIndexes.dropIndex(RENDITION_LOOKUP_INDEX);
+            }
+            int removed = removeDuplicateRenditions();
+            if (removed > 0) {
+                log.info("{} doppelt gespeicherte Bildvarianten entfernt", removed);
+            }
+        }
+        renditionIndexes.ensureIndex(new Index()
+                .on(metadataField(SOURCE_ID), Sort.Direction.ASC)
+                .on(metadataField(SIZE), Sort.Direction.ASC)
+                .on(metadataField(FORMAT), Sort.Direction.ASC)
+                .unique()
+                .partial(PartialIndexFilter.of(where(metadataField(SIZE)).exists(true)))
+                .named(RENDITION_LOOKUP_INDEX));
+        mongoTemplate.indexOps(FILES_COLLECTION).ensureIndex(new Index()
+                .on(metadataField(MEDIA_FAMILY), Sort.Direction.ASC)
+                .on(UPLOAD_DATE, Sort.Direction.ASC)
+                .on("_id", Sort.Direction.ASC)
+                .named("media_family_listing"));
+        mongoTemplate.indexOps(FILES_COLLECTION).ensureIndex(new Index()
+                .on(metadataField(SHA256), Sort.Direction.ASC)
+                .unique()
+                .sparse()
+                .named("content_hash"));
+    }
+
+    /**
+     * Entfernt Bildvarianten, die für dieselbe Originaldatei, Größe und dasselbe Format mehrfach gespeichert wurden,
+     * und behält je Variante die zuerst gespeicherte.
+     *
+     * @return Die Anzahl der entfernten Varianten.
+     */
+    private int removeDuplicateRenditions() {
+        List<ObjectId> duplicates = new ArrayList<>();
+        mongoTemplate.getCollection(RENDITIONS_FILES_COLLECTION).aggregate(List.of(
+                        Aggregates.match(Filters.exists(metadataField(SIZE))),
+                        Aggregates.sort(Sorts.ascending("_id")),
+                        Aggregates.group(
+                                new Document(SOURCE_ID, "$" + metadataField(SOURCE_ID))
+                                        .append(SIZE, "$" + metadataField(SIZE))
+                                        .append(FORMAT, "$" + metadataField(FORMAT)),
+                                Accumulators.push("ids", "$_id")),
+                        Aggregates.match(Filters.expr(new Document("$gt", List.of(new Document("$size", "$ids"), 1))))))
+                .forEach(group -> {
+                    List<ObjectId> ids = group.getList("ids", ObjectId.class);
+                    duplicates.addAll(ids.subList(1, ids.size()));
+                });
+        if (!duplicates.isEmpty()) {
+            mongoTemplate.getCollection(RENDITIONS_FILES_COLLECTION).deleteMany(Filters.in("_id", duplicates));
+            mongoTemplate.getCollection(RENDITIONS_CHUNKS_COLLECTION).deleteMany(Filters.in("files_id", duplicates));
+        }
+        return duplicates.size();
+    }
+
+    /**
+     * Migration beim Start: ergänzt die Medientyp-Familie bei Dateien, die vor Einführung des Feldes
+     * gespeichert wurden.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void migrateMediaFamily() {
+        int updated = backfillMediaFamily();
+        if (updated > 0) {
+            log.info("Medientyp-Familie für {} Dateien ergänzt", updated);
+        }
+    }
+
+    /**
+     * Ergänzt bei allen Dateien ohne das Feld die Medientyp-Familie in den Metadaten, in Batches per Bulk-Write.
+     *
+     * @return Die Anzahl der ergänzten Dateien.
+     */
+    public int backfillMediaFamily() {
+        MongoCollection<Document> files = mongoTemplate.getCollection(FILES_COLLECTION);
+        Bson missing = Filters.and(
+                Filters.exists(metadataField(MEDIA_FAMILY), false),
+                Filters.type(metadataField(CONTENT_TYPE), "string"));
+        int updated = 0;
+        List<WriteModel<Document>> batch = new ArrayList<>();
+        try (MongoCursor<Document> cursor = files.find(missing)
+                .projection(Projections.include(metadataField(CONTENT_TYPE)))
+                .batchSize(MIGRATION_BATCH_SIZE)
+                .iterator()) {
+            while (cursor.hasNext()) {
+                Document file = cursor.next();
+                String contentType = file.get("metadata", Document.class).getString(CONTENT_TYPE);
+                batch.add(new UpdateOneModel<>(
+                        Filters.eq("_id", file.get("_id")),
+                        Updates.set(metadataField(MEDIA_FAMILY), mediaFamily(contentType))));
+                if (batch.size() == MIGRATION_BATCH_SIZE) {
+                    updated += files.bulkWrite(batch).getModifiedCount();
+                    batch.clear();
+                }
+            }
+        }
+        if (!batch.isEmpty()) {
+            updated += files.bulkWrite(batch).getModifiedCount();
+        }
+        return updated;
+    }
+
+    /**
+     * Liefert die normalisierte Medientyp-Familie eines Content-Types, z.B. "image" für "Image/PNG".
+     *
+     * @param contentType Der Content-Type, darf {@code null} sein.
+     * @return Der klein geschriebene Teil vor dem "/", oder {@code null}, wenn kein Content-Type angegeben ist.
+     */
+    public static String mediaFamily(final String contentType) {
+        if (contentType == null || contentType.isBlank()) {
+            return null;
+        }
+        int slash = contentType.indexOf('/');
+        return (slash < 0 ? contentType : contentType.substring(0, slash)).trim().toLowerCase(Locale.ROOT);
+    }
+
     /**
      * Sucht und liefert eine Datei im GridFS anhand der Id.
      *
      * @param id Die Id der Datei (hexadezimaler String)
-     * @return Optional mit der GridFSFile falls gefunden, sonst leer
+     * @return Optional mit der GridFSFile falls gefunden, sonst leer (auch bei einer ungültigen Id)
      */
     public Optional<GridFSFile> getFileById(final String id) {
+        if (!ObjectId.isValid(id)) {
+            return Optional.empty();
+        }
         //noinspection OptionalOfNullableMisuse
         return Optional.ofNullable(gridFsTemplate.findOne(query(where("_id").is(new ObjectId(id)))));
     }
 
+    /**
+     * Öffnet einen Stream über einen Byte-Bereich einer Datei, der die Chunks direkt aus GridFS liest.
+     * Der übergebene Deskriptor wird wiederverwendet, es erfolgt keine weitere Abfrage der Datei.
+     *
+     * @param file  Der Deskriptor der Datei
+     * @param start Erstes zu lesendes Byte
+     * @param end   Letztes zu lesendes Byte (inklusive)
+     * @return Ein InputStream über den angeforderten Bereich
+     */
+    public InputStream openDownloadStream(final GridFSFile file, final long start, final long end) {
+        return new GridFsChunkInputStream(
+                mongoTemplate.getCollection(FILES_CHUNKS_COLLECTION), file, start, end, chunkBatchSize);
+    }
+
     /**
      * Speichert eine Datei im GridFS. 
      * Es werden zusätzliche Metadaten wie Content-Type, Dateigröße, Dateiname und Upload-Datum gespeichert.
+     * Ist eine Datei mit identischem Inhalt bereits gespeichert, wird deren Id geliefert (siehe
+     * {@link #saveFile(MultipartFile, String)}).
      *
      * @param file Das zu speichernde MultipartFile
      * @return Die Id der gespeicherten Datei als hexadezimaler String
      * @throws IOException Falls beim Zugriff auf den Datei-Stream ein Fehler auftritt
      */
     public String saveFile(final MultipartFile file) throws IOException {
+        return saveFile(file, null);
+    }
+
+    /**
+     * Speichert eine Datei im GridFS zusammen mit einem eingebetteten Platzhalter (LQIP) in den Metadaten.
+     * Während die Datei chunkweise in GridFS geschrieben wird, wird der SHA-256 des Inhalts berechnet, sodass der
+     * Speicherbedarf nicht von der Dateigröße abhängt. Der Hash wird in den Metadaten unter einem eindeutigen Index
+     * abgelegt; existiert er bereits, wird die gerade geschriebene Datei wieder gelöscht und die Id der vorhandenen
+     * Datei geliefert. Deren Bildvarianten müssen dann nicht erneut berechnet werden.
+     *
+     * @param file        Das zu speichernde MultipartFile
+     * @param placeholder Der Platzhalter als Data-URI, {@code null}, wenn keiner gespeichert werden soll
+     * @return Die Id der gespeicherten bzw. der bereits vorhandenen Datei als hexadezimaler String
+     * @throws IOException Falls beim Zugriff auf den Datei-Stream ein Fehler auftritt
+     */
+    public String saveFile(final MultipartFile file, final String placeholder) throws IOException {
         DBObject metaData = new BasicDBObject();
-        metaData.put("contentType", file.getContentType());
+        metaData.put(CONTENT_TYPE, file.getContentType());
+        metaData.put(MEDIA_FAMILY, mediaFamily(file.getContentType()));
+        if (placeholder != null) {
+            metaData.put(PLACEHOLDER, placeholder);
+        }
         metaData.put("size", file.getSize());
         metaData.put("originalFilename", file.getOriginalFilename());
         metaData.put("uploadDate", new java.util.Date());
 
-        ObjectId id = gridFsTemplate.store(
-                file.getInputStream(),
-                file.getOriginalFilename(),
-                file.getContentType(),
-                metaData
-        );
+        MessageDigest digest = sha256Digest();
+        ObjectId id;
+        try (InputStream inputStream = new DigestInputStream(file.getInputStream(), digest)) {
+            id = gridFsTemplate.store(
+                    inputStream,
+                    file.getOriginalFilename(),
+                    file.getContentType(),
+                    metaData
+            );
+        }
+        String sha256 = HexFormat.of().formatHex(digest.digest());
 
+        try {
+            mongoTemplate.updateFirst(
+                    query(where("_id").is(id)), Update.update(metadataField(SHA256), sha256), FILES_COLLECTION);
+        } catch (DuplicateKeyException e) {
+            Optional<String> existingId = findIdBySha256(sha256);
+            if (existingId.isPresent()) {
+                gridFsTemplate.delete(query(where("_id").is(id)));
+                markUploaded(existingId.get());
+                log.debug("Datei {} ist bereits als {} gespeichert", file.getOriginalFilename(), existingId.get());
+                return existingId.get();
+            }
+            throw e;
+        }
         return id.toHexString();
     }
 
+    /**
+     * Sucht eine Datei anhand des SHA-256 ihres Inhalts.
+     *
+     * @param sha256 Der Hash als hexadezimaler String (klein geschrieben)
+     * @return Optional mit der Id der Datei falls vorhanden, sonst leer
+     */
+    public Optional<String> findIdBySha256(final String sha256) {
+        return Optional.ofNullable(mongoTemplate.getCollection(FILES_COLLECTION)
+                        .find(Filters.eq(metadataField(SHA256), sha256))
+                        .projection(Projections.include("_id"))
+                        .first())
+                .map(file -> file.getObjectId("_id").toHexString());
+    }
+
+    /**
+     * Sucht eine bereits gespeicherte Datei mit demselben Inhalt, ohne die übergebene Datei zu speichern.
+     * Der SHA-256 wird beim Lesen des Streams berechnet, der Inhalt also nicht im Speicher gehalten.
+     *
+     * @param file Die hochgeladene Datei
+     * @return Optional mit der Id der vorhandenen Datei, sonst leer
+     * @throws IOException Falls beim Zugriff auf den Datei-Stream ein Fehler auftritt
+     */
+    public Optional<String> findIdByContent(final MultipartFile file) throws IOException {
+        MessageDigest digest = sha256Digest();
+        try (InputStream inputStream = new DigestInputStream(file.getInputStream(), digest)) {
+            inputStream.transferTo(OutputStream.nullOutputStream());
+        }
+        return findIdBySha256(HexFormat.of().formatHex(digest.digest()));
+    }
+
+    /**
+     * Vermerkt, dass der Inhalt einer vorhandenen Datei erneut hochgeladen wurde. Das Aufräumen nicht referenzierter
+     * Dateien gewährt ihr dann wieder die volle Schonfrist, auch wenn sie selbst schon lange gespeichert ist.
+     *
+     * @param id Die Id der Datei (hexadezimaler String)
+     */
+    public void markUploaded(final String id) {
+        mongoTemplate.updateFirst(
+                query(where("_id").is(new ObjectId(id))),
+                Update.update(metadataField(LAST_UPLOADED_AT), new Date()),
+                FILES_COLLECTION);
+    }
+
+    private static MessageDigest sha256Digest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 Algorithmus nicht verfügbar", e);
+        }
+    }
+
+    /**
+     * Liest die eingebetteten Platzhalter mehrerer Dateien mit einer einzigen Abfrage.
+     * Ungültige Ids und Dateien ohne Platzhalter werden übersprungen.
+     *
+     * @param ids Die Ids der Dateien (hexadezimale Strings)
+     * @return Die Platzhalter als Data-URI je Id
+     */
+    public Map<String, String> findPlaceholders(final Collection<String> ids) {
+        List<ObjectId> objectIds = ids.stream()
+                .filter(ObjectId::isValid)
+                .distinct()
+                .map(ObjectId::new)
+                .toList();
+        if (objectIds.isEmpty()) {
+            return Map.of();
+        }
+        Map<String, String> placeholders = new HashMap<>();
+        mongoTemplate.getCollection(FILES_COLLECTION)
+                .find(Filters.and(Filters.in("_id", objectIds), Filters.exists(metadataField(PLACEHOLDER))))
+                .projection(Projections.include(metadataField(PLACEHOLDER)))
+                .forEach(file -> placeholders.put(
+                        file.getObjectId("_id").toHexString(),
+                        file.get("metadata", Document.class).getString(PLACEHOLDER)));
+        return placeholders;
+    }
+
     /**
      * Löscht eine Datei aus dem GridFS anhand der Id.
      *
@@ -75,28 +413,269 @@ public class FilesRepository {
     }
 
     public void deleteAllFiles() {
-        gridFsTemplate.delete(query(where("metadata.contentType").exists(true)));
+        gridFsTemplate.delete(query(where(metadataField(CONTENT_TYPE)).exists(true)));
+        renditionsGridFsTemplate.delete(query(where(metadataField(SOURCE_ID)).exists(true)));
+    }
+
+    /**
+     * Liest eine Seite der Bilddateien, die vor einem Zeitpunkt hochgeladen wurden, sortiert nach Id.
+     * Wurde der Inhalt einer Datei seitdem erneut hochgeladen (siehe {@link #markUploaded(String)}), zählt dieser
+     * Zeitpunkt. Es werden nur Id und Länge gelesen; die Seiten werden über die Id der letzten Datei verkettet.
+     *
+     * @param uploadedBefore Nur Dateien, die vor diesem Zeitpunkt zuletzt hochgeladen wurden
+     * @param afterId        Id der letzten Datei der vorherigen Seite, {@code null} für die erste Seite
+     * @param limit          Maximale Anzahl der Dateien
+     * @return Die Dateien der Seite mit den Feldern {@code _id} und {@code length}
+     */
+    public List<Document> findImagesUploadedBefore(final Date uploadedBefore, final ObjectId afterId, final int limit) {
+        List<Bson> filters = new ArrayList<>();
+        filters.add(Filters.eq(metadataField(MEDIA_FAMILY), "image"));
+        filters.add(Filters.lt(UPLOAD_DATE, uploadedBefore));
+        filters.add(Filters.not(Filters.gte(metadataField(LAST_UPLOADED_AT), uploadedBefore)));
+        if (afterId != null) {
+            filters.add(Filters.gt("_id", afterId));
+        }
+        return mongoTemplate.getCollection(FILES_COLLECTION)
+                .find(Filters.and(filters))
+                .projection(Projections.include("_id", "length"))
+                .sort(Sorts.ascending("_id"))
+                .limit(limit)
+                .into(new ArrayList<>());
+    }
+
+    /**
+     * Löscht mehrere Dateien zusammen mit ihren Bildvarianten und Master-Kopien mit je einer Abfrage pro Collection,
+     * statt jede Datei einzeln über GridFS zu löschen.
+     *
+     * @param ids Die Ids der Dateien
+     * @return Die Anzahl der gelöschten Dateien
+     */
+    public long deleteFilesWithRenditions(final Collection<ObjectId> ids) {
+        if (ids.isEmpty()) {
+            return 0;
+        }
+        List<ObjectId> renditionIds = mongoTemplate.getCollection(RENDITIONS_FILES_COLLECTION)
+                .find(Filters.in(metadataField(SOURCE_ID), ids))
+                .projection(Projections.include("_id"))
+                .map(rendition -> rendition.getObjectId("_id"))
+                .into(new ArrayList<>());
+        if (!renditionIds.isEmpty()) {
+            mongoTemplate.getCollection(RENDITIONS_FILES_COLLECTION).deleteMany(Filters.in("_id", renditionIds));
+            mongoTemplate.getCollection(RENDITIONS_CHUNKS_COLLECTION).deleteMany(Filters.in("files_id", renditionIds));
+        }
+        long deleted = mongoTemplate.getCollection(FILES_COLLECTION).deleteMany(Filters.in("_id", ids)).getDeletedCount();
+        mongoTemplate.getCollection(FILES_CHUNKS_COLLECTION).deleteMany(Filters.in("files_id", ids));
+        return deleted;
+    }
+
+    /**
+     * Sucht eine gespeicherte Bildvariante und liest deren Inhalt.
+     *
+     * @param sourceId Die Id der Originaldatei (hexadezimaler String)
+     * @param size     Die Zielgröße der Variante in Pixel
+     * @param format   Das Bildformat der Variante, z.B. "png" oder "webp"
+     * @return Optional mit der Variante falls vorhanden, sonst leer (auch bei einer ungültigen Id)
+     * @throws IOException Falls beim Lesen der Variante ein Fehler auftritt
+     */
+    public Optional<FilesDTO> findRendition(final String sourceId, final int size, final String format) throws IOException {
+        if (!ObjectId.isValid(sourceId)) {
+            return Optional.empty();
+        }
+        GridFSFile rendition = renditionsGridFsTemplate.findOne(renditionQuery(sourceId, size, format));
+        if (rendition == null) {
+            return Optional.empty();
+        }
+        try (InputStream inputStream = renditionsGridFsTemplate.getResource(rendition).getInputStream()) {
+            return Optional.of(new FilesDTO(
+                    inputStream.readAllBytes(),
+                    rendition.getMetadata() != null ? rendition.getMetadata().getString(CONTENT_TYPE) : null,
+                    rendition.getFilename()
+            ));
+        }
+    }
+
+    /**
+     * Prüft, ob eine Datei im GridFS existiert, ohne ihren Deskriptor zu lesen.
+     *
+     * @param id Die Id der Datei (hexadezimaler String)
+     * @return true, falls die Datei existiert; false auch bei einer ungültigen Id
+     */
+    public boolean existsFile(final String id) {
+        return ObjectId.isValid(id) && mongoTemplate.exists(query(where("_id").is(new ObjectId(id))), FILES_COLLECTION);
+    }
+
+    /**
+     * Prüft, ob eine Bildvariante bereits gespeichert ist, ohne deren Inhalt zu lesen.
+     *
+     * @param sourceId Die Id der Originaldatei (hexadezimaler String)
+     * @param size     Die Zielgröße der Variante in Pixel
+     * @param format   Das Bildformat der Variante, z.B. "png" oder "webp"
+     * @return true, falls die Variante existiert; false auch bei einer ungültigen Id
+     */
+    public boolean existsRendition(final String sourceId, final int size, final String format) {
+        return ObjectId.isValid(sourceId) && renditionsGridFsTemplate.findOne(renditionQuery(sourceId, size, format)) != null;
+    }
+
+    /**
+     * Speichert eine erzeugte Bildvariante im Bucket der Varianten, verknüpft mit der Id der Originaldatei.
+     * Wie bei {@link #saveFile(MultipartFile, String)} wird die Variante zunächst ohne ihren Schlüssel gespeichert und
+     * dieser danach unter dem eindeutigen Index gesetzt; hat eine gleichzeitige Anfrage dieselbe Variante schon
+     * gespeichert, wird die gerade geschriebene wieder gelöscht und die Id der vorhandenen geliefert.
+     *
+     * @param sourceId  Die Id der Originaldatei (hexadezimaler String)
+     * @param size      Die Zielgröße der Variante in Pixel
+     * @param format    Das Bildformat der Variante, z.B. "png" oder "webp"
+     * @param rendition Die erzeugte Variante
+     * @return Die Id der gespeicherten bzw. der bereits vorhandenen Variante als hexadezimaler String
+     */
+    public String saveRendition(final String sourceId, final int size, final String format, final FilesDTO rendition) {
+        ObjectId source = new ObjectId(sourceId);
+        DBObject metaData = new BasicDBObject();
+        metaData.put(CONTENT_TYPE, rendition.getContentType());
+
+        ObjectId id = renditionsGridFsTemplate.store(
+                new ByteArrayInputStream(rendition.getData()),
+                rendition.getFileName(),
+                rendition.getContentType(),
+                metaData
+        );
+
+        try {
+            mongoTemplate.updateFirst(
+                    query(where("_id").is(id)),
+                    Update.update(metadataField(SOURCE_ID), source)
+                            .set(metadataField(SIZE), size)
+                            .set(metadataField(FORMAT), format),
+                    RENDITIONS_FILES_COLLECTION);
+        } catch (DuplicateKeyException e) {
+            renditionsGridFsTemplate.delete(query(where("_id").is(id)));
+            GridFSFile existing = renditionsGridFsTemplate.findOne(renditionQuery(sourceId, size, format));
+            if (existing != null) {
+                log.debug("Variante {}-{}-{} ist bereits gespeichert", sourceId, size, format);
+                return existing.getObjectId().toHexString();
+            }
+            throw e;
+        }
+        return id.toHexString();
+    }
+
+    /**
+     * Löscht alle gespeicherten Bildvarianten einer Originaldatei.
+     *
+     * @param sourceId Die Id der Originaldatei (hexadezimaler String)
+     */
+    public void deleteRenditions(final String sourceId) {
+        renditionsGridFsTemplate.delete(query(where(metadataField(SOURCE_ID)).is(new ObjectId(sourceId))));
+    }
+
+    /**
+     * Speichert die normalisierte Master-Kopie einer Originaldatei im Bucket der Varianten. Der Master hat keine
+     * Zielgröße und wird daher von Abfragen nach Varianten nicht gefunden; er wird mit den Varianten gelöscht.
+     *
+     * @param sourceId Die Id der Originaldatei (hexadezimaler String)
+     * @param master   Die Master-Kopie
+     * @return Die Id der gespeicherten Master-Kopie als hexadezimaler String
+     */
+    public String saveMaster(final String sourceId, final FilesDTO master) {
+        DBObject metaData = new BasicDBObject();
+        metaData.put(SOURCE_ID, new ObjectId(sourceId));
+        metaData.put(MASTER, true);
+        metaData.put(CONTENT_TYPE, master.getContentType());
+
+        ObjectId id = renditionsGridFsTemplate.store(
+                new ByteArrayInputStream(master.getData()),
+                master.getFileName(),
+                master.getContentType(),
+                metaData
+        );
+
+        return id.toHexString();
+    }
+
+    /**
+     * Prüft, ob zu einer Originaldatei bereits eine Master-Kopie gespeichert ist.
+     *
+     * @param sourceId Die Id der Originaldatei (hexadezimaler String)
+     * @return true, falls die Master-Kopie existiert
+     */
+    public boolean existsMaster(final String sourceId) {
+        return renditionsGridFsTemplate.findOne(masterQuery(sourceId)) != null;
+    }
+
+    /**
+     * Sucht die normalisierte Master-Kopie einer Originaldatei.
+     *
+     * @param sourceId Die Id der Originaldatei (hexadezimaler String)
+     * @return Optional mit der Master-Kopie als Ressource falls vorhanden, sonst leer
+     */
+    public Optional<GridFsResource> findMaster(final String sourceId) {
+        GridFSFile master = renditionsGridFsTemplate.findOne(masterQuery(sourceId));
+        return master != null ? Optional.of(renditionsGridFsTemplate.getResource(master)) : Optional.empty();
+    }
+
+    private static Query masterQuery(final String sourceId) {
+        return query(where(metadataField(SOURCE_ID)).is(new ObjectId(sourceId))
+                .and(metadataField(MASTER)).is(true));
+    }
+
+    private static Query renditionQuery(final String sourceId, final int size, final String format) {
+        return query(where(metadataField(SOURCE_ID)).is(new ObjectId(sourceId))
+                .and(metadataField(SIZE)).is(size)
+                .and(metadataField(FORMAT)).is(format));
+    }
+
+    private static String metadataField(final String field) {
+        return "metadata." + field;
     }
 
     /**
-     * Retrieves all files from the MongoDB GridFS whose content type partially matches the specified string.
-     * The matching is case-insensitive and looks for content types that start with the provided partial content type.
+     * Retrieves all files of a media-type family (e.g. "image") from the MongoDB GridFS.
+     * The lookup uses the normalised, lower-cased family stored in the metadata and is therefore served by an index.
      *
-     * @param contentType The partial content type string to search for. The search is case-insensitive and matches
-     *                    content types that begin with this string.
-     * @return An {@code Iterable} of {@code GridFSFile} objects that match the specified partial content type.
+     * @param mediaFamily The media-type family, e.g. "image". Matching is case-insensitive.
+     * @return An {@code Iterable} of {@code GridFSFile} objects of the given family.
      */
-    public Iterable<GridFSFile> getAllFilesByPartialContentType(final String contentType) {
-        return gridFsTemplate.find(query(where("metadata.contentType").regex("^" + contentType, "i")));
+    public Iterable<GridFSFile> getAllFilesByMediaFamily(final String mediaFamily) {
+        return gridFsTemplate.find(query(where(metadataField(MEDIA_FAMILY)).is(mediaFamily(mediaFamily))));
     }
 
     /**
-     * Retrieves all images stored in the MongoDB GridFS. Images are identified by having a content type
-     * that begins with "image/" (case-insensitive).
+     * Retrieves all images stored in the MongoDB GridFS, i.e. all files of the media-type family "image".
      *
      * @return An {@code Iterable} of {@code GridFSFile} objects representing all image files available in GridFS.
      */
     public Iterable<GridFSFile> getAllImages() {
-        return getAllFilesByPartialContentType("image/");
+        return getAllFilesByMediaFamily("image");
+    }
+
+    /**
+     * Liest eine Seite der Dateien einer Medientyp-Familie, sortiert nach Upload-Datum und Id (Keyset-Pagination).
+     * Es werden nur Id, Dateiname, Upload-Datum und Content-Type geladen.
+     *
+     * @param mediaFamily     Die Medientyp-Familie, z.B. "image".
+     * @param afterUploadDate Upload-Datum der letzten Datei der vorherigen Seite, {@code null} für die erste Seite.
+     * @param afterId         Id der letzten Datei der vorherigen Seite, {@code null} für die erste Seite.
+     * @param limit           Maximale Anzahl der gelieferten Dateien.
+     * @return Die Dokumente der Seite mit den Feldern {@code _id}, {@code filename}, {@code uploadDate} und
+     *         {@code metadata.contentType}.
+     */
+    public List<Document> findFilesPageByMediaFamily(
+            final String mediaFamily,
+            final Date afterUploadDate,
+            final ObjectId afterId,
+            final int limit
+    ) {
+        Bson filter = Filters.eq(metadataField(MEDIA_FAMILY), mediaFamily(mediaFamily));
+        if (afterUploadDate != null && afterId != null) {
+            filter = Filters.and(filter, Filters.or(
+                    Filters.gt(UPLOAD_DATE, afterUploadDate),
+                    Filters.and(Filters.eq(UPLOAD_DATE, afterUploadDate), Filters.gt("_id", afterId))));
+        }
+        return mongoTemplate.getCollection(FILES_COLLECTION)
+                .find(filter)
+                .projection(Projections.include("_id", "filename", UPLOAD_DATE, metadataField(CONTENT_TYPE)))
+                .sort(Sorts.ascending(UPLOAD_DATE, "_id"))
+                .limit(limit)
+                .into(new ArrayList<>());
     }
-}
\ No newline at end of file
+}
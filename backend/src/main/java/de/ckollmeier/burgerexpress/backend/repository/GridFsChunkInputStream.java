@@ -0,0 +1,162 @@
+package de.ckollmeier.burgerexpress.backend.repository;
+
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoCursor;
+import com.mongodb.client.gridfs.model.GridFSFile;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.Sorts;
+import org.bson.Document;
+import org.bson.types.Binary;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * InputStream, der einen Byte-Bereich einer GridFS-Datei direkt aus der Chunks-Collection liest.
+ * Es werden nur die Chunks abgefragt, die den Bereich überdecken, und immer nur ein Batch davon gehalten,
+ * sodass der Speicherbedarf unabhängig von der Dateigröße konstant bleibt. Der bereits geladene
+ * {@link GridFSFile}-Deskriptor wird wiederverwendet, die Files-Collection wird nicht erneut abgefragt.
+ */
+public class GridFsChunkInputStream extends InputStream {
+    private static final String FILES_ID = "files_id";
+    private static final String CHUNK_INDEX = "n";
+    private static final String DATA = "data";
+
+    private final MongoCollection<Document> chunks;
+    private final GridFSFile file;
+    private final int firstChunk;
+    private final int lastChunk;
+    private final int batchSize;
+    private final int offsetInFirstChunk;
+
+    private MongoCursor<Document> cursor;
+    private int expectedChunk;
+    private byte[] buffer;
+    private int bufferPosition;
+    private int bufferLimit;
+    private long remaining;
+    private boolean closed;
+
+    /**
+     * Öffnet einen Stream über die Bytes {@code start} bis einschließlich {@code end} einer GridFS-Datei.
+     *
+     * @param chunks    Die Chunks-Collection des Buckets, in dem die Datei liegt.
+     * @param file      Der Deskriptor der Datei.
+     * @param start     Erstes zu lesendes Byte.
+     * @param end       Letztes zu lesendes Byte (inklusive).
+     * @param batchSize Anzahl der Chunks, die pro Round Trip geladen werden.
+     */
+    public GridFsChunkInputStream(
+            final MongoCollection<Document> chunks,
+            final GridFSFile file,
+            final long start,
+            final long end,
+            final int batchSize
+    ) {
+        if (start < 0 || end >= file.getLength() || (end < start && file.getLength() > 0)) {
+            throw new IllegalArgumentException(String.format(
+                    "Ungültiger Bereich %d-%d für Datei der Länge %d", start, end, file.getLength()));
+        }
+        this.chunks = chunks;
+        this.file = file;
+        this.firstChunk = (int) (start / file.getChunkSize());
+        this.lastChunk = (int) (Math.max(end, start) / file.getChunkSize());
+        this.batchSize = Math.max(1, batchSize);
+        this.offsetInFirstChunk = (int) (start % file.getChunkSize());
+        this.expectedChunk = firstChunk;
+        this.remaining = Math.max(0, end - start + 1);
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (!fillBuffer()) {
+            return -1;
+        }
+        remaining--;
+        return buffer[bufferPosition++] & 0xFF;
+    }
+
+    @Override
+    public int read(final byte[] target, final int offset, final int length) throws IOException {
+        if (length == 0) {
+            return 0;
+        }
+        if (!fillBuffer()) {
+            return -1;
+        }
+        int count = (int) Math.min(Math.min(length, bufferLimit - bufferPosition), remaining);
+        System.arraycopy(buffer, bufferPosition, target, offset, count);
+        bufferPosition += count;
+        remaining -= count;
+        return count;
+    }
+
+    /**
+     * Schreibt die Chunk-Daten ohne Zwischenpuffer direkt in den Ausgabestream.
+     */
+    @Override
+    public long transferTo(final OutputStream out) throws IOException {
+        long transferred = 0;
+        while (fillBuffer()) {
+            int count = (int) Math.min(bufferLimit - bufferPosition, remaining);
+            out.write(buffer, bufferPosition, count);
+            bufferPosition += count;
+            remaining -= count;
+            transferred += count;
+        }
+        return transferred;
+    }
+
+    @Override
+    public int available() {
+        return (int) Math.min(bufferLimit - bufferPosition, remaining);
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        buffer = null;
+        if (cursor != null) {
+            cursor.close();
+            cursor = null;
+        }
+    }
+
+    private boolean fillBuffer() throws IOException {
+        if (closed) {
+            throw new IOException("Stream wurde bereits geschlossen");
+        }
+        if (remaining <= 0) {
+            return false;
+        }
+        if (buffer != null && bufferPosition < bufferLimit) {
+            return true;
+        }
+        if (cursor == null) {
+            cursor = chunks.find(Filters.and(
+                            Filters.eq(FILES_ID, file.getId()),
+                            Filters.gte(CHUNK_INDEX, firstChunk),
+                            Filters.lte(CHUNK_INDEX, lastChunk)))
+                    .sort(Sorts.ascending(CHUNK_INDEX))
+                    .batchSize(batchSize)
+                    .iterator();
+        }
+        if (!cursor.hasNext()) {
+            throw new IOException(String.format("Chunk %d der Datei %s fehlt", expectedChunk, file.getId()));
+        }
+        Document chunk = cursor.next();
+        Number index = chunk.get(CHUNK_INDEX, Number.class);
+        if (index == null || index.intValue() != expectedChunk) {
+            throw new IOException(String.format("Chunk %d der Datei %s fehlt", expectedChunk, file.getId()));
+        }
+        buffer = chunk.get(DATA, Binary.class).getData();
+        bufferPosition = expectedChunk == firstChunk ? offsetInFirstChunk : 0;
+        bufferLimit = buffer.length;
+        expectedChunk++;
+        if (bufferPosition >= bufferLimit) {
+            throw new IOException(String.format("Chunk %d der Datei %s ist zu kurz", expectedChunk - 1, file.getId()));
+        }
+        return true;
+    }
+}
@@ -4,9 +4,7 @@ import de.ckollmeier.burgerexpress.backend.model.Menu;
 import org.springframework.data.mongodb.repository.MongoRepository;
 import org.springframework.stereotype.Repository;
 
-import java.util.List;
 
 @Repository
-public interface MenuRepository extends MongoRepository<Menu, String> {
-    List<Menu> findAllByOrderByPositionAscCreatedAtDesc();
+public interface MenuRepository extends MongoRepository<Menu, String>, MenuRepositoryCustom {
 }
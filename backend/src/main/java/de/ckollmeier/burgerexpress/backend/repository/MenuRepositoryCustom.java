@@ -0,0 +1,23 @@
+package de.ckollmeier.burgerexpress.backend.repository;
+
+import de.ckollmeier.burgerexpress.backend.model.Menu;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Listenabfragen für Menüs, die die Gerichte aller Menüs gebündelt laden statt einzeln pro Menü.
+ */
+public interface MenuRepositoryCustom {
+    List<Menu> findAll();
+
+    List<Menu> findAllByOrderByPositionAscCreatedAtDesc();
+
+    /**
+     * Findet die IDs der Menüs, die eines der Gerichte enthalten, ohne Menüs oder Gerichte zu laden.
+     *
+     * @param dishIds Die IDs der Gerichte.
+     * @return Die IDs der Menüs.
+     */
+    List<String> findIdsByDishIds(Collection<String> dishIds);
+}
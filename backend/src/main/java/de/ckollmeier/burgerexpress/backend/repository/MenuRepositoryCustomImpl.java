@@ -0,0 +1,28 @@
+package de.ckollmeier.burgerexpress.backend.repository;
+
+import de.ckollmeier.burgerexpress.backend.model.Menu;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.mongodb.core.query.Query;
+
+import java.util.Collection;
+import java.util.List;
+
+@RequiredArgsConstructor
+public class MenuRepositoryCustomImpl implements MenuRepositoryCustom {
+    private final BatchedReferenceResolver batchedReferenceResolver;
+
+    @Override
+    public List<Menu> findAll() {
+        return batchedReferenceResolver.find(new Query(), Menu.class);
+    }
+
+    @Override
+    public List<Menu> findAllByOrderByPositionAscCreatedAtDesc() {
+        return batchedReferenceResolver.findAllOrderedByPosition(Menu.class);
+    }
+
+    @Override
+    public List<String> findIdsByDishIds(final Collection<String> dishIds) {
+        return batchedReferenceResolver.findIdsReferencing(Menu.class, "dishes", dishIds);
+    }
+}
@@ -2,9 +2,7 @@ package de.ckollmeier.burgerexpress.backend.repository;
 
 import de.ckollmeier.burgerexpress.backend.interfaces.Sortable;
 import lombok.RequiredArgsConstructor;
-import org.springframework.data.domain.Sort;
 import org.springframework.data.mongodb.core.MongoTemplate;
-import org.springframework.data.mongodb.core.query.Query;
 import org.springframework.stereotype.Repository;
 
 import java.util.ArrayList;
@@ -22,6 +20,11 @@ public class SortableRepositoryImplementation<T extends Sortable> implements Sor
 
     private final MongoTemplate mongoTemplate;
 
+    /**
+     * Loads the entities together with their references using a fixed number of queries.
+     */
+    private final BatchedReferenceResolver batchedReferenceResolver;
+
     /**
      * Saves all given entities.
      *
@@ -50,13 +53,6 @@ public class SortableRepositoryImplementation<T extends Sortable> implements Sor
      */
     @Override
     public List<T> findAll(final Class<T> theClass) {
-        return mongoTemplate.find(new Query()
-                .with(Sort
-                        .by("position")
-                        .ascending()
-                        .and(Sort
-                                .by("createdAt")
-                                .descending())),
-                theClass);
+        return batchedReferenceResolver.findAllOrderedByPosition(theClass);
     }
 }
@@ -0,0 +1,263 @@
+package de.ckollmeier.burgerexpress.backend.service;
+
+import de.ckollmeier.burgerexpress.backend.configuration.ImageProcessingConfig;
+import de.ckollmeier.burgerexpress.backend.dto.AtlasTileDTO;
+import de.ckollmeier.burgerexpress.backend.dto.CatalogAtlasDTO;
+import de.ckollmeier.burgerexpress.backend.dto.FilesDTO;
+import de.ckollmeier.burgerexpress.backend.exceptions.NotFoundException;
+import de.ckollmeier.burgerexpress.backend.exceptions.ReadFilesException;
+import de.ckollmeier.burgerexpress.backend.exceptions.WriteFilesException;
+import de.ckollmeier.burgerexpress.backend.interfaces.OrderableItem;
+import de.ckollmeier.burgerexpress.backend.listener.CatalogChangedEvent;
+import de.ckollmeier.burgerexpress.backend.model.DisplayItem;
+import de.ckollmeier.burgerexpress.backend.repository.CatalogInvalidationRepository;
+import de.ckollmeier.burgerexpress.backend.repository.DisplayItemRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.stereotype.Service;
+
+import javax.imageio.ImageIO;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Setzt die Vorschaubilder aller veröffentlichten Artikel zu einem Sprite-Atlas zusammen, damit die Bestell-SPA
+ * statt einer Anfrage pro Kachel nur ein Bild und eine Koordinatentabelle laden muss.
+ * Der Atlas wird je Format für die aktuelle {@link CatalogVersionService Katalogversion} gecached und nach jeder
+ * Änderung am Katalog im Hintergrund neu aufgebaut. Gebaut wird außerhalb der Map: Je Version und Format gibt es
+ * genau einen Bau, auf dessen Ergebnis gleichzeitige Anfragen warten, ohne andere Zugriffe auf die Map zu blockieren.
+ * Nach außen trägt der Atlas die Version des gemeinsamen Änderungsprotokolls, damit seine URL auf allen Instanzen
+ * gültig ist; die Katalogversion zählt je Instanz.
+ */
+@Slf4j
+@Service
+public class CatalogAtlasService {
+    /** Formate, in denen der Atlas ausgeliefert wird. */
+    public static final Set<String> FORMATS = Set.of("webp", "png");
+
+    /** Service für die Bildverarbeitung; liefert die Vorschaubilder und kodiert den Atlas. */
+    private final ImagesService imagesService;
+    /** Repository der Anzeigeelemente, aus denen die veröffentlichten Artikel gelesen werden. */
+    private final DisplayItemRepository displayItemRepository;
+    /** Version des Katalogs, anhand der der Atlas gecached wird. */
+    private final CatalogVersionService catalogVersionService;
+    /** Änderungsprotokoll, dessen Version der Atlas nach außen trägt. */
+    private final CatalogInvalidationRepository catalogInvalidationRepository;
+    /** Pool, auf dem der Atlas nach Änderungen neu aufgebaut wird. */
+    private final TaskExecutor executor;
+    /** Kantenlänge einer Kachel im Atlas in Pixel. */
+    private final int tileSize;
+
+    /** Zuletzt gebaute bzw. im Bau befindliche Atlanten je Format. */
+    private final Map<String, AtlasBuild> atlases = new ConcurrentHashMap<>();
+
+    /**
+     * Ein gebauter Atlas.
+     *
+     * @param info  Version, Maße und Koordinaten der Kacheln.
+     * @param image Das kodierte Atlas-Bild.
+     */
+    public record Atlas(CatalogAtlasDTO info, FilesDTO image) {
+    }
+
+    /**
+     * Der Bau eines Atlas für eine Katalogversion.
+     *
+     * @param version Die Katalogversion.
+     * @param atlas   Wird mit dem fertigen Atlas abgeschlossen.
+     */
+    private record AtlasBuild(long version, CompletableFuture<Atlas> atlas) {
+    }
+
+    public CatalogAtlasService(
+            final ImagesService imagesService,
+            final DisplayItemRepository displayItemRepository,
+            final CatalogVersionService catalogVersionService,
+            final CatalogInvalidationRepository catalogInvalidationRepository,
+            final @Qualifier(ImageProcessingConfig.RENDITION_PIPELINE_EXECUTOR) TaskExecutor executor,
+            final @Value("${burgerexpress.catalog.atlas.tile-size:128}") int tileSize
+    ) {
+        this.imagesService = imagesService;
+        this.displayItemRepository = displayItemRepository;
+        this.catalogVersionService = catalogVersionService;
+        this.catalogInvalidationRepository = catalogInvalidationRepository;
+        this.executor = executor;
+        this.tileSize = imagesService.quantizeSize(tileSize);
+    }
+
+    /**
+     * Liefert den Atlas der aktuellen Katalogversion und baut ihn bei Bedarf.
+     *
+     * @param format Das Bildformat, "webp" oder "png".
+     * @return Der Atlas.
+     * @throws IllegalArgumentException Wenn das Format nicht unterstützt wird.
+     */
+    public Atlas getAtlas(final String format) {
+        String normalizedFormat = format == null ? "" : format.toLowerCase();
+        if (!FORMATS.contains(normalizedFormat)) {
+            throw new IllegalArgumentException("Nicht unterstütztes Format für den Atlas: " + format);
+        }
+        long version = catalogVersionService.getVersion();
+        CompletableFuture<Atlas> started = new CompletableFuture<>();
+        AtlasBuild build = atlases.compute(normalizedFormat, (key, existing) ->
+                existing != null && existing.version() >= version ? existing : new AtlasBuild(version, started));
+        if (build.atlas() == started) {
+            try {
+                started.complete(buildAtlas(version, normalizedFormat));
+            } catch (RuntimeException | Error e) {
+                // Ein fehlgeschlagener Bau wird beim nächsten Abruf wiederholt
+                atlases.remove(normalizedFormat, build);
+                started.completeExceptionally(e);
+                throw e;
+            }
+        }
+        try {
+            return build.atlas().join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Baut die bereits angefragten Atlanten nach einer Änderung am Katalog im Hintergrund neu auf,
+     * sodass die nächste Anfrage nicht warten muss.
+     *
+     * @param event Das Änderungsereignis.
+     */
+    @EventListener
+    public void onCatalogChanged(final CatalogChangedEvent event) {
+        for (String format : atlases.keySet()) {
+            try {
+                executor.execute(() -> {
+                    try {
+                        getAtlas(format);
+                    } catch (RuntimeException e) {
+                        log.warn("Atlas ({}) konnte nicht neu aufgebaut werden", format, e);
+                    }
+                });
+            } catch (TaskRejectedException e) {
+                log.debug("Atlas ({}) wird beim nächsten Abruf neu aufgebaut, die Warteschlange ist voll", format);
+            }
+        }
+    }
+
+    /**
+     * Baut den Atlas. Die Version des Änderungsprotokolls wird wie beim {@link CatalogSnapshotService Schnappschuss}
+     * vor dem Lesen bestimmt, sodass der Atlas mindestens alle Änderungen bis zu ihr enthält.
+     */
+    private Atlas buildAtlas(final long catalogVersion, final String format) {
+        long version = catalogInvalidationRepository.findChangesVersion();
+        Map<String, String> fileIdByItemId = collectImageFileIds();
+
+        Map<String, BufferedImage> thumbnails = new LinkedHashMap<>();
+        for (String fileId : new LinkedHashSet<>(fileIdByItemId.values())) {
+            BufferedImage thumbnail = loadThumbnail(fileId);
+            if (thumbnail != null) {
+                thumbnails.put(fileId, thumbnail);
+            }
+        }
+
+        int columns = Math.max(1, (int) Math.ceil(Math.sqrt(thumbnails.size())));
+        int rows = Math.max(1, (int) Math.ceil((double) thumbnails.size() / columns));
+        BufferedImage atlasImage = new BufferedImage(columns * tileSize, rows * tileSize, BufferedImage.TYPE_INT_ARGB);
+        Map<String, AtlasTileDTO> tileByFileId = new LinkedHashMap<>();
+        Graphics2D graphics = atlasImage.createGraphics();
+        try {
+            int index = 0;
+            for (Map.Entry<String, BufferedImage> thumbnail : thumbnails.entrySet()) {
+                int x = (index % columns) * tileSize;
+                int y = (index / columns) * tileSize;
+                BufferedImage image = thumbnail.getValue();
+                graphics.drawImage(image, x, y, null);
+                tileByFileId.put(thumbnail.getKey(), new AtlasTileDTO(x, y, image.getWidth(), image.getHeight()));
+                index++;
+            }
+        } finally {
+            graphics.dispose();
+        }
+
+        Map<String, AtlasTileDTO> tiles = new LinkedHashMap<>();
+        fileIdByItemId.forEach((itemId, fileId) -> {
+            AtlasTileDTO tile = tileByFileId.get(fileId);
+            if (tile != null) {
+                tiles.put(itemId, tile);
+            }
+        });
+
+        byte[] data = imagesService.encodeImage(atlasImage, format);
+        CatalogAtlasDTO info = new CatalogAtlasDTO(
+                version,
+                format,
+                String.format("/api/catalog/atlas/%d?format=%s", version, format),
+                tileSize,
+                atlasImage.getWidth(),
+                atlasImage.getHeight(),
+                tiles
+        );
+        log.info("Atlas ({}) für Katalogversion {} (Protokollversion {}) mit {} Kacheln gebaut",
+                format, catalogVersion, version, tileByFileId.size());
+        return new Atlas(info, new FilesDTO(data, "image/" + format, "catalog-atlas-" + version + "." + format));
+    }
+
+    /**
+     * Sammelt für jeden veröffentlichten Artikel (inkl. der Gerichte in Menüs) die ID seines Vorschaubildes.
+     */
+    private Map<String, String> collectImageFileIds() {
+        Map<String, String> fileIdByItemId = new LinkedHashMap<>();
+        for (DisplayItem displayItem : displayItemRepository.findAllByOrderByPositionAscCreatedAtDesc()) {
+            if (!displayItem.isPublished()) {
+                continue;
+            }
+            for (OrderableItem item : displayItem.getOrderableItems()) {
+                addImageFileId(fileIdByItemId, item);
+                for (OrderableItem subItem : item.getSubItems()) {
+                    addImageFileId(fileIdByItemId, subItem);
+                }
+            }
+        }
+        return fileIdByItemId;
+    }
+
+    private static void addImageFileId(final Map<String, String> fileIdByItemId, final OrderableItem item) {
+        if (item == null || item.getId() == null || fileIdByItemId.containsKey(item.getId())) {
+            return;
+        }
+        Map<String, List<String>> imageUrls = item.getImageUrls();
+        List<String> candidates = new ArrayList<>(imageUrls.getOrDefault("MAIN", List.of()));
+        imageUrls.keySet().stream().sorted().forEach(type -> candidates.addAll(imageUrls.get(type)));
+        candidates.stream()
+                .map(FilesService::fileIdFromUrl)
+                .filter(Objects::nonNull)
+                .findFirst()
+                .ifPresent(fileId -> fileIdByItemId.put(item.getId(), fileId));
+    }
+
+    private BufferedImage loadThumbnail(final String fileId) {
+        try {
+            FilesDTO thumbnail = imagesService.getCroppedImage(fileId, tileSize, "png");
+            return ImageIO.read(new ByteArrayInputStream(thumbnail.getData()));
+        } catch (NotFoundException | ReadFilesException | WriteFilesException | IOException e) {
+            log.warn("Vorschaubild {} wird im Atlas ausgelassen: {}", fileId, e.getMessage());
+            return null;
+        }
+    }
+}
@@ -0,0 +1,150 @@
+package de.ckollmeier.burgerexpress.backend.service;
+
+import de.ckollmeier.burgerexpress.backend.dto.CatalogChangesDTO;
+import de.ckollmeier.burgerexpress.backend.dto.DisplayCategoryOutputDTO;
+import de.ckollmeier.burgerexpress.backend.dto.DisplayItemOutputDTO;
+import de.ckollmeier.burgerexpress.backend.dto.OrderableItemOutputDTO;
+import de.ckollmeier.burgerexpress.backend.model.Dish;
+import de.ckollmeier.burgerexpress.backend.model.DisplayCategory;
+import de.ckollmeier.burgerexpress.backend.model.DisplayItem;
+import de.ckollmeier.burgerexpress.backend.model.Menu;
+import de.ckollmeier.burgerexpress.backend.repository.CatalogInvalidationRepository;
+import de.ckollmeier.burgerexpress.backend.repository.CatalogInvalidationRepository.Change;
+import de.ckollmeier.burgerexpress.backend.repository.CatalogInvalidationRepository.ChangeFeed;
+import de.ckollmeier.burgerexpress.backend.repository.DisplayItemRepository;
+import de.ckollmeier.burgerexpress.backend.repository.MenuRepository;
+import de.ckollmeier.burgerexpress.backend.service.CatalogSnapshotService.CatalogSnapshot;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.stereotype.Service;
+
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * Liefert Kiosken die Änderungen am Katalog seit einer Version des Änderungsprotokolls, damit sie nicht bei jeder
+ * Änderung den ganzen Katalog neu laden müssen.
+ * Die Daten stammen aus dem {@link CatalogSnapshotService Schnappschuss}; geliefert werden nur Änderungen bis zu
+ * dessen Protokollversion, sodass die gemeldete Version nie neuer ist als die gelieferten Daten.
+ * Eine Änderung wird an die Elemente weitergereicht, die das geänderte Element enthalten: von Gerichten an Menüs,
+ * von Gerichten und Menüs an Anzeigeelemente und von Anzeigeelementen an ihre Kategorien. Kiosks ordnen
+ * Anzeigeelemente über ihre {@code categoryId} zu und entfernen gelöschte IDs überall.
+ */
+@Service
+@RequiredArgsConstructor
+public class CatalogChangesService {
+    private final CatalogSnapshotService catalogSnapshotService;
+    private final CatalogInvalidationRepository catalogInvalidationRepository;
+    private final MenuRepository menuRepository;
+    private final DisplayItemRepository displayItemRepository;
+    private final MongoTemplate mongoTemplate;
+
+    /**
+     * Liefert die Änderungen am Katalog seit der angegebenen Version. Ist diese Version nicht mehr im
+     * Änderungsprotokoll enthalten oder unbekannt, enthält die Antwort den vollständigen Katalog und ist als
+     * {@code fullResync} markiert; der Kiosk ersetzt dann seinen Stand.
+     *
+     * @param since Die Version, die der Kiosk zuletzt erhalten hat, 0 für den ersten Abruf.
+     * @return Die geänderten und gelöschten Elemente samt neuer Version.
+     */
+    public CatalogChangesDTO getChangesSince(final long since) {
+        CatalogSnapshot snapshot = catalogSnapshotService.getSnapshot();
+        long version = snapshot.changelogVersion();
+        if (since == version) {
+            return noChanges(since);
+        }
+        ChangeFeed feed = catalogInvalidationRepository.findChanges();
+        int size = feed.changes().size();
+        if (since < feed.version() - size || since > feed.version() || version > feed.version()) {
+            return fullResync(snapshot);
+        }
+        if (since > version) {
+            // Der Kiosk kennt schon einen neueren Stand, etwa von einer anderen Instanz
+            return noChanges(since);
+        }
+        List<Change> changes = feed.changes().subList(
+                (int) (size - (feed.version() - since)), (int) (size - (feed.version() - version)));
+
+        String dishes = mongoTemplate.getCollectionName(Dish.class);
+        String menus = mongoTemplate.getCollectionName(Menu.class);
+        String displayItems = mongoTemplate.getCollectionName(DisplayItem.class);
+        String displayCategories = mongoTemplate.getCollectionName(DisplayCategory.class);
+        Set<String> changedDishes = new LinkedHashSet<>();
+        Set<String> changedMenus = new LinkedHashSet<>();
+        Set<String> changedDisplayItems = new LinkedHashSet<>();
+        Set<String> changedDisplayCategories = new LinkedHashSet<>();
+        for (Change change : changes) {
+            Set<String> changed = change.collection().equals(dishes) ? changedDishes
+                    : change.collection().equals(menus) ? changedMenus
+                    : change.collection().equals(displayItems) ? changedDisplayItems
+                    : change.collection().equals(displayCategories) ? changedDisplayCategories
+                    : null;
+            if (changed == null) {
+                // Ältere Protokolle enthalten noch gelöschte Dateien; sie ändern die ausgelieferten Daten nicht
+                continue;
+            }
+            if (change.documentId() == null) {
+                return fullResync(snapshot);
+            }
+            changed.add(change.documentId());
+        }
+
+        if (!changedDishes.isEmpty()) {
+            changedMenus.addAll(menuRepository.findIdsByDishIds(changedDishes));
+        }
+        Set<String> changedOrderableItems = new LinkedHashSet<>(changedDishes);
+        changedOrderableItems.addAll(changedMenus);
+        if (!changedOrderableItems.isEmpty()) {
+            changedDisplayItems.addAll(displayItemRepository.findIdsByOrderableItemIds(changedOrderableItems));
+        }
+        snapshot.displayItems().stream()
+                .filter(displayItem -> changedDisplayItems.contains(displayItem.id()))
+                .forEach(displayItem -> changedDisplayCategories.add(displayItem.categoryId()));
+
+        return new CatalogChangesDTO(
+                version,
+                false,
+                upserted(snapshot.orderableItems(), OrderableItemOutputDTO::id, changedOrderableItems),
+                upserted(snapshot.displayItems(), DisplayItemOutputDTO::id, changedDisplayItems),
+                upserted(snapshot.displayCategories(), DisplayCategoryOutputDTO::id, changedDisplayCategories),
+                deleted(snapshot.orderableItems(), OrderableItemOutputDTO::id, changedOrderableItems),
+                deleted(snapshot.displayItems(), DisplayItemOutputDTO::id, changedDisplayItems),
+                deleted(snapshot.displayCategories(), DisplayCategoryOutputDTO::id, changedDisplayCategories));
+    }
+
+    private CatalogChangesDTO noChanges(final long version) {
+        return new CatalogChangesDTO(version, false, List.of(), List.of(), List.of(), List.of(), List.of(), List.of());
+    }
+
+    private CatalogChangesDTO fullResync(final CatalogSnapshot snapshot) {
+        return new CatalogChangesDTO(
+                snapshot.changelogVersion(),
+                true,
+                snapshot.orderableItems(),
+                snapshot.displayItems(),
+                snapshot.displayCategories(),
+                List.of(),
+                List.of(),
+                List.of());
+    }
+
+    /**
+     * Liefert die geänderten Elemente, die es im Schnappschuss noch gibt, in dessen Reihenfolge.
+     */
+    private <T> List<T> upserted(final List<T> items, final Function<T, String> id, final Set<String> changedIds) {
+        return items.stream()
+                .filter(item -> changedIds.contains(id.apply(item)))
+                .toList();
+    }
+
+    /**
+     * Liefert die IDs der geänderten Elemente, die es im Schnappschuss nicht mehr gibt.
+     */
+    private <T> List<String> deleted(final List<T> items, final Function<T, String> id, final Set<String> changedIds) {
+        Set<String> remaining = new LinkedHashSet<>(changedIds);
+        items.forEach(item -> remaining.remove(id.apply(item)));
+        return List.copyOf(remaining);
+    }
+}
@@ -0,0 +1,320 @@
+package de.ckollmeier.burgerexpress.backend.service;
+
+import com.mongodb.MongoCommandException;
+import com.mongodb.client.MongoChangeStreamCursor;
+import com.mongodb.client.model.changestream.ChangeStreamDocument;
+import com.mongodb.client.model.changestream.OperationType;
+import de.ckollmeier.burgerexpress.backend.listener.CatalogChangedEvent;
+import de.ckollmeier.burgerexpress.backend.listener.FilesDeletedEvent;
+import de.ckollmeier.burgerexpress.backend.model.Dish;
+import de.ckollmeier.burgerexpress.backend.model.DisplayCategory;
+import de.ckollmeier.burgerexpress.backend.model.DisplayItem;
+import de.ckollmeier.burgerexpress.backend.model.Menu;
+import de.ckollmeier.burgerexpress.backend.repository.CatalogInvalidationRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.BsonDocument;
+import org.bson.BsonValue;
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.stereotype.Service;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.OptionalLong;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Meldet Änderungen am Katalog, die auf anderen Instanzen geschehen, als {@link CatalogChangedEvent} mit
+ * {@code remote = true}. Dieselben Listener, die nach lokalen Änderungen die Katalogversion erhöhen und abgeleitete
+ * Caches verwerfen (Schnappschuss, Atlas), tun das so auf jeder Instanz. Im Change Stream gemeldete Löschungen von
+ * Dateien werden als {@link FilesDeletedEvent} weitergegeben, damit ihre Bildvarianten verworfen werden; in das
+ * Änderungsprotokoll werden Dateien nicht geschrieben, da sie den Katalog nicht ändern.
+ * Ist die Datenbank ein Replica Set oder ein Sharded Cluster, beobachtet der Bus die Katalog-Collections und
+ * {@code fs.files} per Change Stream; eigene Änderungen kommen dabei ein zweites Mal an und lösen nur einen weiteren
+ * Neuaufbau aus. Eine einzelne MongoDB-Instanz kennt keine Change Streams: Dann fragen alle Instanzen regelmäßig
+ * das Änderungsprotokoll ab, in das jede Instanz ihre lokalen Änderungen schreibt (das Protokoll wird immer
+ * geschrieben, da auch der inkrementelle Abgleich der Kioske darauf beruht).
+ * Resume-Token bzw. verarbeitete Protokollversion werden je Instanz gespeichert, sodass nach einem Neustart oder
+ * Verbindungsabbruch keine Änderung verloren geht. Ist das nicht mehr möglich, wird der ganze Katalog verworfen.
+ */
+@Slf4j
+@Service
+public class CatalogInvalidationBus {
+    static final String MODE_AUTO = "auto";
+    static final String MODE_CHANGE_STREAM = "change-stream";
+    static final String MODE_POLLING = "polling";
+    /** Collection der GridFS-Dateien, aus der nur Löschungen relevant sind. */
+    private static final String FILES_COLLECTION = "fs.files";
+    /** Fehlercodes, nach denen ein Change Stream nicht fortgesetzt werden kann (Historie verloren, fataler Fehler). */
+    private static final Set<Integer> NOT_RESUMABLE_CODES = Set.of(260, 280, 286);
+    /** Wie lange ein Abruf auf dem Change Stream höchstens auf eine Änderung wartet. */
+    private static final Duration MAX_AWAIT = Duration.ofSeconds(1);
+
+    /** Zustand der Invalidierung in MongoDB. */
+    private final CatalogInvalidationRepository catalogInvalidationRepository;
+    /** Veröffentlicht die Änderungen anderer Instanzen. */
+    private final ApplicationEventPublisher eventPublisher;
+    /** Die Katalog-Collections, deren Änderungen weitergegeben werden. */
+    private final List<String> catalogCollections;
+    /** Ob der Bus läuft. */
+    private final boolean enabled;
+    /** Gewählter Modus: "auto", "change-stream" oder "polling". */
+    private final String mode;
+    /** Abstand zwischen zwei Abfragen des Änderungsprotokolls und Pause nach einem Verbindungsfehler. */
+    private final Duration pollInterval;
+    /** Anzahl der Einträge, die das Änderungsprotokoll aufbewahrt. */
+    private final int retainedChanges;
+    /** Name dieser Instanz, unter dem ihr Zustand gespeichert wird. */
+    private final String nodeId;
+
+    /** Thread, auf dem der Change Stream gelesen bzw. das Protokoll abgefragt wird. */
+    private final ScheduledExecutorService watcher = Executors.newSingleThreadScheduledExecutor(
+            runnable -> new Thread(runnable, "catalog-invalidation"));
+
+    private volatile boolean running;
+    /** Zuletzt verarbeitete Version des Änderungsprotokolls, {@code null} solange sie nicht geladen ist. */
+    private Long polledVersion;
+
+    public CatalogInvalidationBus(
+            final CatalogInvalidationRepository catalogInvalidationRepository,
+            final MongoTemplate mongoTemplate,
+            final ApplicationEventPublisher eventPublisher,
+            final @Value("${burgerexpress.catalog.invalidation.enabled:true}") boolean enabled,
+            final @Value("${burgerexpress.catalog.invalidation.mode:auto}") String mode,
+            final @Value("${burgerexpress.catalog.invalidation.poll-interval:2s}") Duration pollInterval,
+            final @Value("${burgerexpress.catalog.invalidation.retained-changes:200}") int retainedChanges,
+            final @Value("${burgerexpress.catalog.invalidation.node-id:}") String nodeId
+    ) {
+        this.catalogInvalidationRepository = catalogInvalidationRepository;
+        this.eventPublisher = eventPublisher;
+        this.catalogCollections = List.of(
+                mongoTemplate.getCollectionName(Dish.class),
+                mongoTemplate.getCollectionName(Menu.class),
+                mongoTemplate.getCollectionName(DisplayItem.class),
+                mongoTemplate.getCollectionName(DisplayCategory.class));
+        this.enabled = enabled;
+        this.mode = mode;
+        this.pollInterval = pollInterval;
+        this.retainedChanges = Math.max(1, retainedChanges);
+        this.nodeId = nodeId == null || nodeId.isBlank() ? hostName() : nodeId;
+    }
+
+    /**
+     * Startet nach dem Start der Anwendung den Change Stream bzw. die regelmäßige Abfrage des Änderungsprotokolls.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        running = true;
+        boolean changeStreams = switch (mode) {
+            case MODE_CHANGE_STREAM -> true;
+            case MODE_POLLING -> false;
+            default -> catalogInvalidationRepository.supportsChangeStreams();
+        };
+        if (changeStreams) {
+            log.info("Katalog-Invalidierung über Change Streams (Instanz {})", nodeId);
+            watcher.execute(this::watchChangeStreams);
+        } else {
+            log.info("Katalog-Invalidierung über das Änderungsprotokoll alle {} (Instanz {})", pollInterval, nodeId);
+            watcher.scheduleWithFixedDelay(
+                    this::pollSafely, 0, pollInterval.toMillis(), TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Schreibt lokale Änderungen in das Änderungsprotokoll. Läuft vor allen anderen Listenern, sodass ein danach
+     * gebauter Schnappschuss die neue Protokollversion sieht. Fehler werden nur protokolliert, damit die bereits
+     * gespeicherte Änderung nicht als fehlgeschlagen gemeldet wird.
+     *
+     * @param event Das Änderungsereignis.
+     */
+    @EventListener
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    public void onCatalogChanged(final CatalogChangedEvent event) {
+        if (event.remote()) {
+            return;
+        }
+        try {
+            catalogInvalidationRepository.appendChange(
+                    new CatalogInvalidationRepository.Change(event.collection(), event.documentId(), nodeId),
+                    retainedChanges);
+        } catch (RuntimeException e) {
+            log.warn("Änderung an {} konnte nicht an andere Instanzen gemeldet werden", event.collection(), e);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        running = false;
+        watcher.shutdownNow();
+    }
+
+    /**
+     * Fragt das Änderungsprotokoll ab und meldet alle Änderungen anderer Instanzen seit der letzten Abfrage.
+     * Bei der ersten Abfrage einer neuen Instanz gibt es nichts nachzuholen. Fehlen Einträge, weil die Instanz zu
+     * lange nicht abgefragt hat oder das Protokoll neu angelegt wurde, wird der ganze Katalog verworfen.
+     */
+    void poll() {
+        CatalogInvalidationRepository.ChangeFeed feed = catalogInvalidationRepository.findChanges();
+        if (polledVersion == null) {
+            OptionalLong stored = catalogInvalidationRepository.findPolledVersion(nodeId);
+            if (stored.isEmpty()) {
+                savePolledVersion(feed.version());
+                return;
+            }
+            polledVersion = stored.getAsLong();
+        }
+        long missed = feed.version() - polledVersion;
+        if (missed == 0) {
+            return;
+        }
+        if (missed < 0 || missed > feed.changes().size()) {
+            invalidateAll();
+        } else {
+            List<CatalogInvalidationRepository.Change> changes = feed.changes();
+            for (CatalogInvalidationRepository.Change change : changes.subList(changes.size() - (int) missed, changes.size())) {
+                if (!nodeId.equals(change.node())) {
+                    publish(change.collection(), change.documentId());
+                }
+            }
+        }
+        savePolledVersion(feed.version());
+    }
+
+    /**
+     * Meldet eine Änderung aus dem Change Stream. Von {@code fs.files} werden nur Löschungen gemeldet: Neue Dateien
+     * betreffen den Katalog erst, wenn ein Eintrag auf sie verweist, und die Metadaten werden nur direkt nach dem
+     * Hochladen ergänzt; beides würde sonst bei jedem Upload den Katalog auf allen Instanzen verwerfen.
+     *
+     * @param change Die Änderung.
+     * @return {@code false}, wenn der Change Stream danach nicht fortgesetzt werden kann.
+     */
+    boolean onChange(final ChangeStreamDocument<Document> change) {
+        OperationType type = change.getOperationType();
+        if (type == OperationType.INVALIDATE || type == OperationType.DROP_DATABASE) {
+            invalidateAll();
+            return false;
+        }
+        String collection = change.getNamespace() != null ? change.getNamespace().getCollectionName() : null;
+        if (collection == null || type == OperationType.DROP || type == OperationType.RENAME) {
+            invalidateAll();
+        } else if (!FILES_COLLECTION.equals(collection) || type == OperationType.DELETE) {
+            publish(collection, idOf(change.getDocumentKey()));
+        }
+        return true;
+    }
+
+    private void pollSafely() {
+        try {
+            poll();
+        } catch (RuntimeException e) {
+            log.warn("Änderungsprotokoll des Katalogs konnte nicht abgefragt werden", e);
+        }
+    }
+
+    private void watchChangeStreams() {
+        List<String> watched = new ArrayList<>(catalogCollections);
+        watched.add(FILES_COLLECTION);
+        BsonDocument resumeToken = catalogInvalidationRepository.findResumeToken(nodeId).orElse(null);
+        while (running) {
+            try (MongoChangeStreamCursor<ChangeStreamDocument<Document>> cursor =
+                         catalogInvalidationRepository.watch(watched, resumeToken, MAX_AWAIT)) {
+                boolean resumable = true;
+                while (running && resumable) {
+                    ChangeStreamDocument<Document> change = cursor.tryNext();
+                    if (change != null) {
+                        resumable = onChange(change);
+                        resumeToken = resumable ? change.getResumeToken() : null;
+                        catalogInvalidationRepository.saveResumeToken(nodeId, resumeToken);
+                    }
+                }
+            } catch (MongoCommandException e) {
+                if (resumeToken != null && NOT_RESUMABLE_CODES.contains(e.getErrorCode())) {
+                    log.warn("Change Stream des Katalogs kann nicht fortgesetzt werden, der Katalog wird verworfen", e);
+                    resumeToken = null;
+                    catalogInvalidationRepository.saveResumeToken(nodeId, null);
+                    invalidateAll();
+                } else if (!pauseAfterError(e)) {
+                    return;
+                }
+            } catch (RuntimeException e) {
+                if (!pauseAfterError(e)) {
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Wartet nach einem Fehler, bevor der Change Stream neu geöffnet wird.
+     *
+     * @return {@code false}, wenn der Bus beendet wird.
+     */
+    private boolean pauseAfterError(final RuntimeException e) {
+        if (!running) {
+            return false;
+        }
+        log.warn("Change Stream des Katalogs unterbrochen, neuer Versuch in {}", pollInterval, e);
+        try {
+            Thread.sleep(pollInterval.toMillis());
+            return true;
+        } catch (InterruptedException interrupted) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private void savePolledVersion(final long version) {
+        polledVersion = version;
+        catalogInvalidationRepository.savePolledVersion(nodeId, version);
+    }
+
+    /**
+     * Verwirft alles, was aus dem Katalog abgeleitet ist, wenn nicht mehr feststellbar ist, was sich geändert hat.
+     */
+    private void invalidateAll() {
+        catalogCollections.forEach(collection -> publish(collection, null));
+    }
+
+    private void publish(final String collection, final String documentId) {
+        if (!FILES_COLLECTION.equals(collection)) {
+            eventPublisher.publishEvent(new CatalogChangedEvent(collection, documentId, true));
+        } else if (documentId != null) {
+            eventPublisher.publishEvent(new FilesDeletedEvent(List.of(documentId)));
+        }
+    }
+
+    private static String idOf(final BsonDocument documentKey) {
+        BsonValue id = documentKey != null ? documentKey.get("_id") : null;
+        if (id == null) {
+            return null;
+        }
+        if (id.isObjectId()) {
+            return id.asObjectId().getValue().toHexString();
+        }
+        return id.isString() ? id.asString().getValue() : id.toString();
+    }
+
+    private static String hostName() {
+        try {
+            return InetAddress.getLocalHost().getHostName();
+        } catch (UnknownHostException e) {
+            return "local";
+        }
+    }
+}
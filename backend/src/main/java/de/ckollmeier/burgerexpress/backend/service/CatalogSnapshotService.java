@@ -0,0 +1,243 @@
+package de.ckollmeier.burgerexpress.backend.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import de.ckollmeier.burgerexpress.backend.dto.DisplayCategoryOutputDTO;
+import de.ckollmeier.burgerexpress.backend.dto.DisplayItemOutputDTO;
+import de.ckollmeier.burgerexpress.backend.dto.OrderableItemOutputDTO;
+import de.ckollmeier.burgerexpress.backend.listener.CatalogChangedEvent;
+import de.ckollmeier.burgerexpress.backend.repository.CatalogInvalidationRepository;
+import de.ckollmeier.burgerexpress.backend.types.CatalogResource;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.util.DigestUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Hält einen unveränderlichen Schnappschuss des öffentlichen Katalogs (Gerichte, Menüs, Anzeigeelemente und
+ * Kategorien samt aufgelöster Verweise) im Speicher, damit die lesenden Endpunkte nicht bei jeder Anfrage
+ * MongoDB abfragen müssen.
+ * Der Schnappschuss gehört zu einer {@link CatalogVersionService Katalogversion}. Nach jeder Änderung am Katalog
+ * wird er im Hintergrund neu aufgebaut und als Ganzes ausgetauscht; ist er beim Lesen noch nicht fertig, baut ihn
+ * die Anfrage selbst, sodass nie ein veralteter Stand ausgeliefert wird.
+ * Zu jedem Schnappschuss werden die Antworten der öffentlichen Endpunkte einmal als JSON und gzip serialisiert,
+ * sodass pro Anfrage nur noch fertige Bytes geschrieben werden. Ihre ETags werden aus dem Inhalt berechnet, damit
+ * sie auf allen Instanzen gleich sind; die Katalogversion zählt je Instanz und taugt dafür nicht.
+ */
+@Slf4j
+@Service
+public class CatalogSnapshotService {
+    /** Service für Gerichte und Menüs, aus dem der Schnappschuss gelesen wird. */
+    private final OrderableItemService orderableItemService;
+    /** Service für die Anzeigeelemente, aus dem der Schnappschuss gelesen wird. */
+    private final DisplayItemService displayItemService;
+    /** Service für die Kategorien, aus dem der Schnappschuss gelesen wird. */
+    private final DisplayCategoryService displayCategoryService;
+    /** Version des Katalogs, zu der der Schnappschuss gehört. */
+    private final CatalogVersionService catalogVersionService;
+    /** Serialisiert die Antworten genauso, wie es die Controller mit Jackson täten. */
+    private final ObjectMapper objectMapper;
+    /** Änderungsprotokoll, dessen Version der Schnappschuss für den inkrementellen Abgleich festhält. */
+    private final CatalogInvalidationRepository catalogInvalidationRepository;
+
+    /** Der zuletzt gebaute Schnappschuss. */
+    private final AtomicReference<CatalogSnapshot> snapshot = new AtomicReference<>();
+    /** Verhindert, dass bei vielen Änderungen in Folge mehrere Neuaufbauten eingeplant werden. */
+    private final AtomicBoolean rebuildScheduled = new AtomicBoolean();
+    /** Thread, auf dem der Schnappschuss nach Änderungen neu aufgebaut wird. */
+    private final ExecutorService rebuilder = Executors.newSingleThreadExecutor(
+            runnable -> new Thread(runnable, "catalog-snapshot"));
+
+    /**
+     * Ein unveränderlicher Stand des Katalogs.
+     *
+     * @param version           Die Katalogversion, aus der der Schnappschuss gebaut wurde.
+     * @param changelogVersion  Die Version des Änderungsprotokolls vor dem Lesen; alle Änderungen bis zu dieser
+     *                          Version sind im Schnappschuss enthalten.
+     * @param dishes            Alle Gerichte.
+     * @param menus             Alle Menüs.
+     * @param orderableItems    Alle Gerichte, gefolgt von allen Menüs.
+     * @param displayItems      Alle Anzeigeelemente in Anzeigereihenfolge.
+     * @param displayCategories Alle Kategorien in Anzeigereihenfolge.
+     * @param bodies            Die serialisierten Antworten je Endpunkt.
+     */
+    public record CatalogSnapshot(
+            long version,
+            long changelogVersion,
+            List<OrderableItemOutputDTO> dishes,
+            List<OrderableItemOutputDTO> menus,
+            List<OrderableItemOutputDTO> orderableItems,
+            List<DisplayItemOutputDTO> displayItems,
+            List<DisplayCategoryOutputDTO> displayCategories,
+            Map<CatalogResource, RenderedBody> bodies
+    ) {
+        public CatalogSnapshot {
+            dishes = List.copyOf(dishes);
+            menus = List.copyOf(menus);
+            orderableItems = List.copyOf(orderableItems);
+            displayItems = List.copyOf(displayItems);
+            displayCategories = List.copyOf(displayCategories);
+            bodies = Map.copyOf(bodies);
+        }
+    }
+
+    /**
+     * Eine fertig serialisierte Antwort. Die Bytes werden von allen Anfragen geteilt und dürfen nicht verändert
+     * werden.
+     *
+     * @param etag Starkes ETag der JSON-Antwort, abgeleitet aus einem Hash der JSON-Bytes.
+     * @param json Die Antwort als JSON (UTF-8).
+     * @param gzip Die Antwort als gzip-komprimiertes JSON.
+     */
+    public record RenderedBody(String etag, byte[] json, byte[] gzip) {
+        /**
+         * Liefert das ETag der gzip-Variante. Sie ist eine eigene Repräsentation und braucht daher ein eigenes
+         * starkes ETag.
+         *
+         * @return Das ETag der gzip-Variante.
+         */
+        public String gzipEtag() {
+            return etag.substring(0, etag.length() - 1) + "-gzip\"";
+        }
+    }
+
+    public CatalogSnapshotService(
+            final OrderableItemService orderableItemService,
+            final DisplayItemService displayItemService,
+            final DisplayCategoryService displayCategoryService,
+            final CatalogVersionService catalogVersionService,
+            final ObjectMapper objectMapper,
+            final CatalogInvalidationRepository catalogInvalidationRepository
+    ) {
+        this.orderableItemService = orderableItemService;
+        this.displayItemService = displayItemService;
+        this.displayCategoryService = displayCategoryService;
+        this.catalogVersionService = catalogVersionService;
+        this.objectMapper = objectMapper;
+        this.catalogInvalidationRepository = catalogInvalidationRepository;
+    }
+
+    /**
+     * Liefert den Schnappschuss der aktuellen Katalogversion und baut ihn bei Bedarf.
+     *
+     * @return Der Schnappschuss.
+     */
+    public CatalogSnapshot getSnapshot() {
+        CatalogSnapshot current = snapshot.get();
+        if (current != null && current.version() == catalogVersionService.getVersion()) {
+            return current;
+        }
+        synchronized (this) {
+            long version = catalogVersionService.getVersion();
+            current = snapshot.get();
+            if (current != null && current.version() == version) {
+                return current;
+            }
+            CatalogSnapshot rebuilt = buildSnapshot(version);
+            snapshot.set(rebuilt);
+            return rebuilt;
+        }
+    }
+
+    /**
+     * Liefert die serialisierte Antwort eines Endpunkts aus dem Schnappschuss der aktuellen Katalogversion.
+     *
+     * @param resource Der Endpunkt.
+     * @return Die serialisierte Antwort.
+     */
+    public RenderedBody getBody(final CatalogResource resource) {
+        return getSnapshot().bodies().get(resource);
+    }
+
+    /**
+     * Baut den ersten Schnappschuss nach dem Start, damit schon die erste Anfrage aus dem Speicher bedient wird.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        scheduleRebuild();
+    }
+
+    /**
+     * Baut den Schnappschuss nach einer Änderung am Katalog im Hintergrund neu auf. Änderungen, die eintreffen,
+     * während ein Neuaufbau noch aussteht, werden von diesem mit erfasst.
+     *
+     * @param event Das Änderungsereignis.
+     */
+    @EventListener
+    public void onCatalogChanged(final CatalogChangedEvent event) {
+        scheduleRebuild();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        rebuilder.shutdownNow();
+    }
+
+    private void scheduleRebuild() {
+        if (!rebuildScheduled.compareAndSet(false, true)) {
+            return;
+        }
+        rebuilder.execute(() -> {
+            rebuildScheduled.set(false);
+            try {
+                getSnapshot();
+            } catch (RuntimeException e) {
+                log.warn("Katalog-Schnappschuss konnte nicht neu aufgebaut werden", e);
+            }
+        });
+    }
+
+    /**
+     * Liest den Katalog vollständig. Die Version wird vor dem Lesen bestimmt: Ändert sich der Katalog währenddessen,
+     * passt sie nicht mehr zur aktuellen Version und der Schnappschuss wird beim nächsten Abruf erneut gebaut.
+     * Ebenso wird die Version des Änderungsprotokolls vorher gelesen, sodass der Schnappschuss mindestens alle
+     * Änderungen bis zu ihr enthält.
+     */
+    private CatalogSnapshot buildSnapshot(final long version) {
+        long changelogVersion = catalogInvalidationRepository.findChangesVersion();
+        List<OrderableItemOutputDTO> dishes = orderableItemService.getAllDishes();
+        List<OrderableItemOutputDTO> menus = orderableItemService.getAllMenus();
+        List<OrderableItemOutputDTO> orderableItems = new ArrayList<>(dishes);
+        orderableItems.addAll(menus);
+        List<DisplayItemOutputDTO> displayItems = displayItemService.getAllDisplayItems();
+        List<DisplayCategoryOutputDTO> displayCategories = displayCategoryService.getAllDisplayCategories();
+
+        Map<CatalogResource, RenderedBody> bodies = new EnumMap<>(CatalogResource.class);
+        bodies.put(CatalogResource.ORDERABLE_ITEMS, render(orderableItems));
+        bodies.put(CatalogResource.DISHES, render(dishes));
+        bodies.put(CatalogResource.MENUS, render(menus));
+        bodies.put(CatalogResource.DISPLAY_ITEMS, render(displayItems));
+        bodies.put(CatalogResource.DISPLAY_CATEGORIES, render(displayCategories));
+        CatalogSnapshot built = new CatalogSnapshot(
+                version, changelogVersion, dishes, menus, orderableItems, displayItems, displayCategories, bodies);
+        log.debug("Katalog-Schnappschuss für Version {} gebaut", version);
+        return built;
+    }
+
+    private RenderedBody render(final Object body) {
+        try {
+            byte[] json = objectMapper.writeValueAsBytes(body);
+            ByteArrayOutputStream compressed = new ByteArrayOutputStream(json.length / 4 + 64);
+            try (GZIPOutputStream gzip = new GZIPOutputStream(compressed)) {
+                gzip.write(json);
+            }
+            return new RenderedBody("\"" + DigestUtils.md5DigestAsHex(json) + "\"", json, compressed.toByteArray());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package de.ckollmeier.burgerexpress.backend.service;
+
+import de.ckollmeier.burgerexpress.backend.listener.CatalogChangedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Service;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Führt die Version des Katalogs. Jede Änderung am Katalog erhöht die Version, sodass aus dem Katalog
+ * abgeleitete Daten (z.B. der Sprite-Atlas) anhand der Version gecached und invalidiert werden können.
+ * Die Zählung beginnt beim Startzeitpunkt, damit Versionen auch über Neustarts hinweg nicht wiederverwendet werden.
+ */
+@Service
+public class CatalogVersionService {
+    private final AtomicLong version = new AtomicLong(System.currentTimeMillis());
+
+    /**
+     * Liefert die aktuelle Version des Katalogs.
+     *
+     * @return Die aktuelle Version.
+     */
+    public long getVersion() {
+        return version.get();
+    }
+
+    /**
+     * Erhöht die Version nach einer Änderung am Katalog. Läuft vor allen anderen Listenern des Events (außer dem
+     * Eintrag ins Änderungsprotokoll durch den {@link CatalogInvalidationBus}), damit diese bereits die neue
+     * Version sehen.
+     *
+     * @param event Das Änderungsereignis.
+     */
+    @EventListener
+    @Order(Ordered.HIGHEST_PRECEDENCE + 1)
+    public void onCatalogChanged(final CatalogChangedEvent event) {
+        version.incrementAndGet();
+    }
+}
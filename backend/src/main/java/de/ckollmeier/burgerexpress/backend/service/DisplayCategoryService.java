@@ -10,7 +10,9 @@ import lombok.NonNull;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 
 @Service
@@ -18,6 +20,7 @@ import java.util.UUID;
 public class DisplayCategoryService {
     private final DisplayCategoryRepository displayCategoryRepository;
     private final DisplayItemService displayItemService;
+    private final FilesService filesService;
 
     private final ValidatedItemService<DisplayCategory> validatedDisplayCategoryService;
 
@@ -25,7 +28,8 @@ public class DisplayCategoryService {
     private static final String ERROR_PATH_BASE = "displayCategories";
 
     public List<DisplayCategoryOutputDTO> getAllDisplayCategories() {
-        return DisplayCategoryOutputDTOConverter.convert(displayCategoryRepository.findAllByOrderByPositionAscCreatedAtDesc());
+        List<DisplayCategory> displayCategories = displayCategoryRepository.findCategoryTree();
+        return DisplayCategoryOutputDTOConverter.convert(displayCategories, findPlaceholders(displayCategories));
     }
 
     public DisplayCategoryOutputDTO addDisplayCategory(@NonNull DisplayCategoryInputDTO displayCategory) {
@@ -72,4 +76,21 @@ public class DisplayCategoryService {
                 )
         );
     }
+
+    /**
+     * Sucht die Platzhalter (LQIP) der Bilder aller Kategorien und ihrer Artikel mit einer einzigen Abfrage.
+     */
+    private Map<String, String> findPlaceholders(final List<DisplayCategory> displayCategories) {
+        List<String> imageUrls = new ArrayList<>();
+        for (DisplayCategory displayCategory : displayCategories) {
+            if (displayCategory.getImageUrl() != null) {
+                imageUrls.add(displayCategory.getImageUrl());
+            }
+            displayCategory.getDisplayItems().stream()
+                    .flatMap(displayItem -> displayItem.getOrderableItems().stream())
+                    .flatMap(item -> item.getImageUrls().values().stream())
+                    .forEach(imageUrls::addAll);
+        }
+        return filesService.getPlaceholdersByImageUrl(imageUrls);
+    }
 }
@@ -0,0 +1,247 @@
+package de.ckollmeier.burgerexpress.backend.service;
+
+import de.ckollmeier.burgerexpress.backend.dto.FileGarbageCollectionStatusDTO;
+import de.ckollmeier.burgerexpress.backend.listener.CatalogChangedEvent;
+import de.ckollmeier.burgerexpress.backend.listener.FilesDeletedEvent;
+import de.ckollmeier.burgerexpress.backend.model.Dish;
+import de.ckollmeier.burgerexpress.backend.model.DisplayCategory;
+import de.ckollmeier.burgerexpress.backend.repository.FilesRepository;
+import de.ckollmeier.burgerexpress.backend.types.FileGarbageCollectionState;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Räumt Bilddateien auf, auf die kein Gericht und keine Kategorie mehr verweist (Mark and Sweep).
+ * Zuerst werden die Ids aller Bilder gesammelt, die in {@code imageUrl} der Gerichte und Kategorien stehen; danach
+ * werden die gespeicherten Bilder in Batches durchlaufen und nicht referenzierte Dateien samt ihrer Bildvarianten
+ * gelöscht. Dateien, die jünger als die Karenzzeit sind, bleiben erhalten, damit gerade hochgeladene Bilder nicht
+ * gelöscht werden, bevor das zugehörige Gericht gespeichert ist.
+ * Der Lauf startet regelmäßig im Hintergrund und kann zusätzlich manuell ausgelöst werden.
+ */
+@Slf4j
+@Service
+public class FilesGarbageCollectorService {
+    /** Feld der Katalog-Dokumente, das auf ein Bild verweist. */
+    private static final String IMAGE_URL = "imageUrl";
+    /** Katalog-Dokumente, die auf Bilder verweisen können. */
+    private static final List<Class<?>> REFERENCING_TYPES = List.of(Dish.class, DisplayCategory.class);
+
+    /** Repository der gespeicherten Dateien. */
+    private final FilesRepository filesRepository;
+    /** Template für das Lesen der Bildverweise aus dem Katalog. */
+    private final MongoTemplate mongoTemplate;
+    /** Meldet gelöschte Dateien, damit abgeleitete Caches ihre Einträge verwerfen. */
+    private final ApplicationEventPublisher eventPublisher;
+    /** Ob der Lauf regelmäßig im Hintergrund startet. */
+    private final boolean enabled;
+    /** Abstand zwischen zwei Läufen im Hintergrund. */
+    private final Duration interval;
+    /** Mindestalter einer Datei, bevor sie gelöscht werden darf. */
+    private final Duration gracePeriod;
+    /** Anzahl der Dateien, die pro Batch geprüft werden. */
+    private final int batchSize;
+    /** Pause zwischen zwei Batches, um die Last auf der Datenbank zu begrenzen. */
+    private final Duration batchPause;
+    /** Anzahl der gelöschten Dateien über alle Läufe. */
+    private final Counter deletedFilesCounter;
+
+    /** Thread, auf dem die Läufe ausgeführt werden. */
+    private final ScheduledExecutorService collector = Executors.newSingleThreadScheduledExecutor(
+            runnable -> new Thread(runnable, "files-gc"));
+
+    /** Wird gesetzt, wenn sich der Katalog während eines Laufs ändert; die Verweise werden dann neu gesammelt. */
+    private volatile boolean catalogChanged;
+    private volatile FileGarbageCollectionState state = FileGarbageCollectionState.IDLE;
+    private volatile Instant startedAt;
+    private volatile Instant finishedAt;
+    private final AtomicInteger referencedFiles = new AtomicInteger();
+    private final AtomicInteger scannedFiles = new AtomicInteger();
+    private final AtomicInteger deletedFiles = new AtomicInteger();
+    private final AtomicLong freedBytes = new AtomicLong();
+
+    public FilesGarbageCollectorService(
+            final FilesRepository filesRepository,
+            final MongoTemplate mongoTemplate,
+            final ApplicationEventPublisher eventPublisher,
+            final MeterRegistry meterRegistry,
+            final @Value("${burgerexpress.files.gc.enabled:true}") boolean enabled,
+            final @Value("${burgerexpress.files.gc.interval:24h}") Duration interval,
+            final @Value("${burgerexpress.files.gc.grace-period:7d}") Duration gracePeriod,
+            final @Value("${burgerexpress.files.gc.batch-size:200}") int batchSize,
+            final @Value("${burgerexpress.files.gc.batch-pause:200ms}") Duration batchPause
+    ) {
+        this.filesRepository = filesRepository;
+        this.mongoTemplate = mongoTemplate;
+        this.eventPublisher = eventPublisher;
+        this.enabled = enabled;
+        this.interval = interval;
+        this.gracePeriod = gracePeriod;
+        this.batchSize = Math.max(1, batchSize);
+        this.batchPause = batchPause;
+        this.deletedFilesCounter = Counter.builder("files.gc.deleted")
+                .description("Nicht mehr referenzierte Dateien, die gelöscht wurden")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Plant nach dem Start die regelmäßigen Läufe im Hintergrund. Der erste Lauf startet nach einem Intervall.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void scheduleCollection() {
+        if (!enabled || interval.isZero() || interval.isNegative()) {
+            return;
+        }
+        collector.scheduleWithFixedDelay(
+                this::startCollection, interval.toMillis(), interval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Startet einen Lauf, falls nicht bereits einer läuft.
+     *
+     * @return Der Status des (ggf. bereits laufenden) Laufs.
+     */
+    public synchronized FileGarbageCollectionStatusDTO startCollection() {
+        if (state == FileGarbageCollectionState.RUNNING) {
+            return getStatus();
+        }
+        state = FileGarbageCollectionState.RUNNING;
+        startedAt = Instant.now();
+        finishedAt = null;
+        referencedFiles.set(0);
+        scannedFiles.set(0);
+        deletedFiles.set(0);
+        freedBytes.set(0);
+        collector.execute(this::runCollection);
+        return getStatus();
+    }
+
+    /**
+     * Liefert das Ergebnis des aktuellen bzw. letzten Laufs.
+     *
+     * @return Der Status des Laufs.
+     */
+    public FileGarbageCollectionStatusDTO getStatus() {
+        return new FileGarbageCollectionStatusDTO(
+                state,
+                referencedFiles.get(),
+                scannedFiles.get(),
+                deletedFiles.get(),
+                freedBytes.get(),
+                startedAt != null ? startedAt.toString() : null,
+                finishedAt != null ? finishedAt.toString() : null
+        );
+    }
+
+    /**
+     * Merkt sich Änderungen an Gerichten und Kategorien während eines Laufs, damit vor dem nächsten Löschen
+     * die Verweise neu gesammelt werden.
+     *
+     * @param event Das Ereignis der Änderung.
+     */
+    @EventListener
+    public void onCatalogChanged(final CatalogChangedEvent event) {
+        catalogChanged = true;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        collector.shutdownNow();
+    }
+
+    private void runCollection() {
+        try {
+            catalogChanged = false;
+            Set<String> referenced = markReferencedFiles();
+            Date uploadedBefore = Date.from(startedAt.minus(gracePeriod));
+            ObjectId afterId = null;
+            List<Document> batch;
+            do {
+                batch = filesRepository.findImagesUploadedBefore(uploadedBefore, afterId, batchSize);
+                if (batch.isEmpty()) {
+                    break;
+                }
+                afterId = batch.get(batch.size() - 1).getObjectId("_id");
+                scannedFiles.addAndGet(batch.size());
+                if (catalogChanged) {
+                    catalogChanged = false;
+                    referenced = markReferencedFiles();
+                }
+                sweep(batch, referenced);
+                if (batch.size() == batchSize && !batchPause.isZero()) {
+                    Thread.sleep(batchPause.toMillis());
+                }
+            } while (batch.size() == batchSize);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (RuntimeException e) {
+            log.error("Aufräumen nicht referenzierter Dateien abgebrochen", e);
+        } finally {
+            finishedAt = Instant.now();
+            state = FileGarbageCollectionState.FINISHED;
+            log.info("Aufräumen nicht referenzierter Dateien beendet: {}", getStatus());
+        }
+    }
+
+    /**
+     * Sammelt die Ids aller Dateien, auf die ein Gericht oder eine Kategorie verweist.
+     * Pro Collection genügt eine {@code distinct}-Abfrage, die nur die Bild-URLs liefert.
+     */
+    private Set<String> markReferencedFiles() {
+        Set<String> referenced = new HashSet<>();
+        for (Class<?> type : REFERENCING_TYPES) {
+            for (String imageUrl : mongoTemplate.findDistinct(new Query(), IMAGE_URL, type, String.class)) {
+                String fileId = FilesService.fileIdFromUrl(imageUrl);
+                if (fileId != null) {
+                    referenced.add(fileId);
+                }
+            }
+        }
+        referencedFiles.set(referenced.size());
+        return referenced;
+    }
+
+    private void sweep(final List<Document> batch, final Set<String> referenced) {
+        List<ObjectId> orphans = new ArrayList<>();
+        long bytes = 0;
+        for (Document file : batch) {
+            ObjectId id = file.getObjectId("_id");
+            if (!referenced.contains(id.toHexString())) {
+                orphans.add(id);
+                Number length = file.get("length", Number.class);
+                bytes += length != null ? length.longValue() : 0;
+            }
+        }
+        if (orphans.isEmpty()) {
+            return;
+        }
+        long deleted = filesRepository.deleteFilesWithRenditions(orphans);
+        deletedFiles.addAndGet((int) deleted);
+        freedBytes.addAndGet(bytes);
+        deletedFilesCounter.increment(deleted);
+        eventPublisher.publishEvent(new FilesDeletedEvent(orphans.stream().map(ObjectId::toHexString).toList()));
+    }
+}
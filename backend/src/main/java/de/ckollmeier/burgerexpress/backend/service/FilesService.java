@@ -1,21 +1,34 @@
 package de.ckollmeier.burgerexpress.backend.service;
 
 import de.ckollmeier.burgerexpress.backend.dto.FileInfoDTO;
+import de.ckollmeier.burgerexpress.backend.dto.FileInfoPageDTO;
 import de.ckollmeier.burgerexpress.backend.dto.FilesDTO;
 import de.ckollmeier.burgerexpress.backend.exceptions.NotFoundException;
 import de.ckollmeier.burgerexpress.backend.exceptions.ReadFilesException;
 import de.ckollmeier.burgerexpress.backend.exceptions.WriteFilesException;
+import de.ckollmeier.burgerexpress.backend.listener.FilesDeletedEvent;
 import de.ckollmeier.burgerexpress.backend.repository.FilesRepository;
 import com.mongodb.client.gridfs.model.GridFSFile;
 import lombok.RequiredArgsConstructor;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.core.io.InputStreamSource;
 import org.springframework.data.mongodb.gridfs.GridFsResource;
 import org.springframework.data.mongodb.gridfs.GridFsTemplate;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
 import java.util.List;
-import java.util.stream.StreamSupport;
+import java.util.Map;
+import java.util.Optional;
 
 /**
  * Service für das Management von Dateien mithilfe von MongoDB GridFS.
@@ -25,6 +38,11 @@ import java.util.stream.StreamSupport;
 @RequiredArgsConstructor
 public class FilesService {
     private static final String CONTENT_TYPE = "contentType";
+    private static final String UPLOAD_DATE = "uploadDate";
+    /**
+     * Obergrenze für die Seitengröße der Dateiliste.
+     */
+    public static final int MAX_PAGE_SIZE = 500;
 
     /**
      * Template für das Speichern und Laden von Dateien.
@@ -34,17 +52,58 @@ public class FilesService {
      * Repository für das Speichern und Laden von Dateien.
      */
     private final FilesRepository filesRepository;
+    /**
+     * Pipeline zum Vorberechnen der Bildvarianten nach dem Upload.
+     */
+    private final RenditionPipelineService renditionPipelineService;
+    /**
+     * Meldet gelöschte Dateien, damit aus dem Katalog abgeleitete Bilder (z.B. der Sprite-Atlas) neu gebaut werden.
+     */
+    private final ApplicationEventPublisher eventPublisher;
+    /**
+     * Berechnet beim Upload den eingebetteten Platzhalter (LQIP) von Bildern.
+     */
+    private final ImagesService imagesService;
+    /**
+     * Erzeugt beim Upload die normalisierte Master-Kopie großer Bilder.
+     */
+    private final MasterImageNormalizer masterImageNormalizer;
 
     /**
      * Speichert eine Datei im Dateispeicher.
+     * Bei Bildern wird zuerst eine normalisierte Master-Kopie erzeugt, wenn das Original zu groß oder laut EXIF
+     * gedreht ist (siehe {@link MasterImageNormalizer}); sie wird neben dem Original gespeichert und dient als
+     * Quelle aller Varianten. Außerdem wird ein winziger Platzhalter (LQIP) in den Metadaten abgelegt; anschließend
+     * werden die Standardvarianten im Hintergrund vorberechnet. Ist derselbe Inhalt bereits gespeichert, wird die vorhandene
+     * Datei wiederverwendet, deren Varianten dann schon vorliegen; das wird vor dem Dekodieren geprüft, sodass für
+     * bekannte Inhalte weder Master noch Platzhalter berechnet werden.
      *
      * @param file MultipartFile, das gespeichert werden soll.
-     * @return Die ID der gespeicherten Datei.
+     * @return Die ID der gespeicherten bzw. der bereits vorhandenen Datei mit identischem Inhalt.
      * @throws WriteFilesException Wenn das Speichern fehlschlägt.
      */
     public String saveFile(final MultipartFile file) {
         try {
-            return filesRepository.saveFile(file);
+            Optional<String> existingId = filesRepository.findIdByContent(file);
+            if (existingId.isPresent()) {
+                filesRepository.markUploaded(existingId.get());
+                return existingId.get();
+            }
+            String placeholder = null;
+            Optional<FilesDTO> master = Optional.empty();
+            if ("image".equals(FilesRepository.mediaFamily(file.getContentType()))) {
+                master = masterImageNormalizer.createMaster(file);
+                InputStreamSource source = master.<InputStreamSource>map(FilesDTO::asResource).orElse(file);
+                try (InputStream inputStream = source.getInputStream()) {
+                    placeholder = imagesService.createPlaceholder(inputStream);
+                }
+            }
+            String id = filesRepository.saveFile(file, placeholder);
+            if (master.isPresent() && !filesRepository.existsMaster(id)) {
+                filesRepository.saveMaster(id, master.get());
+            }
+            renditionPipelineService.scheduleRenditions(id, file.getContentType());
+            return id;
         } catch (IOException e) {
             throw new WriteFilesException(String.format("Fehler beim Schreiben der Datei %s", file.getOriginalFilename()), e);
         }
@@ -59,19 +118,49 @@ public class FilesService {
      * @throws ReadFilesException Wenn ein Fehler beim Lesen der Datei auftritt.
      */
     public FilesDTO getFilesDTOById(final String id) {
-        GridFSFile file = filesRepository.getFileById(id)
+        return getFilesDTO(getFileById(id));
+    }
+
+    /**
+     * Lädt den Deskriptor einer Datei anhand der ID, ohne deren Inhalt zu lesen.
+     *
+     * @param id Die ID der Datei.
+     * @return Der Deskriptor der Datei.
+     * @throws NotFoundException Wenn die Datei nicht gefunden wurde.
+     */
+    public GridFSFile getFileById(final String id) {
+        return filesRepository.getFileById(id)
                 .orElseThrow(() -> new NotFoundException(String.format("Datei %s nicht gefunden", id)));
+    }
+
+    /**
+     * Liefert den Content-Type einer Datei aus deren Metadaten.
+     *
+     * @param file Der Deskriptor der Datei.
+     * @return Der gespeicherte Content-Type oder "application/octet-stream", falls keiner gespeichert ist.
+     */
+    public String getContentType(final GridFSFile file) {
+        if (file.getMetadata() != null && file.getMetadata().get(CONTENT_TYPE) != null) {
+            return file.getMetadata().get(CONTENT_TYPE).toString();
+        }
+        return "application/octet-stream";
+    }
 
-        return getFilesDTO(file);
+    /**
+     * Öffnet einen Stream über einen Byte-Bereich der Datei, ohne sie vollständig in den Speicher zu laden.
+     *
+     * @param file  Der bereits geladene Deskriptor der Datei.
+     * @param start Erstes zu lesendes Byte.
+     * @param end   Letztes zu lesendes Byte (inklusive).
+     * @return Ein InputStream über den angeforderten Bereich.
+     */
+    public InputStream openFileStream(final GridFSFile file, final long start, final long end) {
+        return filesRepository.openDownloadStream(file, start, end);
     }
 
     private FilesDTO getFilesDTO(final GridFSFile file) {
         GridFsResource resource = gridFsTemplate.getResource(file);
-
-        String contentType = "application/octet-stream";
-        if (file.getMetadata() != null && file.getMetadata().get(CONTENT_TYPE) != null) {
-            contentType = file.getMetadata().get(CONTENT_TYPE).toString();
-        }
+        String contentType = getContentType(file);
 
         try {
             byte[] data = resource.getInputStream().readAllBytes();
@@ -86,38 +175,125 @@ public class FilesService {
     }
 
     /**
-     * Löscht eine Datei anhand ihrer ID.
+     * Löscht eine Datei anhand ihrer ID, zusammen mit allen gespeicherten Bildvarianten.
      *
      * @param id Die ID der zu löschenden Datei.
      */
     public void deleteFile(final String id) {
         filesRepository.deleteFile(id);
+        filesRepository.deleteRenditions(id);
+        eventPublisher.publishEvent(new FilesDeletedEvent(List.of(id)));
     }
 
     /**
-     * Löscht eine Datei anhand ihrer URI.
+     * Löscht eine Datei anhand ihrer URI, zusammen mit allen gespeicherten Bildvarianten.
      *
      * @param uri Die URI der zu löschenden Datei.
      */
     public void deleteFileByUri(final String uri) {
-        String id = uri.substring(uri.lastIndexOf('/') + 1);
-        filesRepository.deleteFile(id);
+        deleteFile(uri.substring(uri.lastIndexOf('/') + 1));
     }
 
     /**
-     * Retrieves all image files stored in the MongoDB GridFS. Images are identified by having
-     * a content type that begins with "image/" (case-insensitive).
+     * Liefert die eingebetteten Platzhalter (LQIP) zu Bild-URLs der Form {@code /api/files/{id}}.
+     * Alle Platzhalter werden mit einer einzigen Abfrage gelesen; URLs ohne gespeicherten Platzhalter fehlen im Ergebnis.
      *
-     * @return An {@code Iterable} of {@code GridFSFile} objects representing all image files available in GridFS.
-     */
-    public List<FileInfoDTO> getAllImages() {
-        Iterable<GridFSFile> files = filesRepository.getAllImages();
-        return StreamSupport.stream(files.spliterator(), false)
-                .map(file -> new FileInfoDTO(
-                        file.getObjectId().toHexString(),
-                        file.getFilename(),
-                        file.getMetadata().get(CONTENT_TYPE).toString(),
-                        String.format("/api/files/%s", file.getObjectId().toHexString())))
-                .toList();
+     * @param imageUrls Die Bild-URLs.
+     * @return Die Platzhalter als Data-URI je Bild-URL.
+     */
+    public Map<String, String> getPlaceholdersByImageUrl(final Collection<String> imageUrls) {
+        Map<String, String> fileIdByImageUrl = new HashMap<>();
+        for (String imageUrl : imageUrls) {
+            String fileId = fileIdFromUrl(imageUrl);
+            if (fileId != null) {
+                fileIdByImageUrl.put(imageUrl, fileId);
+            }
+        }
+        if (fileIdByImageUrl.isEmpty()) {
+            return Map.of();
+        }
+        Map<String, String> placeholderByFileId = filesRepository.findPlaceholders(fileIdByImageUrl.values());
+        Map<String, String> placeholders = new HashMap<>();
+        fileIdByImageUrl.forEach((imageUrl, fileId) -> {
+            String placeholder = placeholderByFileId.get(fileId);
+            if (placeholder != null) {
+                placeholders.put(imageUrl, placeholder);
+            }
+        });
+        return placeholders;
+    }
+
+    /**
+     * Ermittelt die Datei-ID aus einer Bild-URL der Form {@code /api/files/{id}}.
+     *
+     * @param url Die Bild-URL, ggf. mit Query-Parametern.
+     * @return Die Datei-ID, oder {@code null}, wenn die URL auf keine gespeicherte Datei verweist.
+     */
+    public static String fileIdFromUrl(final String url) {
+        if (url == null || url.isBlank()) {
+            return null;
+        }
+        String path = url.contains("?") ? url.substring(0, url.indexOf('?')) : url;
+        String fileId = path.substring(path.lastIndexOf('/') + 1);
+        return ObjectId.isValid(fileId) ? fileId : null;
+    }
+
+    /**
+     * Liefert eine Seite der gespeicherten Bilddateien, sortiert nach Upload-Datum und ID.
+     * Die Seiten werden über einen Cursor verkettet (Keyset-Pagination), sodass auch bei vielen Uploads
+     * nie mehr als eine Seite gelesen wird.
+     *
+     * @param cursor Cursor der vorherigen Seite oder {@code null} für die erste Seite.
+     * @param limit  Gewünschte Seitengröße, begrenzt auf 1 bis {@link #MAX_PAGE_SIZE}.
+     * @return Die Bilddateien der Seite und der Cursor der nächsten Seite ({@code null} auf der letzten Seite).
+     * @throws IllegalArgumentException Wenn der Cursor ungültig ist.
+     */
+    public FileInfoPageDTO getImagesPage(final String cursor, final int limit) {
+        int pageSize = Math.min(Math.max(1, limit), MAX_PAGE_SIZE);
+        Date afterUploadDate = null;
+        ObjectId afterId = null;
+        if (cursor != null && !cursor.isBlank()) {
+            String[] position = decodeCursor(cursor);
+            afterUploadDate = new Date(Long.parseLong(position[0]));
+            afterId = new ObjectId(position[1]);
+        }
+
+        List<Document> files = filesRepository.findFilesPageByMediaFamily("image", afterUploadDate, afterId, pageSize + 1);
+        boolean hasNextPage = files.size() > pageSize;
+        List<Document> page = hasNextPage ? files.subList(0, pageSize) : files;
+        String nextCursor = null;
+        if (hasNextPage) {
+            Document last = page.get(page.size() - 1);
+            nextCursor = encodeCursor(last.getDate(UPLOAD_DATE), last.getObjectId("_id"));
+        }
+        return new FileInfoPageDTO(page.stream().map(FilesService::toFileInfoDTO).toList(), nextCursor);
+    }
+
+    private static FileInfoDTO toFileInfoDTO(final Document file) {
+        String id = file.getObjectId("_id").toHexString();
+        Document metadata = file.get("metadata", Document.class);
+        return new FileInfoDTO(
+                id,
+                file.getString("filename"),
+                metadata != null ? metadata.getString(CONTENT_TYPE) : null,
+                String.format("/api/files/%s", id));
+    }
+
+    private static String encodeCursor(final Date uploadDate, final ObjectId id) {
+        String position = uploadDate.getTime() + ":" + id.toHexString();
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(position.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String[] decodeCursor(final String cursor) {
+        String[] position;
+        try {
+            position = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8).split(":");
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Ungültiger Cursor: " + cursor, e);
+        }
+        if (position.length != 2 || !position[0].matches("\\d+") || !ObjectId.isValid(position[1])) {
+            throw new IllegalArgumentException("Ungültiger Cursor: " + cursor);
+        }
+        return position;
     }
-}
\ No newline at end of file
+}
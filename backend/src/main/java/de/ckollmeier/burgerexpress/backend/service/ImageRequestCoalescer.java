@@ -0,0 +1,108 @@
+package de.ckollmeier.burgerexpress.backend.service;
+
+import de.ckollmeier.burgerexpress.backend.dto.FilesDTO;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Service;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Fasst gleichzeitige Anfragen nach derselben Bildvariante zusammen (Single-Flight).
+ * Pro Schlüssel (id, size, format) läuft höchstens eine Berechnung; alle weiteren Aufrufer warten auf
+ * dasselbe Future. Die Anzahl der zusammengefassten Aufrufer wird als Metrik {@code images.requests.coalesced}
+ * exportiert.
+ */
+@Service
+public class ImageRequestCoalescer {
+    /** Laufende Berechnungen je Schlüssel. */
+    private final Map<String, CompletableFuture<FilesDTO>> inFlight = new ConcurrentHashMap<>();
+    /** Zähler der Aufrufer, die auf eine bereits laufende Berechnung gewartet haben. */
+    private final Counter coalescedCallers;
+
+    public ImageRequestCoalescer(final MeterRegistry meterRegistry) {
+        this.coalescedCallers = Counter.builder("images.requests.coalesced")
+                .description("Anfragen, die auf eine bereits laufende Berechnung derselben Bildvariante gewartet haben")
+                .register(meterRegistry);
+        Gauge.builder("images.requests.inflight", inFlight, Map::size)
+                .description("Bildvarianten, die gerade berechnet werden")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Bildet den Schlüssel einer Bildvariante; entspricht dem Schlüssel im Cache "images".
+     *
+     * @param id     Die ID des Bildes.
+     * @param size   Zielgröße in Pixel.
+     * @param format Bildformat.
+     * @return Der Schlüssel der Variante.
+     */
+    public static String key(final String id, final int size, final String format) {
+        return id + "-" + size + "-" + format;
+    }
+
+    /**
+     * Startet die Berechnung für einen Schlüssel, falls noch keine läuft, und liefert sonst das Future
+     * der laufenden Berechnung.
+     *
+     * @param key         Schlüssel der Bildvariante.
+     * @param computation Startet die Berechnung; wird nur vom ersten Aufrufer ausgeführt.
+     * @return Ein Future, das alle Aufrufer für denselben Schlüssel teilen.
+     */
+    public CompletableFuture<FilesDTO> coalesce(
+            final String key,
+            final Supplier<CompletableFuture<FilesDTO>> computation
+    ) {
+        CompletableFuture<FilesDTO> shared = new CompletableFuture<>();
+        CompletableFuture<FilesDTO> running = inFlight.putIfAbsent(key, shared);
+        if (running != null) {
+            coalescedCallers.increment();
+            return running;
+        }
+        try {
+            computation.get().whenComplete((result, error) -> {
+                inFlight.remove(key, shared);
+                if (error != null) {
+                    shared.completeExceptionally(error);
+                } else {
+                    shared.complete(result);
+                }
+            });
+        } catch (RuntimeException e) {
+            inFlight.remove(key, shared);
+            shared.completeExceptionally(e);
+        }
+        return shared;
+    }
+
+    /**
+     * Führt eine synchrone Berechnung höchstens einmal gleichzeitig pro Schlüssel aus und wartet auf das Ergebnis.
+     * Fehler der Berechnung werden an alle wartenden Aufrufer unverändert weitergegeben.
+     *
+     * @param key         Schlüssel der Bildvariante.
+     * @param computation Die Berechnung.
+     * @return Das Ergebnis der (ggf. geteilten) Berechnung.
+     */
+    public FilesDTO execute(final String key, final Supplier<FilesDTO> computation) {
+        CompletableFuture<FilesDTO> result = coalesce(key, () -> {
+            try {
+                return CompletableFuture.completedFuture(computation.get());
+            } catch (RuntimeException e) {
+                return CompletableFuture.failedFuture(e);
+            }
+        });
+        try {
+            return result.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package de.ckollmeier.burgerexpress.backend.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+
+/**
+ * Rastet angefragte Bildgrößen auf eine feste Stufenleiter ein (z.B. 64/128/256/512/1024).
+ * Dadurch ist die Zahl der Varianten pro Bild begrenzt, egal welche Größen Clients anfragen.
+ * Es wird auf die nächstgrößere Stufe aufgerundet, damit Bilder nicht unscharf werden; Werte außerhalb
+ * der Leiter werden auf die kleinste bzw. größte Stufe begrenzt.
+ */
+@Service
+public class ImageSizeLadder {
+    /** Aufsteigend sortierte Stufen der Leiter. */
+    private final int[] steps;
+
+    public ImageSizeLadder(final @Value("${burgerexpress.images.size-ladder:64,128,256,512,1024}") List<Integer> steps) {
+        this.steps = steps.stream()
+                .filter(step -> step != null && step > 0)
+                .mapToInt(Integer::intValue)
+                .distinct()
+                .sorted()
+                .toArray();
+        if (this.steps.length == 0) {
+            throw new IllegalArgumentException("Die Stufenleiter der Bildgrößen darf nicht leer sein");
+        }
+    }
+
+    /**
+     * Liefert die Stufe, auf die eine angefragte Größe eingerastet wird.
+     *
+     * @param size Die angefragte Größe in Pixel.
+     * @return Die kleinste Stufe, die mindestens {@code size} groß ist, bzw. die größte Stufe.
+     */
+    public int quantize(final int size) {
+        for (int step : steps) {
+            if (size <= step) {
+                return step;
+            }
+        }
+        return steps[steps.length - 1];
+    }
+}
@@ -0,0 +1,78 @@
+package de.ckollmeier.burgerexpress.backend.service;
+
+import de.ckollmeier.burgerexpress.backend.configuration.ImageProcessingConfig;
+import de.ckollmeier.burgerexpress.backend.exceptions.ImageWorkersBusyException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Führt Bildverarbeitung auf dem begrenzten Worker-Pool aus und misst Warteschlange und Wartezeit.
+ * Metriken: {@code images.workers.queue.size}, {@code images.workers.active},
+ * {@code images.workers.queue.wait} und {@code images.workers.rejected}.
+ */
+@Service
+public class ImageWorkerPool {
+    /** Der begrenzte Pool der Bildverarbeitung. */
+    private final ThreadPoolTaskExecutor executor;
+    /** Zeit zwischen dem Einreihen und dem Start einer Aufgabe. */
+    private final Timer queueWait;
+    /** Anzahl der wegen voller Warteschlange abgelehnten Aufgaben. */
+    private final Counter rejected;
+    /** Empfohlene Wartezeit für Clients, deren Anfrage abgelehnt wurde. */
+    private final long retryAfterSeconds;
+
+    public ImageWorkerPool(
+            final @Qualifier(ImageProcessingConfig.IMAGE_WORKER_EXECUTOR) ThreadPoolTaskExecutor executor,
+            final MeterRegistry meterRegistry,
+            final @Value("${burgerexpress.images.workers.retry-after-seconds:2}") long retryAfterSeconds
+    ) {
+        this.executor = executor;
+        this.retryAfterSeconds = retryAfterSeconds;
+        this.queueWait = Timer.builder("images.workers.queue.wait")
+                .description("Wartezeit von Bildaufgaben in der Warteschlange")
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+        this.rejected = Counter.builder("images.workers.rejected")
+                .description("Bildaufgaben, die wegen voller Warteschlange abgelehnt wurden")
+                .register(meterRegistry);
+        Gauge.builder("images.workers.queue.size", executor, ThreadPoolTaskExecutor::getQueueSize)
+                .description("Wartende Bildaufgaben")
+                .register(meterRegistry);
+        Gauge.builder("images.workers.active", executor, ThreadPoolTaskExecutor::getActiveCount)
+                .description("Gerade laufende Bildaufgaben")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Reiht eine Aufgabe in den Pool ein.
+     *
+     * @param task Die auszuführende Aufgabe.
+     * @param <T>  Typ des Ergebnisses.
+     * @return Ein Future mit dem Ergebnis der Aufgabe.
+     * @throws ImageWorkersBusyException Wenn die Warteschlange voll ist.
+     */
+    public <T> CompletableFuture<T> submit(final Supplier<T> task) {
+        long enqueuedAt = System.nanoTime();
+        try {
+            return CompletableFuture.supplyAsync(() -> {
+                queueWait.record(System.nanoTime() - enqueuedAt, TimeUnit.NANOSECONDS);
+                return task.get();
+            }, executor);
+        } catch (TaskRejectedException e) {
+            rejected.increment();
+            throw new ImageWorkersBusyException(
+                    "Die Bildverarbeitung ist ausgelastet, bitte später erneut versuchen", retryAfterSeconds, e);
+        }
+    }
+}
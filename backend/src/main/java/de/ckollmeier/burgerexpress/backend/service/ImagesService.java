@@ -1,55 +1,76 @@
 package de.ckollmeier.burgerexpress.backend.service;
 
+import de.ckollmeier.burgerexpress.backend.configuration.CacheConfig;
+import de.ckollmeier.burgerexpress.backend.configuration.OffHeapImageCache;
 import de.ckollmeier.burgerexpress.backend.dto.FilesDTO;
+import de.ckollmeier.burgerexpress.backend.exceptions.ImageWorkersBusyException;
 import de.ckollmeier.burgerexpress.backend.exceptions.NotFoundException;
 import de.ckollmeier.burgerexpress.backend.exceptions.ReadFilesException;
 import de.ckollmeier.burgerexpress.backend.exceptions.WriteFilesException;
+import de.ckollmeier.burgerexpress.backend.interfaces.ImageEngine;
+import de.ckollmeier.burgerexpress.backend.listener.FilesDeletedEvent;
 import de.ckollmeier.burgerexpress.backend.repository.FilesRepository;
 import com.mongodb.client.gridfs.model.GridFSFile;
-import com.twelvemonkeys.image.ResampleOp;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
 import org.springframework.cache.annotation.Cacheable;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
 import org.springframework.data.mongodb.gridfs.GridFsResource;
 import org.springframework.data.mongodb.gridfs.GridFsTemplate;
 import org.springframework.stereotype.Service;
 
-import javax.imageio.ImageIO;
 import java.awt.image.BufferedImage;
-import java.awt.image.BufferedImageOp;
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-
-// OpenCV imports
-import org.opencv.core.CvType;
-import org.opencv.core.Mat;
-import org.opencv.imgcodecs.Imgcodecs;
+import java.io.InputStream;
+import java.util.Base64;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Service zur Arbeit mit Bilddateien.
  * Stellt Methoden bereit, um Bilder aus der Datenbank zu lesen, zu bearbeiten (z.B. Größe ändern, Format konvertieren)
  * und sie beispielsweise als WebP oder in anderen Formaten auszuliefern.
- * Nutzt GridFS (MongoDB) und unterstützt Caching für Bildoperationen.
+ * Nutzt GridFS (MongoDB) und unterstützt Caching für Bildoperationen: Erzeugte Varianten liegen im Speicher-Cache
+ * "images", auf der lokalen Platte ({@link RenditionDiskCache}) und zusätzlich dauerhaft im GridFS-Bucket der
+ * Varianten, damit sie Neustarts und weitere Instanzen überleben.
  */
+@Slf4j
 @Service
 @RequiredArgsConstructor
 public class ImagesService {
+    /** Kantenlänge der eingebetteten Platzhalter in Pixel. */
+    public static final int PLACEHOLDER_SIZE = 16;
+    /** Format der eingebetteten Platzhalter. */
+    private static final String PLACEHOLDER_FORMAT = "webp";
 
     /** Template für den Zugriff auf GridFS in MongoDB. */
     private final GridFsTemplate gridFsTemplate;
     /** Repository für Metadaten und Abfragen zu gespeicherten Dateien. */
     private final FilesRepository filesRepository;
-
-    static {
-        try {
-            nu.pattern.OpenCV.loadLocally();
-        } catch (Exception e) {
-            // Fehlerbehandlung sofern notwendig
-        }
-    }
+    /** Fasst gleichzeitige Berechnungen derselben Variante zusammen. */
+    private final ImageRequestCoalescer imageRequestCoalescer;
+    /** Engine, die das Skalieren und Kodieren übernimmt. */
+    private final ImageEngine imageEngine;
+    /** Begrenzter Pool, auf dem Varianten für Anfragen berechnet werden. */
+    private final ImageWorkerPool imageWorkerPool;
+    /** Zugriff auf den Cache "images" für den asynchronen Weg. */
+    private final CacheManager cacheManager;
+    /** Stufenleiter, auf die angefragte Größen eingerastet werden. */
+    private final ImageSizeLadder imageSizeLadder;
+    /** Varianten auf der lokalen Platte, zwischen Speicher-Cache und GridFS. */
+    private final RenditionDiskCache renditionDiskCache;
 
     /**
      * Liefert ein Bild aus der Datenbank als zugeschnittene, auf die gewünschte Zielgröße skalierte und
      * in das gewünschte Format konvertierte Kopie zurück. Das Ergebnis wird gecached.
+     * Bei einem Cache-Miss wird zuerst auf der lokalen Platte, dann im GridFS nach einer bereits gespeicherten
+     * Variante gesucht, erst danach wird das Bild neu berechnet und als Variante gespeichert. Gleichzeitige Cache-Misses für dieselbe
+     * Variante werden zusammengefasst, sodass sie nur einmal berechnet wird. Das Ergebnis hält seine Bilddaten im
+     * Heap, damit der Cache nicht auf eine Datei der lokalen Platte verweist, die später verdrängt wird.
      * Unterstützte Ausgabeformate sind u.a. PNG, JPEG und WebP.
      *
      * @param id     Die ID des Bildes in der Datenbank.
@@ -60,107 +81,219 @@ public class ImagesService {
      * @throws ReadFilesException   Wenn das Bild nicht gelesen, erkannt oder konvertiert werden konnte.
      * @throws WriteFilesException  Wenn keine Unterstützung für das gewünschte Ausgabeformat besteht.
      */
-    @Cacheable(value = "images", key = "#id + '-' + #size + '-' + #format")
+    @Cacheable(value = "images", key = "#id + '-' + @imageSizeLadder.quantize(#size) + '-' + #format")
     public FilesDTO getCroppedImage(final String id, final int size, final String format) {
-        GridFSFile file = filesRepository.getFileById(id)
-                .orElseThrow(() -> new NotFoundException(String.format("Bild %s nicht gefunden", id)));
+        int bucket = imageSizeLadder.quantize(size);
+        return imageRequestCoalescer.execute(ImageRequestCoalescer.key(id, bucket, format),
+                () -> loadOrRenderImage(id, bucket, format)).inHeap();
+    }
 
-        GridFsResource resource = gridFsTemplate.getResource(file);
+    /**
+     * Rastet eine angefragte Größe auf die Stufenleiter ein. Unter dieser Größe werden Varianten berechnet,
+     * gecached und gespeichert.
+     *
+     * @param size Die angefragte Größe in Pixel.
+     * @return Die eingerastete Größe.
+     */
+    public int quantizeSize(final int size) {
+        return imageSizeLadder.quantize(size);
+    }
 
-        String contentType = "application/octet-stream";
-        if (file.getMetadata() != null && file.getMetadata().get("contentType") != null) {
-            contentType = file.getMetadata().get("contentType").toString();
+    private FilesDTO loadOrRenderImage(final String id, final int size, final String format) {
+        Optional<FilesDTO> renditionOnDisk = renditionDiskCache.find(id, size, format);
+        if (renditionOnDisk.isPresent()) {
+            return renditionOnDisk.get();
         }
 
-        try {
-            BufferedImage originalImage = ImageIO.read(resource.getInputStream());
-            if (originalImage == null) {
-                throw new ReadFilesException(
-                        "Original image is null, possibly due to unsupported format or invalid image data", null
-                );
-            }
-            int originalWidth = originalImage.getWidth();
-            int originalHeight = originalImage.getHeight();
-            double aspectRatio = (double) originalWidth / originalHeight;
-            int newWidth;
-            int newHeight;
-            if (originalWidth > originalHeight) {
-                newWidth = size;
-                newHeight = (int) (size / aspectRatio);
-            } else {
-                newWidth = (int) (size * aspectRatio);
-                newHeight = size;
-            }
-            BufferedImageOp resampler = new ResampleOp(newWidth, newHeight);
-            BufferedImage resizedImage = resampler.filter(originalImage, null);
-
-            if ("webp".equalsIgnoreCase(format)) {
-                // BufferedImage zu OpenCV-Matrix konvertieren
-                Mat mat = bufferedImageToMat4Channels(resizedImage);
-
-                // In WebP kodieren
-                MatOfByte buf = new MatOfByte();
-                boolean result = Imgcodecs.imencode(".webp", mat, buf);
-                if (!result) {
-                    throw new WriteFilesException("OpenCV konnte das Bild nicht zu WebP konvertieren", null);
-                }
-                return new FilesDTO(
-                        buf.toArray(),
-                        "image/webp",
-                        resource.getFilename()
-                );
-            } else {
-                ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
-                boolean imageWritten = ImageIO.write(resizedImage, format, outputStream);
-                if (!imageWritten) {
-                    throw new WriteFilesException("No ImageWriters found for format: " + format, null);
-                }
-
-                return new FilesDTO(
-                        outputStream.toByteArray(),
-                        contentType,
-                        resource.getFilename()
-                );
+        Optional<FilesDTO> storedRendition = findStoredRendition(id, size, format);
+        if (storedRendition.isPresent()) {
+            renditionDiskCache.put(id, size, format, storedRendition.get());
+            return storedRendition.get();
+        }
+
+        FilesDTO rendition = renderImage(id, size, format);
+        storeRendition(id, size, format, rendition);
+        renditionDiskCache.put(id, size, format, rendition);
+        return rendition;
+    }
+
+    /**
+     * Asynchrone Variante von {@link #getCroppedImage(String, int, String)} für Anfragen aus dem Web.
+     * Ein Treffer im Cache "images" wird sofort geliefert (bei Ablage außerhalb des Heaps als gestreamter Eintrag,
+     * siehe {@link FilesDTO#asResource()}), ebenso ein Treffer auf der lokalen Platte als Datei-Ressource, die
+     * ohne Umweg über den Heap ausgeliefert wird; sonst wird die Variante auf dem begrenzten Worker-Pool
+     * geladen bzw. berechnet, sodass die Request-Threads nicht blockieren. Gleichzeitige Anfragen nach derselben
+     * Variante teilen sich eine Berechnung.
+     *
+     * @param id     Die ID des Bildes in der Datenbank.
+     * @param size   Zielgröße (Breite und Höhe in Pixel, Bild wird ggf. skaliert und zugeschnitten).
+     * @param format Gewünschtes Bildformat, z. B. "png", "jpeg", "webp".
+     * @return Ein Future mit dem fertigen Bild. Es schlägt mit den Ausnahmen von
+     *         {@link #getCroppedImage(String, int, String)} fehl, bzw. mit {@link ImageWorkersBusyException},
+     *         wenn die Warteschlange des Worker-Pools voll ist.
+     */
+    public CompletableFuture<FilesDTO> getCroppedImageAsync(final String id, final int size, final String format) {
+        int bucket = imageSizeLadder.quantize(size);
+        String key = ImageRequestCoalescer.key(id, bucket, format);
+        Cache imagesCache = cacheManager.getCache(CacheConfig.IMAGES_CACHE);
+        FilesDTO cached = getCachedImage(imagesCache, key);
+        if (cached != null) {
+            return CompletableFuture.completedFuture(cached);
+        }
+        Optional<FilesDTO> renditionOnDisk = renditionDiskCache.find(id, bucket, format);
+        if (renditionOnDisk.isPresent()) {
+            return CompletableFuture.completedFuture(renditionOnDisk.get());
+        }
+        return imageRequestCoalescer.coalesce(key, () -> imageWorkerPool.submit(() -> {
+            FilesDTO image = loadOrRenderImage(id, bucket, format);
+            if (imagesCache != null) {
+                imagesCache.put(key, image.inHeap());
             }
-        } catch (IOException e) {
-            throw new ReadFilesException("Error reading file", e);
+            return image;
+        }));
+    }
+
+    /**
+     * Prüft, ob eine Variante ausgeliefert werden kann, ohne sie zu laden: Liegt sie im Cache "images" oder auf der
+     * lokalen Platte, genügt das, da beide beim Löschen der Originaldatei geleert werden; sonst wird nur geprüft,
+     * ob die Originaldatei noch existiert.
+     *
+     * @param id     Die ID des Bildes in der Datenbank.
+     * @param size   Die angefragte Größe in Pixel.
+     * @param format Gewünschtes Bildformat, z. B. "png", "jpeg", "webp".
+     * @return true, wenn die Variante vorliegt oder aus der vorhandenen Originaldatei berechnet werden kann.
+     */
+    public boolean isImageAvailable(final String id, final int size, final String format) {
+        int bucket = imageSizeLadder.quantize(size);
+        Cache imagesCache = cacheManager.getCache(CacheConfig.IMAGES_CACHE);
+        if (imagesCache != null && imagesCache.getNativeCache() instanceof com.github.benmanes.caffeine.cache.Cache<?, ?> cache
+                && cache.asMap().containsKey(ImageRequestCoalescer.key(id, bucket, format))) {
+            return true;
+        }
+        return renditionDiskCache.find(id, bucket, format).isPresent() || filesRepository.existsFile(id);
+    }
+
+    /**
+     * Verwirft die Varianten gelöschter Originaldateien im Cache "images", auch wenn sie auf einer anderen
+     * Instanz gelöscht wurden.
+     *
+     * @param event Das Ereignis der Löschung.
+     */
+    @EventListener
+    public void onFilesDeleted(final FilesDeletedEvent event) {
+        Cache imagesCache = cacheManager.getCache(CacheConfig.IMAGES_CACHE);
+        if (imagesCache != null && imagesCache.getNativeCache() instanceof com.github.benmanes.caffeine.cache.Cache<?, ?> cache) {
+            Set<String> fileIds = Set.copyOf(event.fileIds());
+            cache.asMap().keySet().removeIf(key -> fileIds.contains(RenditionDiskCache.sourceOf(key.toString())));
+        }
+    }
+
+    /**
+     * Liest eine Variante aus dem Cache "images". Liegen die Bilddaten außerhalb des Heaps, wird ein Eintrag
+     * geliefert, der beim Ausliefern direkt aus diesem Speicher gestreamt wird, statt ihn in den Heap zu kopieren.
+     */
+    private static FilesDTO getCachedImage(final Cache imagesCache, final String key) {
+        if (imagesCache instanceof OffHeapImageCache offHeapImageCache) {
+            return offHeapImageCache.acquire(key);
         }
+        return imagesCache != null ? imagesCache.get(key, FilesDTO.class) : null;
     }
 
     /**
-     * Converts a {@link BufferedImage} into an OpenCV {@link Mat} with 4 channels (BGRA).
-     * This method extracts the ARGB data from the BufferedImage and transforms it into a
-     * Mat representation using the OpenCV format, where the channels are ordered as Blue,
-     * Green, Red, and Alpha (BGRA). The resulting matrix can be used for further image
-     * processing in OpenCV.
+     * Stellt sicher, dass eine Variante im GridFS gespeichert ist, ohne den Speicher-Cache zu befüllen.
+     * Wird von der Hintergrund-Pipeline genutzt, um Varianten vorzuberechnen.
      *
-     * @param bi the input {@link BufferedImage} to be converted, assumed to have ARGB format.
-     * @return a {@link Mat} object representing the converted image in BGRA format.
+     * @param id     Die ID des Bildes in der Datenbank.
+     * @param size   Zielgröße in Pixel.
+     * @param format Gewünschtes Bildformat, z. B. "png", "jpeg", "webp".
+     * @return true, wenn die Variante neu erzeugt wurde, false, wenn sie bereits vorhanden war.
+     * @throws NotFoundException    Wenn das Bild mit dieser ID nicht gefunden wurde.
+     * @throws ReadFilesException   Wenn das Bild nicht gelesen, erkannt oder konvertiert werden konnte.
+     * @throws WriteFilesException  Wenn keine Unterstützung für das gewünschte Ausgabeformat besteht.
      */
-    public Mat bufferedImageToMat4Channels(final BufferedImage bi) {
-        int width = bi.getWidth();
-        int height = bi.getHeight();
-        Mat mat = new Mat(height, width, CvType.CV_8UC4); // 4 Kanäle (BGRA)
-        int[] data = new int[width * height];
-        bi.getRGB(0, 0, width, height, data, 0, width);
-        byte[] bytes = new byte[width * height * 4];
-        for (int i = 0; i < data.length; i++) {
-            int argb = data[i];
-            // OpenCV BGRA
-            bytes[i * 4] = (byte) (argb & 0xFF);          // Blau
-            bytes[i * 4 + 1] = (byte) ((argb >> 8) & 0xFF);   // Grün
-            bytes[i * 4 + 2] = (byte) ((argb >> 16) & 0xFF);  // Rot
-            bytes[i * 4 + 3] = (byte) ((argb >> 24) & 0xFF);  // Alpha
+    public boolean ensureRendition(final String id, final int size, final String format) {
+        int bucket = imageSizeLadder.quantize(size);
+        if (filesRepository.existsRendition(id, bucket, format)) {
+            return false;
         }
-        mat.put(0, 0, bytes);
-        return mat;
+        storeRendition(id, bucket, format, renderImage(id, bucket, format));
+        return true;
     }
+
+    private Optional<FilesDTO> findStoredRendition(final String id, final int size, final String format) {
+        try {
+            return filesRepository.findRendition(id, size, format);
+        } catch (IOException | DataAccessException e) {
+            log.warn("Gespeicherte Variante {}-{}-{} konnte nicht gelesen werden, wird neu erzeugt", id, size, format, e);
+            return Optional.empty();
+        }
+    }
+
+    private void storeRendition(final String id, final int size, final String format, final FilesDTO rendition) {
+        try {
+            filesRepository.saveRendition(id, size, format, rendition);
+        } catch (DataAccessException e) {
+            log.warn("Variante {}-{}-{} konnte nicht gespeichert werden", id, size, format, e);
+        }
+    }
+
     /**
-     * Hilfsklasse für das WebP-Encoding mittels OpenCV.
+     * Kodiert ein bereits im Speicher liegendes Bild (z.B. einen zusammengesetzten Sprite-Atlas) über die
+     * Bild-Engine direkt im gewünschten Format, ohne es zu skalieren oder erneut zu dekodieren.
+     *
+     * @param image  Das zu kodierende Bild.
+     * @param format Das Zielformat, z.B. "png" oder "webp".
+     * @return Die kodierten Bilddaten.
+     * @throws WriteFilesException Wenn das Bild nicht kodiert werden konnte.
      */
-    private static class MatOfByte extends org.opencv.core.MatOfByte {
-        public MatOfByte() {
-            super();
+    public byte[] encodeImage(final BufferedImage image, final String format) {
+        try {
+            return imageEngine.encode(image, format);
+        } catch (IOException e) {
+            throw new WriteFilesException("Fehler beim Kodieren des Bildes", e);
+        }
+    }
+
+    /**
+     * Berechnet einen winzigen Platzhalter (LQIP) für ein Bild: eine WebP-Variante mit {@link #PLACEHOLDER_SIZE}
+     * Pixeln Kantenlänge als Data-URI. Er ist klein genug, um direkt in die Metadaten und die Katalog-DTOs
+     * eingebettet zu werden, sodass die Karte ohne weitere Anfrage einen unscharfen Eindruck des Bildes zeigt.
+     *
+     * @param source Die kodierten Bilddaten des Originals.
+     * @return Der Platzhalter als Data-URI, oder {@code null}, wenn das Bild nicht gelesen oder kodiert werden konnte.
+     */
+    public String createPlaceholder(final InputStream source) {
+        try {
+            byte[] data = imageEngine.resize(source, PLACEHOLDER_SIZE, PLACEHOLDER_FORMAT);
+            return "data:image/" + PLACEHOLDER_FORMAT + ";base64," + Base64.getEncoder().encodeToString(data);
+        } catch (IOException | ReadFilesException | WriteFilesException e) {
+            log.debug("Platzhalter konnte nicht berechnet werden: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    private FilesDTO renderImage(final String id, final int size, final String format) {
+        GridFSFile file = filesRepository.getFileById(id)
+                .orElseThrow(() -> new NotFoundException(String.format("Bild %s nicht gefunden", id)));
+
+        GridFsResource resource = gridFsTemplate.getResource(file);
+
+        String contentType = "application/octet-stream";
+        if (file.getMetadata() != null && file.getMetadata().get("contentType") != null) {
+            contentType = file.getMetadata().get("contentType").toString();
+        }
+
+        // Varianten werden aus dem normalisierten Master berechnet, ältere Dateien ohne Master aus dem Original
+        GridFsResource source = filesRepository.findMaster(id).orElse(resource);
+        try (InputStream inputStream = source.getInputStream()) {
+            byte[] data = imageEngine.resize(inputStream, size, format);
+            return new FilesDTO(
+                    data,
+                    "webp".equalsIgnoreCase(format) ? "image/webp" : contentType,
+                    resource.getFilename()
+            );
+        } catch (IOException e) {
+            throw new ReadFilesException("Error reading file", e);
         }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,176 @@
+package de.ckollmeier.burgerexpress.backend.service;
+
+import de.ckollmeier.burgerexpress.backend.exceptions.ReadFilesException;
+import de.ckollmeier.burgerexpress.backend.exceptions.WriteFilesException;
+import de.ckollmeier.burgerexpress.backend.interfaces.ImageEngine;
+import com.twelvemonkeys.image.ResampleOp;
+import org.opencv.core.CvType;
+import org.opencv.core.Mat;
+import org.opencv.core.MatOfByte;
+import org.opencv.imgcodecs.Imgcodecs;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.image.BufferedImage;
+import java.awt.image.BufferedImageOp;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Iterator;
+
+/**
+ * Bild-Engine auf Basis von Java2D: Dekodieren mit {@link ImageIO}, Skalieren mit TwelveMonkeys {@link ResampleOp}.
+ * Große Originale werden schon beim Dekodieren unterabgetastet, sodass nur noch ein Raster nahe der Zielgröße
+ * im Speicher liegt; das eigentliche Skalieren übernimmt danach {@link ResampleOp}.
+ * WebP wird über OpenCV kodiert, dafür werden die Pixel in eine OpenCV-Matrix kopiert.
+ * Standard-Engine, solange {@code burgerexpress.images.engine} nicht auf "opencv" gesetzt ist.
+ */
+@Service
+@ConditionalOnProperty(name = "burgerexpress.images.engine", havingValue = "java2d", matchIfMissing = true)
+public class Java2DImageEngine implements ImageEngine {
+    /**
+     * Faktor, um den das dekodierte Raster mindestens größer als das Ziel bleibt. Unterabtastung wählt nur
+     * einzelne Pixel aus; der Rest der Verkleinerung bleibt dem hochwertigen Resampling überlassen.
+     */
+    static final int SUBSAMPLING_HEADROOM = 2;
+
+    static {
+        try {
+            nu.pattern.OpenCV.loadLocally();
+        } catch (Exception e) {
+            // Fehlerbehandlung sofern notwendig
+        }
+    }
+
+    @Override
+    public byte[] resize(final InputStream source, final int size, final String format) throws IOException {
+        BufferedImage originalImage = decode(source, size);
+        if (originalImage == null) {
+            throw new ReadFilesException(
+                    "Original image is null, possibly due to unsupported format or invalid image data", null
+            );
+        }
+        int[] dimensions = ImageEngine.scaledDimensions(originalImage.getWidth(), originalImage.getHeight(), size);
+        BufferedImageOp resampler = new ResampleOp(dimensions[0], dimensions[1]);
+        BufferedImage resizedImage = resampler.filter(originalImage, null);
+        return encode(resizedImage, format);
+    }
+
+    @Override
+    public byte[] encode(final BufferedImage image, final String format) throws IOException {
+        if ("webp".equalsIgnoreCase(format)) {
+            // BufferedImage zu OpenCV-Matrix konvertieren
+            Mat mat = toBgraMat(image);
+
+            // In WebP kodieren
+            MatOfByte buf = new MatOfByte();
+            try {
+                boolean result = Imgcodecs.imencode(".webp", mat, buf);
+                if (!result) {
+                    throw new WriteFilesException("OpenCV konnte das Bild nicht zu WebP konvertieren", null);
+                }
+                return buf.toArray();
+            } finally {
+                mat.release();
+                buf.release();
+            }
+        }
+
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        boolean imageWritten = ImageIO.write(image, format, outputStream);
+        if (!imageWritten) {
+            throw new WriteFilesException("No ImageWriters found for format: " + format, null);
+        }
+        return outputStream.toByteArray();
+    }
+
+    /**
+     * Dekodiert das erste Bild des Streams und tastet es dabei so weit unter, dass die längere Kante noch
+     * mindestens {@link #SUBSAMPLING_HEADROOM}-mal so groß wie {@code size} ist.
+     *
+     * @param source Die kodierten Bilddaten.
+     * @param size   Zielgröße der längeren Kante in Pixel.
+     * @return Das dekodierte Bild oder {@code null}, wenn kein passender Reader gefunden wurde.
+     * @throws IOException Wenn die Bilddaten nicht gelesen werden konnten.
+     */
+    public static BufferedImage decode(final InputStream source, final int size) throws IOException {
+        ImageInputStream input = ImageIO.createImageInputStream(source);
+        if (input == null) {
+            return ImageIO.read(source);
+        }
+        try (input) {
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(input);
+            if (!readers.hasNext()) {
+                return null;
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(input, true, true);
+                ImageReadParam param = reader.getDefaultReadParam();
+                int factor = subsamplingFactor(reader.getWidth(0), reader.getHeight(0), size);
+                if (factor > 1) {
+                    param.setSourceSubsampling(factor, factor, 0, 0);
+                }
+                return reader.read(0, param);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    /**
+     * Berechnet den Unterabtastungsfaktor für das Dekodieren.
+     *
+     * @param width  Breite des Originals.
+     * @param height Höhe des Originals.
+     * @param size   Zielgröße der längeren Kante.
+     * @return Der Faktor (mindestens 1), um den beim Dekodieren in beiden Richtungen unterabgetastet wird.
+     */
+    static int subsamplingFactor(final int width, final int height, final int size) {
+        return Math.max(1, Math.max(width, height) / (Math.max(1, size) * SUBSAMPLING_HEADROOM));
+    }
+
+    /**
+     * Converts a {@link BufferedImage} into an OpenCV {@link Mat} with 4 channels (BGRA).
+     * This method extracts the ARGB data from the BufferedImage and transforms it into a
+     * Mat representation using the OpenCV format, where the channels are ordered as Blue,
+     * Green, Red, and Alpha (BGRA). The resulting matrix can be used for further image
+     * processing in OpenCV.
+     *
+     * @param bi the input {@link BufferedImage} to be converted, assumed to have ARGB format.
+     * @return a {@link Mat} object representing the converted image in BGRA format.
+     */
+    public Mat bufferedImageToMat4Channels(final BufferedImage bi) {
+        return toBgraMat(bi);
+    }
+
+    /**
+     * Statische Variante von {@link #bufferedImageToMat4Channels(BufferedImage)}, damit auch
+     * {@link OpenCvImageEngine} Bilder aus dem Java-Heap ohne Umweg über ein Zwischenformat kodieren kann.
+     *
+     * @param bi Das zu konvertierende Bild.
+     * @return Das Bild als BGRA-Matrix; der Aufrufer muss sie freigeben.
+     */
+    static Mat toBgraMat(final BufferedImage bi) {
+        int width = bi.getWidth();
+        int height = bi.getHeight();
+        Mat mat = new Mat(height, width, CvType.CV_8UC4); // 4 Kanäle (BGRA)
+        int[] data = new int[width * height];
+        bi.getRGB(0, 0, width, height, data, 0, width);
+        byte[] bytes = new byte[width * height * 4];
+        for (int i = 0; i < data.length; i++) {
+            int argb = data[i];
+            // OpenCV BGRA
+            bytes[i * 4] = (byte) (argb & 0xFF);          // Blau
+            bytes[i * 4 + 1] = (byte) ((argb >> 8) & 0xFF);   // Grün
+            bytes[i * 4 + 2] = (byte) ((argb >> 16) & 0xFF);  // Rot
+            bytes[i * 4 + 3] = (byte) ((argb >> 24) & 0xFF);  // Alpha
+        }
+        mat.put(0, 0, bytes);
+        return mat;
+    }
+}
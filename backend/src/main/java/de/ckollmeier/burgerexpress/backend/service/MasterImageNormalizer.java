@@ -0,0 +1,269 @@
+package de.ckollmeier.burgerexpress.backend.service;
+
+import de.ckollmeier.burgerexpress.backend.dto.FilesDTO;
+import de.ckollmeier.burgerexpress.backend.interfaces.ImageEngine;
+import com.twelvemonkeys.image.ResampleOp;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.InputStreamSource;
+import org.springframework.stereotype.Service;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Iterator;
+import java.util.Optional;
+
+/**
+ * Erzeugt beim Upload eine normalisierte Master-Kopie großer Bilder. Die längere Kante wird auf
+ * {@code burgerexpress.images.master.max-edge} begrenzt, die EXIF-Orientierung wird auf die Pixel angewendet und
+ * das Ergebnis als JPEG (bzw. PNG bei Transparenz) kodiert. Alle Varianten werden danach aus dem Master berechnet,
+ * sodass der Aufwand fürs Dekodieren nicht von der Auflösung des hochgeladenen Originals abhängt.
+ */
+@Slf4j
+@Service
+public class MasterImageNormalizer {
+    /** Orientierung ohne Drehung oder Spiegelung. */
+    static final int ORIENTATION_NORMAL = 1;
+    /** EXIF-Tag der Orientierung. */
+    private static final int ORIENTATION_TAG = 0x0112;
+    /** Maximale Anzahl Bytes, die nach dem EXIF-Block durchsucht werden. */
+    private static final int EXIF_SEARCH_LIMIT = 256 * 1024;
+
+    /** Ob Master-Kopien erzeugt werden. */
+    private final boolean enabled;
+    /** Maximale Länge der längeren Kante des Masters in Pixel. */
+    private final int maxEdge;
+    /** Qualität der JPEG-Kodierung (0 bis 1). */
+    private final float jpegQuality;
+
+    public MasterImageNormalizer(
+            final @Value("${burgerexpress.images.master.enabled:true}") boolean enabled,
+            final @Value("${burgerexpress.images.master.max-edge:2048}") int maxEdge,
+            final @Value("${burgerexpress.images.master.jpeg-quality:0.9}") float jpegQuality
+    ) {
+        this.enabled = enabled;
+        this.maxEdge = maxEdge;
+        this.jpegQuality = jpegQuality;
+    }
+
+    /**
+     * Erzeugt die Master-Kopie eines hochgeladenen Bildes, falls es größer als erlaubt oder laut EXIF gedreht ist.
+     * Fehler beim Lesen führen nicht zum Abbruch des Uploads; die Varianten werden dann aus dem Original berechnet.
+     *
+     * @param source Das hochgeladene Original; es wird mehrfach gelesen.
+     * @return Die Master-Kopie, oder leer, wenn das Original bereits passt oder nicht gelesen werden konnte.
+     */
+    public Optional<FilesDTO> createMaster(final InputStreamSource source) {
+        if (!enabled) {
+            return Optional.empty();
+        }
+        try {
+            int orientation;
+            try (InputStream inputStream = source.getInputStream()) {
+                orientation = exifOrientation(inputStream);
+            }
+            int[] dimensions;
+            try (InputStream inputStream = source.getInputStream()) {
+                dimensions = readDimensions(inputStream);
+            }
+            if (dimensions == null
+                    || (Math.max(dimensions[0], dimensions[1]) <= maxEdge && orientation == ORIENTATION_NORMAL)) {
+                return Optional.empty();
+            }
+            BufferedImage image;
+            try (InputStream inputStream = source.getInputStream()) {
+                image = Java2DImageEngine.decode(inputStream, maxEdge);
+            }
+            if (image == null) {
+                return Optional.empty();
+            }
+            return Optional.of(encode(applyOrientation(scale(image), orientation)));
+        } catch (IOException | RuntimeException e) {
+            log.warn("Master-Kopie konnte nicht erzeugt werden, Varianten werden aus dem Original berechnet", e);
+            return Optional.empty();
+        }
+    }
+
+    private BufferedImage scale(final BufferedImage image) {
+        int[] dimensions = ImageEngine.scaledDimensions(image.getWidth(), image.getHeight(), maxEdge);
+        if (dimensions[0] == image.getWidth() && dimensions[1] == image.getHeight()) {
+            return image;
+        }
+        return new ResampleOp(dimensions[0], dimensions[1]).filter(image, null);
+    }
+
+    /**
+     * Kodiert den Master als JPEG, bzw. als PNG, wenn das Bild transparente Pixel haben kann.
+     */
+    private FilesDTO encode(final BufferedImage image) throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        if (image.getColorModel().hasAlpha()) {
+            ImageIO.write(image, "png", outputStream);
+            return new FilesDTO(outputStream.toByteArray(), "image/png", "master.png");
+        }
+        BufferedImage rgb = image;
+        if (image.getType() != BufferedImage.TYPE_INT_RGB && image.getType() != BufferedImage.TYPE_3BYTE_BGR) {
+            rgb = new BufferedImage(image.getWidth(), image.getHeight(), BufferedImage.TYPE_INT_RGB);
+            Graphics2D graphics = rgb.createGraphics();
+            graphics.drawImage(image, 0, 0, Color.WHITE, null);
+            graphics.dispose();
+        }
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+        try (ImageOutputStream output = ImageIO.createImageOutputStream(outputStream)) {
+            writer.setOutput(output);
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            param.setCompressionQuality(jpegQuality);
+            writer.write(null, new IIOImage(rgb, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+        return new FilesDTO(outputStream.toByteArray(), "image/jpeg", "master.jpg");
+    }
+
+    /**
+     * Liest die Maße des ersten Bildes, ohne die Pixel zu dekodieren.
+     *
+     * @return Breite und Höhe, oder {@code null}, wenn kein passender Reader gefunden wurde.
+     */
+    private static int[] readDimensions(final InputStream source) throws IOException {
+        try (ImageInputStream input = ImageIO.createImageInputStream(source)) {
+            if (input == null) {
+                return null;
+            }
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(input);
+            if (!readers.hasNext()) {
+                return null;
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(input, true, true);
+                return new int[]{reader.getWidth(0), reader.getHeight(0)};
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    /**
+     * Wendet eine EXIF-Orientierung (1 bis 8) auf die Pixel an, sodass das Bild aufrecht steht.
+     *
+     * @param image       Das Bild, wie es gespeichert ist.
+     * @param orientation Der Wert des EXIF-Tags Orientation.
+     * @return Das aufrechte Bild; bei Orientierung 1 oder unbekannten Werten das unveränderte Bild.
+     */
+    static BufferedImage applyOrientation(final BufferedImage image, final int orientation) {
+        if (orientation < 2 || orientation > 8) {
+            return image;
+        }
+        int width = image.getWidth();
+        int height = image.getHeight();
+        boolean swap = orientation >= 5;
+        int targetWidth = swap ? height : width;
+        int targetHeight = swap ? width : height;
+        int[] source = image.getRGB(0, 0, width, height, null, 0, width);
+        int[] target = new int[source.length];
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                int targetX;
+                int targetY;
+                switch (orientation) {
+                    case 2 -> { targetX = width - 1 - x; targetY = y; }
+                    case 3 -> { targetX = width - 1 - x; targetY = height - 1 - y; }
+                    case 4 -> { targetX = x; targetY = height - 1 - y; }
+                    case 5 -> { targetX = y; targetY = x; }
+                    case 6 -> { targetX = height - 1 - y; targetY = x; }
+                    case 7 -> { targetX = height - 1 - y; targetY = width - 1 - x; }
+                    default -> { targetX = y; targetY = width - 1 - x; }
+                }
+                target[targetY * targetWidth + targetX] = source[y * width + x];
+            }
+        }
+        BufferedImage oriented = new BufferedImage(targetWidth, targetHeight,
+                image.getColorModel().hasAlpha() ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB);
+        oriented.setRGB(0, 0, targetWidth, targetHeight, target, 0, targetWidth);
+        return oriented;
+    }
+
+    /**
+     * Liest das EXIF-Tag Orientation aus dem APP1-Segment eines JPEG. Es werden nur die Segmente vor den
+     * Bilddaten gelesen.
+     *
+     * @param source Die kodierten Bilddaten.
+     * @return Die Orientierung (1 bis 8), bzw. {@link #ORIENTATION_NORMAL}, wenn keine angegeben ist oder das
+     *         Bild kein JPEG ist.
+     * @throws IOException Wenn der Stream nicht gelesen werden kann.
+     */
+    static int exifOrientation(final InputStream source) throws IOException {
+        DataInputStream input = new DataInputStream(source);
+        try {
+            if (input.readUnsignedShort() != 0xFFD8) {
+                return ORIENTATION_NORMAL;
+            }
+            int read = 2;
+            while (read < EXIF_SEARCH_LIMIT) {
+                int marker = input.readUnsignedShort();
+                if ((marker & 0xFF00) != 0xFF00 || marker == 0xFFDA || marker == 0xFFD9) {
+                    return ORIENTATION_NORMAL;
+                }
+                int length = input.readUnsignedShort() - 2;
+                if (length < 0) {
+                    return ORIENTATION_NORMAL;
+                }
+                byte[] segment = new byte[length];
+                input.readFully(segment);
+                read += 4 + length;
+                if (marker == 0xFFE1 && length > 14 && segment[0] == 'E' && segment[1] == 'x' && segment[2] == 'i'
+                        && segment[3] == 'f' && segment[4] == 0 && segment[5] == 0) {
+                    return tiffOrientation(segment, 6);
+                }
+            }
+        } catch (EOFException e) {
+            // Kein vollständiger Header, das Bild gilt als aufrecht
+        }
+        return ORIENTATION_NORMAL;
+    }
+
+    private static int tiffOrientation(final byte[] data, final int tiffStart) {
+        boolean littleEndian = data[tiffStart] == 'I' && data[tiffStart + 1] == 'I';
+        long ifdOffset = readUnsigned(data, tiffStart + 4, 4, littleEndian);
+        int ifd = tiffStart + (int) ifdOffset;
+        if (ifdOffset < 8 || ifd + 2 > data.length) {
+            return ORIENTATION_NORMAL;
+        }
+        int entries = (int) readUnsigned(data, ifd, 2, littleEndian);
+        for (int i = 0; i < entries; i++) {
+            int entry = ifd + 2 + i * 12;
+            if (entry + 12 > data.length) {
+                break;
+            }
+            if (readUnsigned(data, entry, 2, littleEndian) == ORIENTATION_TAG) {
+                int orientation = (int) readUnsigned(data, entry + 8, 2, littleEndian);
+                return orientation >= 1 && orientation <= 8 ? orientation : ORIENTATION_NORMAL;
+            }
+        }
+        return ORIENTATION_NORMAL;
+    }
+
+    private static long readUnsigned(final byte[] data, final int offset, final int length, final boolean littleEndian) {
+        long value = 0;
+        for (int i = 0; i < length; i++) {
+            int b = data[offset + (littleEndian ? length - 1 - i : i)] & 0xFF;
+            value = (value << 8) | b;
+        }
+        return value;
+    }
+}
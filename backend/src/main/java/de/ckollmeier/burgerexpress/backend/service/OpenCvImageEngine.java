@@ -0,0 +1,118 @@
+package de.ckollmeier.burgerexpress.backend.service;
+
+import de.ckollmeier.burgerexpress.backend.exceptions.ReadFilesException;
+import de.ckollmeier.burgerexpress.backend.exceptions.WriteFilesException;
+import de.ckollmeier.burgerexpress.backend.interfaces.ImageEngine;
+import org.opencv.core.Core;
+import org.opencv.core.CvException;
+import org.opencv.core.CvType;
+import org.opencv.core.Mat;
+import org.opencv.core.MatOfByte;
+import org.opencv.core.Size;
+import org.opencv.imgcodecs.Imgcodecs;
+import org.opencv.imgproc.Imgproc;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Locale;
+
+/**
+ * Bild-Engine, die vollständig in OpenCV arbeitet: {@code imdecode} → {@code resize} (INTER_AREA) → {@code imencode}.
+ * Die Pixeldaten liegen dabei nur im nativen Speicher von OpenCV, auf dem Java-Heap werden lediglich die kodierten
+ * Ein- und Ausgabedaten gehalten. Aktiv mit {@code burgerexpress.images.engine=opencv}.
+ */
+@Service
+@ConditionalOnProperty(name = "burgerexpress.images.engine", havingValue = "opencv")
+public class OpenCvImageEngine implements ImageEngine {
+
+    static {
+        try {
+            nu.pattern.OpenCV.loadLocally();
+        } catch (Exception e) {
+            // Fehlerbehandlung sofern notwendig
+        }
+    }
+
+    @Override
+    public byte[] resize(final InputStream source, final int size, final String format) throws IOException {
+        String extension = extension(format);
+        MatOfByte encoded = new MatOfByte(source.readAllBytes());
+        Mat decoded = Imgcodecs.imdecode(encoded, Imgcodecs.IMREAD_UNCHANGED);
+        Mat resized = new Mat();
+        MatOfByte output = new MatOfByte();
+        try {
+            if (decoded.empty()) {
+                throw new ReadFilesException(
+                        "Original image is null, possibly due to unsupported format or invalid image data", null
+                );
+            }
+            normalizeForEncoding(decoded, extension);
+
+            int[] dimensions = ImageEngine.scaledDimensions(decoded.cols(), decoded.rows(), size);
+            Imgproc.resize(decoded, resized, new Size(dimensions[0], dimensions[1]), 0, 0, Imgproc.INTER_AREA);
+
+            boolean result;
+            try {
+                result = Imgcodecs.imencode(extension, resized, output);
+            } catch (CvException e) {
+                throw new WriteFilesException("No ImageWriters found for format: " + format, e);
+            }
+            if (!result) {
+                throw new WriteFilesException("OpenCV konnte das Bild nicht als " + format + " kodieren", null);
+            }
+            return output.toArray();
+        } finally {
+            encoded.release();
+            decoded.release();
+            resized.release();
+            output.release();
+        }
+    }
+
+    /**
+     * Kopiert die Pixel in eine BGRA-Matrix und kodiert sie direkt mit {@code imencode}.
+     */
+    @Override
+    public byte[] encode(final BufferedImage image, final String format) {
+        String extension = extension(format);
+        Mat mat = Java2DImageEngine.toBgraMat(image);
+        MatOfByte output = new MatOfByte();
+        try {
+            normalizeForEncoding(mat, extension);
+            boolean result;
+            try {
+                result = Imgcodecs.imencode(extension, mat, output);
+            } catch (CvException e) {
+                throw new WriteFilesException("No ImageWriters found for format: " + format, e);
+            }
+            if (!result) {
+                throw new WriteFilesException("OpenCV konnte das Bild nicht als " + format + " kodieren", null);
+            }
+            return output.toArray();
+        } finally {
+            mat.release();
+            output.release();
+        }
+    }
+
+    /**
+     * Bringt das dekodierte Bild in eine Form, die der Encoder des Zielformats akzeptiert:
+     * 16-Bit-Bilder werden auf 8 Bit reduziert, für JPEG wird der Alphakanal entfernt.
+     */
+    private static void normalizeForEncoding(final Mat image, final String extension) {
+        if (image.depth() == CvType.CV_16U) {
+            image.convertTo(image, CvType.CV_8U, 1.0 / 257.0);
+        }
+        if (".jpg".equals(extension) && image.channels() == 4) {
+            Imgproc.cvtColor(image, image, Imgproc.COLOR_BGRA2BGR);
+        }
+    }
+
+    private static String extension(final String format) {
+        String normalized = format.toLowerCase(Locale.ROOT);
+        return "jpeg".equals(normalized) ? ".jpg" : "." + normalized;
+    }
+}
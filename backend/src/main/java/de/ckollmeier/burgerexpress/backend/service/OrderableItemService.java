@@ -14,10 +14,12 @@ import java.util.List;
 public class OrderableItemService {
     private final DishRepository dishRepository;
     private final MenuRepository menuRepository;
+    private final FilesService filesService;
 
-    public OrderableItemService(DishRepository dishRepository, MenuRepository menuRepository) {
+    public OrderableItemService(DishRepository dishRepository, MenuRepository menuRepository, FilesService filesService) {
         this.dishRepository = dishRepository;
         this.menuRepository = menuRepository;
+        this.filesService = filesService;
     }
 
     /**
@@ -29,7 +31,7 @@ public class OrderableItemService {
         List<OrderableItem> orderableItems = new ArrayList<>();
         orderableItems.addAll(dishRepository.findAll());
         orderableItems.addAll(menuRepository.findAll());
-        return OrderableItemOutputDTOConverter.convert(orderableItems);
+        return convertWithPlaceholders(orderableItems);
     }
 
     /**
@@ -39,7 +41,7 @@ public class OrderableItemService {
      */
     public List<OrderableItemOutputDTO> getAllMenus() {
         List<OrderableItem> orderableItems = new ArrayList<>(menuRepository.findAll());
-        return OrderableItemOutputDTOConverter.convert(orderableItems);
+        return convertWithPlaceholders(orderableItems);
     }
 
     /**
@@ -49,6 +51,17 @@ public class OrderableItemService {
      */
     public List<OrderableItemOutputDTO> getAllDishes() {
         List<OrderableItem> orderableItems = new ArrayList<>(dishRepository.findAll());
-        return OrderableItemOutputDTOConverter.convert(orderableItems);
+        return convertWithPlaceholders(orderableItems);
+    }
+
+    /**
+     * Converts the items and embeds the placeholders of all their images, looked up with a single query.
+     */
+    private List<OrderableItemOutputDTO> convertWithPlaceholders(final List<OrderableItem> orderableItems) {
+        List<String> imageUrls = orderableItems.stream()
+                .flatMap(item -> item.getImageUrls().values().stream())
+                .flatMap(List::stream)
+                .toList();
+        return OrderableItemOutputDTOConverter.convert(orderableItems, filesService.getPlaceholdersByImageUrl(imageUrls));
     }
 }
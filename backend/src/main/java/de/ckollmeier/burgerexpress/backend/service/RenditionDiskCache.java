@@ -0,0 +1,388 @@
+package de.ckollmeier.burgerexpress.backend.service;
+
+import de.ckollmeier.burgerexpress.backend.dto.FilesDTO;
+import de.ckollmeier.burgerexpress.backend.listener.FilesDeletedEvent;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Stufe zwischen dem Speicher-Cache "images" und GridFS: Erzeugte Bildvarianten werden als Dateien auf der lokalen
+ * Platte abgelegt und von dort ausgeliefert. Treffer werden als Datei-Ressource geliefert, die der Servlet-Container
+ * per {@code sendfile} (bzw. {@code FileChannel.transferTo}) direkt aus dem Page-Cache in den Socket schreiben kann,
+ * ohne die Bilddaten erneut aus MongoDB zu lesen oder durch den Heap zu kopieren.
+ * Die Summe der Dateien ist durch ein Budget begrenzt; darüber hinaus werden die am längsten nicht gelesenen
+ * Varianten gelöscht (LRU). Beim Start werden bereits vorhandene Dateien übernommen.
+ * Verdrängte Varianten werden sofort nicht mehr gefunden, ihre Dateien aber erst nach einer Verzögerung gelöscht,
+ * damit Antworten, die gerade per {@code sendfile} oder als Datei-Ressource ausgeliefert werden, sie noch öffnen können.
+ * Metriken: {@code images.disk.used}, {@code images.disk.files} und {@code images.disk.evictions}.
+ */
+@Slf4j
+@Service
+public class RenditionDiskCache {
+    /** Dateiname einer Variante: {@code <id>-<size>.<format>}. */
+    private static final Pattern FILE_NAME = Pattern.compile("([A-Za-z0-9]+)-(\\d+)\\.([A-Za-z0-9]+)");
+    /** Endung halb geschriebener Dateien, die beim Start verworfen werden. */
+    private static final String TEMP_SUFFIX = ".tmp";
+
+    /** Ob die Stufe aktiv ist. */
+    private final boolean enabled;
+    /** Verzeichnis der Varianten. */
+    private final Path directory;
+    /** Maximale Summe der Dateigrößen in Bytes. */
+    private final long maxBytes;
+    /** Dateien mit ihrer Größe in Zugriffsreihenfolge; der erste Eintrag wurde am längsten nicht gelesen. */
+    private final LinkedHashMap<String, Long> files = new LinkedHashMap<>(16, 0.75f, true);
+    /** Summe der Dateigrößen in Bytes. */
+    private long usedBytes;
+    /** Anzahl der wegen des Budgets gelöschten Varianten. */
+    private final Counter evictions;
+    /** Zeit zwischen dem Verdrängen einer Variante und dem Löschen ihrer Datei. */
+    private final Duration deleteDelay;
+    /** Verdrängte Dateien, deren verzögertes Löschen noch aussteht. */
+    private final Set<String> pendingDeletes = new HashSet<>();
+
+    /** Thread, auf dem verdrängte Dateien verzögert gelöscht werden. */
+    private final ScheduledExecutorService deleter = Executors.newSingleThreadScheduledExecutor(
+            runnable -> new Thread(runnable, "rendition-disk-cache"));
+
+    public RenditionDiskCache(
+            final @Value("${burgerexpress.images.disk-cache.enabled:true}") boolean enabled,
+            final @Value("${burgerexpress.images.disk-cache.directory:${java.io.tmpdir}/burgerexpress-renditions}") String directory,
+            final @Value("${burgerexpress.images.disk-cache.max-size:1GB}") DataSize maxSize,
+            final @Value("${burgerexpress.images.disk-cache.delete-delay:30s}") Duration deleteDelay,
+            final MeterRegistry meterRegistry
+    ) {
+        this.enabled = enabled;
+        this.directory = Path.of(directory).toAbsolutePath();
+        this.maxBytes = maxSize.toBytes();
+        this.deleteDelay = deleteDelay;
+        this.evictions = Counter.builder("images.disk.evictions")
+                .description("Bildvarianten, die wegen des Platten-Budgets gelöscht wurden")
+                .register(meterRegistry);
+        Gauge.builder("images.disk.used", this, RenditionDiskCache::getUsedBytes)
+                .description("Belegte Bytes der Bildvarianten auf der lokalen Platte")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        Gauge.builder("images.disk.files", this, RenditionDiskCache::getFileCount)
+                .description("Anzahl der Bildvarianten auf der lokalen Platte")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Übernimmt beim Start die bereits auf der Platte liegenden Varianten, verwirft halb geschriebene Dateien
+     * und kürzt auf das Budget. Die Reihenfolge für LRU ergibt sich aus dem Zeitpunkt der letzten Änderung.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void reconcile() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            Files.createDirectories(directory);
+        } catch (IOException e) {
+            log.warn("Verzeichnis für Bildvarianten {} konnte nicht angelegt werden", directory, e);
+            return;
+        }
+        List<Map.Entry<Path, BasicFileAttributes>> found = new ArrayList<>();
+        try (Stream<Path> paths = Files.list(directory)) {
+            for (Path path : (Iterable<Path>) paths::iterator) {
+                String fileName = path.getFileName().toString();
+                if (fileName.endsWith(TEMP_SUFFIX)) {
+                    Files.deleteIfExists(path);
+                } else if (FILE_NAME.matcher(fileName).matches()) {
+                    found.add(Map.entry(path, Files.readAttributes(path, BasicFileAttributes.class)));
+                }
+            }
+        } catch (IOException e) {
+            log.warn("Verzeichnis für Bildvarianten {} konnte nicht gelesen werden", directory, e);
+            return;
+        }
+        found.sort(Comparator.comparing(entry -> entry.getValue().lastModifiedTime(), Comparator.<FileTime>naturalOrder()));
+        List<String> evicted;
+        synchronized (this) {
+            files.clear();
+            usedBytes = 0;
+            for (Map.Entry<Path, BasicFileAttributes> entry : found) {
+                files.put(entry.getKey().getFileName().toString(), entry.getValue().size());
+                usedBytes += entry.getValue().size();
+            }
+            evicted = trimToBudget();
+        }
+        deleteFiles(evicted);
+        log.info("{} Bildvarianten ({} Bytes) auf der Platte übernommen", getFileCount(), getUsedBytes());
+    }
+
+    /**
+     * Sucht eine Variante auf der Platte.
+     *
+     * @param id     Die Id der Originaldatei.
+     * @param size   Die Zielgröße der Variante in Pixel.
+     * @param format Das Bildformat der Variante.
+     * @return Die Variante als gestreamter Eintrag über die Datei, oder leer, wenn sie nicht auf der Platte liegt.
+     */
+    public Optional<FilesDTO> find(final String id, final int size, final String format) {
+        String fileName = fileName(id, size, format);
+        if (fileName == null) {
+            return Optional.empty();
+        }
+        synchronized (this) {
+            if (files.get(fileName) == null) {
+                return Optional.empty();
+            }
+        }
+        Path path = directory.resolve(fileName);
+        if (!Files.isRegularFile(path)) {
+            // Von außen gelöscht
+            remove(fileName);
+            return Optional.empty();
+        }
+        return Optional.of(FilesDTO.streamed(new FileSystemResource(path), contentType(format), fileName));
+    }
+
+    /**
+     * Legt eine Variante auf der Platte ab. Die Datei wird zunächst unter einem temporären Namen geschrieben und
+     * dann umbenannt, sodass Leser nie eine halb geschriebene Datei sehen. Fehler werden nur protokolliert.
+     *
+     * @param id        Die Id der Originaldatei.
+     * @param size      Die Zielgröße der Variante in Pixel.
+     * @param format    Das Bildformat der Variante.
+     * @param rendition Die Variante mit ihren Bilddaten.
+     */
+    public void put(final String id, final int size, final String format, final FilesDTO rendition) {
+        String fileName = fileName(id, size, format);
+        byte[] data = rendition.getData();
+        if (fileName == null || data == null || data.length > maxBytes) {
+            return;
+        }
+        synchronized (this) {
+            if (files.containsKey(fileName)) {
+                return;
+            }
+        }
+        Path target = directory.resolve(fileName);
+        try {
+            Files.createDirectories(directory);
+            Path temp = Files.createTempFile(directory, fileName + "-", TEMP_SUFFIX);
+            try {
+                Files.write(temp, data);
+                moveIntoPlace(temp, target);
+            } finally {
+                Files.deleteIfExists(temp);
+            }
+        } catch (IOException e) {
+            log.warn("Variante {} konnte nicht auf der Platte abgelegt werden", fileName, e);
+            return;
+        }
+        List<String> evicted;
+        synchronized (this) {
+            Long previous = files.put(fileName, (long) data.length);
+            usedBytes += data.length - (previous != null ? previous : 0);
+            evicted = trimToBudget();
+        }
+        delete(evicted);
+    }
+
+    private static void moveIntoPlace(final Path temp, final Path target) throws IOException {
+        try {
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * Löscht die Varianten gelöschter Originaldateien.
+     *
+     * @param event Das Ereignis der Löschung.
+     */
+    @EventListener
+    public void onFilesDeleted(final FilesDeletedEvent event) {
+        evictSources(event.fileIds());
+    }
+
+    /**
+     * Löscht alle Varianten einer Originaldatei von der Platte.
+     *
+     * @param id Die Id der Originaldatei.
+     */
+    public void evictSource(final String id) {
+        evictSources(List.of(id));
+    }
+
+    /**
+     * Löscht alle Varianten mehrerer Originaldateien mit einem Durchlauf über die Varianten von der Platte.
+     *
+     * @param ids Die Ids der Originaldateien.
+     */
+    public void evictSources(final Collection<String> ids) {
+        Set<String> sources = Set.copyOf(ids);
+        List<String> evicted = new ArrayList<>();
+        synchronized (this) {
+            Iterator<Map.Entry<String, Long>> iterator = files.entrySet().iterator();
+            while (iterator.hasNext()) {
+                Map.Entry<String, Long> entry = iterator.next();
+                if (sources.contains(sourceOf(entry.getKey()))) {
+                    usedBytes -= entry.getValue();
+                    evicted.add(entry.getKey());
+                    iterator.remove();
+                }
+            }
+        }
+        delete(evicted);
+    }
+
+    /**
+     * Löscht beim Herunterfahren die Dateien, deren verzögertes Löschen noch aussteht.
+     */
+    @PreDestroy
+    public void shutdown() {
+        deleter.shutdownNow();
+        List<String> pending;
+        synchronized (this) {
+            pending = List.copyOf(pendingDeletes);
+        }
+        deleteFiles(takePending(pending));
+    }
+
+    /**
+     * @return Summe der Dateigrößen in Bytes.
+     */
+    public synchronized long getUsedBytes() {
+        return usedBytes;
+    }
+
+    /**
+     * @return Anzahl der Varianten auf der Platte.
+     */
+    public synchronized int getFileCount() {
+        return files.size();
+    }
+
+    /**
+     * Liefert die Id der Originaldatei aus dem Namen einer Variante ({@code <id>-<größe>.<format>}).
+     */
+    static String sourceOf(final String fileName) {
+        int separator = fileName.indexOf('-');
+        return separator > 0 ? fileName.substring(0, separator) : fileName;
+    }
+
+    private synchronized void remove(final String fileName) {
+        Long size = files.remove(fileName);
+        if (size != null) {
+            usedBytes -= size;
+        }
+    }
+
+    /**
+     * Entfernt die am längsten nicht gelesenen Einträge, bis das Budget eingehalten ist.
+     * Muss unter der Sperre aufgerufen werden; die Dateien löscht der Aufrufer danach über {@link #delete(List)}.
+     */
+    private List<String> trimToBudget() {
+        List<String> evicted = new ArrayList<>();
+        Iterator<Map.Entry<String, Long>> iterator = files.entrySet().iterator();
+        while (usedBytes > maxBytes && iterator.hasNext()) {
+            Map.Entry<String, Long> eldest = iterator.next();
+            usedBytes -= eldest.getValue();
+            evicted.add(eldest.getKey());
+            iterator.remove();
+        }
+        evictions.increment(evicted.size());
+        return evicted;
+    }
+
+    /**
+     * Löscht die Dateien verdrängter Varianten nach {@link #deleteDelay}. Wurde eine Variante in der Zwischenzeit
+     * erneut abgelegt, bleibt ihre Datei erhalten.
+     */
+    private void delete(final List<String> fileNames) {
+        if (fileNames.isEmpty()) {
+            return;
+        }
+        if (deleteDelay.isZero() || deleteDelay.isNegative()) {
+            deleteFiles(fileNames);
+            return;
+        }
+        synchronized (this) {
+            pendingDeletes.addAll(fileNames);
+        }
+        try {
+            deleter.schedule(() -> deleteFiles(takePending(fileNames)), deleteDelay.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            // Beim Herunterfahren wird sofort gelöscht
+            deleteFiles(takePending(fileNames));
+        }
+    }
+
+    /**
+     * Nimmt Dateien aus den ausstehenden Löschungen und liefert die, die nicht erneut abgelegt wurden.
+     */
+    private synchronized List<String> takePending(final List<String> fileNames) {
+        List<String> taken = new ArrayList<>();
+        for (String fileName : fileNames) {
+            if (pendingDeletes.remove(fileName) && !files.containsKey(fileName)) {
+                taken.add(fileName);
+            }
+        }
+        return taken;
+    }
+
+    private void deleteFiles(final List<String> fileNames) {
+        for (String fileName : fileNames) {
+            try {
+                Files.deleteIfExists(directory.resolve(fileName));
+            } catch (IOException e) {
+                log.warn("Variante {} konnte nicht von der Platte gelöscht werden", fileName, e);
+            }
+        }
+    }
+
+    private String fileName(final String id, final int size, final String format) {
+        if (!enabled || id == null || format == null) {
+            return null;
+        }
+        String fileName = id + "-" + size + "." + format.toLowerCase();
+        return FILE_NAME.matcher(fileName).matches() ? fileName : null;
+    }
+
+    private static String contentType(final String format) {
+        return switch (format.toLowerCase()) {
+            case "webp" -> "image/webp";
+            case "jpg", "jpeg" -> "image/jpeg";
+            default -> "image/png";
+        };
+    }
+}
@@ -0,0 +1,199 @@
+package de.ckollmeier.burgerexpress.backend.service;
+
+import de.ckollmeier.burgerexpress.backend.configuration.ImageProcessingConfig;
+import de.ckollmeier.burgerexpress.backend.dto.RenditionBackfillStatusDTO;
+import de.ckollmeier.burgerexpress.backend.repository.FilesRepository;
+import de.ckollmeier.burgerexpress.backend.types.RenditionBackfillState;
+import com.mongodb.client.gridfs.model.GridFSFile;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Service zum Vorberechnen von Bildvarianten.
+ * Nach einem Upload werden die konfigurierten Standardgrößen und -formate im Hintergrund erzeugt und im GridFS
+ * gespeichert, damit die ersten Abrufe nicht die volle Bildverarbeitung bezahlen. Zusätzlich kann ein Backfill
+ * für alle vorhandenen Bilder gestartet werden.
+ */
+@Slf4j
+@Service
+public class RenditionPipelineService {
+    /** Service für die eigentliche Bildverarbeitung. */
+    private final ImagesService imagesService;
+    /** Repository, aus dem der Backfill alle vorhandenen Bilder liest. */
+    private final FilesRepository filesRepository;
+    /** Begrenzter Pool, auf dem die Varianten berechnet werden. */
+    private final TaskExecutor executor;
+    /** Standardgrößen, die vorberechnet werden. */
+    private final List<Integer> sizes;
+    /** Standardformate, die vorberechnet werden. */
+    private final List<String> formats;
+    /** Maximale Anzahl gleichzeitig verarbeiteter Bilder beim Backfill. */
+    private final int backfillParallelism;
+
+    /** Thread, der den Backfill koordiniert und die Arbeit an den Pool verteilt. */
+    private final ExecutorService backfillCoordinator = Executors.newSingleThreadExecutor(
+            runnable -> new Thread(runnable, "rendition-backfill"));
+
+    private volatile RenditionBackfillState backfillState = RenditionBackfillState.IDLE;
+    private volatile Instant backfillStartedAt;
+    private volatile Instant backfillFinishedAt;
+    private final AtomicInteger backfillTotal = new AtomicInteger();
+    private final AtomicInteger backfillProcessed = new AtomicInteger();
+    private final AtomicInteger backfillFailed = new AtomicInteger();
+    private final AtomicInteger backfillRendered = new AtomicInteger();
+
+    public RenditionPipelineService(
+            final ImagesService imagesService,
+            final FilesRepository filesRepository,
+            final @Qualifier(ImageProcessingConfig.RENDITION_PIPELINE_EXECUTOR) TaskExecutor executor,
+            final @Value("${burgerexpress.images.renditions.sizes:64,256}") List<Integer> sizes,
+            final @Value("${burgerexpress.images.renditions.formats:webp,png}") List<String> formats,
+            final @Value("${burgerexpress.images.renditions.threads:2}") int backfillParallelism
+    ) {
+        this.imagesService = imagesService;
+        this.filesRepository = filesRepository;
+        this.executor = executor;
+        this.sizes = List.copyOf(sizes);
+        this.formats = formats.stream().map(String::toLowerCase).toList();
+        this.backfillParallelism = Math.max(1, backfillParallelism);
+    }
+
+    /**
+     * Plant das Vorberechnen aller Standardvarianten für eine gerade gespeicherte Datei.
+     * Dateien, die keine Bilder sind, werden ignoriert. Ist der Pool ausgelastet, werden die Varianten
+     * nicht vorberechnet, sondern beim ersten Abruf erzeugt.
+     *
+     * @param id          Die ID der gespeicherten Datei.
+     * @param contentType Der Content-Type der gespeicherten Datei.
+     */
+    public void scheduleRenditions(final String id, final String contentType) {
+        if (contentType == null || !contentType.toLowerCase().startsWith("image/")) {
+            return;
+        }
+        try {
+            executor.execute(() -> {
+                try {
+                    renderAllVariants(id);
+                } catch (RuntimeException e) {
+                    log.warn("Varianten für {} konnten nicht vorberechnet werden", id, e);
+                }
+            });
+        } catch (TaskRejectedException e) {
+            log.warn("Varianten für {} werden nicht vorberechnet, die Warteschlange ist voll", id);
+        }
+    }
+
+    /**
+     * Startet den Backfill aller vorhandenen Bilder, falls er nicht bereits läuft.
+     *
+     * @return Der Status des (ggf. bereits laufenden) Backfills.
+     */
+    public synchronized RenditionBackfillStatusDTO startBackfill() {
+        if (backfillState == RenditionBackfillState.RUNNING) {
+            return getBackfillStatus();
+        }
+        backfillState = RenditionBackfillState.RUNNING;
+        backfillStartedAt = Instant.now();
+        backfillFinishedAt = null;
+        backfillTotal.set(0);
+        backfillProcessed.set(0);
+        backfillFailed.set(0);
+        backfillRendered.set(0);
+        backfillCoordinator.execute(this::runBackfill);
+        return getBackfillStatus();
+    }
+
+    /**
+     * Liefert den Fortschritt des aktuellen bzw. letzten Backfills.
+     *
+     * @return Der Status des Backfills.
+     */
+    public RenditionBackfillStatusDTO getBackfillStatus() {
+        return new RenditionBackfillStatusDTO(
+                backfillState,
+                backfillTotal.get(),
+                backfillProcessed.get(),
+                backfillFailed.get(),
+                backfillRendered.get(),
+                backfillStartedAt != null ? backfillStartedAt.toString() : null,
+                backfillFinishedAt != null ? backfillFinishedAt.toString() : null
+        );
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        backfillCoordinator.shutdownNow();
+    }
+
+    private void runBackfill() {
+        try {
+            List<String> ids = new ArrayList<>();
+            for (GridFSFile file : filesRepository.getAllImages()) {
+                ids.add(file.getObjectId().toHexString());
+            }
+            backfillTotal.set(ids.size());
+
+            Semaphore inFlight = new Semaphore(backfillParallelism);
+            for (String id : ids) {
+                inFlight.acquire();
+                try {
+                    executor.execute(() -> {
+                        try {
+                            backfillRendered.addAndGet(renderAllVariants(id));
+                        } catch (RuntimeException e) {
+                            backfillFailed.incrementAndGet();
+                        } finally {
+                            backfillProcessed.incrementAndGet();
+                            inFlight.release();
+                        }
+                    });
+                } catch (TaskRejectedException e) {
+                    inFlight.release();
+                    backfillFailed.incrementAndGet();
+                    backfillProcessed.incrementAndGet();
+                }
+            }
+            inFlight.acquire(backfillParallelism);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (RuntimeException e) {
+            log.error("Backfill der Bildvarianten abgebrochen", e);
+        } finally {
+            backfillFinishedAt = Instant.now();
+            backfillState = RenditionBackfillState.FINISHED;
+            log.info("Backfill der Bildvarianten beendet: {}", getBackfillStatus());
+        }
+    }
+
+    /**
+     * Erzeugt alle Standardvarianten einer Datei, die noch nicht gespeichert sind.
+     *
+     * @param id Die ID der Datei.
+     * @return Die Anzahl der neu erzeugten Varianten.
+     * @throws RuntimeException Wenn das Bild nicht gelesen oder konvertiert werden konnte.
+     */
+    private int renderAllVariants(final String id) {
+        int rendered = 0;
+        for (int size : sizes) {
+            for (String format : formats) {
+                if (imagesService.ensureRendition(id, size, format)) {
+                    rendered++;
+                }
+            }
+        }
+        return rendered;
+    }
+}
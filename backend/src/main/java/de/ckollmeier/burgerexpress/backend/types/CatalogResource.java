@@ -0,0 +1,24 @@
+package de.ckollmeier.burgerexpress.backend.types;
+
+public enum CatalogResource {
+    /**
+     * Alle Gerichte und Menüs ({@code /api/orderable-items}).
+     */
+    ORDERABLE_ITEMS,
+    /**
+     * Alle Gerichte ({@code /api/orderable-items/dishes}).
+     */
+    DISHES,
+    /**
+     * Alle Menüs ({@code /api/orderable-items/menus}).
+     */
+    MENUS,
+    /**
+     * Alle Anzeigeelemente ({@code /api/displayItems}).
+     */
+    DISPLAY_ITEMS,
+    /**
+     * Alle Kategorien ({@code /api/displayCategories}).
+     */
+    DISPLAY_CATEGORIES
+}
@@ -0,0 +1,16 @@
+package de.ckollmeier.burgerexpress.backend.types;
+
+public enum FileGarbageCollectionState {
+    /**
+     * Es wurde noch kein Lauf gestartet.
+     */
+    IDLE,
+    /**
+     * Ein Lauf ist gerade aktiv.
+     */
+    RUNNING,
+    /**
+     * Der letzte Lauf ist abgeschlossen.
+     */
+    FINISHED
+}
@@ -0,0 +1,16 @@
+package de.ckollmeier.burgerexpress.backend.types;
+
+public enum RenditionBackfillState {
+    /**
+     * Es wurde noch kein Backfill gestartet.
+     */
+    IDLE,
+    /**
+     * Der Backfill läuft gerade.
+     */
+    RUNNING,
+    /**
+     * Der letzte Backfill ist abgeschlossen.
+     */
+    FINISHED
+}
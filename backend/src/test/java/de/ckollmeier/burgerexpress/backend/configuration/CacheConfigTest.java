@@ -0,0 +1,84 @@
+package de.ckollmeier.burgerexpress.backend.configuration;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import de.ckollmeier.burgerexpress.backend.dto.FilesDTO;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.caffeine.CaffeineCache;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CacheConfigTest {
+
+    private static FilesDTO image(final int bytes) {
+        return new FilesDTO(new byte[bytes], "image/png", "test.png");
+    }
+
+    @Test
+    @DisplayName("Gewichtet Einträge nach der Größe der Bilddaten")
+    void weigh_returnsDataLengthPlusOverhead() {
+        assertThat(CacheConfig.weigh("key", image(1000)))
+                .isEqualTo(1000 + CacheConfig.ENTRY_OVERHEAD_BYTES);
+        assertThat(CacheConfig.weigh("key", "kein Bild"))
+                .isEqualTo(CacheConfig.ENTRY_OVERHEAD_BYTES);
+    }
+
+    @Test
+    @DisplayName("Begrenzt den Bilder-Cache über die Summe der Bytes")
+    void imagesCache_isBoundedByBytes() {
+        Cache<Object, Object> cache = CacheConfig.imagesCache(DataSize.ofKilobytes(10), Duration.ofHours(1));
+
+        for (int i = 0; i < 20; i++) {
+            cache.put("image-" + i, image(1024));
+        }
+        cache.cleanUp();
+
+        assertThat(CacheConfig.weightedSize(cache)).isLessThanOrEqualTo(DataSize.ofKilobytes(10).toBytes());
+        assertThat(cache.estimatedSize()).isLessThan(20);
+        assertThat(cache.stats().evictionCount()).isPositive();
+    }
+
+    @Test
+    @DisplayName("Registriert den Cache \"images\" als Caffeine-Cache im CacheManager")
+    void cacheManager_registersImagesCache() {
+        CacheConfig cacheConfig = new CacheConfig();
+        ReflectionTestUtils.setField(cacheConfig, "imagesCacheMaxSize", DataSize.ofMegabytes(1));
+        ReflectionTestUtils.setField(cacheConfig, "imagesCacheTtl", Duration.ofMinutes(5));
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+        CacheManager cacheManager = cacheConfig.cacheManager(meterRegistry);
+
+        assertThat(cacheManager.getCache(CacheConfig.IMAGES_CACHE)).isInstanceOf(CaffeineCache.class);
+        assertThat(meterRegistry.get("cache.weighted.size").tag("cache", CacheConfig.IMAGES_CACHE).gauge().value())
+                .isZero();
+    }
+
+    @Test
+    @DisplayName("Legt die Bilddaten außerhalb des Heaps ab und registriert deren Metriken")
+    void cacheManager_withOffHeapStore_registersOffHeapImagesCache() {
+        CacheConfig cacheConfig = new CacheConfig();
+        ReflectionTestUtils.setField(cacheConfig, "imagesCacheMaxSize", DataSize.ofMegabytes(1));
+        ReflectionTestUtils.setField(cacheConfig, "imagesCacheTtl", Duration.ofMinutes(5));
+        ReflectionTestUtils.setField(cacheConfig, "imagesCacheStore", CacheConfig.STORE_OFF_HEAP);
+        ReflectionTestUtils.setField(cacheConfig, "offHeapSlabSize", DataSize.ofKilobytes(256));
+        ReflectionTestUtils.setField(cacheConfig, "offHeapBlockSize", DataSize.ofKilobytes(4));
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+        CacheManager cacheManager = cacheConfig.cacheManager(meterRegistry);
+        cacheManager.getCache(CacheConfig.IMAGES_CACHE).put("key", image(1000));
+
+        assertThat(cacheManager.getCache(CacheConfig.IMAGES_CACHE)).isInstanceOf(OffHeapImageCache.class);
+        assertThat(meterRegistry.get("images.offheap.used").gauge().value()).isEqualTo(1000);
+        assertThat(meterRegistry.get("images.offheap.fragmentation").gauge().value()).isPositive();
+        assertThat(meterRegistry.get("cache.weighted.size").tag("cache", CacheConfig.IMAGES_CACHE).gauge().value())
+                .isEqualTo(4096);
+        assertThat(meterRegistry.get("cache.puts").tag("cache", CacheConfig.IMAGES_CACHE).functionCounter())
+                .isNotNull();
+    }
+}
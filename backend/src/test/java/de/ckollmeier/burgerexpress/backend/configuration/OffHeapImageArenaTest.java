@@ -0,0 +1,101 @@
+package de.ckollmeier.burgerexpress.backend.configuration;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class OffHeapImageArenaTest {
+
+    private final OffHeapImageArena arena = new OffHeapImageArena(
+            DataSize.ofKilobytes(64), DataSize.ofKilobytes(32), DataSize.ofKilobytes(8));
+
+    private static byte[] data(final int bytes) {
+        byte[] data = new byte[bytes];
+        new Random(bytes).nextBytes(data);
+        return data;
+    }
+
+    @Test
+    @DisplayName("Speichert Bilddaten über mehrere Blöcke und liest sie unverändert zurück")
+    void allocate_storesDataAcrossBlocks() throws IOException {
+        byte[] data = data(20_000);
+
+        OffHeapImageArena.Allocation allocation = arena.allocate(data);
+
+        assertThat(allocation.length()).isEqualTo(20_000);
+        assertThat(allocation.allocatedBytes()).isEqualTo(3 * 8192);
+        assertThat(allocation.toByteArray()).isEqualTo(data);
+        try (InputStream inputStream = allocation.openStream()) {
+            assertThat(inputStream.readAllBytes()).isEqualTo(data);
+        }
+    }
+
+    @Test
+    @DisplayName("Reserviert Slabs erst bei Bedarf und misst Belegung und Verschnitt")
+    void allocate_reservesSlabsLazilyAndReportsUsage() {
+        assertThat(arena.getReservedBytes()).isZero();
+        assertThat(arena.getFragmentation()).isZero();
+
+        arena.allocate(data(6144));
+
+        assertThat(arena.getReservedBytes()).isEqualTo(DataSize.ofKilobytes(32).toBytes());
+        assertThat(arena.getUsedBytes()).isEqualTo(6144);
+        assertThat(arena.getAllocatedBytes()).isEqualTo(8192);
+        assertThat(arena.getFragmentation()).isEqualTo(0.25);
+    }
+
+    @Test
+    @DisplayName("Liefert null, wenn der Speicher voll ist")
+    void allocate_returnsNullWhenFull() {
+        assertThat(arena.allocate(data(60_000))).isNotNull();
+
+        assertThat(arena.allocate(data(8193))).isNull();
+        assertThat(arena.getReservedBytes()).isEqualTo(DataSize.ofKilobytes(64).toBytes());
+    }
+
+    @Test
+    @DisplayName("Gibt die Blöcke erst mit der letzten Referenz frei")
+    void release_freesBlocksWithLastReference() {
+        OffHeapImageArena.Allocation allocation = arena.allocate(data(10_000));
+        assertThat(allocation.retain()).isTrue();
+
+        allocation.release();
+        assertThat(arena.getUsedBytes()).isEqualTo(10_000);
+
+        allocation.release();
+        assertThat(arena.getUsedBytes()).isZero();
+        assertThat(arena.getAllocatedBytes()).isZero();
+        assertThat(allocation.retain()).isFalse();
+        assertThat(arena.allocate(data(65_536))).isNotNull();
+    }
+
+    @Test
+    @DisplayName("Gibt die Referenz beim Schließen des Streams zurück")
+    void openStream_releasesReferenceOnClose() throws IOException {
+        OffHeapImageArena.Allocation allocation = arena.allocate(data(100));
+        InputStream inputStream = allocation.openStream();
+
+        inputStream.close();
+        inputStream.close();
+
+        assertThat(arena.getUsedBytes()).isZero();
+        assertThrows(IOException.class, inputStream::read);
+    }
+
+    @Test
+    @DisplayName("Lehnt Blöcke ab, die größer als ein Slab sind")
+    void constructor_rejectsBlockLargerThanSlab() {
+        DataSize capacity = DataSize.ofMegabytes(1);
+        DataSize slabSize = DataSize.ofKilobytes(4);
+        DataSize blockSize = DataSize.ofKilobytes(8);
+
+        assertThrows(IllegalArgumentException.class, () -> new OffHeapImageArena(capacity, slabSize, blockSize));
+    }
+}
@@ -0,0 +1,135 @@
+package de.ckollmeier.burgerexpress.backend.configuration;
+
+import de.ckollmeier.burgerexpress.backend.dto.FilesDTO;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.Resource;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Duration;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class OffHeapImageCacheTest {
+
+    private final OffHeapImageArena arena = new OffHeapImageArena(
+            DataSize.ofKilobytes(64), DataSize.ofKilobytes(16), DataSize.ofKilobytes(4));
+    private final OffHeapImageCache cache = new OffHeapImageCache(
+            CacheConfig.IMAGES_CACHE, arena, DataSize.ofKilobytes(32), Duration.ofHours(1));
+
+    private static FilesDTO image(final int bytes) {
+        byte[] data = new byte[bytes];
+        new Random(bytes).nextBytes(data);
+        return new FilesDTO(data, "image/webp", "test.webp");
+    }
+
+    @Test
+    @DisplayName("Liefert gecachte Einträge als Kopie im Heap")
+    void get_returnsHeapCopy() {
+        FilesDTO image = image(10_000);
+
+        cache.put("key", image);
+
+        FilesDTO cached = cache.get("key", FilesDTO.class);
+        assertThat(cached).isEqualTo(image).isNotSameAs(image);
+        assertThat(cached.getData()).isEqualTo(image.getData());
+        assertThat(arena.getUsedBytes()).isEqualTo(10_000);
+    }
+
+    @Test
+    @DisplayName("Streamt über acquire gelieferte Einträge direkt aus den Blöcken")
+    void acquire_streamsFromOffHeapBlocks() throws IOException {
+        FilesDTO image = image(10_000);
+        cache.put("key", image);
+
+        FilesDTO acquired = cache.acquire("key");
+        Resource resource = acquired.asResource();
+
+        assertThat(acquired.getContentType()).isEqualTo("image/webp");
+        assertThat(resource.contentLength()).isEqualTo(10_000);
+        try (InputStream inputStream = resource.getInputStream()) {
+            assertThat(inputStream.readAllBytes()).isEqualTo(image.getData());
+        }
+        assertThat(cache.acquire("unknown")).isNull();
+    }
+
+    @Test
+    @DisplayName("Hält die Blöcke eines verdrängten Eintrags, bis der Stream geschlossen ist")
+    void acquire_keepsBlocksUntilStreamIsClosed() throws IOException {
+        FilesDTO image = image(10_000);
+        cache.put("key", image);
+        Resource resource = cache.acquire("key").asResource();
+        InputStream inputStream = resource.getInputStream();
+
+        cache.evict("key");
+
+        assertThat(arena.getUsedBytes()).isEqualTo(10_000);
+        assertThat(inputStream.readAllBytes()).isEqualTo(image.getData());
+        inputStream.close();
+        assertThat(arena.getUsedBytes()).isZero();
+        assertThrows(IOException.class, resource::getInputStream);
+    }
+
+    @Test
+    @DisplayName("Lädt fehlende Einträge über den Loader und legt sie ab")
+    void get_withLoader_storesLoadedValue() {
+        FilesDTO image = image(1000);
+
+        assertThat(cache.get("key", () -> image)).isSameAs(image);
+        assertThat(cache.get("key", () -> image(2000))).isEqualTo(image);
+    }
+
+    @Test
+    @DisplayName("Gibt verdrängte Blöcke frei und bleibt innerhalb der maximalen Größe")
+    void put_evictsAndReleasesBlocks() {
+        for (int i = 0; i < 40; i++) {
+            cache.put("image-" + i, image(4000 + i));
+        }
+        cache.getNativeCache().cleanUp();
+
+        assertThat(arena.getAllocatedBytes()).isLessThanOrEqualTo(DataSize.ofKilobytes(32).toBytes());
+        assertThat(cache.getNativeCache().estimatedSize()).isLessThan(40);
+        assertThat(cache.getNativeCache().stats().evictionCount()).isPositive();
+    }
+
+    @Test
+    @DisplayName("Entfernt die kältesten Einträge, wenn der Speicherbereich vor der Gewichtsgrenze voll ist")
+    void put_evictsColdestEntriesWhenArenaIsFull() {
+        OffHeapImageCache largeCache = new OffHeapImageCache(
+                CacheConfig.IMAGES_CACHE, arena, DataSize.ofMegabytes(1), Duration.ofHours(1));
+
+        for (int i = 0; i < 20; i++) {
+            largeCache.put("image-" + i, image(4000 + i));
+        }
+
+        assertThat(largeCache.get("image-19")).isNotNull();
+        assertThat(largeCache.getNativeCache().estimatedSize()).isLessThanOrEqualTo(16);
+        assertThat(arena.getAllocatedBytes()).isLessThanOrEqualTo(DataSize.ofKilobytes(64).toBytes());
+    }
+
+    @Test
+    @DisplayName("Gibt beim Leeren alle Blöcke frei")
+    void clear_releasesAllBlocks() {
+        cache.put("a", image(5000));
+        cache.put("b", image(6000));
+
+        cache.clear();
+
+        assertThat(cache.get("a")).isNull();
+        assertThat(arena.getUsedBytes()).isZero();
+        assertThat(arena.getAllocatedBytes()).isZero();
+    }
+
+    @Test
+    @DisplayName("Ignoriert Werte, die keine Bilddaten sind")
+    void put_ignoresNonImageValues() {
+        cache.put("key", "kein Bild");
+
+        assertThat(cache.get("key")).isNull();
+        assertThat(arena.getUsedBytes()).isZero();
+    }
+}
@@ -8,12 +8,14 @@ import de.ckollmeier.burgerexpress.backend.controller.OrderableItemController;
 import de.ckollmeier.burgerexpress.backend.model.Dish;
 import de.ckollmeier.burgerexpress.backend.model.DisplayCategory;
 import de.ckollmeier.burgerexpress.backend.model.Menu;
+import de.ckollmeier.burgerexpress.backend.service.CatalogSnapshotService;
 import de.ckollmeier.burgerexpress.backend.service.DishService;
 import de.ckollmeier.burgerexpress.backend.service.DisplayCategoryService;
 import de.ckollmeier.burgerexpress.backend.service.FilesService;
 import de.ckollmeier.burgerexpress.backend.service.ImagesService;
+import de.ckollmeier.burgerexpress.backend.service.FilesGarbageCollectorService;
+import de.ckollmeier.burgerexpress.backend.service.RenditionPipelineService;
 import de.ckollmeier.burgerexpress.backend.service.MenuService;
-import de.ckollmeier.burgerexpress.backend.service.OrderableItemService;
 import de.ckollmeier.burgerexpress.backend.service.SortableService;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
@@ -75,9 +77,15 @@ class SecurityConfigTest {
     @MockitoBean
     private ImagesService imagesService;
 
-    // Mock services for OrderableItemController
     @MockitoBean
-    private OrderableItemService orderableItemService;
+    private RenditionPipelineService renditionPipelineService;
+
+    @MockitoBean
+    private FilesGarbageCollectorService filesGarbageCollectorService;
+
+    // Mock services for OrderableItemController and the public reads of DisplayCategoryController
+    @MockitoBean
+    private CatalogSnapshotService catalogSnapshotService;
 
     // Mock UserDetailsService for SecurityConfig
     @MockitoBean
@@ -0,0 +1,134 @@
+package de.ckollmeier.burgerexpress.backend.controller;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import de.ckollmeier.burgerexpress.backend.model.Dish;
+import de.ckollmeier.burgerexpress.backend.model.DisplayItem;
+import de.ckollmeier.burgerexpress.backend.repository.DishRepository;
+import de.ckollmeier.burgerexpress.backend.repository.DisplayItemRepository;
+import de.ckollmeier.burgerexpress.backend.repository.FilesRepository;
+import de.ckollmeier.burgerexpress.backend.types.DishType;
+import org.bson.types.ObjectId;
+import org.hamcrest.Matchers;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@DisplayName("CatalogController")
+class CatalogControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private DishRepository dishRepository;
+
+    @Autowired
+    private DisplayItemRepository displayItemRepository;
+
+    @Autowired
+    private FilesRepository filesRepository;
+
+    private Dish dish;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        displayItemRepository.deleteAll();
+        dishRepository.deleteAll();
+        filesRepository.deleteAllFiles();
+
+        byte[] image = new ClassPathResource("cheeseburger.png").getContentAsByteArray();
+        String imageId = filesRepository.saveFile(new MockMultipartFile("file", "burger.png", "image/png", image));
+        dish = dishRepository.save(Dish.builder()
+                .name("Cheeseburger")
+                .price(BigDecimal.TEN)
+                .type(DishType.MAIN)
+                .imageUrl("/api/files/" + imageId)
+                .build());
+        displayItemRepository.save(DisplayItem.builder()
+                .name("Cheeseburger")
+                .categoryId(new ObjectId())
+                .orderableItems(List.of(dish))
+                .published(true)
+                .build());
+    }
+
+    @Test
+    @DisplayName("GET /api/catalog/atlas liefert Koordinaten und versionierte Bild-URL")
+    void getAtlas_returnsTilesAndImage() throws Exception {
+        String json = mockMvc.perform(get("/api/catalog/atlas").param("format", "png"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Cache-Control", "no-cache"))
+                .andExpect(jsonPath("$.format").value("png"))
+                .andExpect(jsonPath("$.tiles['" + dish.getId() + "'].x").value(0))
+                .andExpect(jsonPath("$.tiles['" + dish.getId() + "'].width").value(128))
+                .andReturn().getResponse().getContentAsString();
+        JsonNode atlas = objectMapper.readTree(json);
+
+        mockMvc.perform(get(atlas.get("imageUrl").asText()))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("image/png"))
+                .andExpect(header().string("Cache-Control", Matchers.containsString("immutable")));
+    }
+
+    @Test
+    @DisplayName("GET /api/catalog/atlas baut den Atlas nach Änderungen mit neuer Version")
+    void getAtlas_changesVersionAfterCatalogWrite() throws Exception {
+        JsonNode before = objectMapper.readTree(mockMvc.perform(get("/api/catalog/atlas"))
+                .andReturn().getResponse().getContentAsString());
+
+        dishRepository.save(dish.withName("Doppelter Cheeseburger"));
+
+        JsonNode after = objectMapper.readTree(mockMvc.perform(get("/api/catalog/atlas"))
+                .andReturn().getResponse().getContentAsString());
+        assertThat(after.get("version").asLong()).isGreaterThan(before.get("version").asLong());
+
+        mockMvc.perform(get(before.get("imageUrl").asText()))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    @DisplayName("GET /api/catalog/atlas mit unbekanntem Format liefert 400")
+    void getAtlas_withUnsupportedFormat_returns400() throws Exception {
+        mockMvc.perform(get("/api/catalog/atlas").param("format", "gif"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    @DisplayName("GET /api/catalog/changes liefert nur die seit der Version geänderten Elemente")
+    void getChanges_returnsChangedItemsSinceVersion() throws Exception {
+        JsonNode before = objectMapper.readTree(mockMvc.perform(get("/api/catalog/changes"))
+                .andReturn().getResponse().getContentAsString());
+        long version = before.get("version").asLong();
+
+        dishRepository.save(dish.withName("Doppelter Cheeseburger"));
+
+        mockMvc.perform(get("/api/catalog/changes").param("since", String.valueOf(version)))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Cache-Control", "no-cache"))
+                .andExpect(jsonPath("$.version").value(version + 1))
+                .andExpect(jsonPath("$.fullResync").value(false))
+                .andExpect(jsonPath("$.orderableItems[0].id").value(dish.getId()))
+                .andExpect(jsonPath("$.orderableItems[0].name").value("Doppelter Cheeseburger"))
+                .andExpect(jsonPath("$.displayItems.length()").value(1))
+                .andExpect(jsonPath("$.deletedOrderableItems").isEmpty());
+    }
+}
@@ -1,7 +1,9 @@
 package de.ckollmeier.burgerexpress.backend.controller;
 
+import de.ckollmeier.burgerexpress.backend.configuration.CacheConfig;
 import de.ckollmeier.burgerexpress.backend.dto.FileInfoDTO;
 import de.ckollmeier.burgerexpress.backend.repository.FilesRepository;
+import de.ckollmeier.burgerexpress.backend.repository.MongoRoundTripCounter;
 import de.ckollmeier.burgerexpress.backend.service.FilesService;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.bson.types.ObjectId;
@@ -13,14 +15,26 @@ import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.annotation.Import;
 import org.springframework.core.io.ClassPathResource;
 import org.springframework.http.MediaType;
 import org.springframework.mock.web.MockMultipartFile;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.RequestBuilder;
+import org.springframework.test.web.servlet.ResultActions;
 
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
 import java.io.File;
+import java.io.IOException;
 import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
 
 import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
@@ -29,6 +43,7 @@ import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.
 @SpringBootTest
 @WithMockUser(roles = {"MANAGER"})
 @AutoConfigureMockMvc
+@Import(MongoRoundTripCounter.Configuration.class)
 class FilesControllerTest {
 
     @Autowired
@@ -43,12 +58,34 @@ class FilesControllerTest {
     @Autowired
     private FilesRepository filesRepository;
 
+    @Autowired
+    private CacheManager cacheManager;
+
+    @Autowired
+    private MongoRoundTripCounter roundTripCounter;
+
     protected String fakeFileId;
     protected String realFileId;
 
     protected final byte[] fakeData = new byte[]{42, 43};
     protected byte[] realData;
 
+    /**
+     * Führt eine Anfrage an einen asynchronen bzw. streamenden Endpunkt aus und liefert das Ergebnis nach dem
+     * Async-Dispatch.
+     */
+    private ResultActions performAsync(final RequestBuilder requestBuilder) throws Exception {
+        MvcResult result = mockMvc.perform(requestBuilder)
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        return mockMvc.perform(asyncDispatch(result));
+    }
+
+    private static int longestEdge(final byte[] image) throws IOException {
+        BufferedImage decoded = ImageIO.read(new ByteArrayInputStream(image));
+        return Math.max(decoded.getWidth(), decoded.getHeight());
+    }
+
     @BeforeEach
     void setUp() throws Exception{
         filesRepository.deleteAllFiles(); // Sicherstellen, dass das Repository leer ist
@@ -71,7 +108,7 @@ class FilesControllerTest {
         @Test
         void upload_valid_file_returns_url() throws Exception {
             MockMultipartFile file = new MockMultipartFile(
-                    "file", "test.png", "image/png", new byte[]{42, 43});
+                    "file", "test.png", "image/png", new byte[]{42, 44});
 
             String result = mockMvc.perform(multipart("/api/files/upload")
                             .file(file))
@@ -99,7 +136,19 @@ class FilesControllerTest {
                 .isNotNull()
                 .hasFieldOrPropertyWithValue("fileName", "test.png")
                 .hasFieldOrPropertyWithValue("contentType", "image/png")
-                .hasFieldOrPropertyWithValue("data", new byte[]{42, 43});
+                .hasFieldOrPropertyWithValue("data", new byte[]{42, 44});
+        }
+
+        @Test
+        void upload_existing_content_returns_existing_file_id() throws Exception {
+            MockMultipartFile file = new MockMultipartFile(
+                    "file", "cheeseburger-copy.png", "image/png", realData);
+
+            mockMvc.perform(multipart("/api/files/upload")
+                            .file(file))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.id").value(realFileId))
+                    .andExpect(jsonPath("$.uri").value(Matchers.endsWith("/api/files/" + realFileId)));
         }
 
         @Test
@@ -119,7 +168,7 @@ class FilesControllerTest {
     class GetFileTest {
         @Test
         void get_file_by_id_returns_data_and_content_type() throws Exception {
-            mockMvc.perform(get("/api/files/" + fakeFileId))
+            performAsync(get("/api/files/" + fakeFileId))
                     .andExpect(status().isOk())
                     .andExpect(content().bytes(fakeData))
                     .andExpect(content().contentType("image/png"))
@@ -134,11 +183,88 @@ class FilesControllerTest {
 
         @Test
         void get_file_by_id_with_size_calls_cropping() throws Exception {
-            mockMvc.perform(get("/api/files/" + realFileId)
+            performAsync(get("/api/files/" + realFileId)
                             .param("size", "200"))
                     .andExpect(status().isOk())
                     .andExpect(content().contentType("image/png"))
-                    .andExpect(header().longValue("Content-Length", 53576)); // Content Length als Indikator, dass die Datei gecropped wurde
+                    .andExpect(result -> assertThat(longestEdge(result.getResponse().getContentAsByteArray()))
+                            .isEqualTo(256)); // 200 wird auf die Stufe 256 eingerastet
+        }
+    }
+
+    @Nested
+    @DisplayName("GET /api/files/{id} mit Range")
+    class GetFileRangeTest {
+        private byte[] largeData;
+        private String largeFileId;
+
+        @BeforeEach
+        void setUpLargeFile() throws Exception {
+            // größer als ein GridFS-Chunk (255 KiB), damit Bereiche über Chunk-Grenzen gehen
+            largeData = new byte[600 * 1024];
+            new Random(42).nextBytes(largeData);
+            largeFileId = filesRepository.saveFile(new MockMultipartFile(
+                    "file", "large.bin", "application/octet-stream", largeData));
+        }
+
+        @Test
+        void get_file_streams_all_chunks() throws Exception {
+            performAsync(get("/api/files/" + largeFileId))
+                    .andExpect(status().isOk())
+                    .andExpect(header().string("Accept-Ranges", "bytes"))
+                    .andExpect(header().exists("Last-Modified"))
+                    .andExpect(header().longValue("Content-Length", largeData.length))
+                    .andExpect(content().bytes(largeData));
+        }
+
+        @Test
+        void get_file_with_range_returns_partial_content_across_chunks() throws Exception {
+            int start = 261_000;
+            int end = 530_000;
+            performAsync(get("/api/files/" + largeFileId)
+                            .header("Range", "bytes=" + start + "-" + end))
+                    .andExpect(status().isPartialContent())
+                    .andExpect(header().string("Content-Range", "bytes " + start + "-" + end + "/" + largeData.length))
+                    .andExpect(header().longValue("Content-Length", end - start + 1L))
+                    .andExpect(content().bytes(Arrays.copyOfRange(largeData, start, end + 1)));
+        }
+
+        @Test
+        void get_file_with_suffix_range_returns_last_bytes() throws Exception {
+            performAsync(get("/api/files/" + largeFileId)
+                            .header("Range", "bytes=-100"))
+                    .andExpect(status().isPartialContent())
+                    .andExpect(content().bytes(Arrays.copyOfRange(
+                            largeData, largeData.length - 100, largeData.length)));
+        }
+
+        @Test
+        void get_file_with_unsatisfiable_range_returns_416() throws Exception {
+            mockMvc.perform(get("/api/files/" + largeFileId)
+                            .header("Range", "bytes=" + largeData.length + "-"))
+                    .andExpect(status().isRequestedRangeNotSatisfiable())
+                    .andExpect(header().string("Content-Range", "bytes */" + largeData.length));
+        }
+
+        @Test
+        void get_file_with_outdated_if_range_returns_full_file() throws Exception {
+            performAsync(get("/api/files/" + largeFileId)
+                            .header("Range", "bytes=0-9")
+                            .header("If-Range", "Thu, 01 Jan 1970 00:00:00 GMT"))
+                    .andExpect(status().isOk())
+                    .andExpect(content().bytes(largeData));
+        }
+
+        @Test
+        void get_file_with_matching_if_range_returns_partial_content() throws Exception {
+            String lastModified = performAsync(get("/api/files/" + largeFileId))
+                    .andReturn().getResponse().getHeader("Last-Modified");
+
+            performAsync(get("/api/files/" + largeFileId)
+                            .header("Range", "bytes=0-9")
+                            .header("If-Range", lastModified))
+                    .andExpect(status().isPartialContent())
+                    .andExpect(content().bytes(Arrays.copyOfRange(largeData, 0, 10)));
         }
     }
 
@@ -147,7 +273,7 @@ class FilesControllerTest {
     class GetCroppedDynamicTest {
         @Test
         void get_cropped_image_with_explicit_format() throws Exception {
-            mockMvc.perform(get("/api/files/" + realFileId + "/200")
+            performAsync(get("/api/files/" + realFileId + "/200")
                             .param("format", "webp"))
                     .andExpect(status().isOk())
                     .andExpect(header().string("Content-Type", "image/webp"));
@@ -155,19 +281,165 @@ class FilesControllerTest {
 
         @Test
         void get_dynamic_file_by_id_with_size_calls_cropping() throws Exception {
-            mockMvc.perform(get("/api/files/" + realFileId + "/200"))
+            performAsync(get("/api/files/" + realFileId + "/200"))
                     .andExpect(status().isOk())
                     .andExpect(content().contentType("image/png"))
-                    .andExpect(header().longValue("Content-Length", 53576)); // Content Length als Indikator, dass die Datei gecropped wurde
+                    .andExpect(result -> assertThat(longestEdge(result.getResponse().getContentAsByteArray()))
+                            .isEqualTo(256)); // 200 wird auf die Stufe 256 eingerastet
         }
 
         @Test
         void get_dynamic_file_by_id_with_format_changes_format() throws Exception {
-            mockMvc.perform(get("/api/files/" + realFileId + "/200")
+            performAsync(get("/api/files/" + realFileId + "/200")
                             .header("Accept", "image/webp"))
                     .andExpect(status().isOk())
                     .andExpect(content().contentType("image/webp"));
         }
+
+        @Test
+        void get_cropped_image_from_cache_does_not_query_mongodb() throws Exception {
+            performAsync(get("/api/files/" + realFileId + "/200"))
+                    .andExpect(status().isOk());
+
+            roundTripCounter.start();
+            performAsync(get("/api/files/" + realFileId + "/200"))
+                    .andExpect(status().isOk())
+                    .andExpect(header().string("ETag", "\"" + realFileId + "-256-png\""));
+            assertThat(roundTripCounter.stop()).isEqualTo(List.of());
+        }
+
+        @Test
+        void get_cropped_image_with_invalid_id_returns_404() throws Exception {
+            mockMvc.perform(get("/api/files/kein-bild/200"))
+                    .andExpect(status().isNotFound());
+        }
+
+        @Test
+        void get_cropped_image_serves_rendition_from_disk_after_memory_eviction() throws Exception {
+            byte[] rendered = performAsync(get("/api/files/" + realFileId + "/200"))
+                    .andReturn().getResponse().getContentAsByteArray();
+            cacheManager.getCache(CacheConfig.IMAGES_CACHE).clear();
+
+            performAsync(get("/api/files/" + realFileId + "/200"))
+                    .andExpect(status().isOk())
+                    .andExpect(content().contentType("image/png"))
+                    .andExpect(content().bytes(rendered));
+        }
+
+        @Test
+        void get_cropped_image_from_disk_uses_sendfile_when_supported() throws Exception {
+            performAsync(get("/api/files/" + realFileId + "/200"))
+                    .andExpect(status().isOk());
+            cacheManager.getCache(CacheConfig.IMAGES_CACHE).clear();
+
+            performAsync(get("/api/files/" + realFileId + "/200")
+                            .requestAttr(FilesController.SENDFILE_SUPPORT, true))
+                    .andExpect(status().isOk())
+                    .andExpect(request().attribute(FilesController.SENDFILE_FILENAME,
+                            Matchers.endsWith(realFileId + "-256.png")))
+                    .andExpect(request().attribute(FilesController.SENDFILE_START, 0L))
+                    .andExpect(header().exists("Content-Length"))
+                    .andExpect(content().bytes(new byte[0]));
+        }
+    }
+
+    @Nested
+    @DisplayName("Conditional GET auf /api/files/{id}")
+    class ConditionalGetTest {
+        @Test
+        void get_file_sends_validators_and_cache_control() throws Exception {
+            performAsync(get("/api/files/" + fakeFileId))
+                    .andExpect(status().isOk())
+                    .andExpect(header().string("ETag", Matchers.startsWith("\"" + fakeFileId + "-")))
+                    .andExpect(header().exists("Last-Modified"))
+                    .andExpect(header().string("Cache-Control", Matchers.containsString("max-age=2592000")));
+        }
+
+        @Test
+        void get_file_with_matching_if_none_match_returns_304() throws Exception {
+            String etag = performAsync(get("/api/files/" + fakeFileId))
+                    .andReturn().getResponse().getHeader("ETag");
+
+            mockMvc.perform(get("/api/files/" + fakeFileId)
+                            .header("If-None-Match", etag))
+                    .andExpect(status().isNotModified())
+                    .andExpect(header().string("ETag", etag))
+                    .andExpect(content().bytes(new byte[0]));
+        }
+
+        @Test
+        void get_file_with_current_if_modified_since_returns_304() throws Exception {
+            String lastModified = performAsync(get("/api/files/" + fakeFileId))
+                    .andReturn().getResponse().getHeader("Last-Modified");
+
+            mockMvc.perform(get("/api/files/" + fakeFileId)
+                            .header("If-Modified-Since", lastModified))
+                    .andExpect(status().isNotModified());
+        }
+
+        @Test
+        void get_file_with_other_etag_returns_full_file() throws Exception {
+            performAsync(get("/api/files/" + fakeFileId)
+                            .header("If-None-Match", "\"anders\""))
+                    .andExpect(status().isOk())
+                    .andExpect(content().bytes(fakeData));
+        }
+
+        @Test
+        void get_cropped_image_etag_depends_on_size_and_format() throws Exception {
+            String pngEtag = performAsync(get("/api/files/" + realFileId + "/200").param("format", "png"))
+                    .andExpect(status().isOk())
+                    .andExpect(header().doesNotExist("Vary"))
+                    .andReturn().getResponse().getHeader("ETag");
+            String webpEtag = performAsync(get("/api/files/" + realFileId + "/200").param("format", "webp"))
+                    .andReturn().getResponse().getHeader("ETag");
+
+            assertThat(pngEtag).isNotEqualTo(webpEtag);
+        }
+
+        @Test
+        void get_cropped_image_with_matching_etag_returns_304_with_vary() throws Exception {
+            String etag = performAsync(get("/api/files/" + realFileId + "/200")
+                            .header("Accept", "image/webp"))
+                    .andExpect(header().string("Vary", "Accept"))
+                    .andReturn().getResponse().getHeader("ETag");
+
+            performAsync(get("/api/files/" + realFileId + "/200")
+                            .header("Accept", "image/webp")
+                            .header("If-None-Match", etag))
+                    .andExpect(status().isNotModified())
+                    .andExpect(header().string("Vary", "Accept"))
+                    .andExpect(header().string("ETag", etag));
+        }
+
+        @Test
+        void get_cropped_image_of_missing_file_with_wildcard_if_none_match_returns_404() throws Exception {
+            performAsync(get("/api/files/" + new ObjectId().toHexString() + "/200")
+                            .header("If-None-Match", "*"))
+                    .andExpect(status().isNotFound());
+        }
+
+        @Test
+        void get_cropped_image_of_missing_file_with_guessed_etag_returns_404() throws Exception {
+            String id = new ObjectId().toHexString();
+
+            performAsync(get("/api/files/" + id + "/200")
+                            .param("format", "png")
+                            .header("If-None-Match", "\"" + id + "-256-png\""))
+                    .andExpect(status().isNotFound());
+        }
+
+        @Test
+        void get_file_with_matching_if_range_etag_returns_partial_content() throws Exception {
+            String etag = performAsync(get("/api/files/" + realFileId))
+                    .andReturn().getResponse().getHeader("ETag");
+
+            performAsync(get("/api/files/" + realFileId)
+                            .header("Range", "bytes=0-3")
+                            .header("If-Range", etag))
+                    .andExpect(status().isPartialContent())
+                    .andExpect(content().bytes(Arrays.copyOfRange(realData, 0, 4)));
+        }
     }
 
     @Test
@@ -201,4 +473,56 @@ class FilesControllerTest {
                 .andExpect(jsonPath("$[1].contentType").value("image/png"))
                 .andExpect(jsonPath("$[1].fileName").value("fakefile.png"));
     }
-}
\ No newline at end of file
+
+    @Test
+    @DisplayName("GET /api/files blättert per Cursor durch die Dateiliste")
+    void get_all_images_pages_with_cursor() throws Exception {
+        String cursor = mockMvc.perform(get("/api/files").param("limit", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", Matchers.hasSize(1)))
+                .andExpect(jsonPath("$[0].id").value(realFileId))
+                .andExpect(header().exists(FilesController.NEXT_CURSOR_HEADER))
+                .andReturn().getResponse().getHeader(FilesController.NEXT_CURSOR_HEADER);
+
+        mockMvc.perform(get("/api/files").param("limit", "1").param("cursor", cursor))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", Matchers.hasSize(1)))
+                .andExpect(jsonPath("$[0].id").value(fakeFileId))
+                .andExpect(header().doesNotExist(FilesController.NEXT_CURSOR_HEADER));
+    }
+
+    @Test
+    @DisplayName("GET /api/files mit ungültigem Cursor liefert 400")
+    void get_all_images_with_invalid_cursor_returns_400() throws Exception {
+        mockMvc.perform(get("/api/files").param("cursor", "kein-cursor"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    @DisplayName("POST /api/files/renditions/backfill startet den Backfill und liefert den Status")
+    void start_rendition_backfill_returns_accepted_status() throws Exception {
+        mockMvc.perform(post("/api/files/renditions/backfill"))
+                .andExpect(status().isAccepted())
+                .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+                .andExpect(jsonPath("$.state").isNotEmpty())
+                .andExpect(jsonPath("$.startedAt").isNotEmpty());
+
+        mockMvc.perform(get("/api/files/renditions/backfill"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.state").isNotEmpty());
+    }
+
+    @Test
+    @DisplayName("POST /api/files/gc startet das Aufräumen und liefert den Status")
+    void start_garbage_collection_returns_accepted_status() throws Exception {
+        mockMvc.perform(post("/api/files/gc"))
+                .andExpect(status().isAccepted())
+                .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+                .andExpect(jsonPath("$.state").isNotEmpty())
+                .andExpect(jsonPath("$.startedAt").isNotEmpty());
+
+        mockMvc.perform(get("/api/files/gc"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.state").isNotEmpty());
+    }
+}
@@ -12,6 +12,7 @@ import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
 
@@ -19,6 +20,7 @@ import java.math.BigDecimal;
 import java.util.ArrayList;
 import java.util.List;
 
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.hamcrest.Matchers.hasSize;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
@@ -128,4 +130,38 @@ class OrderableItemControllerTest {
                 .andExpect(jsonPath("$[1].name").value("Fries"))
                 .andExpect(jsonPath("$[1].price").value("2.99"));
     }
-}
\ No newline at end of file
+
+    @Test
+    @DisplayName("GET /api/orderable-items should answer 304 for the current ETag and change it after a write")
+    void getAllOrderableItems_shouldSupportConditionalRequests() throws Exception {
+        String etag = mockMvc.perform(get("/api/orderable-items"))
+                .andExpect(status().isOk())
+                .andExpect(header().exists(HttpHeaders.ETAG))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        mockMvc.perform(get("/api/orderable-items").header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.ETAG, etag));
+
+        dishRepository.save(Dish.builder()
+                .name("Salad")
+                .price(new BigDecimal("3.49"))
+                .type(DishType.SIDE)
+                .position(2)
+                .build());
+
+        String changedEtag = mockMvc.perform(get("/api/orderable-items").header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(4)))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        assertThat(changedEtag).isNotEqualTo(etag);
+    }
+
+    @Test
+    @DisplayName("GET /api/orderable-items should return the gzip body when the client accepts it")
+    void getAllOrderableItems_shouldReturnGzipWhenAccepted() throws Exception {
+        mockMvc.perform(get("/api/orderable-items").header(HttpHeaders.ACCEPT_ENCODING, "br, gzip;q=0.8"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.CONTENT_ENCODING, "gzip"));
+    }
+}
@@ -2,12 +2,15 @@ package de.ckollmeier.burgerexpress.backend.controller;
 
 import de.ckollmeier.burgerexpress.backend.configuration.SecurityConfig;
 import de.ckollmeier.burgerexpress.backend.dto.CustomerSessionDTO;
+import de.ckollmeier.burgerexpress.backend.dto.FileInfoPageDTO;
 import de.ckollmeier.burgerexpress.backend.model.DisplayCategory;
+import de.ckollmeier.burgerexpress.backend.service.CatalogSnapshotService;
 import de.ckollmeier.burgerexpress.backend.service.CustomerSessionService;
 import de.ckollmeier.burgerexpress.backend.service.DisplayCategoryService;
 import de.ckollmeier.burgerexpress.backend.service.FilesService;
 import de.ckollmeier.burgerexpress.backend.service.ImagesService;
-import de.ckollmeier.burgerexpress.backend.service.OrderableItemService;
+import de.ckollmeier.burgerexpress.backend.service.FilesGarbageCollectorService;
+import de.ckollmeier.burgerexpress.backend.service.RenditionPipelineService;
 import de.ckollmeier.burgerexpress.backend.service.SortableService;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
@@ -19,9 +22,11 @@ import org.springframework.security.test.context.support.WithAnonymousUser;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
 import org.springframework.test.web.servlet.MockMvc;
 
+import java.util.List;
 import java.util.Optional;
 
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
@@ -47,7 +52,7 @@ class PublicEndpointsTest {
     private SortableService<DisplayCategory> displayCategorySortableService;
 
     @MockitoBean
-    private OrderableItemService orderableItemService;
+    private CatalogSnapshotService catalogSnapshotService;
 
     @MockitoBean
     private FilesService filesService;
@@ -55,6 +60,12 @@ class PublicEndpointsTest {
     @MockitoBean
     private ImagesService imagesService;
 
+    @MockitoBean
+    private RenditionPipelineService renditionPipelineService;
+
+    @MockitoBean
+    private FilesGarbageCollectorService filesGarbageCollectorService;
+
     @MockitoBean
     private UserDetailsService userDetailsService;
 
@@ -65,6 +76,9 @@ class PublicEndpointsTest {
     @DisplayName("Public endpoints should be accessible without authentication")
     @WithAnonymousUser
     void publicEndpointsShouldBeAccessibleWithoutAuthentication() throws Exception {
+        when(catalogSnapshotService.getBody(any())).thenReturn(
+                new CatalogSnapshotService.RenderedBody("\"1\"", "[]".getBytes(), new byte[0]));
+
         // Test access to public endpoints (permitAll)
         mockMvc.perform(get("/api/displayCategories"))
                 .andExpect(status().isOk());
@@ -72,6 +86,7 @@ class PublicEndpointsTest {
         mockMvc.perform(get("/api/orderable-items"))
                 .andExpect(status().isOk());
 
+        when(filesService.getImagesPage(any(), anyInt())).thenReturn(new FileInfoPageDTO(List.of(), null));
         mockMvc.perform(get("/api/files"))
                 .andExpect(status().isOk());
     }
@@ -49,6 +49,7 @@ class OrderItemOutputDTOConverterTest {
                     "10.99",
                     "dish",
                     null,
+                    Map.of(),
                     List.of("Description"),
                     List.of("Short Description")
             );
@@ -104,6 +105,7 @@ class OrderItemOutputDTOConverterTest {
                     "10.99",
                     "dish",
                     null,
+                    Map.of(),
                     List.of("Description 1"),
                     List.of("Short Description 1")
             );
@@ -115,6 +117,7 @@ class OrderItemOutputDTOConverterTest {
                     "15.99",
                     "dish",
                     null,
+                    Map.of(),
                     List.of("Description 2"),
                     List.of("Short Description 2")
             );
@@ -241,6 +244,7 @@ class OrderItemOutputDTOConverterTest {
                     "5.99",
                     "main",
                     Collections.emptyMap(),
+                    Map.of(),
                     Collections.emptyList(),
                     Collections.emptyList()
             );
@@ -252,6 +256,7 @@ class OrderItemOutputDTOConverterTest {
                     "2.99",
                     "side",
                     Collections.emptyMap(),
+                    Map.of(),
                     Collections.emptyList(),
                     Collections.emptyList()
             );
@@ -333,6 +338,7 @@ class OrderItemOutputDTOConverterTest {
                     "1.00",
                     "side",
                     Collections.emptyMap(),
+                    Map.of(),
                     Collections.emptyList(),
                     Collections.emptyList()
             );
@@ -344,6 +350,7 @@ class OrderItemOutputDTOConverterTest {
                     "1.50",
                     "side",
                     Collections.emptyMap(),
+                    Map.of(),
                     Collections.emptyList(),
                     Collections.emptyList()
             );
@@ -425,6 +432,7 @@ class OrderItemOutputDTOConverterTest {
                     "5.99",
                     "main",
                     Collections.emptyMap(),
+                    Map.of(),
                     Collections.emptyList(),
                     Collections.emptyList()
             );
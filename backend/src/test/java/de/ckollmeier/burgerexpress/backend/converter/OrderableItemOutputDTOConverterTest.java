@@ -82,6 +82,23 @@ class OrderableItemOutputDTOConverterTest {
         assertThat(dto.descriptionForCart()).containsExactly("leckeres Getränk", "1,0l");
     }
 
+    @Test
+    @DisplayName("Bettet die Platzhalter der Bilder neben den Bild-URLs ein")
+    void convertOrderableItemWithImagePlaceholders() {
+        TestOrderableItem item = new TestOrderableItem(
+                "oid3", "Cola", null, new BigDecimal("2.50"),
+                OrderableItemType.BEVERAGE,
+                Collections.emptyMap(),
+                Collections.singletonMap("default", Arrays.asList("img1.jpg", "img2.jpg"))
+        );
+
+        OrderableItemOutputDTO dto = OrderableItemOutputDTOConverter.convert(
+                item, Map.of("img1.jpg", "data:image/webp;base64,AAAA", "other.jpg", "data:image/webp;base64,BBBB"));
+
+        assertThat(dto.imagePlaceholders()).containsExactly(Map.entry("img1.jpg", "data:image/webp;base64,AAAA"));
+        assertThat(OrderableItemOutputDTOConverter.convert(item).imagePlaceholders()).isEmpty();
+    }
+
     @Test
     @DisplayName("Konvertiere Liste von OrderableItem zu Liste von OrderableItemOutputDTO")
     void convertListOfOrderableItemsToDTOs() {
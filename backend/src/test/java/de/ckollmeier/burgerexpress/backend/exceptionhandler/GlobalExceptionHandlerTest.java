@@ -1,10 +1,13 @@
 package de.ckollmeier.burgerexpress.backend.exceptionhandler;
 
 import de.ckollmeier.burgerexpress.backend.dto.ErrorDTO;
+import de.ckollmeier.burgerexpress.backend.exceptions.ImageWorkersBusyException;
 import de.ckollmeier.burgerexpress.backend.exceptions.NotFoundException;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -116,4 +119,20 @@ class GlobalExceptionHandlerTest {
         assertEquals("Cause message", errorDTO.causeMessage());
         assertEquals(HttpStatus.INTERNAL_SERVER_ERROR.name(), errorDTO.status());
     }
+
+    @Test
+    @DisplayName("catchImageWorkersBusyException should return 429 with Retry-After header")
+    void should_returnTooManyRequestsWithRetryAfter_when_catchImageWorkersBusyException() {
+        // Given
+        ImageWorkersBusyException exception = new ImageWorkersBusyException("busy", 3, null);
+
+        // When
+        ResponseEntity<ErrorDTO> response = exceptionHandler.catchImageWorkersBusyException(exception);
+
+        // Then
+        assertEquals(HttpStatus.TOO_MANY_REQUESTS, response.getStatusCode());
+        assertEquals("3", response.getHeaders().getFirst(HttpHeaders.RETRY_AFTER));
+        assertNotNull(response.getBody());
+        assertEquals(HttpStatus.TOO_MANY_REQUESTS.name(), response.getBody().status());
+    }
 }
@@ -0,0 +1,68 @@
+package de.ckollmeier.burgerexpress.backend.listener;
+
+import de.ckollmeier.burgerexpress.backend.model.Dish;
+import de.ckollmeier.burgerexpress.backend.model.DisplayItem;
+import de.ckollmeier.burgerexpress.backend.model.Order;
+import de.ckollmeier.burgerexpress.backend.types.DishType;
+import org.bson.Document;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.mongodb.core.mapping.event.AfterDeleteEvent;
+import org.springframework.data.mongodb.core.mapping.event.AfterSaveEvent;
+
+import java.math.BigDecimal;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+@ExtendWith(MockitoExtension.class)
+class CatalogChangeListenerTest {
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @InjectMocks
+    private CatalogChangeListener catalogChangeListener;
+
+    @SuppressWarnings("unchecked")
+    private static AfterDeleteEvent<Object> displayItemDeleted(final Document document) {
+        return new AfterDeleteEvent<>(
+                document, (Class<Object>) (Class<?>) DisplayItem.class, "burger-express-display-items");
+    }
+
+    @Test
+    @DisplayName("Meldet gespeicherte Gerichte als Katalogänderung")
+    void onAfterSave_publishesEventForCatalogTypes() {
+        Dish dish = Dish.builder().id("dish-1").name("Burger").price(BigDecimal.TEN).type(DishType.MAIN).build();
+
+        catalogChangeListener.onAfterSave(new AfterSaveEvent<>(dish, new Document("_id", "dish-1"), "burger-express-dishes"));
+
+        verify(eventPublisher).publishEvent(new CatalogChangedEvent("burger-express-dishes", "dish-1"));
+    }
+
+    @Test
+    @DisplayName("Ignoriert Dokumente außerhalb des Katalogs")
+    void onAfterSave_ignoresOtherTypes() {
+        Order order = Order.builder().id("order-1").build();
+
+        catalogChangeListener.onAfterSave(new AfterSaveEvent<>(order, new Document("_id", "order-1"), "orders"));
+
+        verify(eventPublisher, never()).publishEvent(any(Object.class));
+    }
+
+    @Test
+    @DisplayName("Meldet gelöschte Anzeigeelemente, bei Massenlöschung ohne ID")
+    void onAfterDelete_publishesEventForCatalogTypes() {
+        catalogChangeListener.onAfterDelete(displayItemDeleted(new Document("_id", "item-1")));
+        catalogChangeListener.onAfterDelete(displayItemDeleted(new Document()));
+
+        verify(eventPublisher).publishEvent(new CatalogChangedEvent("burger-express-display-items", "item-1"));
+        verify(eventPublisher).publishEvent(new CatalogChangedEvent("burger-express-display-items", null));
+    }
+}
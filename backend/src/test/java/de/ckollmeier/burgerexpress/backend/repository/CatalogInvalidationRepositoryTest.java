@@ -0,0 +1,91 @@
+package de.ckollmeier.burgerexpress.backend.repository;
+
+import org.bson.BsonDocument;
+import org.bson.BsonString;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.index.IndexInfo;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(properties = "burgerexpress.catalog.invalidation.enabled=false")
+@DisplayName("CatalogInvalidationRepository")
+class CatalogInvalidationRepositoryTest {
+
+    @Autowired
+    private CatalogInvalidationRepository catalogInvalidationRepository;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @BeforeEach
+    void setUp() {
+        mongoTemplate.dropCollection(CatalogInvalidationRepository.COLLECTION);
+    }
+
+    @Test
+    @DisplayName("Das Änderungsprotokoll zählt jede Änderung und behält nur die letzten Einträge")
+    void appendChange_incrementsVersionAndKeepsLatestChanges() {
+        assertThat(catalogInvalidationRepository.findChanges().version()).isZero();
+
+        for (int i = 1; i <= 4; i++) {
+            catalogInvalidationRepository.appendChange(
+                    new CatalogInvalidationRepository.Change("burger-express-dishes", String.valueOf(i), "node-a"), 3);
+        }
+
+        CatalogInvalidationRepository.ChangeFeed feed = catalogInvalidationRepository.findChanges();
+        assertThat(feed.version()).isEqualTo(4);
+        assertThat(feed.changes())
+                .extracting(CatalogInvalidationRepository.Change::documentId)
+                .containsExactly("2", "3", "4");
+    }
+
+    @Test
+    @DisplayName("Resume-Token und verarbeitete Version werden je Instanz gespeichert")
+    void nodeState_isStoredPerNode() {
+        BsonDocument token = new BsonDocument("_data", new BsonString("8265F0A1B2000000012B"));
+
+        catalogInvalidationRepository.saveResumeToken("node-a", token);
+        catalogInvalidationRepository.savePolledVersion("node-b", 7);
+
+        assertThat(catalogInvalidationRepository.findResumeToken("node-a")).contains(token);
+        assertThat(catalogInvalidationRepository.findResumeToken("node-b")).isEmpty();
+        assertThat(catalogInvalidationRepository.findPolledVersion("node-b")).hasValue(7);
+        assertThat(catalogInvalidationRepository.findPolledVersion("node-a")).isEmpty();
+
+        catalogInvalidationRepository.saveResumeToken("node-a", null);
+        assertThat(catalogInvalidationRepository.findResumeToken("node-a")).isEmpty();
+    }
+
+    @Test
+    @DisplayName("Eine einzelne MongoDB-Instanz unterstützt keine Change Streams")
+    void supportsChangeStreams_isFalseForStandalone() {
+        assertThat(catalogInvalidationRepository.supportsChangeStreams()).isFalse();
+    }
+
+    @Test
+    @DisplayName("Nur die Zustände der Instanzen verfallen, das Änderungsprotokoll nicht")
+    void ensureIndexes_expiresOnlyNodeStates() {
+        mongoTemplate.indexOps(CatalogInvalidationRepository.COLLECTION).ensureIndex(new Index()
+                .on("updatedAt", Sort.Direction.ASC)
+                .expire(Duration.ofDays(30))
+                .named("state_expiry"));
+
+        catalogInvalidationRepository.ensureIndexes();
+
+        List<IndexInfo> indexes = mongoTemplate.indexOps(CatalogInvalidationRepository.COLLECTION).getIndexInfo();
+        assertThat(indexes).extracting(IndexInfo::getName).doesNotContain("state_expiry");
+        assertThat(indexes).filteredOn(index -> index.getName().equals("node_state_expiry"))
+                .singleElement()
+                .satisfies(index -> assertThat(index.getPartialFilterExpression()).contains("node"));
+    }
+}
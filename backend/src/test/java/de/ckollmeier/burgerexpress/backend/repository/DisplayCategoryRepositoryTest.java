@@ -1,34 +1,87 @@
 package de.ckollmeier.burgerexpress.backend.repository;
 
+import de.ckollmeier.burgerexpress.backend.interfaces.OrderableItem;
 import de.ckollmeier.burgerexpress.backend.model.DisplayCategory;
+import de.ckollmeier.burgerexpress.backend.model.DisplayItem;
+import de.ckollmeier.burgerexpress.backend.model.Dish;
+import de.ckollmeier.burgerexpress.backend.model.Menu;
+import de.ckollmeier.burgerexpress.backend.types.DishType;
+import org.bson.types.ObjectId;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
 
+import java.math.BigDecimal;
 import java.time.Instant;
 import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
 import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.*;
 
 @SpringBootTest
+@Import(MongoRoundTripCounter.Configuration.class)
 @DisplayName("DisplayCategoryRepository")
 class DisplayCategoryRepositoryTest {
 
     @Autowired
     private DisplayCategoryRepository displayCategoryRepository;
 
+    @Autowired
+    private DisplayItemRepository displayItemRepository;
+
+    @Autowired
+    private MenuRepository menuRepository;
+
+    @Autowired
+    private DishRepository dishRepository;
+
+    @Autowired
+    private MongoRoundTripCounter roundTripCounter;
+
     @BeforeEach
     void setUp() {
-        displayCategoryRepository.deleteAll();
+        deleteCatalog();
     }
 
     @AfterEach
     void tearDown() {
+        deleteCatalog();
+    }
+
+    private void deleteCatalog() {
         displayCategoryRepository.deleteAll();
+        displayItemRepository.deleteAll();
+        menuRepository.deleteAll();
+        dishRepository.deleteAll();
+    }
+
+    private Dish saveDish(final String name) {
+        return dishRepository.save(Dish.builder()
+                .name(name)
+                .price(new BigDecimal("2.99"))
+                .type(DishType.MAIN)
+                .build());
+    }
+
+    private DisplayItem saveDisplayItem(
+            final DisplayCategory category,
+            final String name,
+            final int position,
+            final Instant createdAt,
+            final List<OrderableItem> orderableItems
+    ) {
+        return displayItemRepository.save(DisplayItem.builder()
+                .categoryId(new ObjectId(category.getId()))
+                .name(name)
+                .orderableItems(new ArrayList<>(orderableItems))
+                .position(position)
+                .createdAt(createdAt)
+                .build());
     }
 
     @Test
@@ -146,4 +199,75 @@ class DisplayCategoryRepositoryTest {
         // Then
         assertFalse(displayCategoryRepository.findById(savedCategory.getId()).isPresent());
     }
-}
\ No newline at end of file
+
+    @Test
+    @DisplayName("findCategoryTree should load categories, display items and their orderable items with a single aggregation")
+    void should_loadWholeTreeWithOneRoundTrip_when_findCategoryTree() {
+        // Given
+        Instant now = Instant.now();
+        Dish burger = saveDish("Burger");
+        Dish fries = saveDish("Fries");
+        Dish deletedDish = saveDish("Deleted");
+        Menu menu = menuRepository.save(Menu.builder()
+                .name("Burger Menu")
+                .price(new BigDecimal("7.99"))
+                .dishes(new ArrayList<>(List.of(fries, burger)))
+                .build());
+        DisplayCategory drinks = displayCategoryRepository.save(DisplayCategory.builder()
+                .name("Drinks")
+                .position(2)
+                .build());
+        DisplayCategory burgers = displayCategoryRepository.save(DisplayCategory.builder()
+                .name("Burgers")
+                .position(1)
+                .published(true)
+                .build());
+        saveDisplayItem(burgers, "Older", 0, now.minus(1, ChronoUnit.HOURS), List.of(burger));
+        saveDisplayItem(burgers, "Last", 1, now, List.of(deletedDish, menu, burger));
+        saveDisplayItem(burgers, "Newer", 0, now, List.of(menu));
+        dishRepository.delete(deletedDish);
+
+        // When
+        roundTripCounter.start();
+        List<DisplayCategory> result = displayCategoryRepository.findCategoryTree();
+        List<String> commands = roundTripCounter.stop();
+
+        // Then
+        assertEquals(List.of("aggregate burger-express-categories"), commands);
+        assertEquals(List.of("Burgers", "Drinks"), result.stream().map(DisplayCategory::getName).toList());
+        DisplayCategory first = result.get(0);
+        assertEquals(burgers.getId(), first.getId());
+        assertTrue(first.isPublished());
+        assertEquals(List.of("Newer", "Older", "Last"),
+                first.getDisplayItems().stream().map(DisplayItem::getName).toList());
+        assertTrue(result.get(1).getDisplayItems().isEmpty());
+
+        List<OrderableItem> orderableItems = first.getDisplayItems().get(2).getOrderableItems();
+        assertEquals(2, orderableItems.size());
+        Menu resolvedMenu = assertInstanceOf(Menu.class, orderableItems.get(0));
+        assertEquals(List.of("Fries", "Burger"), resolvedMenu.getDishes().stream().map(Dish::getName).toList());
+        assertEquals("Burger", assertInstanceOf(Dish.class, orderableItems.get(1)).getName());
+    }
+
+    @Test
+    @DisplayName("findCategoryTree should return the same display items as the document reference of a category")
+    void should_matchDocumentReference_when_findCategoryTree() {
+        // Given
+        Instant now = Instant.now();
+        Dish burger = saveDish("Burger");
+        DisplayCategory category = displayCategoryRepository.save(DisplayCategory.builder()
+                .name("Burgers")
+                .position(1)
+                .build());
+        saveDisplayItem(category, "Second", 2, now, List.of(burger));
+        saveDisplayItem(category, "First", 1, now, List.of(burger));
+
+        // When
+        DisplayCategory tree = displayCategoryRepository.findCategoryTree().get(0);
+        DisplayCategory referenced = displayCategoryRepository.findById(category.getId()).orElseThrow();
+
+        // Then
+        assertEquals(referenced.getDisplayItems(), tree.getDisplayItems());
+        assertEquals(referenced.getCreatedAt(), tree.getCreatedAt());
+    }
+}
@@ -0,0 +1,124 @@
+package de.ckollmeier.burgerexpress.backend.repository;
+
+import de.ckollmeier.burgerexpress.backend.interfaces.OrderableItem;
+import de.ckollmeier.burgerexpress.backend.model.Dish;
+import de.ckollmeier.burgerexpress.backend.model.DisplayItem;
+import de.ckollmeier.burgerexpress.backend.model.Menu;
+import de.ckollmeier.burgerexpress.backend.types.DishType;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@Import(MongoRoundTripCounter.Configuration.class)
+@DisplayName("DisplayItemRepository")
+class DisplayItemRepositoryTest {
+
+    @Autowired
+    private DisplayItemRepository displayItemRepository;
+
+    @Autowired
+    private MenuRepository menuRepository;
+
+    @Autowired
+    private DishRepository dishRepository;
+
+    @Autowired
+    private MongoRoundTripCounter roundTripCounter;
+
+    private Dish burger;
+    private Menu menu;
+
+    @BeforeEach
+    void setUp() {
+        displayItemRepository.deleteAll();
+        menuRepository.deleteAll();
+        dishRepository.deleteAll();
+        burger = dishRepository.save(Dish.builder()
+                .name("Burger")
+                .price(new BigDecimal("5.99"))
+                .type(DishType.MAIN)
+                .build());
+        Dish fries = dishRepository.save(Dish.builder()
+                .name("Fries")
+                .price(new BigDecimal("2.99"))
+                .type(DishType.SIDE)
+                .build());
+        menu = menuRepository.save(Menu.builder()
+                .name("Burger Menu")
+                .price(new BigDecimal("7.99"))
+                .dishes(new ArrayList<>(List.of(burger, fries)))
+                .build());
+    }
+
+    @AfterEach
+    void tearDown() {
+        displayItemRepository.deleteAll();
+        menuRepository.deleteAll();
+        dishRepository.deleteAll();
+    }
+
+    private void saveDisplayItems(final int count) {
+        for (int i = 0; i < count; i++) {
+            displayItemRepository.save(DisplayItem.builder()
+                    .categoryId(new ObjectId())
+                    .name("Item " + i)
+                    .orderableItems(new ArrayList<>(List.<OrderableItem>of(burger, menu)))
+                    .position(i)
+                    .build());
+        }
+    }
+
+    @Test
+    @DisplayName("Löst Gerichte und Menüs samt deren Gerichten Ebene für Ebene mit je einer Abfrage pro Collection auf")
+    void findAllByOrderByPositionAscCreatedAtDesc_resolvesPolymorphicReferencesInBatches() {
+        saveDisplayItems(12);
+
+        roundTripCounter.start();
+        List<DisplayItem> displayItems = displayItemRepository.findAllByOrderByPositionAscCreatedAtDesc();
+        List<String> commands = roundTripCounter.stop();
+
+        assertThat(displayItems).hasSize(12);
+        DisplayItem first = displayItems.get(0);
+        assertThat(first.getName()).isEqualTo("Item 0");
+        assertThat(first.getOrderableItems()).hasSize(2);
+        assertThat(first.getOrderableItems().get(0)).isInstanceOf(Dish.class);
+        assertThat(first.getOrderableItems().get(1)).isInstanceOfSatisfying(Menu.class,
+                resolvedMenu -> assertThat(resolvedMenu.getDishes()).extracting(Dish::getName)
+                        .containsExactly("Burger", "Fries"));
+        // Anzeigeelemente, dann Gerichte und Menüs, dann die noch fehlenden Gerichte der Menüs
+        assertThat(commands).containsExactly(
+                "find burger-express-display-items",
+                "find burger-express-dishes",
+                "find burger-express-menus",
+                "find burger-express-dishes");
+    }
+
+    @Test
+    @DisplayName("findAll braucht unabhängig von der Anzahl der Anzeigeelemente gleich viele Abfragen")
+    void findAll_hasConstantRoundTrips() {
+        saveDisplayItems(2);
+        roundTripCounter.start();
+        displayItemRepository.findAll();
+        int fewItems = roundTripCounter.stop().size();
+
+        saveDisplayItems(25);
+        roundTripCounter.start();
+        List<DisplayItem> displayItems = displayItemRepository.findAll();
+        int manyItems = roundTripCounter.stop().size();
+
+        assertThat(displayItems).hasSize(27);
+        assertThat(manyItems).isEqualTo(fewItems).isLessThanOrEqualTo(4);
+    }
+}
@@ -0,0 +1,285 @@
+package de.ckollmeier.burgerexpress.backend.repository;
+
+import com.mongodb.BasicDBObject;
+import com.mongodb.client.gridfs.model.GridFSFile;
+import de.ckollmeier.burgerexpress.backend.configuration.GridFsConfig;
+import de.ckollmeier.burgerexpress.backend.dto.FilesDTO;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.IndexOperations;
+import org.springframework.data.mongodb.gridfs.GridFsTemplate;
+import org.springframework.mock.web.MockMultipartFile;
+
+import java.io.ByteArrayInputStream;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+import static org.springframework.data.mongodb.core.query.Query.query;
+
+@SpringBootTest
+@DisplayName("FilesRepository")
+class FilesRepositoryTest {
+
+    private static final String RENDITIONS_FILES = GridFsConfig.RENDITIONS_BUCKET + ".files";
+
+    @Autowired
+    private FilesRepository filesRepository;
+
+    @Autowired
+    private GridFsTemplate gridFsTemplate;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @BeforeEach
+    void setUp() {
+        filesRepository.deleteAllFiles();
+    }
+
+    @AfterEach
+    void tearDown() {
+        filesRepository.deleteAllFiles();
+    }
+
+    private String saveImage(final String name) throws Exception {
+        return filesRepository.saveFile(new MockMultipartFile("file", name, "image/png", name.getBytes()));
+    }
+
+    @Test
+    @DisplayName("mediaFamily normalisiert den Content-Type auf die klein geschriebene Familie")
+    void mediaFamily_normalizesContentType() {
+        assertEquals("image", FilesRepository.mediaFamily("Image/PNG"));
+        assertEquals("application", FilesRepository.mediaFamily(" application/pdf"));
+        assertEquals("text", FilesRepository.mediaFamily("TEXT"));
+        assertNull(FilesRepository.mediaFamily(null));
+        assertNull(FilesRepository.mediaFamily(" "));
+    }
+
+    @Test
+    @DisplayName("saveFile speichert die Medientyp-Familie in den Metadaten")
+    void saveFile_storesMediaFamily() throws Exception {
+        String id = saveImage("burger.png");
+
+        GridFSFile file = filesRepository.getFileById(id).orElseThrow();
+
+        assertEquals("image", file.getMetadata().getString("mediaFamily"));
+    }
+
+    @Test
+    @DisplayName("backfillMediaFamily ergänzt das Feld bei Altbeständen")
+    void backfillMediaFamily_updatesLegacyFiles() {
+        ObjectId legacyId = gridFsTemplate.store(
+                new ByteArrayInputStream(new byte[]{1}), "legacy.png", "Image/PNG",
+                new BasicDBObject("contentType", "Image/PNG"));
+        assertThat(filesRepository.getAllImages()).isEmpty();
+
+        assertEquals(1, filesRepository.backfillMediaFamily());
+        assertEquals(0, filesRepository.backfillMediaFamily());
+
+        List<GridFSFile> images = new ArrayList<>();
+        filesRepository.getAllImages().forEach(images::add);
+        assertThat(images).extracting(GridFSFile::getObjectId).containsExactly(legacyId);
+    }
+
+    @Test
+    @DisplayName("findFilesPageByMediaFamily blättert nach Upload-Datum und Id")
+    void findFilesPageByMediaFamily_pagesByUploadDateAndId() throws Exception {
+        String first = saveImage("first.png");
+        String second = saveImage("second.png");
+        String third = saveImage("third.png");
+        filesRepository.saveFile(new MockMultipartFile("file", "text.txt", "text/plain", new byte[]{1}));
+
+        List<Document> firstPage = filesRepository.findFilesPageByMediaFamily("IMAGE", null, null, 2);
+        assertThat(firstPage).extracting(file -> file.getObjectId("_id").toHexString())
+                .containsExactly(first, second);
+        assertThat(firstPage.get(0).keySet()).containsExactlyInAnyOrder("_id", "filename", "uploadDate", "metadata");
+        assertThat(firstPage.get(0).get("metadata", Document.class).keySet()).containsExactly("contentType");
+
+        Document last = firstPage.get(1);
+        Date lastUploadDate = last.getDate("uploadDate");
+        List<Document> secondPage = filesRepository.findFilesPageByMediaFamily(
+                "image", lastUploadDate, last.getObjectId("_id"), 2);
+        assertThat(secondPage).extracting(file -> file.getObjectId("_id").toHexString())
+                .containsExactly(third);
+        assertThat(gridFsTemplate.find(query(where("metadata.mediaFamily").is("text")))).hasSize(1);
+    }
+
+    @Test
+    @DisplayName("findPlaceholders liest die Platzhalter mehrerer Dateien")
+    void findPlaceholders_returnsStoredPlaceholders() throws Exception {
+        String withPlaceholder = filesRepository.saveFile(
+                new MockMultipartFile("file", "burger.png", "image/png", new byte[]{1}), "data:image/webp;base64,AAAA");
+        String withoutPlaceholder = saveImage("fries.png");
+
+        Map<String, String> placeholders = filesRepository.findPlaceholders(
+                List.of(withPlaceholder, withoutPlaceholder, "keine-id"));
+
+        assertThat(placeholders).containsExactly(Map.entry(withPlaceholder, "data:image/webp;base64,AAAA"));
+        assertThat(filesRepository.findPlaceholders(List.of())).isEmpty();
+    }
+
+    @Test
+    @DisplayName("saveFile legt den SHA-256 des Inhalts in den Metadaten ab")
+    void saveFile_storesContentHash() throws Exception {
+        String id = filesRepository.saveFile(new MockMultipartFile("file", "abc.png", "image/png", "abc".getBytes()));
+
+        GridFSFile file = filesRepository.getFileById(id).orElseThrow();
+
+        assertEquals("ba7816bf8f01cfea414140de5dae2223b00361a396177a9cb410ff61f20015ad",
+                file.getMetadata().getString("sha256"));
+        assertThat(filesRepository.findIdBySha256(file.getMetadata().getString("sha256"))).contains(id);
+    }
+
+    @Test
+    @DisplayName("saveFile liefert bei identischem Inhalt die vorhandene Datei, ohne ein Duplikat zu speichern")
+    void saveFile_withSameContent_returnsExistingFile() throws Exception {
+        filesRepository.ensureIndexes();
+        String first = filesRepository.saveFile(new MockMultipartFile("file", "burger.png", "image/png", new byte[]{1, 2, 3}));
+
+        String second = filesRepository.saveFile(new MockMultipartFile("file", "burger-2.png", "image/png", new byte[]{1, 2, 3}));
+        String other = filesRepository.saveFile(new MockMultipartFile("file", "fries.png", "image/png", new byte[]{4, 5, 6}));
+
+        assertEquals(first, second);
+        assertThat(other).isNotEqualTo(first);
+        assertThat(gridFsTemplate.find(query(where("metadata.mediaFamily").is("image")))).hasSize(2);
+        assertEquals("burger.png", filesRepository.getFileById(first).orElseThrow().getFilename());
+    }
+
+    @Test
+    @DisplayName("findIdByContent findet Dateien mit identischem Inhalt, ohne die neue Datei zu speichern")
+    void findIdByContent_findsFileWithSameContent() throws Exception {
+        String id = filesRepository.saveFile(new MockMultipartFile("file", "burger.png", "image/png", new byte[]{1, 2, 3}));
+
+        assertThat(filesRepository.findIdByContent(
+                new MockMultipartFile("file", "copy.png", "image/png", new byte[]{1, 2, 3}))).contains(id);
+        assertThat(filesRepository.findIdByContent(
+                new MockMultipartFile("file", "fries.png", "image/png", new byte[]{4, 5, 6}))).isEmpty();
+        assertThat(gridFsTemplate.find(query(where("metadata.mediaFamily").is("image")))).hasSize(1);
+    }
+
+    @Test
+    @DisplayName("saveMaster speichert den Master getrennt von den Varianten und löscht ihn mit ihnen")
+    void saveMaster_storesMasterNextToRenditions() throws Exception {
+        String id = saveImage("burger.png");
+        assertThat(filesRepository.existsMaster(id)).isFalse();
+
+        filesRepository.saveMaster(id, new FilesDTO(new byte[]{7, 8, 9}, "image/jpeg", "master.jpg"));
+
+        assertThat(filesRepository.existsMaster(id)).isTrue();
+        assertThat(filesRepository.findMaster(id).orElseThrow().getContentAsByteArray()).containsExactly(7, 8, 9);
+        assertThat(filesRepository.findRendition(id, 0, "jpeg")).isEmpty();
+
+        filesRepository.deleteRenditions(id);
+
+        assertThat(filesRepository.findMaster(id)).isEmpty();
+    }
+
+    @Test
+    @DisplayName("findImagesUploadedBefore liefert ältere Bilder seitenweise nach Id")
+    void findImagesUploadedBefore_pagesOlderImagesById() throws Exception {
+        String first = saveImage("burger.png");
+        String second = saveImage("fries.png");
+        filesRepository.saveFile(new MockMultipartFile("file", "menu.pdf", "application/pdf", new byte[]{1}));
+        Date now = new Date(System.currentTimeMillis() + 1000);
+
+        List<Document> page = filesRepository.findImagesUploadedBefore(now, null, 1);
+        List<Document> next = filesRepository.findImagesUploadedBefore(now, page.get(0).getObjectId("_id"), 10);
+
+        assertThat(page).extracting(file -> file.getObjectId("_id").toHexString()).containsExactly(first);
+        assertThat(next).extracting(file -> file.getObjectId("_id").toHexString()).containsExactly(second);
+        assertThat(filesRepository.findImagesUploadedBefore(new Date(0), null, 10)).isEmpty();
+    }
+
+    @Test
+    @DisplayName("findImagesUploadedBefore überspringt Dateien, deren Inhalt erneut hochgeladen wurde")
+    void findImagesUploadedBefore_skipsReuploadedFiles() throws Exception {
+        String id = filesRepository.saveFile(new MockMultipartFile("file", "burger.png", "image/png", new byte[]{1, 2, 3}));
+        Date cutoff = new Date(System.currentTimeMillis() + 1000);
+        assertThat(filesRepository.findImagesUploadedBefore(cutoff, null, 10)).hasSize(1);
+
+        mongoTemplate.getCollection("fs.files").updateOne(
+                new Document("_id", new ObjectId(id)),
+                new Document("$set", new Document("metadata.lastUploadedAt", new Date(cutoff.getTime() + 1000))));
+
+        assertThat(filesRepository.findImagesUploadedBefore(cutoff, null, 10)).isEmpty();
+    }
+
+    @Test
+    @DisplayName("deleteFilesWithRenditions löscht Dateien samt Varianten und Master")
+    void deleteFilesWithRenditions_deletesFilesAndRenditions() throws Exception {
+        String orphan = saveImage("burger.png");
+        String kept = saveImage("fries.png");
+        filesRepository.saveRendition(orphan, 64, "png", new FilesDTO(new byte[]{1}, "image/png", "burger.png"));
+        filesRepository.saveMaster(orphan, new FilesDTO(new byte[]{2}, "image/jpeg", "master.jpg"));
+        filesRepository.saveRendition(kept, 64, "png", new FilesDTO(new byte[]{3}, "image/png", "fries.png"));
+
+        long deleted = filesRepository.deleteFilesWithRenditions(List.of(new ObjectId(orphan)));
+
+        assertEquals(1, deleted);
+        assertThat(filesRepository.getFileById(orphan)).isEmpty();
+        assertThat(filesRepository.existsRendition(orphan, 64, "png")).isFalse();
+        assertThat(filesRepository.existsMaster(orphan)).isFalse();
+        assertThat(filesRepository.getFileById(kept)).isPresent();
+        assertThat(filesRepository.existsRendition(kept, 64, "png")).isTrue();
+    }
+
+    @Test
+    @DisplayName("Ungültige Ids werden wie fehlende Dateien behandelt")
+    void invalidIds_areNotFound() throws Exception {
+        assertThat(filesRepository.getFileById("kein-bild")).isEmpty();
+        assertThat(filesRepository.findRendition("kein-bild", 64, "png")).isEmpty();
+        assertThat(filesRepository.existsRendition("kein-bild", 64, "png")).isFalse();
+    }
+
+    @Test
+    @DisplayName("saveRendition liefert bei einer bereits gespeicherten Variante deren Id, ohne ein Duplikat zu speichern")
+    void saveRendition_withExistingRendition_returnsExistingRendition() throws Exception {
+        filesRepository.ensureIndexes();
+        String id = saveImage("burger.png");
+        String first = filesRepository.saveRendition(id, 64, "png", new FilesDTO(new byte[]{1}, "image/png", "burger.png"));
+
+        String second = filesRepository.saveRendition(id, 64, "png", new FilesDTO(new byte[]{2}, "image/png", "burger.png"));
+
+        assertEquals(first, second);
+        assertThat(mongoTemplate.getCollection(RENDITIONS_FILES).countDocuments()).isEqualTo(1);
+        assertThat(filesRepository.findRendition(id, 64, "png").orElseThrow().getData()).containsExactly(1);
+    }
+
+    @Test
+    @DisplayName("ensureIndexes entfernt doppelte Varianten und macht den Index der Varianten eindeutig")
+    void ensureIndexes_removesDuplicateRenditions() throws Exception {
+        IndexOperations indexOps = mongoTemplate.indexOps(RENDITIONS_FILES);
+        if (indexOps.getIndexInfo().stream().anyMatch(index -> "rendition_lookup".equals(index.getName()))) {
+            indexOps.dropIndex("rendition_lookup");
+        }
+        String id = saveImage("burger.png");
+        String first = filesRepository.saveRendition(id, 64, "png", new FilesDTO(new byte[]{1}, "image/png", "burger.png"));
+        filesRepository.saveRendition(id, 64, "png", new FilesDTO(new byte[]{2}, "image/png", "burger.png"));
+        filesRepository.saveMaster(id, new FilesDTO(new byte[]{3}, "image/jpeg", "master.jpg"));
+
+        filesRepository.ensureIndexes();
+
+        assertThat(mongoTemplate.getCollection(RENDITIONS_FILES).countDocuments()).isEqualTo(2);
+        assertThat(filesRepository.findRendition(id, 64, "png").orElseThrow().getData()).containsExactly(1);
+        assertEquals(first, filesRepository.saveRendition(
+                id, 64, "png", new FilesDTO(new byte[]{4}, "image/png", "burger.png")));
+        assertThat(filesRepository.existsMaster(id)).isTrue();
+        assertThat(indexOps.getIndexInfo())
+                .filteredOn(index -> "rendition_lookup".equals(index.getName()))
+                .singleElement()
+                .satisfies(index -> assertThat(index.isUnique()).isTrue());
+    }
+}
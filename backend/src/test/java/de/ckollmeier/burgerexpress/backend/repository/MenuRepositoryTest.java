@@ -0,0 +1,125 @@
+package de.ckollmeier.burgerexpress.backend.repository;
+
+import de.ckollmeier.burgerexpress.backend.model.Dish;
+import de.ckollmeier.burgerexpress.backend.model.Menu;
+import de.ckollmeier.burgerexpress.backend.types.DishType;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@Import(MongoRoundTripCounter.Configuration.class)
+@DisplayName("MenuRepository")
+class MenuRepositoryTest {
+
+    @Autowired
+    private MenuRepository menuRepository;
+
+    @Autowired
+    private DishRepository dishRepository;
+
+    @Autowired
+    private MongoRoundTripCounter roundTripCounter;
+
+    private final List<Dish> dishes = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        menuRepository.deleteAll();
+        dishRepository.deleteAll();
+        for (int i = 0; i < 4; i++) {
+            dishes.add(dishRepository.save(Dish.builder()
+                    .name("Dish " + i)
+                    .price(new BigDecimal("2.50"))
+                    .type(i == 0 ? DishType.MAIN : DishType.SIDE)
+                    .position(i)
+                    .build()));
+        }
+    }
+
+    @AfterEach
+    void tearDown() {
+        menuRepository.deleteAll();
+        dishRepository.deleteAll();
+    }
+
+    private void saveMenus(final int count) {
+        for (int i = 0; i < count; i++) {
+            menuRepository.save(Menu.builder()
+                    .name("Menu " + i)
+                    .price(new BigDecimal("6.99"))
+                    .dishes(new ArrayList<>(List.of(dishes.get(0), dishes.get(1 + i % 3))))
+                    .position(count - i)
+                    .build());
+        }
+    }
+
+    @Test
+    @DisplayName("findAll lädt die Gerichte aller Menüs mit einer einzigen weiteren Abfrage")
+    void findAll_resolvesDishesWithOneQuery() {
+        saveMenus(10);
+
+        roundTripCounter.start();
+        List<Menu> menus = menuRepository.findAll();
+        List<String> commands = roundTripCounter.stop();
+
+        assertThat(menus).hasSize(10);
+        assertThat(menus).allSatisfy(menu -> assertThat(menu.getDishes()).hasSize(2));
+        assertThat(menus.get(0).getDishes().get(0).getName()).isEqualTo("Dish 0");
+        assertThat(commands).containsExactly("find burger-express-menus", "find burger-express-dishes");
+    }
+
+    @Test
+    @DisplayName("findAllByOrderByPositionAscCreatedAtDesc sortiert und braucht unabhängig von der Anzahl zwei Abfragen")
+    void findAllByOrderByPositionAscCreatedAtDesc_isSortedWithConstantRoundTrips() {
+        saveMenus(3);
+        roundTripCounter.start();
+        menuRepository.findAllByOrderByPositionAscCreatedAtDesc();
+        int fewMenus = roundTripCounter.stop().size();
+
+        saveMenus(20);
+        roundTripCounter.start();
+        List<Menu> menus = menuRepository.findAllByOrderByPositionAscCreatedAtDesc();
+        int manyMenus = roundTripCounter.stop().size();
+
+        assertThat(fewMenus).isEqualTo(2);
+        assertThat(manyMenus).isEqualTo(2);
+        assertThat(menus).hasSize(23);
+        assertThat(menus).isSortedAccordingTo((a, b) -> a.getPosition() - b.getPosition());
+    }
+
+    @Test
+    @DisplayName("Verweise auf gelöschte Gerichte entfallen")
+    void findAll_skipsDeletedDishes() {
+        saveMenus(1);
+        dishRepository.deleteById(dishes.get(0).getId());
+
+        List<Menu> menus = menuRepository.findAll();
+
+        assertThat(menus).hasSize(1);
+        assertThat(menus.get(0).getDishes()).extracting(Dish::getName).containsExactly("Dish 1");
+    }
+
+    @Test
+    @DisplayName("findIdsByDishIds findet die Menüs, die eines der Gerichte enthalten")
+    void findIdsByDishIds_returnsMenusContainingDishes() {
+        saveMenus(3);
+
+        List<String> ids = menuRepository.findIdsByDishIds(List.of(dishes.get(1).getId(), dishes.get(2).getId()));
+
+        assertThat(ids).containsExactlyInAnyOrderElementsOf(menuRepository.findAll().stream()
+                .filter(menu -> menu.getName().equals("Menu 0") || menu.getName().equals("Menu 1"))
+                .map(Menu::getId)
+                .toList());
+    }
+}
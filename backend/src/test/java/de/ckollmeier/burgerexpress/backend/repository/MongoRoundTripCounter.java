@@ -0,0 +1,60 @@
+package de.ckollmeier.burgerexpress.backend.repository;
+
+import com.mongodb.event.CommandListener;
+import com.mongodb.event.CommandStartedEvent;
+import org.bson.BsonValue;
+import org.springframework.boot.autoconfigure.mongo.MongoClientSettingsBuilderCustomizer;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Zählt die Kommandos, die der Test-Thread an MongoDB schickt. Kommandos anderer Threads (z.B. der Neuaufbau des
+ * Katalog-Schnappschusses im Hintergrund) werden ignoriert, damit die Zählung stabil bleibt.
+ */
+public class MongoRoundTripCounter implements CommandListener {
+    private final List<String> commands = new CopyOnWriteArrayList<>();
+    private volatile Thread recordingThread;
+
+    /**
+     * Beginnt eine neue Zählung für den aufrufenden Thread.
+     */
+    public void start() {
+        commands.clear();
+        recordingThread = Thread.currentThread();
+    }
+
+    /**
+     * Beendet die Zählung.
+     *
+     * @return Die gezählten Kommandos als "Kommando Collection", z.B. "find burger-express-menus".
+     */
+    public List<String> stop() {
+        recordingThread = null;
+        return List.copyOf(commands);
+    }
+
+    @Override
+    public void commandStarted(final CommandStartedEvent event) {
+        if (Thread.currentThread() == recordingThread) {
+            BsonValue collection = event.getCommand().get(event.getCommandName());
+            commands.add(event.getCommandName() + " "
+                    + (collection != null && collection.isString() ? collection.asString().getValue() : ""));
+        }
+    }
+
+    @TestConfiguration
+    public static class Configuration {
+        @Bean
+        public MongoRoundTripCounter mongoRoundTripCounter() {
+            return new MongoRoundTripCounter();
+        }
+
+        @Bean
+        public MongoClientSettingsBuilderCustomizer roundTripCounterCustomizer(final MongoRoundTripCounter counter) {
+            return builder -> builder.addCommandListener(counter);
+        }
+    }
+}
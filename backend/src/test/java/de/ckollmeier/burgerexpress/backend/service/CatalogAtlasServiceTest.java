@@ -0,0 +1,194 @@
+package de.ckollmeier.burgerexpress.backend.service;
+
+import de.ckollmeier.burgerexpress.backend.dto.AtlasTileDTO;
+import de.ckollmeier.burgerexpress.backend.dto.FilesDTO;
+import de.ckollmeier.burgerexpress.backend.exceptions.NotFoundException;
+import de.ckollmeier.burgerexpress.backend.interfaces.OrderableItem;
+import de.ckollmeier.burgerexpress.backend.listener.CatalogChangedEvent;
+import de.ckollmeier.burgerexpress.backend.model.Dish;
+import de.ckollmeier.burgerexpress.backend.model.DisplayItem;
+import de.ckollmeier.burgerexpress.backend.model.Menu;
+import de.ckollmeier.burgerexpress.backend.repository.CatalogInvalidationRepository;
+import de.ckollmeier.burgerexpress.backend.repository.DisplayItemRepository;
+import de.ckollmeier.burgerexpress.backend.types.DishType;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.core.task.SyncTaskExecutor;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class CatalogAtlasServiceTest {
+
+    @Mock
+    private ImagesService imagesService;
+    @Mock
+    private DisplayItemRepository displayItemRepository;
+    @Mock
+    private CatalogVersionService catalogVersionService;
+    @Mock
+    private CatalogInvalidationRepository catalogInvalidationRepository;
+
+    private CatalogAtlasService catalogAtlasService;
+
+    private final String burgerImage = new ObjectId().toHexString();
+    private final String friesImage = new ObjectId().toHexString();
+
+    @BeforeEach
+    void setUp() {
+        when(imagesService.quantizeSize(128)).thenReturn(128);
+        catalogAtlasService = new CatalogAtlasService(
+                imagesService, displayItemRepository, catalogVersionService, catalogInvalidationRepository,
+                new SyncTaskExecutor(), 128);
+    }
+
+    private static byte[] png(final int width, final int height) throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        ImageIO.write(new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB), "png", outputStream);
+        return outputStream.toByteArray();
+    }
+
+    private static Dish dish(final String id, final DishType type, final String imageFileId) {
+        return Dish.builder()
+                .id(id)
+                .name(id)
+                .price(BigDecimal.ONE)
+                .type(type)
+                .imageUrl(imageFileId != null ? "/api/files/" + imageFileId : null)
+                .build();
+    }
+
+    private static DisplayItem displayItem(final boolean published, final OrderableItem... items) {
+        return DisplayItem.builder()
+                .id(new ObjectId().toHexString())
+                .categoryId(new ObjectId())
+                .name("Anzeige")
+                .orderableItems(List.of(items))
+                .published(published)
+                .build();
+    }
+
+    private void givenCatalog() throws IOException {
+        Dish burger = dish("burger", DishType.MAIN, burgerImage);
+        Dish fries = dish("fries", DishType.SIDE, friesImage);
+        Menu menu = Menu.builder().id("menu").name("Menü").price(BigDecimal.TEN).dishes(List.of(fries, burger)).build();
+        Dish hidden = dish("hidden", DishType.MAIN, new ObjectId().toHexString());
+        when(displayItemRepository.findAllByOrderByPositionAscCreatedAtDesc())
+                .thenReturn(List.of(displayItem(true, menu), displayItem(false, hidden)));
+        when(imagesService.getCroppedImage(burgerImage, 128, "png"))
+                .thenReturn(new FilesDTO(png(128, 96), "image/png", "burger.png"));
+        when(imagesService.getCroppedImage(friesImage, 128, "png"))
+                .thenReturn(new FilesDTO(png(64, 128), "image/png", "fries.png"));
+        when(imagesService.encodeImage(any(BufferedImage.class), anyString()))
+                .thenAnswer(invocation -> {
+                    ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+                    ImageIO.write(invocation.getArgument(0, BufferedImage.class), "png", outputStream);
+                    return outputStream.toByteArray();
+                });
+    }
+
+    @Test
+    @DisplayName("Packt die Vorschaubilder veröffentlichter Artikel in einen Atlas")
+    void getAtlas_packsPublishedThumbnails() throws IOException {
+        givenCatalog();
+        when(catalogVersionService.getVersion()).thenReturn(7L);
+        when(catalogInvalidationRepository.findChangesVersion()).thenReturn(42L);
+
+        CatalogAtlasService.Atlas atlas = catalogAtlasService.getAtlas("PNG");
+
+        assertThat(atlas.info().version()).isEqualTo(42L);
+        assertThat(atlas.info().imageUrl()).isEqualTo("/api/catalog/atlas/42?format=png");
+        assertThat(atlas.info().tiles()).containsOnlyKeys("menu", "burger", "fries");
+        assertThat(atlas.info().tiles().get("menu")).isEqualTo(atlas.info().tiles().get("burger"));
+        assertThat(atlas.info().tiles().get("fries")).isEqualTo(new AtlasTileDTO(128, 0, 64, 128));
+        assertThat(atlas.image().getContentType()).isEqualTo("image/png");
+
+        BufferedImage image = ImageIO.read(new ByteArrayInputStream(atlas.image().getData()));
+        assertThat(image.getWidth()).isEqualTo(atlas.info().width());
+        assertThat(image.getHeight()).isEqualTo(atlas.info().height());
+    }
+
+    @Test
+    @DisplayName("Liefert den Atlas aus dem Cache, solange sich die Katalogversion nicht ändert")
+    void getAtlas_cachesByCatalogVersion() throws IOException {
+        givenCatalog();
+        when(catalogVersionService.getVersion()).thenReturn(1L, 1L, 2L);
+        when(catalogInvalidationRepository.findChangesVersion()).thenReturn(41L, 42L);
+
+        CatalogAtlasService.Atlas first = catalogAtlasService.getAtlas("png");
+        assertSame(first, catalogAtlasService.getAtlas("png"));
+        CatalogAtlasService.Atlas rebuilt = catalogAtlasService.getAtlas("png");
+
+        assertThat(first.info().version()).isEqualTo(41L);
+        assertThat(rebuilt.info().version()).isEqualTo(42L);
+        verify(displayItemRepository, times(2)).findAllByOrderByPositionAscCreatedAtDesc();
+    }
+
+    @Test
+    @DisplayName("Baut bereits angefragte Atlanten nach einer Katalogänderung neu auf")
+    void onCatalogChanged_rebuildsRequestedAtlases() throws IOException {
+        givenCatalog();
+        when(catalogVersionService.getVersion()).thenReturn(1L, 2L);
+        catalogAtlasService.getAtlas("webp");
+
+        catalogAtlasService.onCatalogChanged(new CatalogChangedEvent("burger-express-dishes", "burger"));
+
+        verify(imagesService, times(2)).encodeImage(any(BufferedImage.class), eq("webp"));
+    }
+
+    @Test
+    @DisplayName("Lässt fehlende Bilder aus")
+    void getAtlas_skipsMissingImages() throws IOException {
+        givenCatalog();
+        when(catalogVersionService.getVersion()).thenReturn(1L);
+        when(imagesService.getCroppedImage(friesImage, 128, "png")).thenThrow(new NotFoundException("weg"));
+
+        CatalogAtlasService.Atlas atlas = catalogAtlasService.getAtlas("png");
+
+        assertThat(atlas.info().tiles()).containsOnlyKeys("menu", "burger");
+    }
+
+    @Test
+    @DisplayName("Wiederholt einen fehlgeschlagenen Bau beim nächsten Abruf")
+    void getAtlas_retriesFailedBuild() throws IOException {
+        when(catalogVersionService.getVersion()).thenReturn(1L);
+        when(displayItemRepository.findAllByOrderByPositionAscCreatedAtDesc())
+                .thenThrow(new IllegalStateException("weg"))
+                .thenReturn(List.of(displayItem(true, dish("burger", DishType.MAIN, burgerImage))));
+        when(imagesService.getCroppedImage(burgerImage, 128, "png"))
+                .thenReturn(new FilesDTO(png(128, 96), "image/png", "burger.png"));
+        when(imagesService.encodeImage(any(BufferedImage.class), eq("png"))).thenReturn(png(128, 96));
+
+        assertThrows(IllegalStateException.class, () -> catalogAtlasService.getAtlas("png"));
+        CatalogAtlasService.Atlas atlas = catalogAtlasService.getAtlas("png");
+
+        assertThat(atlas.info().tiles()).containsOnlyKeys("burger");
+    }
+
+    @Test
+    @DisplayName("Lehnt nicht unterstützte Formate ab")
+    void getAtlas_rejectsUnsupportedFormat() {
+        assertThrows(IllegalArgumentException.class, () -> catalogAtlasService.getAtlas("gif"));
+    }
+}
@@ -0,0 +1,156 @@
+package de.ckollmeier.burgerexpress.backend.service;
+
+import de.ckollmeier.burgerexpress.backend.dto.CatalogChangesDTO;
+import de.ckollmeier.burgerexpress.backend.dto.DisplayCategoryOutputDTO;
+import de.ckollmeier.burgerexpress.backend.dto.DisplayItemOutputDTO;
+import de.ckollmeier.burgerexpress.backend.dto.OrderableItemOutputDTO;
+import de.ckollmeier.burgerexpress.backend.model.Dish;
+import de.ckollmeier.burgerexpress.backend.model.DisplayCategory;
+import de.ckollmeier.burgerexpress.backend.model.DisplayItem;
+import de.ckollmeier.burgerexpress.backend.model.Menu;
+import de.ckollmeier.burgerexpress.backend.repository.CatalogInvalidationRepository;
+import de.ckollmeier.burgerexpress.backend.repository.CatalogInvalidationRepository.Change;
+import de.ckollmeier.burgerexpress.backend.repository.CatalogInvalidationRepository.ChangeFeed;
+import de.ckollmeier.burgerexpress.backend.repository.DisplayItemRepository;
+import de.ckollmeier.burgerexpress.backend.repository.MenuRepository;
+import de.ckollmeier.burgerexpress.backend.service.CatalogSnapshotService.CatalogSnapshot;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.mongodb.core.MongoTemplate;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class CatalogChangesServiceTest {
+
+    @Mock
+    private CatalogSnapshotService catalogSnapshotService;
+    @Mock
+    private CatalogInvalidationRepository catalogInvalidationRepository;
+    @Mock
+    private MenuRepository menuRepository;
+    @Mock
+    private DisplayItemRepository displayItemRepository;
+    @Mock
+    private MongoTemplate mongoTemplate;
+
+    @InjectMocks
+    private CatalogChangesService catalogChangesService;
+
+    private final OrderableItemOutputDTO dish = orderableItem("dish-1", "DISH");
+    private final OrderableItemOutputDTO menu = orderableItem("menu-1", "MENU");
+    private final DisplayItemOutputDTO displayItem = new DisplayItemOutputDTO(
+            "item-1", "category-1", "Burger", "", List.of(menu), "5,99", null, true);
+    private final DisplayCategoryOutputDTO category = new DisplayCategoryOutputDTO(
+            "category-1", "Burger", "", List.of(displayItem), null, null, true);
+
+    @BeforeEach
+    void setUp() {
+        lenient().when(mongoTemplate.getCollectionName(Dish.class)).thenReturn("burger-express-dishes");
+        lenient().when(mongoTemplate.getCollectionName(Menu.class)).thenReturn("burger-express-menus");
+        lenient().when(mongoTemplate.getCollectionName(DisplayItem.class)).thenReturn("burger-express-display-items");
+        lenient().when(mongoTemplate.getCollectionName(DisplayCategory.class)).thenReturn("burger-express-categories");
+    }
+
+    private static OrderableItemOutputDTO orderableItem(final String id, final String type) {
+        return new OrderableItemOutputDTO(id, id, null, "5,99", type, Map.of(), Map.of(), List.of(), List.of());
+    }
+
+    private void givenSnapshot(final long changelogVersion) {
+        when(catalogSnapshotService.getSnapshot()).thenReturn(new CatalogSnapshot(
+                1, changelogVersion, List.of(dish), List.of(menu), List.of(dish, menu),
+                List.of(displayItem), List.of(category), Map.of()));
+    }
+
+    @Test
+    @DisplayName("Liefert eine leere Änderung, wenn der Kiosk aktuell ist")
+    void getChangesSince_returnsNothingForCurrentVersion() {
+        givenSnapshot(7);
+
+        CatalogChangesDTO changes = catalogChangesService.getChangesSince(7);
+
+        assertThat(changes.version()).isEqualTo(7);
+        assertThat(changes.fullResync()).isFalse();
+        assertThat(changes.orderableItems()).isEmpty();
+        verifyNoInteractions(catalogInvalidationRepository);
+    }
+
+    @Test
+    @DisplayName("Liefert den ganzen Katalog, wenn die Version nicht mehr im Protokoll steht")
+    void getChangesSince_requestsFullResyncWhenVersionWasCompacted() {
+        givenSnapshot(10);
+        when(catalogInvalidationRepository.findChanges()).thenReturn(new ChangeFeed(10, List.of(
+                new Change("burger-express-dishes", "dish-1", "node-a"),
+                new Change("burger-express-menus", "menu-1", "node-a"))));
+
+        CatalogChangesDTO changes = catalogChangesService.getChangesSince(7);
+
+        assertThat(changes.version()).isEqualTo(10);
+        assertThat(changes.fullResync()).isTrue();
+        assertThat(changes.orderableItems()).containsExactly(dish, menu);
+        assertThat(changes.displayItems()).containsExactly(displayItem);
+        assertThat(changes.displayCategories()).containsExactly(category);
+    }
+
+    @Test
+    @DisplayName("Gibt Änderungen an Gerichten an Menüs, Anzeigeelemente und Kategorien weiter")
+    void getChangesSince_propagatesChangesToContainingItems() {
+        givenSnapshot(3);
+        when(catalogInvalidationRepository.findChanges()).thenReturn(new ChangeFeed(3, List.of(
+                new Change("burger-express-categories", "old", "node-a"),
+                new Change("burger-express-dishes", "dish-1", "node-a"),
+                new Change("fs.files", "file-1", "node-b"))));
+        when(menuRepository.findIdsByDishIds(Set.of("dish-1"))).thenReturn(List.of("menu-1"));
+        when(displayItemRepository.findIdsByOrderableItemIds(Set.of("dish-1", "menu-1"))).thenReturn(List.of("item-1"));
+
+        CatalogChangesDTO changes = catalogChangesService.getChangesSince(1);
+
+        assertThat(changes.version()).isEqualTo(3);
+        assertThat(changes.fullResync()).isFalse();
+        assertThat(changes.orderableItems()).containsExactly(dish, menu);
+        assertThat(changes.displayItems()).containsExactly(displayItem);
+        assertThat(changes.displayCategories()).containsExactly(category);
+        assertThat(changes.deletedOrderableItems()).isEmpty();
+    }
+
+    @Test
+    @DisplayName("Meldet Elemente, die es nicht mehr gibt, als gelöscht")
+    void getChangesSince_reportsDeletedItems() {
+        givenSnapshot(2);
+        when(catalogInvalidationRepository.findChanges()).thenReturn(new ChangeFeed(2, List.of(
+                new Change("burger-express-menus", "menu-2", "node-a"),
+                new Change("burger-express-categories", "category-2", "node-a"))));
+
+        CatalogChangesDTO changes = catalogChangesService.getChangesSince(0);
+
+        assertThat(changes.orderableItems()).isEmpty();
+        assertThat(changes.deletedOrderableItems()).containsExactly("menu-2");
+        assertThat(changes.deletedDisplayCategories()).containsExactly("category-2");
+        assertThat(changes.deletedDisplayItems()).isEmpty();
+    }
+
+    @Test
+    @DisplayName("Liefert nur Änderungen, die schon im Schnappschuss enthalten sind")
+    void getChangesSince_stopsAtSnapshotVersion() {
+        givenSnapshot(1);
+        when(catalogInvalidationRepository.findChanges()).thenReturn(new ChangeFeed(2, List.of(
+                new Change("burger-express-categories", "category-1", "node-a"),
+                new Change("burger-express-categories", "category-2", "node-a"))));
+
+        CatalogChangesDTO changes = catalogChangesService.getChangesSince(0);
+
+        assertThat(changes.version()).isEqualTo(1);
+        assertThat(changes.displayCategories()).containsExactly(category);
+        assertThat(changes.deletedDisplayCategories()).isEmpty();
+    }
+}
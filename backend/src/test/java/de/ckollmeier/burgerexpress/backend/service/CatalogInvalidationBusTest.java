@@ -0,0 +1,155 @@
+package de.ckollmeier.burgerexpress.backend.service;
+
+import com.mongodb.MongoNamespace;
+import com.mongodb.client.model.changestream.ChangeStreamDocument;
+import com.mongodb.client.model.changestream.OperationType;
+import de.ckollmeier.burgerexpress.backend.listener.CatalogChangedEvent;
+import de.ckollmeier.burgerexpress.backend.listener.FilesDeletedEvent;
+import de.ckollmeier.burgerexpress.backend.model.Dish;
+import de.ckollmeier.burgerexpress.backend.model.DisplayCategory;
+import de.ckollmeier.burgerexpress.backend.model.DisplayItem;
+import de.ckollmeier.burgerexpress.backend.model.Menu;
+import de.ckollmeier.burgerexpress.backend.repository.CatalogInvalidationRepository;
+import de.ckollmeier.burgerexpress.backend.repository.CatalogInvalidationRepository.Change;
+import de.ckollmeier.burgerexpress.backend.repository.CatalogInvalidationRepository.ChangeFeed;
+import org.bson.BsonDocument;
+import org.bson.BsonObjectId;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.mongodb.core.MongoTemplate;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.OptionalLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class CatalogInvalidationBusTest {
+
+    private static final String NODE = "node-a";
+
+    @Mock
+    private CatalogInvalidationRepository catalogInvalidationRepository;
+    @Mock
+    private MongoTemplate mongoTemplate;
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    private CatalogInvalidationBus bus;
+
+    @BeforeEach
+    void setUp() {
+        when(mongoTemplate.getCollectionName(Dish.class)).thenReturn("burger-express-dishes");
+        when(mongoTemplate.getCollectionName(Menu.class)).thenReturn("burger-express-menus");
+        when(mongoTemplate.getCollectionName(DisplayItem.class)).thenReturn("burger-express-display-items");
+        when(mongoTemplate.getCollectionName(DisplayCategory.class)).thenReturn("burger-express-categories");
+        bus = new CatalogInvalidationBus(catalogInvalidationRepository, mongoTemplate, eventPublisher,
+                true, CatalogInvalidationBus.MODE_POLLING, Duration.ofHours(1), 3, NODE);
+    }
+
+    @AfterEach
+    void tearDown() {
+        bus.shutdown();
+    }
+
+    @Test
+    @DisplayName("Eine neue Instanz beginnt beim aktuellen Stand des Änderungsprotokolls")
+    void poll_startsAtCurrentVersionOnFirstRun() {
+        when(catalogInvalidationRepository.findChanges()).thenReturn(new ChangeFeed(5, List.of(
+                new Change("burger-express-dishes", "1", "node-b"))));
+
+        bus.poll();
+
+        verify(catalogInvalidationRepository).savePolledVersion(NODE, 5);
+        verifyNoInteractions(eventPublisher);
+    }
+
+    @Test
+    @DisplayName("Meldet die verpassten Änderungen anderer Instanzen in ihrer Reihenfolge")
+    void poll_publishesMissedChangesOfOtherNodes() {
+        when(catalogInvalidationRepository.findPolledVersion(NODE)).thenReturn(OptionalLong.of(3));
+        when(catalogInvalidationRepository.findChanges()).thenReturn(new ChangeFeed(6, List.of(
+                new Change("burger-express-dishes", "old", "node-b"),
+                new Change("burger-express-menus", "2", "node-b"),
+                new Change("burger-express-dishes", "3", NODE),
+                new Change("fs.files", "4", "node-c"))));
+
+        bus.poll();
+
+        var inOrder = inOrder(eventPublisher);
+        inOrder.verify(eventPublisher).publishEvent(new CatalogChangedEvent("burger-express-menus", "2", true));
+        inOrder.verify(eventPublisher).publishEvent(new FilesDeletedEvent(List.of("4")));
+        verifyNoMoreInteractions(eventPublisher);
+        verify(catalogInvalidationRepository).savePolledVersion(NODE, 6);
+    }
+
+    @Test
+    @DisplayName("Verwirft den ganzen Katalog, wenn Einträge des Protokolls fehlen")
+    void poll_invalidatesEverythingWhenChangesWereDropped() {
+        when(catalogInvalidationRepository.findPolledVersion(NODE)).thenReturn(OptionalLong.of(1));
+        when(catalogInvalidationRepository.findChanges()).thenReturn(new ChangeFeed(9, List.of(
+                new Change("burger-express-dishes", "1", "node-b"))));
+
+        bus.poll();
+
+        verify(eventPublisher).publishEvent(new CatalogChangedEvent("burger-express-dishes", null, true));
+        verify(eventPublisher).publishEvent(new CatalogChangedEvent("burger-express-menus", null, true));
+        verify(eventPublisher).publishEvent(new CatalogChangedEvent("burger-express-display-items", null, true));
+        verify(eventPublisher).publishEvent(new CatalogChangedEvent("burger-express-categories", null, true));
+        verify(catalogInvalidationRepository).savePolledVersion(NODE, 9);
+    }
+
+    @Test
+    @DisplayName("Schreibt lokale Änderungen in das Protokoll, Änderungen anderer Instanzen nicht")
+    void onCatalogChanged_appendsOnlyLocalChanges() {
+        bus.onCatalogChanged(new CatalogChangedEvent("burger-express-dishes", "1"));
+        bus.onCatalogChanged(new CatalogChangedEvent("burger-express-dishes", "2", true));
+
+        verify(catalogInvalidationRepository).appendChange(new Change("burger-express-dishes", "1", NODE), 3);
+        verify(catalogInvalidationRepository, times(1)).appendChange(any(), anyInt());
+    }
+
+    @Test
+    @DisplayName("Meldet Änderungen aus dem Change Stream, neue oder ergänzte Dateien aber nicht")
+    @SuppressWarnings("unchecked")
+    void onChange_publishesChangesExceptNewFiles() {
+        ObjectId dishId = new ObjectId();
+        ChangeStreamDocument<Document> deletedDish = mock(ChangeStreamDocument.class);
+        when(deletedDish.getOperationType()).thenReturn(OperationType.DELETE);
+        when(deletedDish.getNamespace()).thenReturn(new MongoNamespace("burger", "burger-express-dishes"));
+        when(deletedDish.getDocumentKey()).thenReturn(new BsonDocument("_id", new BsonObjectId(dishId)));
+        ChangeStreamDocument<Document> uploadedFile = mock(ChangeStreamDocument.class);
+        when(uploadedFile.getOperationType()).thenReturn(OperationType.INSERT);
+        when(uploadedFile.getNamespace()).thenReturn(new MongoNamespace("burger", "fs.files"));
+        ChangeStreamDocument<Document> updatedFile = mock(ChangeStreamDocument.class);
+        when(updatedFile.getOperationType()).thenReturn(OperationType.UPDATE);
+        when(updatedFile.getNamespace()).thenReturn(new MongoNamespace("burger", "fs.files"));
+        ObjectId fileId = new ObjectId();
+        ChangeStreamDocument<Document> deletedFile = mock(ChangeStreamDocument.class);
+        when(deletedFile.getOperationType()).thenReturn(OperationType.DELETE);
+        when(deletedFile.getNamespace()).thenReturn(new MongoNamespace("burger", "fs.files"));
+        when(deletedFile.getDocumentKey()).thenReturn(new BsonDocument("_id", new BsonObjectId(fileId)));
+
+        assertThat(bus.onChange(deletedDish)).isTrue();
+        assertThat(bus.onChange(uploadedFile)).isTrue();
+        assertThat(bus.onChange(updatedFile)).isTrue();
+        assertThat(bus.onChange(deletedFile)).isTrue();
+
+        verify(eventPublisher).publishEvent(
+                new CatalogChangedEvent("burger-express-dishes", dishId.toHexString(), true));
+        verify(eventPublisher).publishEvent(new FilesDeletedEvent(List.of(fileId.toHexString())));
+        verifyNoMoreInteractions(eventPublisher);
+    }
+}
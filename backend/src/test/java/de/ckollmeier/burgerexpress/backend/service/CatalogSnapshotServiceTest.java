@@ -0,0 +1,172 @@
+package de.ckollmeier.burgerexpress.backend.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import de.ckollmeier.burgerexpress.backend.dto.DisplayCategoryOutputDTO;
+import de.ckollmeier.burgerexpress.backend.dto.DisplayItemOutputDTO;
+import de.ckollmeier.burgerexpress.backend.dto.OrderableItemOutputDTO;
+import de.ckollmeier.burgerexpress.backend.listener.CatalogChangedEvent;
+import de.ckollmeier.burgerexpress.backend.repository.CatalogInvalidationRepository;
+import de.ckollmeier.burgerexpress.backend.types.CatalogResource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.util.DigestUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class CatalogSnapshotServiceTest {
+
+    @Mock
+    private OrderableItemService orderableItemService;
+    @Mock
+    private DisplayItemService displayItemService;
+    @Mock
+    private DisplayCategoryService displayCategoryService;
+    @Mock
+    private CatalogVersionService catalogVersionService;
+    @Mock
+    private CatalogInvalidationRepository catalogInvalidationRepository;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private CatalogSnapshotService catalogSnapshotService;
+
+    private final OrderableItemOutputDTO burger = orderableItem("1", "Burger", "MAIN");
+    private final OrderableItemOutputDTO menu = orderableItem("2", "Burger Menü", "MENU");
+    private final DisplayItemOutputDTO displayItem = new DisplayItemOutputDTO(
+            "3", "4", "Burger", "Lecker", List.of(burger), "5,99", null, true);
+    private final DisplayCategoryOutputDTO category = new DisplayCategoryOutputDTO(
+            "4", "Burger", "Alles mit Brötchen", List.of(displayItem), null, null, true);
+
+    @BeforeEach
+    void setUp() {
+        catalogSnapshotService = new CatalogSnapshotService(
+                orderableItemService, displayItemService, displayCategoryService, catalogVersionService, objectMapper,
+                catalogInvalidationRepository);
+    }
+
+    @AfterEach
+    void tearDown() {
+        catalogSnapshotService.shutdown();
+    }
+
+    private static OrderableItemOutputDTO orderableItem(final String id, final String name, final String type) {
+        return new OrderableItemOutputDTO(id, name, null, "5,99", type, Map.of(), Map.of(), List.of(), List.of());
+    }
+
+    private void stubCatalog() {
+        when(orderableItemService.getAllDishes()).thenReturn(List.of(burger));
+        when(orderableItemService.getAllMenus()).thenReturn(List.of(menu));
+        when(displayItemService.getAllDisplayItems()).thenReturn(List.of(displayItem));
+        when(displayCategoryService.getAllDisplayCategories()).thenReturn(List.of(category));
+    }
+
+    @Test
+    @DisplayName("Baut den Schnappschuss aus allen Teilen des Katalogs")
+    void getSnapshot_containsWholeCatalog() {
+        when(catalogVersionService.getVersion()).thenReturn(7L);
+        when(catalogInvalidationRepository.findChangesVersion()).thenReturn(42L);
+        stubCatalog();
+
+        CatalogSnapshotService.CatalogSnapshot snapshot = catalogSnapshotService.getSnapshot();
+
+        assertThat(snapshot.version()).isEqualTo(7L);
+        assertThat(snapshot.changelogVersion()).isEqualTo(42L);
+        assertThat(snapshot.dishes()).containsExactly(burger);
+        assertThat(snapshot.menus()).containsExactly(menu);
+        assertThat(snapshot.orderableItems()).containsExactly(burger, menu);
+        assertThat(snapshot.displayItems()).containsExactly(displayItem);
+        assertThat(snapshot.displayCategories()).containsExactly(category);
+    }
+
+    @Test
+    @DisplayName("Liest den Katalog nur einmal je Version")
+    void getSnapshot_reusesSnapshotOfSameVersion() {
+        when(catalogVersionService.getVersion()).thenReturn(7L);
+        stubCatalog();
+
+        CatalogSnapshotService.CatalogSnapshot first = catalogSnapshotService.getSnapshot();
+        CatalogSnapshotService.CatalogSnapshot second = catalogSnapshotService.getSnapshot();
+
+        assertThat(second).isSameAs(first);
+        verify(orderableItemService, times(1)).getAllDishes();
+        verify(displayCategoryService, times(1)).getAllDisplayCategories();
+    }
+
+    @Test
+    @DisplayName("Baut den Schnappschuss neu, sobald sich die Version ändert")
+    void getSnapshot_rebuildsAfterVersionChange() {
+        when(catalogVersionService.getVersion()).thenReturn(7L, 8L);
+        stubCatalog();
+
+        CatalogSnapshotService.CatalogSnapshot first = catalogSnapshotService.getSnapshot();
+        CatalogSnapshotService.CatalogSnapshot second = catalogSnapshotService.getSnapshot();
+
+        assertThat(second).isNotSameAs(first);
+        assertThat(second.version()).isEqualTo(8L);
+        assertThat(second.bodies().get(CatalogResource.DISHES).etag())
+                .isEqualTo(first.bodies().get(CatalogResource.DISHES).etag());
+        verify(orderableItemService, times(2)).getAllDishes();
+    }
+
+    @Test
+    @DisplayName("Baut den Schnappschuss nach einer Katalogänderung im Hintergrund neu")
+    void onCatalogChanged_rebuildsInBackground() {
+        when(catalogVersionService.getVersion()).thenReturn(8L);
+        stubCatalog();
+
+        catalogSnapshotService.onCatalogChanged(new CatalogChangedEvent("burger-express-dishes", "1"));
+
+        verify(displayCategoryService, timeout(5000)).getAllDisplayCategories();
+        assertThat(catalogSnapshotService.getSnapshot().version()).isEqualTo(8L);
+        verify(orderableItemService, times(1)).getAllDishes();
+    }
+
+    @Test
+    @DisplayName("Serialisiert jede Antwort einmal als JSON und gzip mit ETag aus dem Inhalt")
+    void getBody_isPreSerialized() throws IOException {
+        when(catalogVersionService.getVersion()).thenReturn(255L);
+        stubCatalog();
+
+        CatalogSnapshotService.RenderedBody body = catalogSnapshotService.getBody(CatalogResource.ORDERABLE_ITEMS);
+        byte[] unzipped;
+        try (GZIPInputStream gzip = new GZIPInputStream(new ByteArrayInputStream(body.gzip()))) {
+            unzipped = gzip.readAllBytes();
+        }
+
+        assertThat(body.json()).isEqualTo(objectMapper.writeValueAsBytes(List.of(burger, menu)));
+        assertThat(unzipped).isEqualTo(body.json());
+        String hash = DigestUtils.md5DigestAsHex(body.json());
+        assertThat(body.etag()).isEqualTo("\"" + hash + "\"");
+        assertThat(body.gzipEtag()).isEqualTo("\"" + hash + "-gzip\"");
+        assertThat(catalogSnapshotService.getBody(CatalogResource.DISPLAY_CATEGORIES).json())
+                .isEqualTo(objectMapper.writeValueAsBytes(List.of(category)));
+        assertThat(catalogSnapshotService.getBody(CatalogResource.ORDERABLE_ITEMS)).isSameAs(body);
+    }
+
+    @Test
+    @DisplayName("Der Schnappschuss kann nicht verändert werden")
+    void getSnapshot_isImmutable() {
+        when(catalogVersionService.getVersion()).thenReturn(7L);
+        stubCatalog();
+
+        CatalogSnapshotService.CatalogSnapshot snapshot = catalogSnapshotService.getSnapshot();
+
+        assertThatThrownBy(() -> snapshot.orderableItems().add(menu))
+                .isInstanceOf(UnsupportedOperationException.class);
+        assertThatThrownBy(() -> snapshot.displayCategories().clear())
+                .isInstanceOf(UnsupportedOperationException.class);
+    }
+}
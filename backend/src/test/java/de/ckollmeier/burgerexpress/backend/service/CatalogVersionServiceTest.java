@@ -0,0 +1,22 @@
+package de.ckollmeier.burgerexpress.backend.service;
+
+import de.ckollmeier.burgerexpress.backend.listener.CatalogChangedEvent;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CatalogVersionServiceTest {
+
+    @Test
+    @DisplayName("Erhöht die Version bei jeder Katalogänderung")
+    void onCatalogChanged_incrementsVersion() {
+        CatalogVersionService catalogVersionService = new CatalogVersionService();
+        long initial = catalogVersionService.getVersion();
+
+        catalogVersionService.onCatalogChanged(new CatalogChangedEvent("burger-express-dishes", "dish-1"));
+        catalogVersionService.onCatalogChanged(new CatalogChangedEvent("burger-express-menus", null));
+
+        assertThat(catalogVersionService.getVersion()).isEqualTo(initial + 2);
+    }
+}
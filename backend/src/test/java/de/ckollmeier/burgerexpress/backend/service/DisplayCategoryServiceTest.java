@@ -3,9 +3,12 @@ package de.ckollmeier.burgerexpress.backend.service;
 import de.ckollmeier.burgerexpress.backend.converter.DisplayCategoryOutputDTOConverter;
 import de.ckollmeier.burgerexpress.backend.dto.DisplayCategoryInputDTO;
 import de.ckollmeier.burgerexpress.backend.dto.DisplayCategoryOutputDTO;
+import de.ckollmeier.burgerexpress.backend.model.Dish;
 import de.ckollmeier.burgerexpress.backend.model.DisplayCategory;
 import de.ckollmeier.burgerexpress.backend.model.DisplayItem;
 import de.ckollmeier.burgerexpress.backend.repository.DisplayCategoryRepository;
+import de.ckollmeier.burgerexpress.backend.types.DishType;
+import org.bson.types.ObjectId;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
@@ -15,8 +18,10 @@ import org.mockito.Mock;
 import org.mockito.MockedStatic;
 import org.mockito.junit.jupiter.MockitoExtension;
 
+import java.math.BigDecimal;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
@@ -35,6 +40,9 @@ class DisplayCategoryServiceTest {
     @Mock
     private DisplayItemService displayItemService;
 
+    @Mock
+    private FilesService filesService;
+
     @InjectMocks
     private DisplayCategoryService displayCategoryService;
 
@@ -49,25 +57,25 @@ class DisplayCategoryServiceTest {
             DisplayCategory cat1 = mock(DisplayCategory.class);
             DisplayCategory cat2 = mock(DisplayCategory.class);
             List<DisplayCategory> categories = List.of(cat1, cat2);
-            when(displayCategoryRepository.findAllByOrderByPositionAscCreatedAtDesc()).thenReturn(categories);
+            when(displayCategoryRepository.findCategoryTree()).thenReturn(categories);
 
             // Create real DisplayCategoryOutputDTO instances instead of mocking them
             DisplayCategoryOutputDTO dto1 = new DisplayCategoryOutputDTO(
                 "id1", "Category 1", "Description 1", 
-                Collections.emptyList(), "image1.jpg", true);
+                Collections.emptyList(), "image1.jpg", null, true);
             DisplayCategoryOutputDTO dto2 = new DisplayCategoryOutputDTO(
                 "id2", "Category 2", "Description 2", 
-                Collections.emptyList(), "image2.jpg", false);
+                Collections.emptyList(), "image2.jpg", null, false);
             List<DisplayCategoryOutputDTO> dtos = List.of(dto1, dto2);
             try (MockedStatic<DisplayCategoryOutputDTOConverter> mock = mockStatic(DisplayCategoryOutputDTOConverter.class)) {
-                mock.when(() -> DisplayCategoryOutputDTOConverter.convert(categories)).thenReturn(dtos);
+                mock.when(() -> DisplayCategoryOutputDTOConverter.convert(eq(categories), anyMap())).thenReturn(dtos);
 
                 // when
                 List<DisplayCategoryOutputDTO> result = displayCategoryService.getAllDisplayCategories();
 
                 // then
                 assertThat(result).containsExactlyElementsOf(dtos);
-                verify(displayCategoryRepository).findAllByOrderByPositionAscCreatedAtDesc();
+                verify(displayCategoryRepository).findCategoryTree();
             }
         }
 
@@ -75,9 +83,9 @@ class DisplayCategoryServiceTest {
         @DisplayName("shouldReturnEmptyList_whenNoDisplayCategoriesExist")
         void getAllDisplayCategories_shouldReturnEmptyList_whenNoDisplayCategoriesExist() {
             // given
-            when(displayCategoryRepository.findAllByOrderByPositionAscCreatedAtDesc()).thenReturn(Collections.emptyList());
+            when(displayCategoryRepository.findCategoryTree()).thenReturn(Collections.emptyList());
             try (MockedStatic<DisplayCategoryOutputDTOConverter> mock = mockStatic(DisplayCategoryOutputDTOConverter.class)) {
-                    mock.when(() -> DisplayCategoryOutputDTOConverter.convert(Collections.emptyList()))
+                    mock.when(() -> DisplayCategoryOutputDTOConverter.convert(eq(Collections.emptyList()), anyMap()))
                         .thenReturn(Collections.emptyList());
 
                 // when
@@ -85,10 +93,49 @@ class DisplayCategoryServiceTest {
 
                 // then
                 assertThat(result).isEmpty();
-                verify(displayCategoryRepository).findAllByOrderByPositionAscCreatedAtDesc();
+                verify(displayCategoryRepository).findCategoryTree();
             }
 
         }
+
+        @Test
+        @DisplayName("shouldEmbedImagePlaceholders_ofCategoriesAndItems")
+        void getAllDisplayCategories_shouldEmbedImagePlaceholders_ofCategoriesAndItems() {
+            // given
+            Dish dish = Dish.builder()
+                    .id("dish")
+                    .name("Burger")
+                    .type(DishType.MAIN)
+                    .price(new BigDecimal("5.99"))
+                    .imageUrl("/api/files/burger")
+                    .build();
+            DisplayItem displayItem = DisplayItem.builder()
+                    .id("item")
+                    .categoryId(new ObjectId())
+                    .name("Burger")
+                    .description("Saftiger Burger")
+                    .orderableItems(List.of(dish))
+                    .build();
+            DisplayCategory category = DisplayCategory.builder()
+                    .id("cat")
+                    .name("Burger")
+                    .imageUrl("/api/files/category")
+                    .displayItems(List.of(displayItem))
+                    .build();
+            when(displayCategoryRepository.findCategoryTree()).thenReturn(List.of(category));
+            when(filesService.getPlaceholdersByImageUrl(List.of("/api/files/category", "/api/files/burger")))
+                    .thenReturn(Map.of(
+                            "/api/files/category", "data:image/webp;base64,CAT",
+                            "/api/files/burger", "data:image/webp;base64,BURGER"));
+
+            // when
+            List<DisplayCategoryOutputDTO> result = displayCategoryService.getAllDisplayCategories();
+
+            // then
+            assertThat(result.get(0).imagePlaceholder()).isEqualTo("data:image/webp;base64,CAT");
+            assertThat(result.get(0).displayItems().get(0).orderableItems().get(0).imagePlaceholders())
+                    .containsExactly(Map.entry("/api/files/burger", "data:image/webp;base64,BURGER"));
+        }
     }
 
     @Nested
@@ -112,7 +159,7 @@ class DisplayCategoryServiceTest {
             // Create a real DisplayCategoryOutputDTO instead of mocking it
             DisplayCategoryOutputDTO outputDTO = new DisplayCategoryOutputDTO(
                 "test-id", "Test Category", "Test Description", 
-                Collections.emptyList(), "test-image.jpg", true);
+                Collections.emptyList(), "test-image.jpg", null, true);
             try (MockedStatic<DisplayCategoryOutputDTOConverter> mock = mockStatic(DisplayCategoryOutputDTOConverter.class)) {
                 mock.when(() -> DisplayCategoryOutputDTOConverter.convert(saved)).thenReturn(outputDTO);
 
@@ -164,7 +211,7 @@ class DisplayCategoryServiceTest {
             // Create a real DisplayCategoryOutputDTO instead of mocking it
             DisplayCategoryOutputDTO outputDTO = new DisplayCategoryOutputDTO(
                 "updated-id", "Updated Category", "Updated Description", 
-                Collections.emptyList(), "updated-image.jpg", true);
+                Collections.emptyList(), "updated-image.jpg", null, true);
             try (MockedStatic<DisplayCategoryOutputDTOConverter> mockStatic = mockStatic(DisplayCategoryOutputDTOConverter.class)) {
                 mockStatic.when(() -> DisplayCategoryOutputDTOConverter.convert(saved)).thenReturn(outputDTO);
 
@@ -0,0 +1,161 @@
+package de.ckollmeier.burgerexpress.backend.service;
+
+import de.ckollmeier.burgerexpress.backend.dto.FileGarbageCollectionStatusDTO;
+import de.ckollmeier.burgerexpress.backend.listener.CatalogChangedEvent;
+import de.ckollmeier.burgerexpress.backend.listener.FilesDeletedEvent;
+import de.ckollmeier.burgerexpress.backend.model.Dish;
+import de.ckollmeier.burgerexpress.backend.model.DisplayCategory;
+import de.ckollmeier.burgerexpress.backend.repository.FilesRepository;
+import de.ckollmeier.burgerexpress.backend.types.FileGarbageCollectionState;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Date;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class FilesGarbageCollectorServiceTest {
+
+    private static final ObjectId USED_BY_DISH = new ObjectId("65f0a1b2c3d4e5f6a7b8c9d1");
+    private static final ObjectId USED_BY_CATEGORY = new ObjectId("65f0a1b2c3d4e5f6a7b8c9d2");
+    private static final ObjectId ORPHAN = new ObjectId("65f0a1b2c3d4e5f6a7b8c9d3");
+
+    @Mock
+    private FilesRepository filesRepository;
+    @Mock
+    private MongoTemplate mongoTemplate;
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    private SimpleMeterRegistry meterRegistry;
+    private FilesGarbageCollectorService collector;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        collector = new FilesGarbageCollectorService(filesRepository, mongoTemplate, eventPublisher, meterRegistry,
+                true, Duration.ofHours(24), Duration.ofDays(7), 2, Duration.ZERO);
+    }
+
+    @AfterEach
+    void tearDown() {
+        collector.shutdown();
+    }
+
+    private static Document file(final ObjectId id, final long length) {
+        return new Document("_id", id).append("length", length);
+    }
+
+    private FileGarbageCollectionStatusDTO awaitFinished() throws InterruptedException {
+        for (int i = 0; i < 100 && collector.getStatus().state() != FileGarbageCollectionState.FINISHED; i++) {
+            Thread.sleep(50);
+        }
+        return collector.getStatus();
+    }
+
+    @Test
+    @DisplayName("Löscht nur Bilder, auf die weder Gericht noch Kategorie verweist, in Batches")
+    void startCollection_deletesUnreferencedFilesInBatches() throws InterruptedException {
+        when(mongoTemplate.findDistinct(any(Query.class), eq("imageUrl"), eq(Dish.class), eq(String.class)))
+                .thenReturn(List.of("/api/files/" + USED_BY_DISH.toHexString() + "?size=256", "https://example.com/x.png"));
+        when(mongoTemplate.findDistinct(any(Query.class), eq("imageUrl"), eq(DisplayCategory.class), eq(String.class)))
+                .thenReturn(List.of("/api/files/" + USED_BY_CATEGORY.toHexString()));
+        when(filesRepository.findImagesUploadedBefore(any(Date.class), isNull(), eq(2)))
+                .thenReturn(List.of(file(USED_BY_DISH, 100), file(ORPHAN, 300)));
+        when(filesRepository.findImagesUploadedBefore(any(Date.class), eq(ORPHAN), eq(2)))
+                .thenReturn(List.of(file(USED_BY_CATEGORY, 200)));
+        when(filesRepository.deleteFilesWithRenditions(List.of(ORPHAN))).thenReturn(1L);
+
+        FileGarbageCollectionStatusDTO started = collector.startCollection();
+        FileGarbageCollectionStatusDTO status = awaitFinished();
+
+        assertThat(started.startedAt()).isNotNull();
+        assertThat(status.state()).isEqualTo(FileGarbageCollectionState.FINISHED);
+        assertThat(status.referencedFiles()).isEqualTo(2);
+        assertThat(status.scannedFiles()).isEqualTo(3);
+        assertThat(status.deletedFiles()).isEqualTo(1);
+        assertThat(status.freedBytes()).isEqualTo(300);
+        assertThat(status.finishedAt()).isNotNull();
+        verify(filesRepository, times(1)).deleteFilesWithRenditions(any());
+        verify(eventPublisher).publishEvent(new FilesDeletedEvent(List.of(ORPHAN.toHexString())));
+        verify(eventPublisher, never()).publishEvent(any(CatalogChangedEvent.class));
+        assertThat(meterRegistry.get("files.gc.deleted").counter().count()).isEqualTo(1.0);
+    }
+
+    @Test
+    @DisplayName("Verschont Dateien innerhalb der Karenzzeit")
+    void startCollection_onlyScansFilesOlderThanGracePeriod() throws InterruptedException {
+        Instant before = Instant.now();
+
+        collector.startCollection();
+        awaitFinished();
+
+        verify(filesRepository).findImagesUploadedBefore(argThat(date ->
+                !date.toInstant().isAfter(before.minus(Duration.ofDays(7)).plusSeconds(5))
+                        && date.toInstant().isAfter(before.minus(Duration.ofDays(7)).minusSeconds(5))), isNull(), eq(2));
+        verify(filesRepository, never()).deleteFilesWithRenditions(any());
+    }
+
+    @Test
+    @DisplayName("Sammelt die Verweise neu, wenn sich der Katalog während des Laufs ändert")
+    void startCollection_remarksAfterCatalogChange() throws InterruptedException {
+        ObjectId first = new ObjectId("65f0a1b2c3d4e5f6a7b8c9e1");
+        ObjectId second = new ObjectId("65f0a1b2c3d4e5f6a7b8c9e2");
+        when(mongoTemplate.findDistinct(any(Query.class), eq("imageUrl"), eq(Dish.class), eq(String.class)))
+                .thenReturn(List.of())
+                .thenReturn(List.of("/api/files/" + ORPHAN.toHexString()));
+        when(filesRepository.findImagesUploadedBefore(any(Date.class), isNull(), eq(2)))
+                .thenReturn(List.of(file(first, 100), file(second, 100)));
+        when(filesRepository.findImagesUploadedBefore(any(Date.class), eq(second), eq(2)))
+                .thenAnswer(invocation -> {
+                    collector.onCatalogChanged(new CatalogChangedEvent("burger-express-dishes", "1"));
+                    return List.of(file(ORPHAN, 100));
+                });
+        when(filesRepository.deleteFilesWithRenditions(any())).thenReturn(2L);
+
+        collector.startCollection();
+        FileGarbageCollectionStatusDTO status = awaitFinished();
+
+        verify(filesRepository).deleteFilesWithRenditions(List.of(first, second));
+        verify(filesRepository, never()).deleteFilesWithRenditions(List.of(ORPHAN));
+        assertThat(status.referencedFiles()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Meldet die gelöschten Dateien eines Batches mit einem einzigen Ereignis")
+    void startCollection_publishesOneEventPerBatch() throws InterruptedException {
+        ObjectId first = new ObjectId("65f0a1b2c3d4e5f6a7b8c9e1");
+        ObjectId second = new ObjectId("65f0a1b2c3d4e5f6a7b8c9e2");
+        when(filesRepository.findImagesUploadedBefore(any(Date.class), isNull(), eq(2)))
+                .thenReturn(List.of(file(first, 100), file(second, 100)));
+        when(filesRepository.findImagesUploadedBefore(any(Date.class), eq(second), eq(2)))
+                .thenReturn(List.of());
+        when(filesRepository.deleteFilesWithRenditions(any())).thenReturn(2L);
+
+        collector.startCollection();
+        awaitFinished();
+
+        verify(eventPublisher).publishEvent(new FilesDeletedEvent(List.of(first.toHexString(), second.toHexString())));
+        verifyNoMoreInteractions(eventPublisher);
+        verify(mongoTemplate, times(1)).findDistinct(any(Query.class), eq("imageUrl"), eq(Dish.class), eq(String.class));
+    }
+}
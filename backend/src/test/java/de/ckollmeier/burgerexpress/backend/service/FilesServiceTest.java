@@ -1,12 +1,15 @@
 package de.ckollmeier.burgerexpress.backend.service;
 
+import de.ckollmeier.burgerexpress.backend.dto.FileInfoPageDTO;
 import de.ckollmeier.burgerexpress.backend.dto.FilesDTO;
 import de.ckollmeier.burgerexpress.backend.exceptions.NotFoundException;
 import de.ckollmeier.burgerexpress.backend.exceptions.ReadFilesException;
 import de.ckollmeier.burgerexpress.backend.exceptions.WriteFilesException;
+import de.ckollmeier.burgerexpress.backend.listener.FilesDeletedEvent;
 import de.ckollmeier.burgerexpress.backend.repository.FilesRepository;
 import com.mongodb.client.gridfs.model.GridFSFile;
 import org.bson.Document;
+import org.bson.types.ObjectId;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
@@ -14,6 +17,7 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.mongodb.gridfs.GridFsResource;
 import org.springframework.data.mongodb.gridfs.GridFsTemplate;
 import org.springframework.web.multipart.MultipartFile;
@@ -21,6 +25,9 @@ import org.springframework.web.multipart.MultipartFile;
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -33,6 +40,14 @@ class FilesServiceTest {
     private FilesRepository filesRepository;
     @Mock
     private GridFsTemplate gridFsTemplate;
+    @Mock
+    private RenditionPipelineService renditionPipelineService;
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+    @Mock
+    private ImagesService imagesService;
+    @Mock
+    private MasterImageNormalizer masterImageNormalizer;
 
     @InjectMocks
     private FilesService filesService;
@@ -46,14 +61,16 @@ class FilesServiceTest {
         void saveFile_shouldSaveFileSuccessfully_whenFileIsValid() throws IOException {
             // given
             MultipartFile file = mock(MultipartFile.class);
-            when(filesRepository.saveFile(file)).thenReturn("12345");
+            when(file.getContentType()).thenReturn("image/png");
+            when(filesRepository.saveFile(file, null)).thenReturn("12345");
 
             // when
             String result = filesService.saveFile(file);
 
             // then
             assertEquals("12345", result);
-            verify(filesRepository, times(1)).saveFile(file);
+            verify(filesRepository, times(1)).saveFile(file, null);
+            verify(renditionPipelineService).scheduleRenditions("12345", "image/png");
         }
 
         @Test
@@ -62,7 +79,7 @@ class FilesServiceTest {
             // given
             MultipartFile file = mock(MultipartFile.class);
             when(file.getOriginalFilename()).thenReturn("testfile.txt");
-            when(filesRepository.saveFile(file)).thenThrow(new IOException("Speicherfehler"));
+            when(filesRepository.saveFile(file, null)).thenThrow(new IOException("Speicherfehler"));
 
             // when / then
             WriteFilesException exception = assertThrows(
@@ -72,6 +89,99 @@ class FilesServiceTest {
 
             assertTrue(exception.getMessage().contains("Fehler beim Schreiben der Datei testfile.txt"));
         }
+
+        @Test
+        @DisplayName("Sollte bei Bildern einen Platzhalter berechnen und mitspeichern")
+        void saveFile_shouldStorePlaceholder_whenFileIsImage() throws IOException {
+            // given
+            MultipartFile file = mock(MultipartFile.class);
+            InputStream inputStream = new ByteArrayInputStream(new byte[]{1, 2, 3});
+            when(file.getContentType()).thenReturn("image/png");
+            when(file.getInputStream()).thenReturn(inputStream);
+            when(imagesService.createPlaceholder(inputStream)).thenReturn("data:image/webp;base64,AAAA");
+            when(filesRepository.saveFile(file, "data:image/webp;base64,AAAA")).thenReturn("12345");
+
+            // when
+            String result = filesService.saveFile(file);
+
+            // then
+            assertEquals("12345", result);
+        }
+
+        @Test
+        @DisplayName("Sollte bei großen Bildern den Master speichern und den Platzhalter daraus berechnen")
+        void saveFile_shouldStoreMaster_whenImageIsNormalized() throws IOException {
+            // given
+            MultipartFile file = mock(MultipartFile.class);
+            FilesDTO master = new FilesDTO(new byte[]{4, 5, 6}, "image/jpeg", "master.jpg");
+            when(file.getContentType()).thenReturn("image/jpeg");
+            when(masterImageNormalizer.createMaster(file)).thenReturn(Optional.of(master));
+            when(imagesService.createPlaceholder(any(InputStream.class))).thenAnswer(invocation -> {
+                InputStream inputStream = invocation.getArgument(0);
+                assertArrayEquals(new byte[]{4, 5, 6}, inputStream.readAllBytes());
+                return "data:image/webp;base64,AAAA";
+            });
+            when(filesRepository.saveFile(file, "data:image/webp;base64,AAAA")).thenReturn("12345");
+
+            // when
+            String result = filesService.saveFile(file);
+
+            // then
+            assertEquals("12345", result);
+            verify(file, never()).getInputStream();
+            verify(filesRepository).saveMaster("12345", master);
+            verify(renditionPipelineService).scheduleRenditions("12345", "image/jpeg");
+        }
+
+        @Test
+        @DisplayName("Sollte den Master nicht erneut speichern, wenn der Inhalt bereits vorhanden ist")
+        void saveFile_shouldNotStoreMasterTwice_whenContentAlreadyExists() throws IOException {
+            // given
+            MultipartFile file = mock(MultipartFile.class);
+            FilesDTO master = new FilesDTO(new byte[]{4, 5, 6}, "image/jpeg", "master.jpg");
+            when(file.getContentType()).thenReturn("image/jpeg");
+            when(masterImageNormalizer.createMaster(file)).thenReturn(Optional.of(master));
+            when(filesRepository.saveFile(eq(file), any())).thenReturn("12345");
+            when(filesRepository.existsMaster("12345")).thenReturn(true);
+
+            // when
+            filesService.saveFile(file);
+
+            // then
+            verify(filesRepository, never()).saveMaster(anyString(), any());
+        }
+
+        @Test
+        @DisplayName("Sollte bekannte Inhalte wiederverwenden, ohne Master oder Platzhalter zu berechnen")
+        void saveFile_shouldReuseExistingFile_beforeDecodingImage() throws IOException {
+            // given
+            MultipartFile file = mock(MultipartFile.class);
+            when(filesRepository.findIdByContent(file)).thenReturn(Optional.of("12345"));
+
+            // when
+            String result = filesService.saveFile(file);
+
+            // then
+            assertEquals("12345", result);
+            verify(filesRepository).markUploaded("12345");
+            verifyNoInteractions(masterImageNormalizer, imagesService, renditionPipelineService);
+            verify(filesRepository, never()).saveFile(any(), any());
+        }
+
+        @Test
+        @DisplayName("Sollte für andere Dateien keinen Platzhalter berechnen")
+        void saveFile_shouldNotComputePlaceholder_whenFileIsNoImage() throws IOException {
+            // given
+            MultipartFile file = mock(MultipartFile.class);
+            when(file.getContentType()).thenReturn("application/pdf");
+            when(filesRepository.saveFile(file, null)).thenReturn("12345");
+
+            // when
+            filesService.saveFile(file);
+
+            // then
+            verifyNoInteractions(imagesService);
+        }
     }
 
     @Test
@@ -79,7 +189,7 @@ class FilesServiceTest {
     void saveFile_throwsException() throws IOException {
         MultipartFile file = mock(MultipartFile.class);
         when(file.getOriginalFilename()).thenReturn("test.txt");
-        when(filesRepository.saveFile(file)).thenThrow(new IOException("Fehler"));
+        when(filesRepository.saveFile(file, null)).thenThrow(new IOException("Fehler"));
 
         WriteFilesException ex = assertThrows(
                 WriteFilesException.class,
@@ -139,6 +249,28 @@ class FilesServiceTest {
         assertEquals(fileName, result.getFileName());
     }
 
+    @Test
+    @DisplayName("Öffnet einen Bereich der Datei über den bereits geladenen Deskriptor")
+    void openFileStream_usesGivenDescriptor() {
+        GridFSFile gridFSFile = mock(GridFSFile.class);
+        InputStream stream = new ByteArrayInputStream(new byte[]{1, 2});
+        when(filesRepository.openDownloadStream(gridFSFile, 10, 11)).thenReturn(stream);
+
+        assertSame(stream, filesService.openFileStream(gridFSFile, 10, 11));
+        verifyNoInteractions(gridFsTemplate);
+    }
+
+    @Test
+    @DisplayName("Liefert den Content-Type aus den Metadaten oder application/octet-stream")
+    void getContentType_fallsBackToOctetStream() {
+        GridFSFile withType = mock(GridFSFile.class);
+        when(withType.getMetadata()).thenReturn(new Document("contentType", "image/png"));
+        GridFSFile withoutType = mock(GridFSFile.class);
+
+        assertEquals("image/png", filesService.getContentType(withType));
+        assertEquals("application/octet-stream", filesService.getContentType(withoutType));
+    }
+
     @Test
     @DisplayName("Wirft NotFoundException, wenn Datei nicht existiert")
     void getFilesDTOById_notFound() {
@@ -175,6 +307,8 @@ class FilesServiceTest {
         String fileId = "12";
         filesService.deleteFile(fileId);
         verify(filesRepository, times(1)).deleteFile(fileId);
+        verify(filesRepository, times(1)).deleteRenditions(fileId);
+        verify(eventPublisher).publishEvent(new FilesDeletedEvent(List.of(fileId)));
     }
 
     @Test
@@ -186,5 +320,101 @@ class FilesServiceTest {
         filesService.deleteFileByUri(uri);
 
         verify(filesRepository, times(1)).deleteFile(fileId);
+        verify(filesRepository, times(1)).deleteRenditions(fileId);
+    }
+
+    @Nested
+    @DisplayName("Tests für getImagesPage")
+    class GetImagesPageTests {
+
+        private Document fileDocument(final ObjectId id, final long uploadMillis) {
+            return new Document("_id", id)
+                    .append("filename", id.toHexString() + ".png")
+                    .append("uploadDate", new Date(uploadMillis))
+                    .append("metadata", new Document("contentType", "image/png"));
+        }
+
+        @Test
+        @DisplayName("Liefert eine Seite und den Cursor der nächsten Seite")
+        void getImagesPage_returnsPageWithNextCursor() {
+            ObjectId first = new ObjectId();
+            ObjectId second = new ObjectId();
+            ObjectId third = new ObjectId();
+            when(filesRepository.findFilesPageByMediaFamily("image", null, null, 3))
+                    .thenReturn(List.of(fileDocument(first, 1000), fileDocument(second, 2000), fileDocument(third, 3000)));
+
+            FileInfoPageDTO page = filesService.getImagesPage(null, 2);
+
+            assertEquals(2, page.files().size());
+            assertEquals(first.toHexString(), page.files().get(0).id());
+            assertEquals("/api/files/" + second.toHexString(), page.files().get(1).uri());
+            assertNotNull(page.nextCursor());
+
+            when(filesRepository.findFilesPageByMediaFamily("image", new Date(2000), second, 3))
+                    .thenReturn(List.of(fileDocument(third, 3000)));
+
+            FileInfoPageDTO nextPage = filesService.getImagesPage(page.nextCursor(), 2);
+
+            assertEquals(1, nextPage.files().size());
+            assertEquals(third.toHexString(), nextPage.files().get(0).id());
+            assertNull(nextPage.nextCursor());
+        }
+
+        @Test
+        @DisplayName("Begrenzt die Seitengröße")
+        void getImagesPage_clampsLimit() {
+            when(filesRepository.findFilesPageByMediaFamily(eq("image"), isNull(), isNull(), anyInt()))
+                    .thenReturn(List.of());
+
+            filesService.getImagesPage(null, 100_000);
+            filesService.getImagesPage(null, 0);
+
+            verify(filesRepository).findFilesPageByMediaFamily("image", null, null, FilesService.MAX_PAGE_SIZE + 1);
+            verify(filesRepository).findFilesPageByMediaFamily("image", null, null, 2);
+        }
+
+        @Test
+        @DisplayName("Lehnt ungültige Cursor ab")
+        void getImagesPage_rejectsInvalidCursor() {
+            assertThrows(IllegalArgumentException.class, () -> filesService.getImagesPage("%%%", 10));
+            assertThrows(IllegalArgumentException.class, () -> filesService.getImagesPage("a2Vpbi1jdXJzb3I", 10));
+            verifyNoInteractions(filesRepository);
+        }
+    }
+
+    @Nested
+    @DisplayName("Tests für getPlaceholdersByImageUrl")
+    class GetPlaceholdersByImageUrlTests {
+
+        @Test
+        @DisplayName("Liefert die Platzhalter je Bild-URL aus einer einzigen Abfrage")
+        void getPlaceholdersByImageUrl_mapsPlaceholdersToUrls() {
+            String burger = new ObjectId().toHexString();
+            String fries = new ObjectId().toHexString();
+            when(filesRepository.findPlaceholders(argThat(ids -> ids.size() == 2 && ids.containsAll(List.of(burger, fries)))))
+                    .thenReturn(Map.of(burger, "data:image/webp;base64,AAAA"));
+
+            Map<String, String> placeholders = filesService.getPlaceholdersByImageUrl(List.of(
+                    "/api/files/" + burger, "/api/files/" + fries + "?size=200", "https://example.com/burger.png"));
+
+            assertEquals(Map.of("/api/files/" + burger, "data:image/webp;base64,AAAA"), placeholders);
+            verify(filesRepository, times(1)).findPlaceholders(any());
+        }
+
+        @Test
+        @DisplayName("Fragt ohne Bilder aus dem Dateispeicher nicht die Datenbank ab")
+        void getPlaceholdersByImageUrl_skipsLookupWithoutStoredImages() {
+            assertTrue(filesService.getPlaceholdersByImageUrl(List.of("https://example.com/burger.png")).isEmpty());
+            verifyNoInteractions(filesRepository);
+        }
+
+        @Test
+        @DisplayName("Ermittelt die Datei-ID aus der Bild-URL")
+        void fileIdFromUrl_parsesFilesUrl() {
+            String id = new ObjectId().toHexString();
+            assertEquals(id, FilesService.fileIdFromUrl("/api/files/" + id + "?size=200"));
+            assertNull(FilesService.fileIdFromUrl("https://example.com/burger.png"));
+            assertNull(FilesService.fileIdFromUrl(null));
+        }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,110 @@
+package de.ckollmeier.burgerexpress.backend.service;
+
+import de.ckollmeier.burgerexpress.backend.dto.FilesDTO;
+import de.ckollmeier.burgerexpress.backend.exceptions.NotFoundException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class ImageRequestCoalescerTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private ImageRequestCoalescer coalescer;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        coalescer = new ImageRequestCoalescer(meterRegistry);
+    }
+
+    @Test
+    @DisplayName("Berechnet eine Variante bei gleichzeitigen Anfragen nur einmal")
+    void execute_runsComputationOncePerKey() throws Exception {
+        int callers = 8;
+        FilesDTO image = new FilesDTO(new byte[]{1}, "image/png", "test.png");
+        AtomicInteger computations = new AtomicInteger();
+        CountDownLatch computationStarted = new CountDownLatch(1);
+        CountDownLatch releaseComputation = new CountDownLatch(1);
+
+        ExecutorService pool = Executors.newFixedThreadPool(callers);
+        try {
+            List<Future<FilesDTO>> results = new ArrayList<>();
+            results.add(pool.submit(() -> coalescer.execute("42-200-png", () -> {
+                computations.incrementAndGet();
+                computationStarted.countDown();
+                awaitQuietly(releaseComputation);
+                return image;
+            })));
+            assertThat(computationStarted.await(5, TimeUnit.SECONDS)).isTrue();
+            for (int i = 1; i < callers; i++) {
+                results.add(pool.submit(() -> coalescer.execute("42-200-png", () -> {
+                    computations.incrementAndGet();
+                    return image;
+                })));
+            }
+            while (meterRegistry.get("images.requests.coalesced").counter().count() < callers - 1) {
+                Thread.sleep(10);
+            }
+            releaseComputation.countDown();
+
+            for (Future<FilesDTO> result : results) {
+                assertSame(image, result.get(5, TimeUnit.SECONDS));
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+
+        assertThat(computations.get()).isEqualTo(1);
+        assertThat(meterRegistry.get("images.requests.coalesced").counter().count()).isEqualTo(callers - 1);
+        assertThat(meterRegistry.get("images.requests.inflight").gauge().value()).isZero();
+    }
+
+    @Test
+    @DisplayName("Gibt Fehler unverändert weiter und erlaubt danach eine neue Berechnung")
+    void execute_propagatesErrorsAndForgetsKey() {
+        assertThrows(NotFoundException.class, () -> coalescer.execute("42-200-png", () -> {
+            throw new NotFoundException("Bild 42 nicht gefunden");
+        }));
+
+        FilesDTO image = new FilesDTO(new byte[]{1}, "image/png", "test.png");
+        assertSame(image, coalescer.execute("42-200-png", () -> image));
+    }
+
+    @Test
+    @DisplayName("Teilt ein laufendes asynchrones Future zwischen Aufrufern")
+    void coalesce_sharesRunningFuture() {
+        CompletableFuture<FilesDTO> computation = new CompletableFuture<>();
+
+        CompletableFuture<FilesDTO> first = coalescer.coalesce("42-200-png", () -> computation);
+        CompletableFuture<FilesDTO> second = coalescer.coalesce("42-200-png", CompletableFuture::new);
+
+        assertSame(first, second);
+        FilesDTO image = new FilesDTO(new byte[]{1}, "image/png", "test.png");
+        computation.complete(image);
+        assertSame(image, second.join());
+        assertThat(meterRegistry.get("images.requests.coalesced").counter().count()).isEqualTo(1);
+    }
+
+    private static void awaitQuietly(final CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
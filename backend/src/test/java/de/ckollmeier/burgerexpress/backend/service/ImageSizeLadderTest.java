@@ -0,0 +1,45 @@
+package de.ckollmeier.burgerexpress.backend.service;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class ImageSizeLadderTest {
+
+    private final ImageSizeLadder ladder = new ImageSizeLadder(List.of(64, 128, 256, 512, 1024));
+
+    @Test
+    @DisplayName("Rundet auf die nächstgrößere Stufe auf")
+    void quantize_roundsUpToNextStep() {
+        assertThat(ladder.quantize(100)).isEqualTo(128);
+        assertThat(ladder.quantize(128)).isEqualTo(128);
+        assertThat(ladder.quantize(129)).isEqualTo(256);
+    }
+
+    @Test
+    @DisplayName("Begrenzt Werte außerhalb der Leiter")
+    void quantize_clampsOutOfRangeValues() {
+        assertThat(ladder.quantize(-5)).isEqualTo(64);
+        assertThat(ladder.quantize(0)).isEqualTo(64);
+        assertThat(ladder.quantize(10_000)).isEqualTo(1024);
+    }
+
+    @Test
+    @DisplayName("Sortiert die konfigurierten Stufen und entfernt ungültige Werte")
+    void constructor_normalizesSteps() {
+        ImageSizeLadder unsorted = new ImageSizeLadder(List.of(512, 0, 64, 512, -1));
+
+        assertThat(unsorted.quantize(65)).isEqualTo(512);
+        assertThat(unsorted.quantize(10)).isEqualTo(64);
+    }
+
+    @Test
+    @DisplayName("Lehnt eine leere Leiter ab")
+    void constructor_rejectsEmptyLadder() {
+        assertThrows(IllegalArgumentException.class, () -> new ImageSizeLadder(List.of()));
+    }
+}
@@ -0,0 +1,80 @@
+package de.ckollmeier.burgerexpress.backend.service;
+
+import de.ckollmeier.burgerexpress.backend.exceptions.ImageWorkersBusyException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class ImageWorkerPoolTest {
+
+    private ThreadPoolTaskExecutor executor;
+    private SimpleMeterRegistry meterRegistry;
+    private ImageWorkerPool imageWorkerPool;
+
+    @BeforeEach
+    void setUp() {
+        executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(1);
+        executor.setMaxPoolSize(1);
+        executor.setQueueCapacity(1);
+        executor.initialize();
+        meterRegistry = new SimpleMeterRegistry();
+        imageWorkerPool = new ImageWorkerPool(executor, meterRegistry, 5);
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdown();
+    }
+
+    @Test
+    @DisplayName("Führt Aufgaben auf dem Pool aus und misst die Wartezeit")
+    void submit_runsTaskOnPool() throws Exception {
+        CompletableFuture<String> result = imageWorkerPool.submit(() -> Thread.currentThread().getName());
+
+        assertThat(result.get(5, TimeUnit.SECONDS)).startsWith(executor.getThreadNamePrefix());
+        assertThat(meterRegistry.get("images.workers.queue.wait").timer().count()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Lehnt Aufgaben bei voller Warteschlange mit ImageWorkersBusyException ab")
+    void submit_rejectsWhenQueueIsFull() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch running = new CountDownLatch(1);
+        CompletableFuture<Boolean> blocking = imageWorkerPool.submit(() -> {
+            running.countDown();
+            return await(release);
+        });
+        assertThat(running.await(5, TimeUnit.SECONDS)).isTrue();
+        CompletableFuture<Boolean> queued = imageWorkerPool.submit(() -> true);
+        assertThat(meterRegistry.get("images.workers.queue.size").gauge().value()).isEqualTo(1);
+
+        ImageWorkersBusyException exception = assertThrows(ImageWorkersBusyException.class,
+                () -> imageWorkerPool.submit(() -> true));
+
+        assertThat(exception.getRetryAfterSeconds()).isEqualTo(5);
+        assertThat(meterRegistry.get("images.workers.rejected").counter().count()).isEqualTo(1);
+        release.countDown();
+        assertThat(blocking.get(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(queued.get(5, TimeUnit.SECONDS)).isTrue();
+    }
+
+    private static boolean await(final CountDownLatch latch) {
+        try {
+            return latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+}
@@ -1,11 +1,16 @@
 package de.ckollmeier.burgerexpress.backend.service;
 
+import de.ckollmeier.burgerexpress.backend.configuration.OffHeapImageArena;
+import de.ckollmeier.burgerexpress.backend.configuration.OffHeapImageCache;
 import de.ckollmeier.burgerexpress.backend.dto.FilesDTO;
 import de.ckollmeier.burgerexpress.backend.exceptions.NotFoundException;
 import de.ckollmeier.burgerexpress.backend.exceptions.ReadFilesException;
 import de.ckollmeier.burgerexpress.backend.exceptions.WriteFilesException;
+import de.ckollmeier.burgerexpress.backend.interfaces.ImageEngine;
+import de.ckollmeier.burgerexpress.backend.listener.FilesDeletedEvent;
 import de.ckollmeier.burgerexpress.backend.repository.FilesRepository;
 import com.mongodb.client.gridfs.model.GridFSFile;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.bson.Document;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
@@ -13,13 +18,24 @@ import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.concurrent.ConcurrentMapCache;
+import org.springframework.core.io.ByteArrayResource;
 import org.springframework.data.mongodb.gridfs.GridFsResource;
 import org.springframework.data.mongodb.gridfs.GridFsTemplate;
+import org.springframework.util.unit.DataSize;
 
 import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.time.Duration;
+import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
@@ -33,6 +49,18 @@ class ImagesServiceTest {
     private GridFsTemplate gridFsTemplate;
     @Mock
     private FilesRepository filesRepository;
+    @Spy
+    private ImageEngine imageEngine = new Java2DImageEngine();
+    @Spy
+    private ImageRequestCoalescer imageRequestCoalescer = new ImageRequestCoalescer(new SimpleMeterRegistry());
+    @Mock
+    private ImageWorkerPool imageWorkerPool;
+    @Mock
+    private CacheManager cacheManager;
+    @Spy
+    private ImageSizeLadder imageSizeLadder = new ImageSizeLadder(List.of(64, 128, 256, 512, 1024));
+    @Mock
+    private RenditionDiskCache renditionDiskCache;
     @InjectMocks
     private ImagesService imagesService;
 
@@ -107,6 +135,92 @@ class ImagesServiceTest {
         }
     }
 
+    @Test
+    @DisplayName("Liefert eine gespeicherte Variante ohne Bildverarbeitung")
+    void getCroppedImage_returnsStoredRendition() throws IOException {
+        FilesDTO stored = new FilesDTO(new byte[]{1, 2, 3}, "image/webp", "burger.png");
+        when(filesRepository.findRendition("42", 128, "webp")).thenReturn(Optional.of(stored));
+
+        FilesDTO dto = imagesService.getCroppedImage("42", 100, "webp");
+
+        assertSame(stored, dto);
+        verify(filesRepository, never()).getFileById(anyString());
+        verify(filesRepository, never()).saveRendition(anyString(), anyInt(), anyString(), any());
+        verify(renditionDiskCache).put("42", 128, "webp", stored);
+    }
+
+    @Test
+    @DisplayName("Liefert eine Variante von der lokalen Platte ohne Zugriff auf GridFS")
+    void getCroppedImage_returnsRenditionFromDisk() throws IOException {
+        FilesDTO onDisk = new FilesDTO(new byte[]{1, 2, 3}, "image/webp", "42-128.webp");
+        when(renditionDiskCache.find("42", 128, "webp")).thenReturn(Optional.of(onDisk));
+
+        FilesDTO dto = imagesService.getCroppedImage("42", 100, "webp");
+
+        assertSame(onDisk, dto);
+        verify(filesRepository, never()).findRendition(anyString(), anyInt(), anyString());
+        verify(renditionDiskCache, never()).put(anyString(), anyInt(), anyString(), any());
+    }
+
+    @Test
+    @DisplayName("Liefert Varianten von der Platte für den Speicher-Cache als Kopie im Heap")
+    void getCroppedImage_copiesFileBackedRenditionIntoHeap() {
+        FilesDTO onDisk = FilesDTO.streamed(new ByteArrayResource(new byte[]{1, 2, 3}), "image/webp", "42-128.webp");
+        when(renditionDiskCache.find("42", 128, "webp")).thenReturn(Optional.of(onDisk));
+
+        FilesDTO dto = imagesService.getCroppedImage("42", 100, "webp");
+
+        assertNotSame(onDisk, dto);
+        assertInstanceOf(ByteArrayResource.class, dto.asResource());
+        assertArrayEquals(new byte[]{1, 2, 3}, dto.getData());
+        assertEquals("image/webp", dto.getContentType());
+    }
+
+    @Test
+    @DisplayName("Speichert eine neu erzeugte Variante im GridFS")
+    void getCroppedImage_storesRenderedRendition() throws IOException {
+        GridFSFile file = mock(GridFSFile.class);
+        when(file.getMetadata()).thenReturn(new Document("contentType", "image/png"));
+        when(filesRepository.getFileById("42")).thenReturn(Optional.of(file));
+        GridFsResource resource = mock(GridFsResource.class);
+        when(gridFsTemplate.getResource(file)).thenReturn(resource);
+        when(resource.getInputStream()).thenReturn(mock(InputStream.class));
+
+        try (var mocked = mockStatic(ImageIO.class)) {
+            mocked.when(() -> ImageIO.read(any(InputStream.class)))
+                    .thenReturn(new BufferedImage(200, 100, BufferedImage.TYPE_INT_ARGB));
+            mocked.when(() -> ImageIO.write(any(), eq("png"), any(java.io.OutputStream.class))).thenReturn(true);
+
+            FilesDTO dto = imagesService.getCroppedImage("42", 100, "png");
+
+            verify(filesRepository).saveRendition("42", 128, "png", dto);
+            verify(renditionDiskCache).put("42", 128, "png", dto);
+        }
+    }
+
+    @Test
+    @DisplayName("Berechnet Varianten aus dem normalisierten Master statt aus dem Original")
+    void getCroppedImage_rendersFromMaster() throws IOException {
+        GridFSFile file = mock(GridFSFile.class);
+        when(file.getMetadata()).thenReturn(new Document("contentType", "image/png"));
+        when(filesRepository.getFileById("42")).thenReturn(Optional.of(file));
+        GridFsResource original = mock(GridFsResource.class);
+        when(gridFsTemplate.getResource(file)).thenReturn(original);
+        when(original.getFilename()).thenReturn("burger.png");
+        ByteArrayOutputStream encoded = new ByteArrayOutputStream();
+        ImageIO.write(new BufferedImage(400, 200, BufferedImage.TYPE_INT_RGB), "png", encoded);
+        GridFsResource master = mock(GridFsResource.class);
+        when(master.getInputStream()).thenReturn(new ByteArrayInputStream(encoded.toByteArray()));
+        when(filesRepository.findMaster("42")).thenReturn(Optional.of(master));
+
+        FilesDTO dto = imagesService.getCroppedImage("42", 128, "png");
+
+        BufferedImage rendered = ImageIO.read(new ByteArrayInputStream(dto.getData()));
+        assertEquals(128, rendered.getWidth());
+        assertEquals("burger.png", dto.getFileName());
+        verify(original, never()).getInputStream();
+    }
+
     @Test
     @DisplayName("Gibt Fehler zurück, wenn das Bild nicht gefunden wird")
     void getCroppedImage_notFound() {
@@ -177,4 +291,160 @@ class ImagesServiceTest {
         assertThrows(ReadFilesException.class, () -> imagesService.getCroppedImage(imageId, size, format));
     }
 
-}
\ No newline at end of file
+    @Test
+    @DisplayName("Rastet die angefragte Größe auf die Stufenleiter ein")
+    void quantizeSize_usesLadder() {
+        assertEquals(128, imagesService.quantizeSize(100));
+        assertEquals(64, imagesService.quantizeSize(1));
+        assertEquals(1024, imagesService.quantizeSize(5000));
+    }
+
+    @Test
+    @DisplayName("isImageAvailable genügt eine Variante auf der Platte, ohne die Datenbank zu fragen")
+    void isImageAvailable_usesRenditionOnDisk() {
+        FilesDTO onDisk = FilesDTO.streamed(new ByteArrayResource(new byte[]{1, 2, 3}), "image/png", "42-128.png");
+        when(renditionDiskCache.find("42", 128, "png")).thenReturn(Optional.of(onDisk));
+
+        assertTrue(imagesService.isImageAvailable("42", 100, "png"));
+        verifyNoInteractions(filesRepository);
+    }
+
+    @Test
+    @DisplayName("isImageAvailable prüft ohne lokale Variante, ob die Datei existiert")
+    void isImageAvailable_checksFileWithoutLocalRendition() {
+        when(renditionDiskCache.find(anyString(), anyInt(), anyString())).thenReturn(Optional.empty());
+        when(filesRepository.existsFile("42")).thenReturn(false);
+
+        assertFalse(imagesService.isImageAvailable("42", 100, "png"));
+    }
+
+    @Test
+    @DisplayName("encodeImage kodiert ein Bild ohne Skalierung")
+    void encodeImage_keepsDimensions() throws IOException {
+        BufferedImage image = new BufferedImage(300, 100, BufferedImage.TYPE_INT_ARGB);
+
+        byte[] png = imagesService.encodeImage(image, "png");
+        imagesService.encodeImage(image, "webp");
+
+        BufferedImage decoded = ImageIO.read(new java.io.ByteArrayInputStream(png));
+        assertEquals(300, decoded.getWidth());
+        assertEquals(100, decoded.getHeight());
+        verify(imageEngine).encode(image, "webp");
+        verify(imageEngine, never()).resize(any(InputStream.class), anyInt(), anyString());
+    }
+
+    @Test
+    @DisplayName("createPlaceholder liefert eine winzige WebP-Variante als Data-URI")
+    void createPlaceholder_returnsDataUri() throws IOException {
+        doReturn(new byte[]{1, 2, 3}).when(imageEngine)
+                .resize(any(InputStream.class), eq(ImagesService.PLACEHOLDER_SIZE), eq("webp"));
+
+        String placeholder = imagesService.createPlaceholder(new java.io.ByteArrayInputStream(new byte[]{9}));
+
+        assertEquals("data:image/webp;base64,AQID", placeholder);
+    }
+
+    @Test
+    @DisplayName("createPlaceholder liefert null, wenn das Bild nicht gelesen werden kann")
+    void createPlaceholder_returnsNullForUnreadableImage() throws IOException {
+        doThrow(new ReadFilesException("kaputt", null)).when(imageEngine)
+                .resize(any(InputStream.class), anyInt(), anyString());
+
+        assertNull(imagesService.createPlaceholder(new java.io.ByteArrayInputStream(new byte[]{9})));
+    }
+
+    @Test
+    @DisplayName("ensureRendition überspringt bereits gespeicherte Varianten")
+    void ensureRendition_skipsExistingRendition() {
+        when(filesRepository.existsRendition("42", 128, "png")).thenReturn(true);
+
+        assertFalse(imagesService.ensureRendition("42", 100, "png"));
+        verify(filesRepository, never()).getFileById(anyString());
+        verify(filesRepository, never()).saveRendition(anyString(), anyInt(), anyString(), any());
+    }
+
+    @Test
+    @DisplayName("getCroppedImageAsync liefert Cache-Treffer ohne Worker-Pool")
+    void getCroppedImageAsync_returnsCachedImageWithoutPool() {
+        ConcurrentMapCache cache = new ConcurrentMapCache("images");
+        FilesDTO cached = new FilesDTO(new byte[]{1}, "image/png", "burger.png");
+        cache.put("42-128-png", cached);
+        when(cacheManager.getCache("images")).thenReturn(cache);
+
+        CompletableFuture<FilesDTO> result = imagesService.getCroppedImageAsync("42", 100, "png");
+
+        assertSame(cached, result.join());
+        verifyNoInteractions(imageWorkerPool);
+    }
+
+    @Test
+    @DisplayName("getCroppedImageAsync streamt Cache-Treffer aus dem Speicher außerhalb des Heaps")
+    void getCroppedImageAsync_streamsOffHeapCacheHit() throws IOException {
+        OffHeapImageCache cache = new OffHeapImageCache("images",
+                new OffHeapImageArena(DataSize.ofKilobytes(64), DataSize.ofKilobytes(16), DataSize.ofKilobytes(4)),
+                DataSize.ofKilobytes(64), Duration.ofHours(1));
+        cache.put("42-128-png", new FilesDTO(new byte[]{1, 2, 3}, "image/png", "burger.png"));
+        when(cacheManager.getCache("images")).thenReturn(cache);
+
+        FilesDTO result = imagesService.getCroppedImageAsync("42", 100, "png").join();
+
+        assertEquals("image/png", result.getContentType());
+        try (InputStream inputStream = result.asResource().getInputStream()) {
+            assertArrayEquals(new byte[]{1, 2, 3}, inputStream.readAllBytes());
+        }
+        verifyNoInteractions(imageWorkerPool);
+    }
+
+    @Test
+    @DisplayName("getCroppedImageAsync liefert Varianten von der lokalen Platte ohne Worker-Pool")
+    void getCroppedImageAsync_returnsRenditionFromDiskWithoutPool() {
+        when(cacheManager.getCache("images")).thenReturn(new ConcurrentMapCache("images"));
+        FilesDTO onDisk = new FilesDTO(new byte[]{1}, "image/png", "42-128.png");
+        when(renditionDiskCache.find("42", 128, "png")).thenReturn(Optional.of(onDisk));
+
+        CompletableFuture<FilesDTO> result = imagesService.getCroppedImageAsync("42", 100, "png");
+
+        assertSame(onDisk, result.join());
+        verifyNoInteractions(imageWorkerPool);
+    }
+
+    @Test
+    @DisplayName("getCroppedImageAsync berechnet Misses auf dem Worker-Pool und füllt den Cache")
+    @SuppressWarnings("unchecked")
+    void getCroppedImageAsync_loadsMissOnPoolAndCachesResult() throws IOException {
+        ConcurrentMapCache cache = new ConcurrentMapCache("images");
+        when(cacheManager.getCache("images")).thenReturn(cache);
+        FilesDTO stored = new FilesDTO(new byte[]{1, 2, 3}, "image/webp", "burger.png");
+        when(filesRepository.findRendition("42", 128, "webp")).thenReturn(Optional.of(stored));
+        when(imageWorkerPool.submit(any(Supplier.class)))
+                .thenAnswer(invocation -> CompletableFuture.completedFuture(
+                        ((Supplier<FilesDTO>) invocation.getArgument(0)).get()));
+
+        CompletableFuture<FilesDTO> result = imagesService.getCroppedImageAsync("42", 100, "webp");
+
+        assertSame(stored, result.join());
+        assertSame(stored, cache.get("42-128-webp", FilesDTO.class));
+        verify(imageWorkerPool).submit(any(Supplier.class));
+    }
+
+    @Test
+    @DisplayName("onFilesDeleted verwirft die gecachten Varianten gelöschter Dateien")
+    void onFilesDeleted_evictsRenditionsOfDeletedFiles() {
+        OffHeapImageCache cache = new OffHeapImageCache("images",
+                new OffHeapImageArena(DataSize.ofKilobytes(64), DataSize.ofKilobytes(16), DataSize.ofKilobytes(4)),
+                DataSize.ofKilobytes(64), Duration.ofHours(1));
+        cache.put("42-128-png", new FilesDTO(new byte[]{1}, "image/png", "burger.png"));
+        cache.put("42-256-webp", new FilesDTO(new byte[]{2}, "image/webp", "burger.png"));
+        cache.put("421-128-png", new FilesDTO(new byte[]{3}, "image/png", "fries.png"));
+        cache.put("43-128-png", new FilesDTO(new byte[]{4}, "image/png", "cola.png"));
+        when(cacheManager.getCache("images")).thenReturn(cache);
+
+        imagesService.onFilesDeleted(new FilesDeletedEvent(List.of("42", "43")));
+
+        assertNull(cache.get("42-128-png"));
+        assertNull(cache.get("42-256-webp"));
+        assertNull(cache.get("43-128-png"));
+        assertNotNull(cache.get("421-128-png"));
+        assertEquals(1, cache.getArena().getUsedBytes());
+    }
+}
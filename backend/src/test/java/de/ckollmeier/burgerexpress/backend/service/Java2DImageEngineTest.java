@@ -0,0 +1,99 @@
+package de.ckollmeier.burgerexpress.backend.service;
+
+import de.ckollmeier.burgerexpress.backend.exceptions.ReadFilesException;
+import de.ckollmeier.burgerexpress.backend.interfaces.ImageEngine;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.opencv.core.Mat;
+import org.springframework.core.io.ClassPathResource;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class Java2DImageEngineTest {
+
+    private final Java2DImageEngine engine = new Java2DImageEngine();
+
+    @Test
+    @DisplayName("Skaliert die längere Kante auf die Zielgröße")
+    void resize_scalesLongerEdge() throws IOException {
+        try (InputStream inputStream = new ClassPathResource("cheeseburger.png").getInputStream()) {
+            byte[] result = engine.resize(inputStream, 200, "png");
+
+            BufferedImage image = ImageIO.read(new ByteArrayInputStream(result));
+            assertThat(image.getWidth()).isEqualTo(200);
+            assertThat(image.getHeight()).isLessThan(200);
+        }
+    }
+
+    @Test
+    @DisplayName("Skaliert große Originale trotz Unterabtastung exakt auf die Zielgröße")
+    void resize_subsampledLargeImage() throws IOException {
+        BufferedImage original = new BufferedImage(3000, 2000, BufferedImage.TYPE_INT_RGB);
+        ByteArrayOutputStream encoded = new ByteArrayOutputStream();
+        ImageIO.write(original, "png", encoded);
+
+        byte[] result = engine.resize(new ByteArrayInputStream(encoded.toByteArray()), 128, "png");
+
+        BufferedImage image = ImageIO.read(new ByteArrayInputStream(result));
+        assertThat(image.getWidth()).isEqualTo(128);
+        assertThat(image.getHeight()).isEqualTo(85);
+    }
+
+    @Test
+    @DisplayName("Lässt beim Unterabtasten Reserve für das Resampling")
+    void subsamplingFactor_keepsHeadroom() {
+        assertThat(Java2DImageEngine.subsamplingFactor(6000, 4000, 128)).isEqualTo(23);
+        assertThat(Java2DImageEngine.subsamplingFactor(400, 300, 200)).isEqualTo(1);
+        assertThat(Java2DImageEngine.subsamplingFactor(400, 300, 0)).isEqualTo(200);
+    }
+
+    @Test
+    @DisplayName("Wirft ReadFilesException bei ungültigen Bilddaten")
+    void resize_invalidImage() {
+        ByteArrayInputStream invalid = new ByteArrayInputStream(new byte[]{42, 43});
+        assertThrows(ReadFilesException.class, () -> engine.resize(invalid, 200, "png"));
+    }
+
+    @Test
+    @DisplayName("Kodiert ein Bild aus dem Speicher direkt als WebP")
+    void encode_webp() throws IOException {
+        byte[] result = engine.encode(new BufferedImage(300, 100, BufferedImage.TYPE_INT_ARGB), "webp");
+
+        assertThat(new String(result, 0, 4)).isEqualTo("RIFF");
+        assertThat(new String(result, 8, 4)).isEqualTo("WEBP");
+    }
+
+    @Test
+    @DisplayName("Überträgt ARGB-Pixel als BGRA in die OpenCV-Matrix")
+    void bufferedImageToMat4Channels_convertsToBgra() {
+        BufferedImage image = new BufferedImage(1, 1, BufferedImage.TYPE_INT_ARGB);
+        image.setRGB(0, 0, 0x80112233);
+
+        Mat mat = engine.bufferedImageToMat4Channels(image);
+
+        byte[] pixel = new byte[4];
+        mat.get(0, 0, pixel);
+        assertThat(pixel).containsExactly((byte) 0x33, (byte) 0x22, (byte) 0x11, (byte) 0x80);
+    }
+
+    @Test
+    @DisplayName("Berechnet Zielmaße unter Beibehaltung des Seitenverhältnisses")
+    void scaledDimensions_keepAspectRatio() {
+        assertThat(ImageEngine.scaledDimensions(800, 400, 200)).containsExactly(200, 100);
+        assertThat(ImageEngine.scaledDimensions(400, 800, 200)).containsExactly(100, 200);
+    }
+
+    @Test
+    @DisplayName("Vergrößert keine Bilder, die kleiner als die Zielgröße sind")
+    void scaledDimensions_doNotUpscale() {
+        assertThat(ImageEngine.scaledDimensions(300, 150, 512)).containsExactly(300, 150);
+    }
+}
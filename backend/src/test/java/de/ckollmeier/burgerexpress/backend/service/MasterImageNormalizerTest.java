@@ -0,0 +1,136 @@
+package de.ckollmeier.burgerexpress.backend.service;
+
+import de.ckollmeier.burgerexpress.backend.dto.FilesDTO;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ByteArrayResource;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class MasterImageNormalizerTest {
+
+    private final MasterImageNormalizer normalizer = new MasterImageNormalizer(true, 256, 0.9f);
+
+    private static byte[] encode(final BufferedImage image, final String format) throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        ImageIO.write(image, format, outputStream);
+        return outputStream.toByteArray();
+    }
+
+    /**
+     * Fügt direkt hinter dem SOI-Marker eines JPEG ein APP1-Segment mit dem EXIF-Tag Orientation ein.
+     */
+    private static byte[] withOrientation(final byte[] jpeg, final int orientation) {
+        ByteBuffer app1 = ByteBuffer.allocate(36);
+        app1.putShort((short) 0xFFE1).putShort((short) 34);
+        app1.put(new byte[]{'E', 'x', 'i', 'f', 0, 0});
+        app1.put(new byte[]{'M', 'M', 0, 42}).putInt(8);
+        app1.putShort((short) 1);
+        app1.putShort((short) 0x0112).putShort((short) 3).putInt(1).putShort((short) orientation).putShort((short) 0);
+        app1.putInt(0);
+        ByteBuffer result = ByteBuffer.allocate(jpeg.length + app1.capacity());
+        result.put(jpeg, 0, 2).put(app1.array()).put(jpeg, 2, jpeg.length - 2);
+        return result.array();
+    }
+
+    private static BufferedImage read(final FilesDTO master) throws IOException {
+        return ImageIO.read(new ByteArrayInputStream(master.getData()));
+    }
+
+    @Test
+    @DisplayName("Begrenzt die längere Kante großer Bilder und kodiert den Master als JPEG")
+    void createMaster_capsLongerEdge() throws IOException {
+        byte[] original = encode(new BufferedImage(800, 400, BufferedImage.TYPE_INT_RGB), "png");
+
+        Optional<FilesDTO> master = normalizer.createMaster(new ByteArrayResource(original));
+
+        assertThat(master).isPresent();
+        assertThat(master.get().getContentType()).isEqualTo("image/jpeg");
+        BufferedImage image = read(master.get());
+        assertThat(image.getWidth()).isEqualTo(256);
+        assertThat(image.getHeight()).isEqualTo(128);
+    }
+
+    @Test
+    @DisplayName("Behält Transparenz und kodiert den Master dann als PNG")
+    void createMaster_keepsAlphaAsPng() throws IOException {
+        byte[] original = encode(new BufferedImage(400, 800, BufferedImage.TYPE_INT_ARGB), "png");
+
+        Optional<FilesDTO> master = normalizer.createMaster(new ByteArrayResource(original));
+
+        assertThat(master).isPresent();
+        assertThat(master.get().getContentType()).isEqualTo("image/png");
+        BufferedImage image = read(master.get());
+        assertThat(image.getWidth()).isEqualTo(128);
+        assertThat(image.getHeight()).isEqualTo(256);
+        assertThat(image.getColorModel().hasAlpha()).isTrue();
+    }
+
+    @Test
+    @DisplayName("Dreht kleine Bilder laut EXIF-Orientierung aufrecht")
+    void createMaster_appliesExifOrientation() throws IOException {
+        byte[] original = withOrientation(encode(new BufferedImage(120, 80, BufferedImage.TYPE_INT_RGB), "jpeg"), 6);
+
+        Optional<FilesDTO> master = normalizer.createMaster(new ByteArrayResource(original));
+
+        assertThat(master).isPresent();
+        BufferedImage image = read(master.get());
+        assertThat(image.getWidth()).isEqualTo(80);
+        assertThat(image.getHeight()).isEqualTo(120);
+    }
+
+    @Test
+    @DisplayName("Erzeugt keinen Master für kleine, aufrechte Bilder")
+    void createMaster_returnsEmptyForSmallUprightImage() throws IOException {
+        byte[] original = withOrientation(encode(new BufferedImage(120, 80, BufferedImage.TYPE_INT_RGB), "jpeg"), 1);
+
+        assertThat(normalizer.createMaster(new ByteArrayResource(original))).isEmpty();
+    }
+
+    @Test
+    @DisplayName("Erzeugt keinen Master für unlesbare Dateien oder wenn deaktiviert")
+    void createMaster_returnsEmptyForUnreadableOrDisabled() throws IOException {
+        byte[] large = encode(new BufferedImage(800, 400, BufferedImage.TYPE_INT_RGB), "png");
+
+        assertThat(normalizer.createMaster(new ByteArrayResource(new byte[]{1, 2, 3}))).isEmpty();
+        assertThat(new MasterImageNormalizer(false, 256, 0.9f).createMaster(new ByteArrayResource(large))).isEmpty();
+    }
+
+    @Test
+    @DisplayName("Liest die EXIF-Orientierung nur aus JPEG-Dateien")
+    void exifOrientation_readsJpegOnly() throws IOException {
+        byte[] jpeg = withOrientation(encode(new BufferedImage(8, 8, BufferedImage.TYPE_INT_RGB), "jpeg"), 8);
+        byte[] png = encode(new BufferedImage(8, 8, BufferedImage.TYPE_INT_RGB), "png");
+
+        assertThat(MasterImageNormalizer.exifOrientation(new ByteArrayInputStream(jpeg))).isEqualTo(8);
+        assertThat(MasterImageNormalizer.exifOrientation(new ByteArrayInputStream(png))).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Bildet die Pixel je Orientierung korrekt ab")
+    void applyOrientation_mapsPixels() {
+        BufferedImage image = new BufferedImage(2, 1, BufferedImage.TYPE_INT_RGB);
+        image.setRGB(0, 0, 0xFF0000);
+        image.setRGB(1, 0, 0x00FF00);
+
+        BufferedImage rotated = MasterImageNormalizer.applyOrientation(image, 6);
+        BufferedImage mirrored = MasterImageNormalizer.applyOrientation(image, 2);
+        BufferedImage counterRotated = MasterImageNormalizer.applyOrientation(image, 8);
+
+        assertThat(rotated.getWidth()).isEqualTo(1);
+        assertThat(rotated.getHeight()).isEqualTo(2);
+        assertThat(rotated.getRGB(0, 0) & 0xFFFFFF).isEqualTo(0xFF0000);
+        assertThat(rotated.getRGB(0, 1) & 0xFFFFFF).isEqualTo(0x00FF00);
+        assertThat(mirrored.getRGB(0, 0) & 0xFFFFFF).isEqualTo(0x00FF00);
+        assertThat(counterRotated.getRGB(0, 0) & 0xFFFFFF).isEqualTo(0x00FF00);
+        assertThat(counterRotated.getRGB(0, 1) & 0xFFFFFF).isEqualTo(0xFF0000);
+    }
+}
@@ -0,0 +1,79 @@
+package de.ckollmeier.burgerexpress.backend.service;
+
+import de.ckollmeier.burgerexpress.backend.exceptions.ReadFilesException;
+import de.ckollmeier.burgerexpress.backend.exceptions.WriteFilesException;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.core.io.ClassPathResource;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class OpenCvImageEngineTest {
+
+    private static byte[] cheeseburger;
+    private final OpenCvImageEngine engine = new OpenCvImageEngine();
+
+    @BeforeAll
+    static void loadImage() throws IOException {
+        try (InputStream inputStream = new ClassPathResource("cheeseburger.png").getInputStream()) {
+            cheeseburger = inputStream.readAllBytes();
+        }
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"png", "jpeg", "jpg"})
+    @DisplayName("Skaliert die längere Kante auf die Zielgröße")
+    void resize_scalesLongerEdge(final String format) throws IOException {
+        byte[] result = engine.resize(new ByteArrayInputStream(cheeseburger), 200, format);
+
+        BufferedImage image = ImageIO.read(new ByteArrayInputStream(result));
+        assertThat(image.getWidth()).isEqualTo(200);
+        assertThat(image.getHeight()).isLessThan(200);
+    }
+
+    @Test
+    @DisplayName("Kodiert WebP ohne Umweg über BufferedImage")
+    void resize_encodesWebp() throws IOException {
+        byte[] result = engine.resize(new ByteArrayInputStream(cheeseburger), 200, "webp");
+
+        assertThat(new String(result, 0, 4)).isEqualTo("RIFF");
+        assertThat(new String(result, 8, 4)).isEqualTo("WEBP");
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"png", "jpeg"})
+    @DisplayName("Kodiert ein Bild aus dem Speicher ohne Skalierung")
+    void encode_keepsDimensions(final String format) throws IOException {
+        BufferedImage original = new BufferedImage(300, 100, BufferedImage.TYPE_INT_ARGB);
+
+        byte[] result = engine.encode(original, format);
+
+        BufferedImage image = ImageIO.read(new ByteArrayInputStream(result));
+        assertThat(image.getWidth()).isEqualTo(300);
+        assertThat(image.getHeight()).isEqualTo(100);
+    }
+
+    @Test
+    @DisplayName("Wirft ReadFilesException bei ungültigen Bilddaten")
+    void resize_invalidImage() {
+        ByteArrayInputStream invalid = new ByteArrayInputStream(new byte[]{42, 43});
+        assertThrows(ReadFilesException.class, () -> engine.resize(invalid, 200, "png"));
+    }
+
+    @Test
+    @DisplayName("Wirft WriteFilesException bei unbekanntem Format")
+    void resize_unsupportedFormat() {
+        ByteArrayInputStream source = new ByteArrayInputStream(cheeseburger);
+        assertThrows(WriteFilesException.class, () -> engine.resize(source, 200, "notexists"));
+    }
+}
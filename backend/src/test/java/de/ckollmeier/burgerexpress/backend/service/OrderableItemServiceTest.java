@@ -35,6 +35,9 @@ class OrderableItemServiceTest {
     @Mock
     private MenuRepository menuRepository;
 
+    @Mock
+    private FilesService filesService;
+
     @InjectMocks
     private OrderableItemService orderableItemService;
 
@@ -69,12 +72,12 @@ class OrderableItemServiceTest {
             orderableItems.add(menu);
 
             List<OrderableItemOutputDTO> expectedDTOs = List.of(
-                    new OrderableItemOutputDTO("1", "Burger", null, "5.99", "main", Map.of(), List.of(), List.of()),
-                    new OrderableItemOutputDTO("2", "Burger Menu", "0", "8.99", "menu", Map.of(), List.of(), List.of())
+                    new OrderableItemOutputDTO("1", "Burger", null, "5.99", "main", Map.of(), Map.of(), List.of(), List.of()),
+                    new OrderableItemOutputDTO("2", "Burger Menu", "0", "8.99", "menu", Map.of(), Map.of(), List.of(), List.of())
             );
 
             try (MockedStatic<OrderableItemOutputDTOConverter> converterMock = mockStatic(OrderableItemOutputDTOConverter.class)) {
-                converterMock.when(() -> OrderableItemOutputDTOConverter.convert(any(List.class))).thenReturn(expectedDTOs);
+                converterMock.when(() -> OrderableItemOutputDTOConverter.convert(any(List.class), anyMap())).thenReturn(expectedDTOs);
 
                 // When
                 List<OrderableItemOutputDTO> result = orderableItemService.getAllOrderableItems();
@@ -83,7 +86,7 @@ class OrderableItemServiceTest {
                 assertThat(result).isEqualTo(expectedDTOs);
                 verify(dishRepository).findAll();
                 verify(menuRepository).findAll();
-                converterMock.verify(() -> OrderableItemOutputDTOConverter.convert(any(List.class)));
+                converterMock.verify(() -> OrderableItemOutputDTOConverter.convert(any(List.class), anyMap()));
             }
         }
 
@@ -95,7 +98,7 @@ class OrderableItemServiceTest {
             when(menuRepository.findAll()).thenReturn(Collections.emptyList());
 
             try (MockedStatic<OrderableItemOutputDTOConverter> converterMock = mockStatic(OrderableItemOutputDTOConverter.class)) {
-                converterMock.when(() -> OrderableItemOutputDTOConverter.convert(Collections.emptyList()))
+                converterMock.when(() -> OrderableItemOutputDTOConverter.convert(eq(Collections.emptyList()), anyMap()))
                         .thenReturn(Collections.emptyList());
 
                 // When
@@ -105,7 +108,7 @@ class OrderableItemServiceTest {
                 assertThat(result).isEmpty();
                 verify(dishRepository).findAll();
                 verify(menuRepository).findAll();
-                converterMock.verify(() -> OrderableItemOutputDTOConverter.convert(Collections.emptyList()));
+                converterMock.verify(() -> OrderableItemOutputDTOConverter.convert(eq(Collections.emptyList()), anyMap()));
             }
         }
     }
@@ -128,11 +131,11 @@ class OrderableItemServiceTest {
             when(menuRepository.findAll()).thenReturn(List.of(menu));
 
             List<OrderableItemOutputDTO> expectedDTOs = List.of(
-                    new OrderableItemOutputDTO("2", "Burger Menu", "0", "8.99", "menu", Map.of(), List.of(), List.of())
+                    new OrderableItemOutputDTO("2", "Burger Menu", "0", "8.99", "menu", Map.of(), Map.of(), List.of(), List.of())
             );
 
             try (MockedStatic<OrderableItemOutputDTOConverter> converterMock = mockStatic(OrderableItemOutputDTOConverter.class)) {
-                converterMock.when(() -> OrderableItemOutputDTOConverter.convert(any(List.class))).thenReturn(expectedDTOs);
+                converterMock.when(() -> OrderableItemOutputDTOConverter.convert(any(List.class), anyMap())).thenReturn(expectedDTOs);
 
                 // When
                 List<OrderableItemOutputDTO> result = orderableItemService.getAllMenus();
@@ -140,7 +143,7 @@ class OrderableItemServiceTest {
                 // Then
                 assertThat(result).isEqualTo(expectedDTOs);
                 verify(menuRepository).findAll();
-                converterMock.verify(() -> OrderableItemOutputDTOConverter.convert(any(List.class)));
+                converterMock.verify(() -> OrderableItemOutputDTOConverter.convert(any(List.class), anyMap()));
             }
         }
 
@@ -151,7 +154,7 @@ class OrderableItemServiceTest {
             when(menuRepository.findAll()).thenReturn(Collections.emptyList());
 
             try (MockedStatic<OrderableItemOutputDTOConverter> converterMock = mockStatic(OrderableItemOutputDTOConverter.class)) {
-                converterMock.when(() -> OrderableItemOutputDTOConverter.convert(Collections.emptyList()))
+                converterMock.when(() -> OrderableItemOutputDTOConverter.convert(eq(Collections.emptyList()), anyMap()))
                         .thenReturn(Collections.emptyList());
 
                 // When
@@ -160,7 +163,7 @@ class OrderableItemServiceTest {
                 // Then
                 assertThat(result).isEmpty();
                 verify(menuRepository).findAll();
-                converterMock.verify(() -> OrderableItemOutputDTOConverter.convert(Collections.emptyList()));
+                converterMock.verify(() -> OrderableItemOutputDTOConverter.convert(eq(Collections.emptyList()), anyMap()));
             }
         }
     }
@@ -184,11 +187,11 @@ class OrderableItemServiceTest {
             when(dishRepository.findAll()).thenReturn(List.of(dish));
 
             List<OrderableItemOutputDTO> expectedDTOs = List.of(
-                    new OrderableItemOutputDTO("1", "Burger", null, "5.99", "main", Map.of(), List.of(), List.of())
+                    new OrderableItemOutputDTO("1", "Burger", null, "5.99", "main", Map.of(), Map.of(), List.of(), List.of())
             );
 
             try (MockedStatic<OrderableItemOutputDTOConverter> converterMock = mockStatic(OrderableItemOutputDTOConverter.class)) {
-                converterMock.when(() -> OrderableItemOutputDTOConverter.convert(any(List.class))).thenReturn(expectedDTOs);
+                converterMock.when(() -> OrderableItemOutputDTOConverter.convert(any(List.class), anyMap())).thenReturn(expectedDTOs);
 
                 // When
                 List<OrderableItemOutputDTO> result = orderableItemService.getAllDishes();
@@ -196,7 +199,7 @@ class OrderableItemServiceTest {
                 // Then
                 assertThat(result).isEqualTo(expectedDTOs);
                 verify(dishRepository).findAll();
-                converterMock.verify(() -> OrderableItemOutputDTOConverter.convert(any(List.class)));
+                converterMock.verify(() -> OrderableItemOutputDTOConverter.convert(any(List.class), anyMap()));
             }
         }
 
@@ -207,7 +210,7 @@ class OrderableItemServiceTest {
             when(dishRepository.findAll()).thenReturn(Collections.emptyList());
 
             try (MockedStatic<OrderableItemOutputDTOConverter> converterMock = mockStatic(OrderableItemOutputDTOConverter.class)) {
-                converterMock.when(() -> OrderableItemOutputDTOConverter.convert(Collections.emptyList()))
+                converterMock.when(() -> OrderableItemOutputDTOConverter.convert(eq(Collections.emptyList()), anyMap()))
                         .thenReturn(Collections.emptyList());
 
                 // When
@@ -216,8 +219,32 @@ class OrderableItemServiceTest {
                 // Then
                 assertThat(result).isEmpty();
                 verify(dishRepository).findAll();
-                converterMock.verify(() -> OrderableItemOutputDTOConverter.convert(Collections.emptyList()));
+                converterMock.verify(() -> OrderableItemOutputDTOConverter.convert(eq(Collections.emptyList()), anyMap()));
             }
         }
     }
+
+    @Test
+    @DisplayName("Embeds the image placeholders, looked up once for all items")
+    void embedsImagePlaceholders() {
+        // Given
+        Dish dish = Dish.builder()
+                .id("1")
+                .name("Burger")
+                .type(DishType.MAIN)
+                .price(new BigDecimal("5.99"))
+                .imageUrl("/api/files/burger")
+                .build();
+        when(dishRepository.findAll()).thenReturn(List.of(dish));
+        when(filesService.getPlaceholdersByImageUrl(List.of("/api/files/burger")))
+                .thenReturn(Map.of("/api/files/burger", "data:image/webp;base64,AAAA"));
+
+        // When
+        List<OrderableItemOutputDTO> result = orderableItemService.getAllDishes();
+
+        // Then
+        assertThat(result.get(0).imagePlaceholders())
+                .containsExactly(Map.entry("/api/files/burger", "data:image/webp;base64,AAAA"));
+        verify(filesService, times(1)).getPlaceholdersByImageUrl(any());
+    }
 }
@@ -0,0 +1,169 @@
+package de.ckollmeier.burgerexpress.backend.service;
+
+import de.ckollmeier.burgerexpress.backend.dto.FilesDTO;
+import de.ckollmeier.burgerexpress.backend.listener.FilesDeletedEvent;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.io.Resource;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RenditionDiskCacheTest {
+
+    private static final String ID = "65f0a1b2c3d4e5f6a7b8c9d0";
+
+    @TempDir
+    Path directory;
+
+    private RenditionDiskCache diskCache(final long maxBytes) {
+        return new RenditionDiskCache(
+                true, directory.toString(), DataSize.ofBytes(maxBytes), Duration.ZERO, new SimpleMeterRegistry());
+    }
+
+    private static FilesDTO image(final int bytes) {
+        return new FilesDTO(new byte[bytes], "image/webp", "burger.png");
+    }
+
+    @Test
+    @DisplayName("Legt Varianten als Datei ab und liefert sie als Datei-Ressource")
+    void put_storesRenditionAsFile() throws IOException {
+        RenditionDiskCache diskCache = diskCache(10_000);
+        FilesDTO image = new FilesDTO(new byte[]{1, 2, 3}, "image/webp", "burger.png");
+
+        diskCache.put(ID, 128, "webp", image);
+
+        Optional<FilesDTO> found = diskCache.find(ID, 128, "webp");
+        assertThat(found).isPresent();
+        Resource resource = found.get().asResource();
+        assertThat(resource.isFile()).isTrue();
+        assertThat(resource.getFile().toPath()).isEqualTo(directory.resolve(ID + "-128.webp"));
+        assertThat(resource.getContentAsByteArray()).containsExactly(1, 2, 3);
+        assertThat(found.get().getContentType()).isEqualTo("image/webp");
+        assertThat(diskCache.find(ID, 256, "webp")).isEmpty();
+        assertThat(diskCache.getUsedBytes()).isEqualTo(3);
+    }
+
+    @Test
+    @DisplayName("Löscht die am längsten nicht gelesenen Varianten, wenn das Budget überschritten wird")
+    void put_evictsLeastRecentlyUsedBeyondBudget() {
+        RenditionDiskCache diskCache = diskCache(2500);
+        diskCache.put(ID, 64, "png", image(1000));
+        diskCache.put(ID, 128, "png", image(1000));
+        diskCache.find(ID, 64, "png");
+
+        diskCache.put(ID, 256, "png", image(1000));
+
+        assertThat(diskCache.find(ID, 128, "png")).isEmpty();
+        assertThat(diskCache.find(ID, 64, "png")).isPresent();
+        assertThat(diskCache.find(ID, 256, "png")).isPresent();
+        assertThat(directory.resolve(ID + "-128.png")).doesNotExist();
+        assertThat(diskCache.getUsedBytes()).isEqualTo(2000);
+    }
+
+    @Test
+    @DisplayName("Übernimmt beim Start vorhandene Dateien, verwirft temporäre und kürzt auf das Budget")
+    void reconcile_adoptsExistingFiles() throws IOException {
+        Path oldest = Files.write(directory.resolve(ID + "-64.png"), new byte[1000]);
+        Files.setLastModifiedTime(oldest, FileTime.from(Instant.parse("2024-01-01T00:00:00Z")));
+        Path newer = Files.write(directory.resolve(ID + "-128.png"), new byte[1000]);
+        Files.setLastModifiedTime(newer, FileTime.from(Instant.parse("2024-06-01T00:00:00Z")));
+        Path temp = Files.write(directory.resolve(ID + "-256.png-123.tmp"), new byte[10]);
+        Path foreign = Files.write(directory.resolve("README"), new byte[10]);
+        RenditionDiskCache diskCache = diskCache(1500);
+
+        diskCache.reconcile();
+
+        assertThat(diskCache.getFileCount()).isEqualTo(1);
+        assertThat(diskCache.find(ID, 128, "png")).isPresent();
+        assertThat(oldest).doesNotExist();
+        assertThat(temp).doesNotExist();
+        assertThat(foreign).exists();
+    }
+
+    @Test
+    @DisplayName("Vergisst Dateien, die von außen gelöscht wurden")
+    void find_forgetsFilesDeletedExternally() throws IOException {
+        RenditionDiskCache diskCache = diskCache(10_000);
+        diskCache.put(ID, 128, "png", image(100));
+        Files.delete(directory.resolve(ID + "-128.png"));
+
+        assertThat(diskCache.find(ID, 128, "png")).isEmpty();
+        assertThat(diskCache.getUsedBytes()).isZero();
+    }
+
+    @Test
+    @DisplayName("Löscht die Varianten gelöschter Originaldateien")
+    void onFilesDeleted_evictsRenditionsOfDeletedFiles() {
+        RenditionDiskCache diskCache = diskCache(10_000);
+        String otherId = "65f0a1b2c3d4e5f6a7b8c9d1";
+        diskCache.put(ID, 64, "png", image(100));
+        diskCache.put(ID, 128, "webp", image(100));
+        diskCache.put(otherId, 64, "png", image(100));
+
+        diskCache.onFilesDeleted(new FilesDeletedEvent(List.of(ID)));
+
+        assertThat(diskCache.find(ID, 64, "png")).isEmpty();
+        assertThat(diskCache.find(ID, 128, "webp")).isEmpty();
+        assertThat(diskCache.find(otherId, 64, "png")).isPresent();
+        assertThat(directory.resolve(ID + "-64.png")).doesNotExist();
+    }
+
+    @Test
+    @DisplayName("Löscht verdrängte Dateien erst nach der Verzögerung, damit laufende Antworten sie noch lesen können")
+    void put_delaysDeletionOfEvictedFiles() throws IOException {
+        RenditionDiskCache diskCache = new RenditionDiskCache(
+                true, directory.toString(), DataSize.ofBytes(1500), Duration.ofHours(1), new SimpleMeterRegistry());
+        diskCache.put(ID, 64, "png", image(1000));
+        Resource inFlight = diskCache.find(ID, 64, "png").orElseThrow().asResource();
+
+        diskCache.put(ID, 128, "png", image(1000));
+
+        assertThat(diskCache.find(ID, 64, "png")).isEmpty();
+        assertThat(inFlight.getContentAsByteArray()).hasSize(1000);
+
+        diskCache.shutdown();
+
+        assertThat(directory.resolve(ID + "-64.png")).doesNotExist();
+        assertThat(directory.resolve(ID + "-128.png")).exists();
+    }
+
+    @Test
+    @DisplayName("Ignoriert Ids und Formate, die keinen sicheren Dateinamen ergeben")
+    void put_ignoresUnsafeNames() throws IOException {
+        RenditionDiskCache diskCache = diskCache(10_000);
+
+        diskCache.put("../etc", 64, "png", image(100));
+        diskCache.put(ID, 64, "png/../x", image(100));
+
+        assertThat(diskCache.getFileCount()).isZero();
+        try (var files = Files.list(directory)) {
+            assertThat(files).isEmpty();
+        }
+    }
+
+    @Test
+    @DisplayName("Ist deaktiviert ohne Zugriff auf die Platte")
+    void disabled_neverStoresRenditions() {
+        RenditionDiskCache diskCache = new RenditionDiskCache(
+                false, directory.resolve("off").toString(), DataSize.ofMegabytes(1), Duration.ZERO,
+                new SimpleMeterRegistry());
+
+        diskCache.reconcile();
+        diskCache.put(ID, 64, "png", image(100));
+
+        assertThat(diskCache.find(ID, 64, "png")).isEmpty();
+        assertThat(directory.resolve("off")).doesNotExist();
+    }
+}
@@ -0,0 +1,115 @@
+package de.ckollmeier.burgerexpress.backend.service;
+
+import de.ckollmeier.burgerexpress.backend.dto.RenditionBackfillStatusDTO;
+import de.ckollmeier.burgerexpress.backend.exceptions.ReadFilesException;
+import de.ckollmeier.burgerexpress.backend.repository.FilesRepository;
+import de.ckollmeier.burgerexpress.backend.types.RenditionBackfillState;
+import com.mongodb.client.gridfs.model.GridFSFile;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+
+import java.io.IOException;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class RenditionPipelineServiceTest {
+
+    @Mock
+    private ImagesService imagesService;
+    @Mock
+    private FilesRepository filesRepository;
+
+    private RenditionPipelineService renditionPipelineService;
+
+    @BeforeEach
+    void setUp() {
+        TaskExecutor synchronousExecutor = Runnable::run;
+        renditionPipelineService = new RenditionPipelineService(
+                imagesService, filesRepository, synchronousExecutor, List.of(48, 200), List.of("WEBP", "png"), 2);
+    }
+
+    @AfterEach
+    void tearDown() {
+        renditionPipelineService.shutdown();
+    }
+
+    @Test
+    @DisplayName("Berechnet nach dem Upload alle Standardvarianten eines Bildes vor")
+    void scheduleRenditions_rendersAllVariantsForImages() {
+        renditionPipelineService.scheduleRenditions("42", "image/png");
+
+        verify(imagesService).ensureRendition("42", 48, "webp");
+        verify(imagesService).ensureRendition("42", 48, "png");
+        verify(imagesService).ensureRendition("42", 200, "webp");
+        verify(imagesService).ensureRendition("42", 200, "png");
+    }
+
+    @Test
+    @DisplayName("Ignoriert Dateien, die keine Bilder sind")
+    void scheduleRenditions_ignoresNonImages() {
+        renditionPipelineService.scheduleRenditions("42", "application/pdf");
+        renditionPipelineService.scheduleRenditions("43", null);
+
+        verifyNoInteractions(imagesService);
+    }
+
+    @Test
+    @DisplayName("Verwirft die Vorberechnung, wenn die Warteschlange voll ist")
+    void scheduleRenditions_dropsWorkWhenQueueIsFull() {
+        TaskExecutor fullExecutor = task -> {
+            throw new TaskRejectedException("voll");
+        };
+        RenditionPipelineService service = new RenditionPipelineService(
+                imagesService, filesRepository, fullExecutor, List.of(48), List.of("png"), 1);
+
+        service.scheduleRenditions("42", "image/png");
+
+        verifyNoInteractions(imagesService);
+        service.shutdown();
+    }
+
+    @Test
+    @DisplayName("Backfill verarbeitet alle Bilder und meldet den Fortschritt")
+    void startBackfill_processesAllImagesAndReportsProgress() throws InterruptedException {
+        GridFSFile first = mock(GridFSFile.class);
+        GridFSFile second = mock(GridFSFile.class);
+        ObjectId firstId = new ObjectId();
+        ObjectId secondId = new ObjectId();
+        when(first.getObjectId()).thenReturn(firstId);
+        when(second.getObjectId()).thenReturn(secondId);
+        when(filesRepository.getAllImages()).thenReturn(List.of(first, second));
+        when(imagesService.ensureRendition(eq(firstId.toHexString()), anyInt(), anyString())).thenReturn(true);
+        when(imagesService.ensureRendition(eq(secondId.toHexString()), anyInt(), anyString()))
+                .thenThrow(new ReadFilesException("kaputt", new IOException("kaputt")));
+
+        RenditionBackfillStatusDTO started = renditionPipelineService.startBackfill();
+        assertThat(started.startedAt()).isNotNull();
+
+        for (int i = 0; i < 100
+                && renditionPipelineService.getBackfillStatus().state() != RenditionBackfillState.FINISHED; i++) {
+            Thread.sleep(50);
+        }
+
+        RenditionBackfillStatusDTO status = renditionPipelineService.getBackfillStatus();
+        assertThat(status.state()).isEqualTo(RenditionBackfillState.FINISHED);
+        assertThat(status.totalFiles()).isEqualTo(2);
+        assertThat(status.processedFiles()).isEqualTo(2);
+        assertThat(status.failedFiles()).isEqualTo(1);
+        assertThat(status.renderedVariants()).isEqualTo(4);
+        assertThat(status.finishedAt()).isNotNull();
+    }
+}
@@ -4,21 +4,26 @@ export type DishImagesProps = {
     mainImages: string[]
     sideImages: string[]
     beverageImages: string[]
+    placeholders?: Record<string, string>;
     className?: string;
 }
 
-const DishImages = ({mainImages, sideImages, beverageImages, className}: DishImagesProps) => {
+const DishImages = ({mainImages, sideImages, beverageImages, placeholders = {}, className}: DishImagesProps) => {
+    // Tiny inline placeholder shown behind the image until the real thumbnail has loaded
+    const placeholderStyle = (url: string) => placeholders[url]
+        ? {backgroundImage: `url(${placeholders[url]})`, backgroundSize: "cover"}
+        : undefined;
     return (<div className={cn("dish-images", className)}>
         <div className="dish-images_main">
-            {mainImages.map(url => <img key={url} src={url + "?size=180"} alt="Hauptgericht" />)}
-            {mainImages.length === 0 && sideImages.map(url => <img key={url} src={url + "?size=180"} alt="Beilage" />)}
-            {mainImages.length === 0 && beverageImages.map(url => <img key={url} src={url + "?size=180"} alt="Getränk" />)}
+            {mainImages.map(url => <img key={url} src={url + "?size=180"} style={placeholderStyle(url)} alt="Hauptgericht" />)}
+            {mainImages.length === 0 && sideImages.map(url => <img key={url} src={url + "?size=180"} style={placeholderStyle(url)} alt="Beilage" />)}
+            {mainImages.length === 0 && beverageImages.map(url => <img key={url} src={url + "?size=180"} style={placeholderStyle(url)} alt="Getränk" />)}
         </div>
         <div className="dish-images_side">
-            {mainImages.length > 0 && sideImages.map(url => <img key={url} src={url + "?size=190"} alt="Beilage" />)}
+            {mainImages.length > 0 && sideImages.map(url => <img key={url} src={url + "?size=190"} style={placeholderStyle(url)} alt="Beilage" />)}
         </div>
         <div className="dish-images_beverage">
-            {mainImages.length > 0 && beverageImages.map(url => <img key={url} src={url + "?size=160"} alt="Getränk" />)}
+            {mainImages.length > 0 && beverageImages.map(url => <img key={url} src={url + "?size=160"} style={placeholderStyle(url)} alt="Getränk" />)}
         </div>
     </div>)
 }
@@ -82,7 +82,8 @@ const CategoriesSidebar: React.FC<CategoriesSidebarProps> = ({
                       onCategorySelect(category.id);
                     }}
                 >
-                  {category.name}<img alt={category.name} src={category.imageUrl + "?size=48"}/>
+                  {category.name}<img alt={category.name} src={category.imageUrl + "?size=48"}
+                       style={category.imagePlaceholder ? {backgroundImage: `url(${category.imagePlaceholder})`, backgroundSize: "cover"} : undefined}/>
                 </Link>
               </li>
           ))}
@@ -72,6 +72,7 @@ const CustomerDisplayItem: React.FC<CustomerDisplayItemProps> = ({
           mainImages={displayItem.orderableItems.flatMap(o => o.imageUrls["MAIN"] ?? [])}
           sideImages={displayItem.orderableItems.flatMap(o => o.imageUrls["SIDE"] ?? [])}
           beverageImages={displayItem.orderableItems.flatMap(o => o.imageUrls["BEVERAGE"] ?? [])}
+          placeholders={Object.assign({}, ...displayItem.orderableItems.map(o => o.imagePlaceholders ?? {}))}
       />}
       imageClassName="w-full h-full row-start-head row-end-actions row-head_actions row-span-2"
       footer={
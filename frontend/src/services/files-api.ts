@@ -1,5 +1,5 @@
 import axios from "axios";
-import {isFileInfoDTO} from "../types/FileInfoDTO.ts";
+import {type FileInfoDTO, isFileInfoDTO} from "../types/FileInfoDTO.ts";
 import {QueryFunctionContext} from "@tanstack/react-query";
 import {throwErrorByResponse} from "@/util/errors.ts";
 
@@ -10,11 +10,21 @@ export const FilesApi = {
 
     async getAllImages({signal}: QueryFunctionContext) {
         try {
-            const response = await axios.get(FilesApi.baseUrl, {signal: signal});
-            if (Array.isArray(response.data) && response.data.every(isFileInfoDTO)) {
-                return response.data;
-            }
+            const images: FileInfoDTO[] = [];
+            let cursor: string | undefined;
+            do {
+                const response = await axios.get(FilesApi.baseUrl, {signal: signal, params: cursor ? {cursor} : undefined});
+                if (!Array.isArray(response.data) || !response.data.every(isFileInfoDTO)) {
+                    throw new TypeError("Ungültige Antwort beim Laden der Bilder");
+                }
+                images.push(...response.data);
+                cursor = response.headers['x-next-cursor'];
+            } while (cursor);
+            return images;
         } catch (error) {
+            if (error instanceof TypeError) {
+                throw error;
+            }
             if (axios.isCancel(error)) {
                 return [];
             }
@@ -6,6 +6,7 @@ export type DisplayCategoryOutputDTO = {
     description: string;
     displayItems: DisplayItemOutputDTO[];
     imageUrl: string;
+    imagePlaceholder?: string | null;
     published: boolean;
 };
 
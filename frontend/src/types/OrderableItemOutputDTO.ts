@@ -5,6 +5,7 @@ export type OrderableItemOutputDTO = {
     price: string;
     type: string;
     imageUrls: Record<string, string[]>;
+    imagePlaceholders?: Record<string, string>;
     descriptionForDisplay: string[];
     descriptionForCart: string[];
 };